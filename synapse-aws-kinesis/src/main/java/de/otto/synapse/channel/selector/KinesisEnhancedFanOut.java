@@ -0,0 +1,12 @@
+package de.otto.synapse.channel.selector;
+
+/**
+ * {@link Selector} used to specify that the desired endpoint is a Kinesis message log that is consumed using
+ * enhanced fan-out (SubscribeToShard) instead of polling shards using GetRecords.
+ *
+ * <p>
+ *     Only endpoints explicitly selected using this selector are using enhanced fan-out; endpoints selected by
+ *     {@link Kinesis} or {@link MessageLog} are still using polling.
+ * </p>
+ */
+public interface KinesisEnhancedFanOut extends Kinesis {}
@@ -6,12 +6,15 @@ import de.otto.synapse.configuration.aws.AwsProperties;
 import de.otto.synapse.configuration.aws.SynapseAwsAuthConfiguration;
 import de.otto.synapse.endpoint.MessageInterceptorRegistry;
 import de.otto.synapse.endpoint.receiver.MessageLogReceiverEndpointFactory;
+import de.otto.synapse.endpoint.receiver.kinesis.KinesisEnhancedFanOutReceiverEndpointFactory;
 import de.otto.synapse.endpoint.receiver.kinesis.KinesisMessageLogReceiverEndpointFactory;
 import de.otto.synapse.endpoint.sender.MessageSenderEndpointFactory;
 import de.otto.synapse.endpoint.sender.kinesis.KinesisMessageSenderEndpointFactory;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
@@ -30,6 +33,7 @@ import software.amazon.awssdk.core.retry.conditions.RetryOnExceptionsCondition;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 
@@ -40,16 +44,19 @@ import static software.amazon.awssdk.core.interceptor.SdkExecutionAttribute.SERV
 
 @Configuration
 @Import({SynapseAwsAuthConfiguration.class, SynapseAutoConfiguration.class})
-@EnableConfigurationProperties(AwsProperties.class)
+@EnableConfigurationProperties({AwsProperties.class, KinesisProperties.class})
 public class KinesisAutoConfiguration {
 
     private static final Logger LOG = getLogger(KinesisAutoConfiguration.class);
 
     private final AwsProperties awsProperties;
+    private final KinesisProperties kinesisProperties;
 
     @Autowired
-    public KinesisAutoConfiguration(final AwsProperties awsProperties) {
+    public KinesisAutoConfiguration(final AwsProperties awsProperties,
+                                    final KinesisProperties kinesisProperties) {
         this.awsProperties = awsProperties;
+        this.kinesisProperties = kinesisProperties;
     }
 
     @Bean
@@ -81,7 +88,8 @@ public class KinesisAutoConfiguration {
     public MessageSenderEndpointFactory kinesisMessageLogSenderEndpointFactory(final MessageInterceptorRegistry registry,
                                                                                final KinesisAsyncClient kinesisClient) {
         LOG.info("Auto-configuring Kinesis MessageSenderEndpointFactory");
-        return new KinesisMessageSenderEndpointFactory(registry, kinesisClient);
+        final KinesisProperties.Sender sender = kinesisProperties.getSender();
+        return new KinesisMessageSenderEndpointFactory(registry, kinesisClient, sender.getMaxInFlightRequests(), sender.isAggregationEnabled(), sender.getTrustedJsonPayloadChannels());
     }
 
     @Bean
@@ -93,7 +101,25 @@ public class KinesisAutoConfiguration {
         final ExecutorService executorService = newCachedThreadPool(
                 new ThreadFactoryBuilder().setNameFormat("kinesis-message-log-%d").build()
         );
-        return new KinesisMessageLogReceiverEndpointFactory(interceptorRegistry, kinesisClient, executorService, eventPublisher);
+        final KinesisProperties.Receiver receiver = kinesisProperties.getReceiver();
+        return new KinesisMessageLogReceiverEndpointFactory(interceptorRegistry, kinesisClient, executorService, eventPublisher, Clock.systemDefaultZone(), null, receiver.getLanesPerShard(), receiver.getLaneCapacity());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "enhancedFanOutMessageLogReceiverEndpointFactory")
+    @ConditionalOnProperty(prefix = "synapse.kinesis.enhanced-fan-out", name = "enabled", havingValue = "true")
+    public MessageLogReceiverEndpointFactory enhancedFanOutMessageLogReceiverEndpointFactory(final MessageInterceptorRegistry interceptorRegistry,
+                                                                                             final KinesisAsyncClient kinesisClient,
+                                                                                             final ApplicationEventPublisher eventPublisher,
+                                                                                             final @Value("${spring.application.name:synapse}") String applicationName) {
+        LOG.info("Auto-configuring Kinesis enhanced fan-out MessageLogReceiverEndpointFactory");
+        final ExecutorService executorService = newCachedThreadPool(
+                new ThreadFactoryBuilder().setNameFormat("kinesis-enhanced-fan-out-%d").build()
+        );
+        final String consumerName = kinesisProperties.getEnhancedFanOut().getConsumerName() != null
+                ? kinesisProperties.getEnhancedFanOut().getConsumerName()
+                : applicationName;
+        return new KinesisEnhancedFanOutReceiverEndpointFactory(consumerName, interceptorRegistry, kinesisClient, executorService, eventPublisher);
     }
 
 
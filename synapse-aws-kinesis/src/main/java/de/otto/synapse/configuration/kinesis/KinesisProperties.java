@@ -0,0 +1,136 @@
+package de.otto.synapse.configuration.kinesis;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashSet;
+import java.util.Set;
+
+@ConfigurationProperties(prefix = "synapse.kinesis")
+public class KinesisProperties {
+
+    private final EnhancedFanOut enhancedFanOut = new EnhancedFanOut();
+    private final Sender sender = new Sender();
+    private final Receiver receiver = new Receiver();
+
+    public EnhancedFanOut getEnhancedFanOut() {
+        return enhancedFanOut;
+    }
+
+    public Sender getSender() {
+        return sender;
+    }
+
+    public Receiver getReceiver() {
+        return receiver;
+    }
+
+    public static class EnhancedFanOut {
+
+        /**
+         * Enables the auto-configuration of a MessageLogReceiverEndpointFactory for Kinesis enhanced fan-out
+         * consumers. The factory is selected using the selector KinesisEnhancedFanOut.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The name of the stream consumer that is registered for enhanced fan-out. Every service (not every
+         * instance of a service) should use a distinct consumer name. Defaults to 'spring.application.name'.
+         */
+        private String consumerName;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getConsumerName() {
+            return consumerName;
+        }
+
+        public void setConsumerName(String consumerName) {
+            this.consumerName = consumerName;
+        }
+    }
+
+    public static class Sender {
+
+        /**
+         * The maximum number of concurrent PutRecords requests used by a KinesisMessageSender to send a batch
+         * of messages.
+         */
+        private int maxInFlightRequests = 8;
+
+        /**
+         * Enables the aggregation of messages into KPL-compatible aggregated records. Aggregation is increasing
+         * the throughput of small messages, but aggregated records can only be read by consumers that are able to
+         * de-aggregate them, like Synapse or the Kinesis Client Library.
+         */
+        private boolean aggregationEnabled = false;
+
+        /**
+         * The names of the channels, whose payloads are known to be valid JSON, for example, because they are
+         * serialized by Synapse. JSON payloads of these channels are embedded into V2 messages without validating
+         * them first.
+         */
+        private Set<String> trustedJsonPayloadChannels = new HashSet<>();
+
+        public int getMaxInFlightRequests() {
+            return maxInFlightRequests;
+        }
+
+        public void setMaxInFlightRequests(int maxInFlightRequests) {
+            this.maxInFlightRequests = maxInFlightRequests;
+        }
+
+        public boolean isAggregationEnabled() {
+            return aggregationEnabled;
+        }
+
+        public void setAggregationEnabled(boolean aggregationEnabled) {
+            this.aggregationEnabled = aggregationEnabled;
+        }
+
+        public Set<String> getTrustedJsonPayloadChannels() {
+            return trustedJsonPayloadChannels;
+        }
+
+        public void setTrustedJsonPayloadChannels(Set<String> trustedJsonPayloadChannels) {
+            this.trustedJsonPayloadChannels = trustedJsonPayloadChannels;
+        }
+    }
+
+    public static class Receiver {
+
+        /**
+         * The number of lanes used to process the messages of every Kinesis shard in parallel. Messages are
+         * distributed to the lanes by their partition key, so messages having the same partition key are still
+         * consumed in order. Consumers of channels using more than one lane must be thread-safe.
+         */
+        private int lanesPerShard = 1;
+
+        /**
+         * The maximum number of pending shard responses per lane. Reading from a shard is paused, if one of its lanes
+         * is full.
+         */
+        private int laneCapacity = 4;
+
+        public int getLanesPerShard() {
+            return lanesPerShard;
+        }
+
+        public void setLanesPerShard(int lanesPerShard) {
+            this.lanesPerShard = lanesPerShard;
+        }
+
+        public int getLaneCapacity() {
+            return laneCapacity;
+        }
+
+        public void setLaneCapacity(int laneCapacity) {
+            this.laneCapacity = laneCapacity;
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package de.otto.synapse.endpoint.kinesis;
+
+import de.otto.synapse.channel.ShardPosition;
+import de.otto.synapse.channel.StartFrom;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Reading and writing of Kinesis records using the aggregated record format of the
+ * <a href="https://github.com/awslabs/amazon-kinesis-producer/blob/master/aggregation-format.md">Kinesis Producer
+ * Library</a> (KPL).
+ *
+ * <p>
+ *     An aggregated record is packing many small user records into a single Kinesis record, so more messages can be
+ *     written to a shard than the limit of 1000 records per second would allow. The data of an aggregated record
+ *     consists of four magic bytes, the protobuf-encoded {@code AggregatedRecord} and the MD5 digest of the protobuf
+ *     message:
+ * </p>
+ * <pre>
+ *     message AggregatedRecord {
+ *         repeated string partition_key_table = 1;
+ *         repeated string explicit_hash_key_table = 2;
+ *         repeated Record records = 3;
+ *     }
+ *     message Record {
+ *         required uint64 partition_key_index = 1;
+ *         optional uint64 explicit_hash_key_index = 2;
+ *         required bytes data = 3;
+ *         repeated Tag tags = 4;
+ *     }
+ * </pre>
+ * <p>
+ *     Records written by the KPL can be read by Synapse and vice versa. Explicit hash keys and tags of user records
+ *     are ignored.
+ * </p>
+ */
+public final class KinesisAggregatedRecord {
+
+    private static final byte[] MAGIC = {(byte) 0xF3, (byte) 0x89, (byte) 0x9A, (byte) 0xC2};
+    private static final int DIGEST_LENGTH = 16;
+
+    private static final int PARTITION_KEY_TABLE_FIELD = 1;
+    private static final int RECORDS_FIELD = 3;
+    private static final int PARTITION_KEY_INDEX_FIELD = 1;
+    private static final int DATA_FIELD = 3;
+
+    private static final int WIRE_TYPE_VARINT = 0;
+    private static final int WIRE_TYPE_64BIT = 1;
+    private static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_TYPE_32BIT = 5;
+
+    /**
+     * Separator of the sequence number of an aggregated record and the index of a user record in the position
+     * of a user record.
+     */
+    private static final char SUB_SEQUENCE_SEPARATOR = ':';
+
+    private KinesisAggregatedRecord() {
+    }
+
+    /**
+     * A single user record contained in an aggregated record.
+     */
+    public static final class UserRecord {
+        private final String partitionKey;
+        private final byte[] data;
+
+        public UserRecord(final String partitionKey, final byte[] data) {
+            this.partitionKey = partitionKey;
+            this.data = data;
+        }
+
+        public String getPartitionKey() {
+            return partitionKey;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    /**
+     * Returns true, if the data of a Kinesis record is starting with the magic bytes of an aggregated record.
+     *
+     * @param data the data of a Kinesis record
+     * @return boolean
+     */
+    public static boolean isAggregated(final byte[] data) {
+        if (data == null || data.length < MAGIC.length + DIGEST_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Extracts the user records from an aggregated record.
+     *
+     * @param data the data of an {@link #isAggregated(byte[]) aggregated} Kinesis record
+     * @return list of user records
+     * @throws IllegalArgumentException if the data is not a valid aggregated record
+     */
+    public static List<UserRecord> deaggregate(final byte[] data) {
+        if (!isAggregated(data)) {
+            throw new IllegalArgumentException("Record is not an aggregated record");
+        }
+        final int messageEnd = data.length - DIGEST_LENGTH;
+        final byte[] digest = md5(data, MAGIC.length, messageEnd - MAGIC.length);
+        if (!Arrays.equals(digest, Arrays.copyOfRange(data, messageEnd, data.length))) {
+            throw new IllegalArgumentException("Digest of aggregated record does not match");
+        }
+        final List<String> partitionKeys = new ArrayList<>();
+        final List<long[]> records = new ArrayList<>();
+        final ProtobufReader reader = new ProtobufReader(data, MAGIC.length, messageEnd);
+        while (reader.hasMore()) {
+            final int tag = (int) reader.readVarint();
+            final int field = tag >>> 3;
+            final int wireType = tag & 0x7;
+            if (field == PARTITION_KEY_TABLE_FIELD && wireType == WIRE_TYPE_LENGTH_DELIMITED) {
+                final int length = (int) reader.readVarint();
+                partitionKeys.add(new String(data, reader.position, length, StandardCharsets.UTF_8));
+                reader.skip(length);
+            } else if (field == RECORDS_FIELD && wireType == WIRE_TYPE_LENGTH_DELIMITED) {
+                final int length = (int) reader.readVarint();
+                records.add(readRecord(new ProtobufReader(data, reader.position, reader.position + length)));
+                reader.skip(length);
+            } else {
+                reader.skipField(wireType);
+            }
+        }
+        final List<UserRecord> userRecords = new ArrayList<>(records.size());
+        for (final long[] record : records) {
+            final int partitionKeyIndex = (int) record[0];
+            if (partitionKeyIndex < 0 || partitionKeyIndex >= partitionKeys.size()) {
+                throw new IllegalArgumentException("Invalid partition key index in aggregated record: " + partitionKeyIndex);
+            }
+            userRecords.add(new UserRecord(
+                    partitionKeys.get(partitionKeyIndex),
+                    Arrays.copyOfRange(data, (int) record[1], (int) (record[1] + record[2]))));
+        }
+        return unmodifiableList(userRecords);
+    }
+
+    /**
+     * Returns the position of a user record inside of an aggregated record.
+     *
+     * <p>
+     *     The position of the last user record is the sequence number of the aggregated record, so reading can
+     *     continue after the aggregated record. All other user records have a position consisting of the sequence
+     *     number and the index of the user record.
+     * </p>
+     *
+     * @param sequenceNumber the sequence number of the aggregated record
+     * @param index the index of the user record
+     * @param numberOfRecords the number of user records in the aggregated record
+     * @return position
+     */
+    public static String subSequencePosition(final String sequenceNumber, final int index, final int numberOfRecords) {
+        return index == numberOfRecords - 1
+                ? sequenceNumber
+                : sequenceNumber + SUB_SEQUENCE_SEPARATOR + index;
+    }
+
+    /**
+     * Returns true, if the position is referring to a user record inside of an aggregated record.
+     *
+     * @param position the position of a message
+     * @return boolean
+     */
+    public static boolean isSubSequencePosition(final String position) {
+        return position != null && position.indexOf(SUB_SEQUENCE_SEPARATOR) >= 0;
+    }
+
+    /**
+     * Returns the Kinesis sequence number of a position. If the position is a {@link #isSubSequencePosition(String)
+     * sub-sequence position}, the sequence number of the aggregated record is returned.
+     *
+     * @param position the position of a message
+     * @return sequence number
+     */
+    public static String sequenceNumberOf(final String position) {
+        final int separator = position.indexOf(SUB_SEQUENCE_SEPARATOR);
+        return separator >= 0 ? position.substring(0, separator) : position;
+    }
+
+    /**
+     * Returns the position used to start reading a shard from the given position.
+     *
+     * <p>
+     *     Kinesis does not support to start reading in the middle of an aggregated record. If the position is a
+     *     {@link #isSubSequencePosition(String) sub-sequence position}, reading is starting at the aggregated record,
+     *     so all user records of the aggregated record are read again.
+     * </p>
+     *
+     * @param shardPosition the position of the shard
+     * @return shard position that can be used to get a shard iterator or to subscribe to the shard
+     */
+    public static ShardPosition resumePositionOf(final ShardPosition shardPosition) {
+        final StartFrom startFrom = shardPosition.startFrom();
+        if ((startFrom == StartFrom.POSITION || startFrom == StartFrom.AT_POSITION) && isSubSequencePosition(shardPosition.position())) {
+            return ShardPosition.atPosition(shardPosition.shardName(), sequenceNumberOf(shardPosition.position()));
+        }
+        return shardPosition;
+    }
+
+    /**
+     * Creates a builder used to aggregate user records.
+     *
+     * @param maxSizeBytes the max size of the aggregated record
+     * @return Builder
+     */
+    public static Builder builder(final int maxSizeBytes) {
+        return new Builder(maxSizeBytes);
+    }
+
+    /**
+     * Builder of aggregated records that is keeping track of the size of the aggregated record.
+     */
+    public static final class Builder {
+        private final int maxSizeBytes;
+        private final Map<String, Integer> partitionKeyIndexes = new HashMap<>();
+        private final List<String> partitionKeys = new ArrayList<>();
+        private final List<UserRecord> records = new ArrayList<>();
+        private int messageSize = 0;
+
+        private Builder(final int maxSizeBytes) {
+            this.maxSizeBytes = maxSizeBytes;
+        }
+
+        /**
+         * Adds a user record, if the size of the aggregated record would not exceed the max size.
+         *
+         * @param partitionKey the partition key of the user record
+         * @param data the data of the user record
+         * @return true if the record was added, false otherwise
+         */
+        public boolean tryAdd(final String partitionKey, final byte[] data) {
+            final Integer existingIndex = partitionKeyIndexes.get(partitionKey);
+            final int partitionKeyIndex = existingIndex != null ? existingIndex : partitionKeys.size();
+            int additionalSize = 0;
+            if (existingIndex == null) {
+                additionalSize += lengthDelimitedSize(partitionKey.getBytes(StandardCharsets.UTF_8).length);
+            }
+            additionalSize += lengthDelimitedSize(recordSize(partitionKeyIndex, data.length));
+            if (MAGIC.length + messageSize + additionalSize + DIGEST_LENGTH > maxSizeBytes) {
+                return false;
+            }
+            if (existingIndex == null) {
+                partitionKeyIndexes.put(partitionKey, partitionKeyIndex);
+                partitionKeys.add(partitionKey);
+            }
+            records.add(new UserRecord(partitionKey, data));
+            messageSize += additionalSize;
+            return true;
+        }
+
+        public int getNumberOfRecords() {
+            return records.size();
+        }
+
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+
+        /**
+         * Returns the size of the aggregated record in bytes.
+         *
+         * @return size
+         */
+        public int getSizeBytes() {
+            return MAGIC.length + messageSize + DIGEST_LENGTH;
+        }
+
+        public byte[] toByteArray() {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(getSizeBytes());
+            out.write(MAGIC, 0, MAGIC.length);
+            for (final String partitionKey : partitionKeys) {
+                final byte[] bytes = partitionKey.getBytes(StandardCharsets.UTF_8);
+                writeTag(out, PARTITION_KEY_TABLE_FIELD, WIRE_TYPE_LENGTH_DELIMITED);
+                writeVarint(out, bytes.length);
+                out.write(bytes, 0, bytes.length);
+            }
+            for (final UserRecord record : records) {
+                final int partitionKeyIndex = partitionKeyIndexes.get(record.getPartitionKey());
+                writeTag(out, RECORDS_FIELD, WIRE_TYPE_LENGTH_DELIMITED);
+                writeVarint(out, recordSize(partitionKeyIndex, record.getData().length));
+                writeTag(out, PARTITION_KEY_INDEX_FIELD, WIRE_TYPE_VARINT);
+                writeVarint(out, partitionKeyIndex);
+                writeTag(out, DATA_FIELD, WIRE_TYPE_LENGTH_DELIMITED);
+                writeVarint(out, record.getData().length);
+                out.write(record.getData(), 0, record.getData().length);
+            }
+            final byte[] bytes = out.toByteArray();
+            final byte[] digest = md5(bytes, MAGIC.length, bytes.length - MAGIC.length);
+            final byte[] result = Arrays.copyOf(bytes, bytes.length + DIGEST_LENGTH);
+            System.arraycopy(digest, 0, result, bytes.length, DIGEST_LENGTH);
+            return result;
+        }
+
+        private static int recordSize(final int partitionKeyIndex, final int dataLength) {
+            return 1 + varintSize(partitionKeyIndex) + lengthDelimitedSize(dataLength);
+        }
+
+        private static int lengthDelimitedSize(final int length) {
+            return 1 + varintSize(length) + length;
+        }
+    }
+
+    private static long[] readRecord(final ProtobufReader reader) {
+        long partitionKeyIndex = -1;
+        long dataOffset = -1;
+        long dataLength = 0;
+        while (reader.hasMore()) {
+            final int tag = (int) reader.readVarint();
+            final int field = tag >>> 3;
+            final int wireType = tag & 0x7;
+            if (field == PARTITION_KEY_INDEX_FIELD && wireType == WIRE_TYPE_VARINT) {
+                partitionKeyIndex = reader.readVarint();
+            } else if (field == DATA_FIELD && wireType == WIRE_TYPE_LENGTH_DELIMITED) {
+                dataLength = reader.readVarint();
+                dataOffset = reader.position;
+                reader.skip((int) dataLength);
+            } else {
+                reader.skipField(wireType);
+            }
+        }
+        if (dataOffset < 0) {
+            throw new IllegalArgumentException("Missing data in user record of aggregated record");
+        }
+        return new long[]{partitionKeyIndex, dataOffset, dataLength};
+    }
+
+    private static void writeTag(final ByteArrayOutputStream out, final int field, final int wireType) {
+        writeVarint(out, (field << 3) | wireType);
+    }
+
+    private static void writeVarint(final ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            ++size;
+        }
+        return size;
+    }
+
+    private static byte[] md5(final byte[] bytes, final int offset, final int length) {
+        try {
+            final MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+            messageDigest.update(bytes, offset, length);
+            return messageDigest.digest();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not supported", e);
+        }
+    }
+
+    private static final class ProtobufReader {
+        private final byte[] data;
+        private final int end;
+        private int position;
+
+        private ProtobufReader(final byte[] data, final int start, final int end) {
+            if (end > data.length || start > end) {
+                throw new IllegalArgumentException("Truncated aggregated record");
+            }
+            this.data = data;
+            this.position = start;
+            this.end = end;
+        }
+
+        private boolean hasMore() {
+            return position < end;
+        }
+
+        private long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= end) {
+                    throw new IllegalArgumentException("Truncated aggregated record");
+                }
+                final byte b = data[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in aggregated record");
+        }
+
+        private void skip(final int length) {
+            if (length < 0 || position + length > end) {
+                throw new IllegalArgumentException("Truncated aggregated record");
+            }
+            position += length;
+        }
+
+        private void skipField(final int wireType) {
+            switch (wireType) {
+                case WIRE_TYPE_VARINT:
+                    readVarint();
+                    break;
+                case WIRE_TYPE_64BIT:
+                    skip(8);
+                    break;
+                case WIRE_TYPE_LENGTH_DELIMITED:
+                    skip((int) readVarint());
+                    break;
+                case WIRE_TYPE_32BIT:
+                    skip(4);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported wire type in aggregated record: " + wireType);
+            }
+        }
+    }
+}
@@ -1,28 +1,39 @@
 package de.otto.synapse.endpoint.receiver.kinesis;
 
+import de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord;
+import de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord.UserRecord;
 import de.otto.synapse.message.Header;
 import de.otto.synapse.message.Key;
 import de.otto.synapse.message.TextMessage;
 import de.otto.synapse.translator.AbstractTextDecoder;
+import org.slf4j.Logger;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.kinesis.model.Record;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
 
 import static de.otto.synapse.channel.ShardPosition.fromPosition;
+import static de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord.deaggregate;
+import static de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord.isAggregated;
+import static de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord.subSequencePosition;
 import static de.otto.synapse.message.DefaultHeaderAttr.MSG_ARRIVAL_TS;
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static software.amazon.awssdk.core.SdkBytes.fromByteArray;
+import static java.util.Collections.singletonList;
+import static org.slf4j.LoggerFactory.getLogger;
 
 public class KinesisDecoder extends AbstractTextDecoder<RecordWithShard> {
 
-    private static final SdkBytes EMPTY_SDK_BYTES_BUFFER = fromByteArray(new byte[]{});
+    private static final Logger LOG = getLogger(KinesisDecoder.class);
 
-    private static final Function<SdkBytes, String> SDK_BYTES_STRING = sdkBytes -> {
-        if (sdkBytes == null || sdkBytes.equals(EMPTY_SDK_BYTES_BUFFER)) {
+    /**
+     * Returns the bytes of the record without copying them. The returned array must not be modified.
+     */
+    private static final Function<SdkBytes, byte[]> SDK_BYTES_ARRAY = sdkBytes -> {
+        if (sdkBytes == null) {
             return null;
         } else {
-            return sdkBytes.asString(UTF_8);
+            return sdkBytes.asByteArrayUnsafe();
         }
     };
 
@@ -35,7 +46,46 @@ public class KinesisDecoder extends AbstractTextDecoder<RecordWithShard> {
                 Header.builder()
                         .withAttribute(MSG_ARRIVAL_TS, record.approximateArrivalTimestamp())
                         .withShardPosition(fromPosition(shardName, record.sequenceNumber())).build(),
-                SDK_BYTES_STRING.apply(record.data()));
+                SDK_BYTES_ARRAY.apply(record.data()));
+    }
+
+    /**
+     * Decodes a Kinesis record into one or more messages.
+     *
+     * <p>
+     *     {@link KinesisAggregatedRecord Aggregated records} are de-aggregated into one message per user record.
+     *     Every message is getting its own {@link KinesisAggregatedRecord#subSequencePosition(String, int, int)
+     *     position}. All other records are decoded into a single message, just like {@link #apply(RecordWithShard)}.
+     * </p>
+     *
+     * @param recordWithShard the Kinesis record
+     * @return list of decoded messages
+     */
+    public List<TextMessage> decodeAll(final RecordWithShard recordWithShard) {
+        final Record record = recordWithShard.getRecord();
+        final byte[] data = SDK_BYTES_ARRAY.apply(record.data());
+        if (!isAggregated(data)) {
+            return singletonList(apply(recordWithShard));
+        }
+        final List<UserRecord> userRecords;
+        try {
+            userRecords = deaggregate(data);
+        } catch (final IllegalArgumentException e) {
+            LOG.warn("Failed to de-aggregate record {} of shard {}, decoding it as a single message: {}", record.sequenceNumber(), recordWithShard.getShardName(), e.getMessage());
+            return singletonList(apply(recordWithShard));
+        }
+        final List<TextMessage> messages = new ArrayList<>(userRecords.size());
+        for (int i = 0; i < userRecords.size(); i++) {
+            final UserRecord userRecord = userRecords.get(i);
+            final String position = subSequencePosition(record.sequenceNumber(), i, userRecords.size());
+            messages.add(decode(
+                    Key.of(userRecord.getPartitionKey()),
+                    Header.builder()
+                            .withAttribute(MSG_ARRIVAL_TS, record.approximateArrivalTimestamp())
+                            .withShardPosition(fromPosition(recordWithShard.getShardName(), position)).build(),
+                    userRecord.getData()));
+        }
+        return messages;
     }
 
 
@@ -0,0 +1,256 @@
+package de.otto.synapse.endpoint.receiver.kinesis;
+
+import com.google.common.annotations.VisibleForTesting;
+import de.otto.synapse.channel.ChannelPosition;
+import de.otto.synapse.channel.ChannelPositionTracker;
+import de.otto.synapse.channel.ShardPosition;
+import de.otto.synapse.channel.ShardResponse;
+import de.otto.synapse.endpoint.MessageInterceptorRegistry;
+import de.otto.synapse.endpoint.receiver.AbstractMessageLogReceiverEndpoint;
+import jakarta.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.springframework.context.ApplicationEventPublisher;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.ChildShard;
+import software.amazon.awssdk.services.kinesis.model.ConsumerDescription;
+import software.amazon.awssdk.services.kinesis.model.ConsumerStatus;
+import software.amazon.awssdk.services.kinesis.model.DescribeStreamConsumerRequest;
+import software.amazon.awssdk.services.kinesis.model.RegisterStreamConsumerRequest;
+import software.amazon.awssdk.services.kinesis.model.ResourceNotFoundException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static de.otto.synapse.channel.ShardPosition.fromHorizon;
+import static de.otto.synapse.info.MessageReceiverStatus.*;
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A {@link de.otto.synapse.endpoint.receiver.MessageLogReceiverEndpoint} that is reading Kinesis streams using
+ * <a href="https://docs.aws.amazon.com/streams/latest/dev/enhanced-consumers.html">enhanced fan-out</a>.
+ *
+ * <p>
+ *     The endpoint is registering a stream consumer with the configured {@code consumerName}, if it does not
+ *     already exist, and is subscribing to all open shards of the stream. Every consumer has its own read
+ *     throughput of 2 MB/sec per shard and records are pushed to the consumer as soon as they arrive.
+ * </p>
+ * <p>
+ *     If a shard is closed because of resharding, reading continues with the child shards of the closed shard,
+ *     as soon as all parents of a child shard are completely consumed.
+ * </p>
+ * <p>
+ *     Use the {@link de.otto.synapse.channel.selector.KinesisEnhancedFanOut} selector to select this endpoint.
+ * </p>
+ */
+public class KinesisEnhancedFanOutReceiverEndpoint extends AbstractMessageLogReceiverEndpoint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KinesisEnhancedFanOutReceiverEndpoint.class);
+
+    private static final Duration CONSUMER_ACTIVATION_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration CONSUMER_STATUS_POLL_INTERVAL = Duration.ofSeconds(1);
+
+    private final String consumerName;
+    private final KinesisAsyncClient kinesisClient;
+    private final ExecutorService executorService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MessageInterceptorRegistry interceptorRegistry;
+    private final Marker marker;
+    private final List<KinesisEnhancedFanOutShardReader> shardReaders = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean stopSignal = new AtomicBoolean(false);
+
+    public KinesisEnhancedFanOutReceiverEndpoint(final String channelName,
+                                                 final String consumerName,
+                                                 final MessageInterceptorRegistry interceptorRegistry,
+                                                 final KinesisAsyncClient kinesisClient,
+                                                 final ExecutorService executorService,
+                                                 final ApplicationEventPublisher eventPublisher,
+                                                 final Marker marker) {
+        super(channelName, interceptorRegistry, eventPublisher);
+        this.consumerName = consumerName;
+        this.kinesisClient = kinesisClient;
+        this.executorService = executorService;
+        this.eventPublisher = eventPublisher;
+        this.interceptorRegistry = interceptorRegistry;
+        this.marker = marker;
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<ChannelPosition> consumeUntil(final @Nonnull ChannelPosition startFrom,
+                                                           final @Nonnull Predicate<ShardResponse> stopCondition) {
+        publishEvent(STARTING, "Consuming messages from Kinesis using enhanced fan-out.", null);
+        stopSignal.set(false);
+        shardReaders.clear();
+        try {
+            final KinesisStreamInfo streamInfo = new KinesisStreamInfoProvider(kinesisClient).getStreamInfo(getChannelName());
+            final String consumerArn = registerStreamConsumer(streamInfo.getArn());
+            final List<String> openShards = streamInfo.getShardInfo()
+                    .stream()
+                    .filter(KinesisShardInfo::isOpen)
+                    .map(KinesisShardInfo::getShardName)
+                    .collect(toList());
+
+            publishEvent(STARTED, "Received shards from Kinesis.", null);
+
+            final KinesisShardResponseConsumer consumer = new KinesisShardResponseConsumer(getChannelName(), openShards, interceptorRegistry, getMessageDispatcher(), eventPublisher);
+            final ReshardingTracker tracker = new ReshardingTracker(consumerArn, stopCondition, consumer);
+            openShards.forEach(shardName -> tracker.start(shardName, startFrom.shard(shardName)));
+            if (openShards.isEmpty()) {
+                tracker.completion.complete(startFrom);
+            }
+
+            return tracker.completion
+                    .thenApply(channelPosition -> {
+                        publishEvent(FINISHED, "Finished consuming messages from Kinesis", null);
+                        return channelPosition;
+                    })
+                    .exceptionally(throwable -> {
+                        LOG.error("Failed to consume from Kinesis stream {}: {}", getChannelName(), throwable.getMessage());
+                        publishEvent(FAILED, "Failed to consume messages from Kinesis: " + throwable.getMessage(), null);
+                        stop();
+                        throw new RuntimeException(throwable.getMessage(), throwable);
+                    });
+        } catch (final RuntimeException e) {
+            publishEvent(FAILED, "Failed to consume messages from Kinesis: " + e.getMessage(), null);
+            stop();
+            throw e;
+        }
+    }
+
+    @Override
+    public void stop() {
+        LOG.info("Channel {} received stop signal.", getChannelName());
+        stopSignal.set(true);
+        shardReaders.forEach(KinesisEnhancedFanOutShardReader::stop);
+    }
+
+    @VisibleForTesting
+    List<KinesisEnhancedFanOutShardReader> getCurrentShardReaders() {
+        return new ArrayList<>(shardReaders);
+    }
+
+    /**
+     * Returns the ARN of the stream consumer, registering the consumer if it does not yet exist. The method is
+     * blocking until the consumer is active.
+     */
+    private String registerStreamConsumer(final String streamArn) {
+        ConsumerDescription consumer;
+        try {
+            consumer = describeStreamConsumer(streamArn);
+        } catch (final ResourceNotFoundException e) {
+            LOG.info(marker, "Registering stream consumer '{}' for channel '{}'", consumerName, getChannelName());
+            kinesisClient.registerStreamConsumer(RegisterStreamConsumerRequest.builder()
+                    .streamARN(streamArn)
+                    .consumerName(consumerName)
+                    .build())
+                    .join();
+            consumer = describeStreamConsumer(streamArn);
+        }
+        final long deadline = System.currentTimeMillis() + CONSUMER_ACTIVATION_TIMEOUT.toMillis();
+        while (consumer.consumerStatus() != ConsumerStatus.ACTIVE) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException(format("Stream consumer %s of channel %s did not become active: status=%s", consumerName, getChannelName(), consumer.consumerStatus()));
+            }
+            try {
+                Thread.sleep(CONSUMER_STATUS_POLL_INTERVAL.toMillis());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for stream consumer " + consumerName, e);
+            }
+            consumer = describeStreamConsumer(streamArn);
+        }
+        return consumer.consumerARN();
+    }
+
+    private ConsumerDescription describeStreamConsumer(final String streamArn) {
+        try {
+            return kinesisClient.describeStreamConsumer(DescribeStreamConsumerRequest.builder()
+                    .streamARN(streamArn)
+                    .consumerName(consumerName)
+                    .build())
+                    .join()
+                    .consumerDescription();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof ResourceNotFoundException) {
+                throw (ResourceNotFoundException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Keeps track of the shard readers of a single call of {@link #consumeUntil(ChannelPosition, Predicate)},
+     * starts readers for child shards after resharding and completes, after all readers have finished.
+     */
+    private class ReshardingTracker {
+        private final String consumerArn;
+        private final Predicate<ShardResponse> stopCondition;
+        private final KinesisShardResponseConsumer consumer;
+        private final ChannelPositionTracker shardPositions = new ChannelPositionTracker();
+        private final Set<String> startedShards = ConcurrentHashMap.newKeySet();
+        private final Set<String> closedShards = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger runningReaders = new AtomicInteger();
+        private final CompletableFuture<ChannelPosition> completion = new CompletableFuture<>();
+
+        private ReshardingTracker(final String consumerArn,
+                                  final Predicate<ShardResponse> stopCondition,
+                                  final KinesisShardResponseConsumer consumer) {
+            this.consumerArn = consumerArn;
+            this.stopCondition = stopCondition;
+            this.consumer = consumer;
+        }
+
+        private void start(final String shardName, final ShardPosition startFrom) {
+            if (!startedShards.add(shardName)) {
+                return;
+            }
+            final KinesisEnhancedFanOutShardReader reader = new KinesisEnhancedFanOutShardReader(getChannelName(), shardName, consumerArn, kinesisClient, executorService, marker);
+            shardReaders.add(reader);
+            runningReaders.incrementAndGet();
+            reader.consumeUntil(startFrom, stopCondition, consumer).whenComplete((shardPosition, throwable) -> {
+                if (throwable != null) {
+                    completion.completeExceptionally(throwable);
+                } else {
+                    shardPositions.update(shardPosition);
+                    if (reader.isClosed()) {
+                        onShardClosed(shardName, reader.getChildShards());
+                    }
+                }
+                shardReaders.remove(reader);
+                if (runningReaders.decrementAndGet() == 0) {
+                    completion.complete(shardPositions.getChannelPosition());
+                }
+            });
+        }
+
+        private void onShardClosed(final String shardName, final List<ChildShard> childShards) {
+            closedShards.add(shardName);
+            consumer.shardClosed(shardName);
+            if (stopSignal.get()) {
+                return;
+            }
+            childShards.stream()
+                    .filter(childShard -> closedShards.containsAll(childShard.parentShards().stream()
+                            .filter(startedShards::contains)
+                            .collect(toList())))
+                    .forEach(childShard -> {
+                        LOG.info(marker, "Continue reading channel '{}' with child shard '{}' of closed shard '{}'", getChannelName(), childShard.shardId(), shardName);
+                        childShard.parentShards().forEach(shardPositions::remove);
+                        start(childShard.shardId(), fromHorizon(childShard.shardId()));
+                    });
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package de.otto.synapse.endpoint.receiver.kinesis;
+
+import de.otto.synapse.channel.selector.KinesisEnhancedFanOut;
+import de.otto.synapse.channel.selector.Selector;
+import de.otto.synapse.endpoint.MessageInterceptorRegistry;
+import de.otto.synapse.endpoint.receiver.MessageLogReceiverEndpoint;
+import de.otto.synapse.endpoint.receiver.MessageLogReceiverEndpointFactory;
+import jakarta.annotation.Nonnull;
+import org.slf4j.Marker;
+import org.springframework.context.ApplicationEventPublisher;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Factory used to create {@link KinesisEnhancedFanOutReceiverEndpoint} instances.
+ *
+ * <p>
+ *     The factory is only matching the {@link KinesisEnhancedFanOut} selector, so it does not compete with the
+ *     {@link KinesisMessageLogReceiverEndpointFactory} for the more general Kinesis or MessageLog selectors.
+ * </p>
+ */
+public class KinesisEnhancedFanOutReceiverEndpointFactory implements MessageLogReceiverEndpointFactory {
+
+    private final String consumerName;
+    private final MessageInterceptorRegistry interceptorRegistry;
+    private final KinesisAsyncClient kinesisClient;
+    private final ExecutorService executorService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Marker marker;
+
+    public KinesisEnhancedFanOutReceiverEndpointFactory(final String consumerName,
+                                                        final MessageInterceptorRegistry interceptorRegistry,
+                                                        final KinesisAsyncClient kinesisClient,
+                                                        final ExecutorService executorService,
+                                                        final ApplicationEventPublisher eventPublisher) {
+        this(consumerName, interceptorRegistry, kinesisClient, executorService, eventPublisher, null);
+    }
+
+    public KinesisEnhancedFanOutReceiverEndpointFactory(final String consumerName,
+                                                        final MessageInterceptorRegistry interceptorRegistry,
+                                                        final KinesisAsyncClient kinesisClient,
+                                                        final ExecutorService executorService,
+                                                        final ApplicationEventPublisher eventPublisher,
+                                                        final Marker marker) {
+        this.consumerName = consumerName;
+        this.interceptorRegistry = interceptorRegistry;
+        this.kinesisClient = kinesisClient;
+        this.executorService = executorService;
+        this.eventPublisher = eventPublisher;
+        this.marker = marker;
+    }
+
+    @Override
+    public MessageLogReceiverEndpoint create(@Nonnull String channelName) {
+        return new KinesisEnhancedFanOutReceiverEndpoint(channelName, consumerName, interceptorRegistry, kinesisClient, executorService, eventPublisher, marker);
+    }
+
+    @Override
+    public boolean matches(Class<? extends Selector> channelSelector) {
+        return channelSelector.equals(selector());
+    }
+
+    @Override
+    public Class<? extends Selector> selector() {
+        return KinesisEnhancedFanOut.class;
+    }
+
+}
@@ -0,0 +1,276 @@
+package de.otto.synapse.endpoint.receiver.kinesis;
+
+import de.otto.synapse.channel.ShardPosition;
+import de.otto.synapse.channel.ShardResponse;
+import de.otto.synapse.endpoint.receiver.kinesis.KinesisShardSubscription.Next;
+import de.otto.synapse.logging.LogHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.ChildShard;
+import software.amazon.awssdk.services.kinesis.model.InvalidArgumentException;
+import software.amazon.awssdk.services.kinesis.model.Record;
+import software.amazon.awssdk.services.kinesis.model.StartingPosition;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardEvent;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static de.otto.synapse.channel.ShardPosition.fromHorizon;
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
+import static de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord.resumePositionOf;
+import static de.otto.synapse.endpoint.receiver.kinesis.KinesisShardResponse.kinesisShardResponse;
+import static java.util.Collections.emptyList;
+import static software.amazon.awssdk.services.kinesis.model.ShardIteratorType.AFTER_SEQUENCE_NUMBER;
+import static software.amazon.awssdk.services.kinesis.model.ShardIteratorType.AT_SEQUENCE_NUMBER;
+import static software.amazon.awssdk.services.kinesis.model.ShardIteratorType.AT_TIMESTAMP;
+import static software.amazon.awssdk.services.kinesis.model.ShardIteratorType.TRIM_HORIZON;
+
+/**
+ * Reads a single Kinesis shard using an enhanced fan-out consumer.
+ *
+ * <p>
+ *     In contrast to the {@link KinesisShardReader}, records are pushed by Kinesis using
+ *     {@link KinesisAsyncClient#subscribeToShard SubscribeToShard}, using a dedicated throughput of 2 MB/sec per
+ *     shard and consumer. Subscriptions are expiring after five minutes and are renewed by the reader, continuing
+ *     at the latest continuation sequence number.
+ * </p>
+ * <p>
+ *     If the shard is closed because of resharding, the reader is finishing and the {@link #getChildShards() child
+ *     shards} are available to continue reading.
+ * </p>
+ */
+public class KinesisEnhancedFanOutShardReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KinesisEnhancedFanOutShardReader.class);
+    public static final int LOG_MESSAGE_COUNTER_EVERY_NTH_MESSAGE = 1_000;
+
+    static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+    /**
+     * Kinesis is sending events at least every five seconds. If there are no events for a longer period of time,
+     * the subscription is renewed.
+     */
+    static final Duration SUBSCRIPTION_IDLE_TIMEOUT = Duration.ofSeconds(30);
+    static final int MAX_RETRIES = 5;
+
+    private final String channelName;
+    private final String shardName;
+    private final String consumerArn;
+    private final KinesisAsyncClient kinesisClient;
+    private final ExecutorService executorService;
+    private final Marker marker;
+    private final AtomicBoolean stopSignal = new AtomicBoolean(false);
+    private volatile List<ChildShard> childShards = emptyList();
+    private volatile boolean closed = false;
+
+    public KinesisEnhancedFanOutShardReader(final String channelName,
+                                            final String shardName,
+                                            final String consumerArn,
+                                            final KinesisAsyncClient kinesisClient,
+                                            final ExecutorService executorService,
+                                            final Marker marker) {
+        this.channelName = channelName;
+        this.shardName = shardName;
+        this.consumerArn = consumerArn;
+        this.kinesisClient = kinesisClient;
+        this.executorService = executorService;
+        this.marker = marker;
+    }
+
+    public String getChannelName() {
+        return channelName;
+    }
+
+    public String getShardName() {
+        return shardName;
+    }
+
+    /**
+     * Returns true, if the end of the shard was reached because the shard was closed.
+     *
+     * @return boolean
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns the child shards of a {@link #isClosed() closed} shard, or an empty list, if the shard is still open.
+     *
+     * @return list of child shards
+     */
+    public List<ChildShard> getChildShards() {
+        return childShards;
+    }
+
+    public CompletableFuture<ShardPosition> consumeUntil(final ShardPosition startFrom,
+                                                         final Predicate<ShardResponse> stopCondition,
+                                                         final Consumer<ShardResponse> responseConsumer) {
+        final Map<String, String> copyOfContextMap = MDC.getCopyOfContextMap();
+        return CompletableFuture.supplyAsync(() -> {
+            if (copyOfContextMap != null) {
+                MDC.setContextMap(copyOfContextMap);
+            }
+            MDC.put("channelName", channelName);
+            MDC.put("shardName", shardName);
+            LOG.info(marker, "Subscribing to channel={}, shard={}, position={}", channelName, shardName, startFrom);
+            try {
+                return readShard(startFrom, stopCondition, responseConsumer);
+            } catch (final InterruptedException e) {
+                LOG.warn(marker, "Thread got interrupted");
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            } catch (final RuntimeException e) {
+                LOG.error(marker, "Failed to consume from Kinesis shard {}: {}, {}", channelName, shardName, e.getMessage());
+                stop();
+                throw e;
+            } finally {
+                MDC.remove("channelName");
+                MDC.remove("shardName");
+            }
+        }, executorService);
+    }
+
+    private ShardPosition readShard(final ShardPosition startFrom,
+                                    final Predicate<ShardResponse> stopCondition,
+                                    final Consumer<ShardResponse> responseConsumer) throws InterruptedException {
+        final long firstMessageLogTime = System.currentTimeMillis();
+        long totalMessagesCounter = 0;
+        long previousLoggedMessageCounter = 0;
+
+        ShardPosition shardPosition = startFrom;
+        StartingPosition startingPosition = startingPositionOf(startFrom);
+        int failures = 0;
+
+        while (!isStopping()) {
+            final KinesisShardSubscription subscription = subscribe(startingPosition);
+            try {
+                long lastEventTime = System.currentTimeMillis();
+                boolean renew = false;
+                while (!renew) {
+                    final Next next = subscription.next(POLL_TIMEOUT);
+                    if (next == Next.TIMEOUT) {
+                        if (isStopping()) {
+                            break;
+                        }
+                        renew = System.currentTimeMillis() - lastEventTime > SUBSCRIPTION_IDLE_TIMEOUT.toMillis();
+                        if (renew) {
+                            LOG.warn(marker, "No events received from '{}:{}' for {}, renewing subscription.", channelName, shardName, SUBSCRIPTION_IDLE_TIMEOUT);
+                        }
+                    } else if (next == Next.COMPLETED) {
+                        LOG.debug("Subscription of '{}:{}' completed, renewing subscription.", channelName, shardName);
+                        renew = true;
+                    } else {
+                        failures = 0;
+                        lastEventTime = System.currentTimeMillis();
+                        final SubscribeToShardEvent event = next.event();
+                        shardPosition = positionAfter(shardPosition, event.records());
+                        final ShardResponse response = kinesisShardResponse(shardPosition, event.millisBehindLatest(), event.records());
+                        responseConsumer.accept(response);
+
+                        totalMessagesCounter += response.getMessages().size();
+                        if (totalMessagesCounter - previousLoggedMessageCounter >= LOG_MESSAGE_COUNTER_EVERY_NTH_MESSAGE) {
+                            LOG.info(marker, "Read {} messages from '{}:{}', durationBehind={}, totalMessages={}", totalMessagesCounter - previousLoggedMessageCounter, channelName, shardName, response.getDurationBehind(), totalMessagesCounter);
+                            previousLoggedMessageCounter = totalMessagesCounter;
+                        }
+
+                        if (event.continuationSequenceNumber() == null) {
+                            LOG.info(marker, "Reached end of closed shard '{}:{}', childShards={}", channelName, shardName, event.childShards());
+                            childShards = event.hasChildShards() ? event.childShards() : emptyList();
+                            closed = true;
+                            break;
+                        }
+                        startingPosition = StartingPosition.builder()
+                                .type(AFTER_SEQUENCE_NUMBER)
+                                .sequenceNumber(event.continuationSequenceNumber())
+                                .build();
+                        if (stopCondition.test(response) || isStopping()) {
+                            LOG.info(marker, "Stop reading of channel={}, shard={}, stopSignal={}, durationBehind={}", channelName, shardName, isStopping(), response.getDurationBehind());
+                            break;
+                        }
+                    }
+                }
+                if (!renew) {
+                    break;
+                }
+            } catch (final CompletionException e) {
+                final Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof InvalidArgumentException && failures == 0 && shardPosition == startFrom && isSequenceNumber(startingPosition)) {
+                    LOG.warn(marker, "given shardposition {} / {} not accessible, falling back to horizon", shardName, startFrom.position());
+                    shardPosition = fromHorizon(shardName);
+                    startingPosition = startingPositionOf(shardPosition);
+                } else if (++failures > MAX_RETRIES) {
+                    throw e;
+                } else {
+                    LOG.warn(marker, "Subscription of '{}:{}' failed ({}/{}): {}", channelName, shardName, failures, MAX_RETRIES, cause.getMessage());
+                    Thread.sleep(1000L * failures);
+                }
+            } finally {
+                subscription.cancel();
+            }
+        }
+        LOG.info(marker, "Read a total of {} messages from '{}:{}', totalMessagesPerSecond={}", totalMessagesCounter, channelName, shardName, String.format("%.2f", LogHelper.calculateMessagesPerSecond(firstMessageLogTime, totalMessagesCounter)));
+        return shardPosition;
+    }
+
+    private KinesisShardSubscription subscribe(final StartingPosition startingPosition) {
+        final KinesisShardSubscription subscription = new KinesisShardSubscription();
+        kinesisClient.subscribeToShard(SubscribeToShardRequest.builder()
+                        .consumerARN(consumerArn)
+                        .shardId(shardName)
+                        .startingPosition(startingPosition)
+                        .build(),
+                subscription);
+        return subscription;
+    }
+
+    private ShardPosition positionAfter(final ShardPosition shardPosition, final List<Record> records) {
+        return records.isEmpty()
+                ? shardPosition
+                : fromPosition(shardName, records.get(records.size() - 1).sequenceNumber());
+    }
+
+    private static boolean isSequenceNumber(final StartingPosition startingPosition) {
+        return startingPosition.type() == AFTER_SEQUENCE_NUMBER || startingPosition.type() == AT_SEQUENCE_NUMBER;
+    }
+
+    static StartingPosition startingPositionOf(final ShardPosition startFrom) {
+        final ShardPosition shardPosition = resumePositionOf(startFrom);
+        final StartingPosition.Builder builder = StartingPosition.builder();
+        switch (shardPosition.startFrom()) {
+            case POSITION:
+                builder.type(AFTER_SEQUENCE_NUMBER).sequenceNumber(shardPosition.position());
+                break;
+            case AT_POSITION:
+                builder.type(AT_SEQUENCE_NUMBER).sequenceNumber(shardPosition.position());
+                break;
+            case TIMESTAMP:
+                builder.type(AT_TIMESTAMP).timestamp(shardPosition.timestamp());
+                break;
+            case HORIZON:
+            default:
+                builder.type(TRIM_HORIZON);
+                break;
+        }
+        return builder.build();
+    }
+
+    public void stop() {
+        LOG.info(marker, "Shard {} received stop signal.", shardName);
+        stopSignal.set(true);
+    }
+
+    public boolean isStopping() {
+        return stopSignal.get();
+    }
+}
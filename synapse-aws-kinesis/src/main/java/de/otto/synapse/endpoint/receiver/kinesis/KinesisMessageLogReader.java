@@ -40,10 +40,14 @@ public class KinesisMessageLogReader {
     public static final int SKIP_NEXT_PARTS = 8;
     public static final int DEFAULT_WAITING_TIME_ON_EMPTY_RECORDS = 10000;
     public static final int DEFAULT_WAITING_TIME_ON_SKIP_EMPTY_PARTS = 200; // max 5 calls per second per shard
+    public static final int DEFAULT_LANES_PER_SHARD = 1;
+    public static final int DEFAULT_LANE_CAPACITY = 4;
 
     private final int waitingTimeOnEmptyRecords;
     private final int skipNextEmptyParts;
     private final int waitingTimeOnSkipEmptyParts;
+    private final int lanesPerShard;
+    private final int laneCapacity;
     private final Marker marker;
 
 
@@ -69,6 +73,34 @@ public class KinesisMessageLogReader {
                                    final int skipNextEmptyParts,
                                    final int waitingTimeOnSkipEmptyParts,
                                    final Marker marker) {
+        this(channelName, kinesisClient, executorService, clock, waitingTimeOnEmptyRecords, skipNextEmptyParts, waitingTimeOnSkipEmptyParts, DEFAULT_LANES_PER_SHARD, DEFAULT_LANE_CAPACITY, marker);
+    }
+
+    /**
+     * Creates a KinesisMessageLogReader.
+     *
+     * @param channelName the name of the channel
+     * @param kinesisClient the Kinesis client
+     * @param executorService the executor used to read the shards
+     * @param clock the clock
+     * @param waitingTimeOnEmptyRecords milliseconds to wait after empty responses
+     * @param skipNextEmptyParts the number of empty responses that are skipped when reading from an iterator
+     * @param waitingTimeOnSkipEmptyParts milliseconds to wait before skipping an empty response
+     * @param lanesPerShard the number of lanes used to process the messages of every shard in parallel, or 1 to
+     *                      process the messages of a shard on the thread reading the shard
+     * @param laneCapacity the maximum number of pending responses per lane
+     * @param marker marker used for logging
+     */
+    public KinesisMessageLogReader(final String channelName,
+                                   final KinesisAsyncClient kinesisClient,
+                                   final ExecutorService executorService,
+                                   final Clock clock,
+                                   final int waitingTimeOnEmptyRecords,
+                                   final int skipNextEmptyParts,
+                                   final int waitingTimeOnSkipEmptyParts,
+                                   final int lanesPerShard,
+                                   final int laneCapacity,
+                                   final Marker marker) {
         this.channelName = channelName;
         this.kinesisClient = kinesisClient;
         this.executorService = executorService;
@@ -77,6 +109,8 @@ public class KinesisMessageLogReader {
         this.waitingTimeOnEmptyRecords = waitingTimeOnEmptyRecords;
         this.skipNextEmptyParts = skipNextEmptyParts;
         this.waitingTimeOnSkipEmptyParts = waitingTimeOnSkipEmptyParts;
+        this.lanesPerShard = lanesPerShard;
+        this.laneCapacity = laneCapacity;
 
         this.marker = marker;
     }
@@ -197,7 +231,7 @@ public class KinesisMessageLogReader {
         final Set<String> openShards = retrieveAllOpenShards();
         this.kinesisShardReaders.set(openShards
                 .stream()
-                .map(shardName -> new KinesisShardReader(channelName, shardName, kinesisClient, executorService, clock, waitingTimeOnEmptyRecords, marker))
+                .map(shardName -> new KinesisShardReader(channelName, shardName, kinesisClient, executorService, clock, waitingTimeOnEmptyRecords, lanesPerShard, laneCapacity, marker))
                 .collect(toList()));
     }
 
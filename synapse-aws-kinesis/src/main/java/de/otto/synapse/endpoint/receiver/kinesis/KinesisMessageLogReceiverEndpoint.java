@@ -2,14 +2,10 @@ package de.otto.synapse.endpoint.receiver.kinesis;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
-import de.otto.synapse.channel.ChannelDurationBehind;
 import de.otto.synapse.channel.ChannelPosition;
 import de.otto.synapse.channel.ShardResponse;
-import de.otto.synapse.consumer.MessageDispatcher;
-import de.otto.synapse.endpoint.InterceptorChain;
 import de.otto.synapse.endpoint.MessageInterceptorRegistry;
 import de.otto.synapse.endpoint.receiver.AbstractMessageLogReceiverEndpoint;
-import de.otto.synapse.message.TextMessage;
 import jakarta.annotation.Nonnull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,14 +17,9 @@ import java.time.Clock;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Consumer;
 import java.util.function.Predicate;
 
-import static de.otto.synapse.channel.ChannelDurationBehind.copyOf;
-import static de.otto.synapse.channel.ChannelDurationBehind.unknown;
-import static de.otto.synapse.endpoint.EndpointType.RECEIVER;
-import static de.otto.synapse.info.MessageReceiverNotification.builder;
+import static de.otto.synapse.endpoint.receiver.kinesis.KinesisMessageLogReader.*;
 import static de.otto.synapse.info.MessageReceiverStatus.*;
 import static de.otto.synapse.logging.LogHelper.info;
 
@@ -36,58 +27,6 @@ public class KinesisMessageLogReceiverEndpoint extends AbstractMessageLogReceive
 
     private static final Logger LOG = LoggerFactory.getLogger(KinesisMessageLogReceiverEndpoint.class);
 
-    private static class KinesisShardResponseConsumer implements Consumer<ShardResponse> {
-        private final AtomicReference<ChannelDurationBehind> channelDurationBehind = new AtomicReference<>();
-        private final MessageInterceptorRegistry interceptorRegistry;
-        private final String channelName;
-        private final MessageDispatcher messageDispatcher;
-        private final ApplicationEventPublisher eventPublisher;
-
-        private KinesisShardResponseConsumer(final String channelName,
-                                             final List<String> shardNames,
-                                             final MessageInterceptorRegistry interceptorRegistry,
-                                             final MessageDispatcher messageDispatcher,
-                                             final ApplicationEventPublisher eventPublisher) {
-            this.channelName = channelName;
-            this.messageDispatcher = messageDispatcher;
-            this.interceptorRegistry = interceptorRegistry;
-            this.eventPublisher = eventPublisher;
-            channelDurationBehind.set(unknown(shardNames));
-        }
-
-        @Override
-        public void accept(final ShardResponse response) {
-            final InterceptorChain interceptorChain = interceptorRegistry.getInterceptorChain(channelName, RECEIVER);
-            response.getMessages().forEach(message -> {
-                try {
-                    LOG.debug("Processing message " + message.getKey());
-                    final TextMessage interceptedMessage = interceptorChain.intercept(message);
-                    if (interceptedMessage != null) {
-                        messageDispatcher.accept(interceptedMessage);
-                    } else {
-                        LOG.debug("Message {} dropped by interceptor", message.getKey());
-                    }
-                } catch (final Exception e) {
-                    LOG.error("Error processing message: " + e.getMessage(), e);
-                }
-            });
-            channelDurationBehind.updateAndGet(behind -> copyOf(behind)
-                    .with(response.getShardName(), response.getDurationBehind())
-                    .build());
-
-            if (eventPublisher != null) {
-                eventPublisher.publishEvent(builder()
-                        .withChannelName(channelName)
-                        .withChannelDurationBehind(channelDurationBehind.get())
-                        .withStatus(RUNNING)
-                        .withMessage("Reading from kinesis shard.")
-                        .build());
-            }
-
-        }
-
-    }
-
     private final KinesisMessageLogReader kinesisMessageLogReader;
     private final ApplicationEventPublisher eventPublisher;
     private final MessageInterceptorRegistry interceptorRegistry;
@@ -121,9 +60,41 @@ public class KinesisMessageLogReceiverEndpoint extends AbstractMessageLogReceive
                                              final Clock clock,
                                              final int waitingTimeOnEmptyRecords,
                                              final Marker marker) {
+        this(channelName, interceptorRegistry, kinesisClient, executorService, eventPublisher, clock, waitingTimeOnEmptyRecords, DEFAULT_LANES_PER_SHARD, DEFAULT_LANE_CAPACITY, marker);
+    }
+
+    /**
+     * Creates a KinesisMessageLogReceiverEndpoint.
+     *
+     * <p>If {@code lanesPerShard} is greater than one, the messages of every shard are processed in parallel lanes.
+     * Messages having the same {@link de.otto.synapse.message.Key#partitionKey() partition key} are still consumed
+     * in order, but the registered {@link de.otto.synapse.consumer.MessageConsumer consumers} must be
+     * thread-safe.</p>
+     *
+     * @param channelName the name of the channel
+     * @param interceptorRegistry registry of message interceptors
+     * @param kinesisClient the Kinesis client
+     * @param executorService the executor used to read the shards
+     * @param eventPublisher publisher of MessageReceiverNotifications
+     * @param clock the clock
+     * @param waitingTimeOnEmptyRecords milliseconds to wait after empty responses
+     * @param lanesPerShard the number of lanes per shard
+     * @param laneCapacity the maximum number of pending responses per lane
+     * @param marker marker used for logging
+     */
+    public KinesisMessageLogReceiverEndpoint(final String channelName,
+                                             final MessageInterceptorRegistry interceptorRegistry,
+                                             final KinesisAsyncClient kinesisClient,
+                                             final ExecutorService executorService,
+                                             final ApplicationEventPublisher eventPublisher,
+                                             final Clock clock,
+                                             final int waitingTimeOnEmptyRecords,
+                                             final int lanesPerShard,
+                                             final int laneCapacity,
+                                             final Marker marker) {
         super(channelName, interceptorRegistry, eventPublisher);
         this.eventPublisher = eventPublisher;
-        this.kinesisMessageLogReader = new KinesisMessageLogReader(channelName, kinesisClient, executorService, clock, waitingTimeOnEmptyRecords, marker);
+        this.kinesisMessageLogReader = new KinesisMessageLogReader(channelName, kinesisClient, executorService, clock, waitingTimeOnEmptyRecords, SKIP_NEXT_PARTS, DEFAULT_WAITING_TIME_ON_SKIP_EMPTY_PARTS, lanesPerShard, laneCapacity, marker);
         this.interceptorRegistry = interceptorRegistry;
     }
 
@@ -14,7 +14,7 @@ import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
 import java.time.Clock;
 import java.util.concurrent.ExecutorService;
 
-import static de.otto.synapse.endpoint.receiver.kinesis.KinesisMessageLogReader.DEFAULT_WAITING_TIME_ON_EMPTY_RECORDS;
+import static de.otto.synapse.endpoint.receiver.kinesis.KinesisMessageLogReader.*;
 
 public class KinesisMessageLogReceiverEndpointFactory implements MessageLogReceiverEndpointFactory {
 
@@ -24,6 +24,8 @@ public class KinesisMessageLogReceiverEndpointFactory implements MessageLogRecei
     private final Clock clock;
     private final ExecutorService executorService;
     private final Marker marker;
+    private final int lanesPerShard;
+    private final int laneCapacity;
 
     @Autowired
     public KinesisMessageLogReceiverEndpointFactory(final MessageInterceptorRegistry interceptorRegistry,
@@ -47,18 +49,43 @@ public class KinesisMessageLogReceiverEndpointFactory implements MessageLogRecei
                                                     final ApplicationEventPublisher eventPublisher,
                                                     final Clock clock,
                                                     final Marker marker) {
+        this(interceptorRegistry, kinesisClient, kinesisMessageLogExecutorService, eventPublisher, clock, marker, DEFAULT_LANES_PER_SHARD, DEFAULT_LANE_CAPACITY);
+    }
+
+    /**
+     * Creates a KinesisMessageLogReceiverEndpointFactory.
+     *
+     * @param interceptorRegistry registry of message interceptors
+     * @param kinesisClient the Kinesis client
+     * @param kinesisMessageLogExecutorService the executor used to read the shards
+     * @param eventPublisher publisher of MessageReceiverNotifications
+     * @param clock the clock
+     * @param marker marker used for logging
+     * @param lanesPerShard the number of lanes used to process the messages of every shard in parallel
+     * @param laneCapacity the maximum number of pending responses per lane
+     */
+    public KinesisMessageLogReceiverEndpointFactory(final MessageInterceptorRegistry interceptorRegistry,
+                                                    final KinesisAsyncClient kinesisClient,
+                                                    final ExecutorService kinesisMessageLogExecutorService,
+                                                    final ApplicationEventPublisher eventPublisher,
+                                                    final Clock clock,
+                                                    final Marker marker,
+                                                    final int lanesPerShard,
+                                                    final int laneCapacity) {
         this.interceptorRegistry = interceptorRegistry;
         this.kinesisClient = kinesisClient;
         this.executorService = kinesisMessageLogExecutorService;
         this.eventPublisher = eventPublisher;
         this.clock = clock;
         this.marker = marker;
+        this.lanesPerShard = lanesPerShard;
+        this.laneCapacity = laneCapacity;
     }
 
 
     @Override
     public MessageLogReceiverEndpoint create(@Nonnull String channelName) {
-        return new KinesisMessageLogReceiverEndpoint(channelName, interceptorRegistry, kinesisClient, executorService, eventPublisher, clock, DEFAULT_WAITING_TIME_ON_EMPTY_RECORDS, marker);
+        return new KinesisMessageLogReceiverEndpoint(channelName, interceptorRegistry, kinesisClient, executorService, eventPublisher, clock, DEFAULT_WAITING_TIME_ON_EMPTY_RECORDS, lanesPerShard, laneCapacity, marker);
     }
 
     @Override
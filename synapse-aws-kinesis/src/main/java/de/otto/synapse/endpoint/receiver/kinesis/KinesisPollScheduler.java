@@ -0,0 +1,151 @@
+package de.otto.synapse.endpoint.receiver.kinesis;
+
+import de.otto.synapse.channel.ShardResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.Nonnull;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides when the next GetRecords request of a single Kinesis shard should be sent.
+ *
+ * <p>
+ *     As long as a shard returns records, or the shard is lagging behind the tip of the stream, the next request
+ *     is sent immediately. Only if an empty response is received at the tip of the stream, the scheduler backs off
+ *     exponentially, starting at {@link #MIN_INTERVAL_MILLIS} up to the configured {@code maxBackoffMillis}.
+ * </p>
+ * <p>
+ *     Independent of this decision, the scheduler keeps track of the
+ *     <a href="https://docs.aws.amazon.com/kinesis/latest/APIReference/API_GetRecords.html">limit of five
+ *     GetRecords requests per second and shard</a> and delays requests that would exceed this budget.
+ * </p>
+ * <p>
+ *     The decisions of the scheduler are published as metrics, tagged with channel and shard name:
+ * </p>
+ * <ul>
+ *     <li>{@value #DECISIONS_METER}: counter of poll decisions, tagged with {@code decision=immediate|backoff|throttled}</li>
+ *     <li>{@value #DELAY_METER}: gauge with the delay in milliseconds of the latest decision</li>
+ * </ul>
+ * <p>
+ *     Instances are not thread-safe and are intended to be used by a single {@link KinesisShardReader}. The
+ *     scheduler must be {@link #close() closed}, after the shard reader has finished, so the gauge of the scheduler
+ *     is removed from the registry.
+ * </p>
+ */
+public class KinesisPollScheduler implements AutoCloseable {
+
+    public static final String DECISIONS_METER = "synapse_kinesis_poll_decisions";
+    public static final String DELAY_METER = "synapse_kinesis_poll_delay_millis";
+
+    /**
+     * Max number of GetRecords requests per second and shard.
+     */
+    static final int MAX_REQUESTS_PER_SECOND = 5;
+    static final long MIN_INTERVAL_MILLIS = 1000 / MAX_REQUESTS_PER_SECOND;
+
+    private final long maxBackoffMillis;
+    private final LongSupplier nanoTime;
+    private final long[] requestTimestamps = new long[MAX_REQUESTS_PER_SECOND];
+    private int nextRequestSlot = 0;
+    private int numberOfRequests = 0;
+    private long currentBackoffMillis = 0;
+
+    private final Counter immediateCounter;
+    private final Counter backoffCounter;
+    private final Counter throttledCounter;
+    private final AtomicLong delayMillis = new AtomicLong();
+    private final Gauge delayGauge;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Creates a KinesisPollScheduler that is reporting metrics to the global {@link MeterRegistry}.
+     *
+     * @param channelName the name of the Kinesis stream
+     * @param shardName the name of the shard
+     * @param maxBackoffMillis the max time to wait after empty responses
+     */
+    public KinesisPollScheduler(final @Nonnull String channelName,
+                                final @Nonnull String shardName,
+                                final long maxBackoffMillis) {
+        this(channelName, shardName, maxBackoffMillis, Metrics.globalRegistry, System::nanoTime);
+    }
+
+    KinesisPollScheduler(final @Nonnull String channelName,
+                         final @Nonnull String shardName,
+                         final long maxBackoffMillis,
+                         final @Nonnull MeterRegistry meterRegistry,
+                         final @Nonnull LongSupplier nanoTime) {
+        this.maxBackoffMillis = Math.max(maxBackoffMillis, MIN_INTERVAL_MILLIS);
+        this.nanoTime = nanoTime;
+        final Tags tags = Tags.of("channel", channelName, "shard", shardName);
+        this.immediateCounter = meterRegistry.counter(DECISIONS_METER, tags.and("decision", "immediate"));
+        this.backoffCounter = meterRegistry.counter(DECISIONS_METER, tags.and("decision", "backoff"));
+        this.throttledCounter = meterRegistry.counter(DECISIONS_METER, tags.and("decision", "throttled"));
+        this.delayGauge = Gauge.builder(DELAY_METER, delayMillis, AtomicLong::get)
+                .tags(tags)
+                .strongReference(true)
+                .register(meterRegistry);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Must be called immediately before a GetRecords request is sent to the shard.
+     */
+    public void onRequest() {
+        requestTimestamps[nextRequestSlot] = nanoTime.getAsLong();
+        nextRequestSlot = (nextRequestSlot + 1) % MAX_REQUESTS_PER_SECOND;
+        numberOfRequests = Math.min(numberOfRequests + 1, MAX_REQUESTS_PER_SECOND);
+    }
+
+    /**
+     * Calculates the time to wait before the next GetRecords request is sent to the shard.
+     *
+     * @param response the latest response of the shard
+     * @return delay
+     */
+    @Nonnull
+    public Duration nextDelay(final @Nonnull ShardResponse response) {
+        final long delayMillis;
+        if (!response.getMessages().isEmpty() || !response.getDurationBehind().isZero()) {
+            currentBackoffMillis = 0;
+            delayMillis = budgetDelayMillis();
+            (delayMillis > 0 ? throttledCounter : immediateCounter).increment();
+        } else {
+            currentBackoffMillis = currentBackoffMillis == 0
+                    ? MIN_INTERVAL_MILLIS
+                    : Math.min(currentBackoffMillis * 2, maxBackoffMillis);
+            delayMillis = Math.max(currentBackoffMillis, budgetDelayMillis());
+            backoffCounter.increment();
+        }
+        this.delayMillis.set(delayMillis);
+        return Duration.ofMillis(delayMillis);
+    }
+
+    /**
+     * Removes the gauge of the scheduler from the registry.
+     */
+    @Override
+    public void close() {
+        meterRegistry.remove(delayGauge);
+    }
+
+    /**
+     * Returns the time to wait until another request would be within the budget of
+     * {@link #MAX_REQUESTS_PER_SECOND} requests per second.
+     */
+    private long budgetDelayMillis() {
+        if (numberOfRequests < MAX_REQUESTS_PER_SECOND) {
+            return 0;
+        }
+        // nextRequestSlot is pointing to the oldest of the last MAX_REQUESTS_PER_SECOND requests:
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(nanoTime.getAsLong() - requestTimestamps[nextRequestSlot]);
+        return Math.max(0, 1000 - elapsedMillis);
+    }
+}
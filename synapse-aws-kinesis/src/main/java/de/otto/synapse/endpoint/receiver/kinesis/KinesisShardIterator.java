@@ -17,6 +17,7 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static de.otto.synapse.channel.ShardPosition.fromPosition;
+import static de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord.resumePositionOf;
 import static java.lang.String.format;
 import static software.amazon.awssdk.services.kinesis.model.ShardIteratorType.*;
 
@@ -68,7 +69,7 @@ public class KinesisShardIterator {
 
     private String createShardIteratorId() {
         return kinesisClient
-                .getShardIterator(buildIteratorShardRequest(shardPosition))
+                .getShardIterator(buildIteratorShardRequest(resumePositionOf(shardPosition)))
                 .join()
                 .shardIterator();
     }
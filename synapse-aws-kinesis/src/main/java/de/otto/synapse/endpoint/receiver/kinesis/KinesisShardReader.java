@@ -23,6 +23,9 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+import static de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord.resumePositionOf;
+import static de.otto.synapse.endpoint.receiver.kinesis.KinesisMessageLogReader.DEFAULT_LANES_PER_SHARD;
+import static de.otto.synapse.endpoint.receiver.kinesis.KinesisMessageLogReader.DEFAULT_LANE_CAPACITY;
 import static de.otto.synapse.endpoint.receiver.kinesis.KinesisMessageLogReader.DEFAULT_WAITING_TIME_ON_EMPTY_RECORDS;
 
 
@@ -37,6 +40,8 @@ public class KinesisShardReader {
     private final Clock clock;
     private final AtomicBoolean stopSignal = new AtomicBoolean(false);
     private final int waitingTimeOnEmptyRecords;
+    private final int lanesPerShard;
+    private final int laneCapacity;
     private final Marker marker;
 
     public KinesisShardReader(final String channelName,
@@ -54,12 +59,43 @@ public class KinesisShardReader {
                               final Clock clock,
                               final int waitingTimeOnEmptyRecords,
                               final Marker marker) {
+        this(channelName, shardName, kinesisClient, executorService, clock, waitingTimeOnEmptyRecords, DEFAULT_LANES_PER_SHARD, DEFAULT_LANE_CAPACITY, marker);
+    }
+
+    /**
+     * Creates a KinesisShardReader.
+     *
+     * <p>If {@code lanesPerShard} is greater than one, the messages of the shard are processed by {@link ShardLanes}:
+     * messages are only consumed in order per partition key, and the consumer of the shard responses must be
+     * thread-safe.</p>
+     *
+     * @param channelName the name of the channel
+     * @param shardName the name of the shard
+     * @param kinesisClient the Kinesis client
+     * @param executorService the executor used to read the shard
+     * @param clock the clock
+     * @param waitingTimeOnEmptyRecords milliseconds to wait after empty responses
+     * @param lanesPerShard the number of lanes used to process the messages of the shard
+     * @param laneCapacity the maximum number of pending responses per lane
+     * @param marker marker used for logging
+     */
+    public KinesisShardReader(final String channelName,
+                              final String shardName,
+                              final KinesisAsyncClient kinesisClient,
+                              final ExecutorService executorService,
+                              final Clock clock,
+                              final int waitingTimeOnEmptyRecords,
+                              final int lanesPerShard,
+                              final int laneCapacity,
+                              final Marker marker) {
         this.shardName = shardName;
         this.channelName = channelName;
         this.kinesisClient = kinesisClient;
         this.executorService = executorService;
         this.clock = clock;
         this.waitingTimeOnEmptyRecords = waitingTimeOnEmptyRecords;
+        this.lanesPerShard = lanesPerShard;
+        this.laneCapacity = laneCapacity;
         this.marker = marker;
     }
 
@@ -82,13 +118,19 @@ public class KinesisShardReader {
             MDC.put("channelName", channelName);
             MDC.put("shardName", shardName);
             LOG.info(marker, "Reading from channel={}, shard={}, position={}", channelName, shardName, startFrom);
+            ShardLanes lanes = null;
+            KinesisPollScheduler pollScheduler = null;
             try {
                 final long firstMessageLogTime = System.currentTimeMillis();
                 final AtomicLong shardMessagesCounter = new AtomicLong(0);
                 final AtomicLong previousMessageLogTime = new AtomicLong(System.currentTimeMillis());
                 final AtomicLong previousLoggedMessageCounterMod = new AtomicLong(0), previousLoggedMessageCounter = new AtomicLong(0);
-                final ShardPosition sanitizedShardPosition = sanitizePositionedShardPosition(startFrom);
+                final ShardPosition sanitizedShardPosition = sanitizePositionedShardPosition(resumePositionOf(startFrom));
                 final KinesisShardIterator kinesisShardIterator = new KinesisShardIterator(kinesisClient, channelName, sanitizedShardPosition);
+                pollScheduler = new KinesisPollScheduler(channelName, shardName, waitingTimeOnEmptyRecords);
+                if (lanesPerShard > 1) {
+                    lanes = new ShardLanes(channelName, sanitizedShardPosition, lanesPerShard, laneCapacity, responseConsumer);
+                }
 
                 boolean stopRetrieval;
                 do {
@@ -101,14 +143,19 @@ public class KinesisShardReader {
                         break;
                     }
 
+                    pollScheduler.onRequest();
                     final ShardResponse response = kinesisShardIterator.next();
-                    responseConsumer.accept(response);
+                    if (lanes != null) {
+                        lanes.submit(response);
+                    } else {
+                        responseConsumer.accept(response);
+                    }
 
                     int responseMessagesCounter = response.getMessages().size();
                     long totalMessagesCounter = shardMessagesCounter.addAndGet(responseMessagesCounter);
 
                     boolean stopConditionFulfilled = stopCondition.test(response);
-                    stopRetrieval = stopConditionFulfilled || isStopping() || waitABit(response.getDurationBehind());
+                    stopRetrieval = stopConditionFulfilled || isStopping() || waitABit(pollScheduler.nextDelay(response));
 
                     if ((totalMessagesCounter > 0 && totalMessagesCounter > previousLoggedMessageCounterMod.get() + LOG_MESSAGE_COUNTER_EVERY_NTH_MESSAGE) || stopRetrieval) {
                         double messagesPerSecond = LogHelper.calculateMessagesPerSecond(previousMessageLogTime.getAndSet(System.currentTimeMillis()), totalMessagesCounter - previousLoggedMessageCounter.get());
@@ -127,14 +174,29 @@ public class KinesisShardReader {
                 double totalMessagesPerSecond = LogHelper.calculateMessagesPerSecond(firstMessageLogTime, shardMessagesCounter.get());
                 LOG.info(marker, "Read a total of {} messages from '{}:{}', totalMessagesPerSecond={}", shardMessagesCounter.get(), channelName, shardName, String.format("%.2f", totalMessagesPerSecond));
 
+                if (lanes != null) {
+                    lanes.awaitCompletion();
+                }
                 return kinesisShardIterator.getShardPosition();
 
+            } catch (final InterruptedException e) {
+                // the returned position must not pass messages that are still processed by the lanes:
+                LOG.warn(marker, "Thread got interrupted, stop reading of channel={}, shard={} at position {}", channelName, shardName, lanes.lowWatermark());
+                Thread.currentThread().interrupt();
+                stop();
+                return lanes.lowWatermark();
             } catch (final RuntimeException e) {
                 LOG.error(marker, "Failed to consume from Kinesis shard {}: {}, {}", channelName, shardName, e.getMessage());
                 // Stop all shards and shutdown if this shard is failing:
                 stop();
                 throw e;
             } finally {
+                if (lanes != null) {
+                    lanes.close();
+                }
+                if (pollScheduler != null) {
+                    pollScheduler.close();
+                }
                 MDC.remove("channelName");
                 MDC.remove("shardName");
             }
@@ -165,13 +227,10 @@ public class KinesisShardReader {
         return ShardPosition.fromHorizon(shardPosition.shardName());
     }
 
-    private boolean waitABit(Duration durationBehind) {
+    private boolean waitABit(final Duration delay) {
         try {
-            /*Wait one second as documented by amazon: https://docs.aws.amazon.com/kinesis/latest/APIReference/API_GetRecords.html*/
-            if (durationBehind.getSeconds() > 10) {
-                Thread.sleep(1000);
-            } else {
-                Thread.sleep(waitingTimeOnEmptyRecords);
+            if (!delay.isZero()) {
+                Thread.sleep(delay.toMillis());
             }
         } catch (final InterruptedException e) {
             LOG.warn(marker, "Thread got interrupted");
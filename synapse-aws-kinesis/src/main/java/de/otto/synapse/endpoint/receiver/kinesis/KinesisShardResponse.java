@@ -3,6 +3,9 @@ package de.otto.synapse.endpoint.receiver.kinesis;
 import de.otto.synapse.channel.ShardPosition;
 import de.otto.synapse.channel.ShardResponse;
 import software.amazon.awssdk.services.kinesis.model.GetRecordsResponse;
+import software.amazon.awssdk.services.kinesis.model.Record;
+
+import java.util.List;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static de.otto.synapse.channel.ShardResponse.shardResponse;
@@ -12,13 +15,19 @@ public class KinesisShardResponse {
 
     public static ShardResponse kinesisShardResponse(final ShardPosition shardPosition,
                                                      final GetRecordsResponse recordsResponse) {
+        return kinesisShardResponse(shardPosition, recordsResponse.millisBehindLatest(), recordsResponse.records());
+    }
+
+    public static ShardResponse kinesisShardResponse(final ShardPosition shardPosition,
+                                                     final long millisBehindLatest,
+                                                     final List<Record> records) {
         final KinesisDecoder kinesisDecoder = new KinesisDecoder();
         return shardResponse(
                 shardPosition,
-                ofMillis(recordsResponse.millisBehindLatest()),
-                recordsResponse.records()
+                ofMillis(millisBehindLatest),
+                records
                         .stream()
-                        .map(record -> kinesisDecoder.apply(new RecordWithShard(shardPosition.shardName(), record)))
+                        .flatMap(record -> kinesisDecoder.decodeAll(new RecordWithShard(shardPosition.shardName(), record)).stream())
                         .collect(toImmutableList())
         );
     }
@@ -0,0 +1,97 @@
+package de.otto.synapse.endpoint.receiver.kinesis;
+
+import de.otto.synapse.channel.ChannelDurationBehind;
+import de.otto.synapse.channel.ChannelPositionTracker;
+import de.otto.synapse.channel.ShardResponse;
+import de.otto.synapse.consumer.MessageDispatcher;
+import de.otto.synapse.endpoint.InterceptorChain;
+import de.otto.synapse.endpoint.MessageInterceptorRegistry;
+import de.otto.synapse.message.TextMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static de.otto.synapse.endpoint.EndpointType.RECEIVER;
+import static de.otto.synapse.info.MessageReceiverNotification.builder;
+import static de.otto.synapse.info.MessageReceiverStatus.RUNNING;
+
+/**
+ * Consumer of {@link ShardResponse shard responses} used by Kinesis receiver endpoints to intercept and dispatch
+ * the messages of a response and to publish {@link de.otto.synapse.info.MessageReceiverNotification notifications}
+ * about the {@link ChannelDurationBehind}.
+ * <p>
+ *     The messages of a response are dispatched as a single {@link MessageDispatcher.Batch batch}, so
+ *     {@link de.otto.synapse.consumer.BatchMessageConsumer batch consumers} are receiving all matching messages of
+ *     the response in one call.
+ * </p>
+ */
+class KinesisShardResponseConsumer implements Consumer<ShardResponse> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KinesisShardResponseConsumer.class);
+
+    private final ChannelPositionTracker shardTracker = new ChannelPositionTracker();
+    private final MessageInterceptorRegistry interceptorRegistry;
+    private final String channelName;
+    private final MessageDispatcher messageDispatcher;
+    private final ApplicationEventPublisher eventPublisher;
+
+    KinesisShardResponseConsumer(final String channelName,
+                                 final List<String> shardNames,
+                                 final MessageInterceptorRegistry interceptorRegistry,
+                                 final MessageDispatcher messageDispatcher,
+                                 final ApplicationEventPublisher eventPublisher) {
+        this.channelName = channelName;
+        this.messageDispatcher = messageDispatcher;
+        this.interceptorRegistry = interceptorRegistry;
+        this.eventPublisher = eventPublisher;
+        shardTracker.unknownDurationBehind(shardNames);
+    }
+
+    @Override
+    public void accept(final ShardResponse response) {
+        final InterceptorChain interceptorChain = interceptorRegistry.getInterceptorChain(channelName, RECEIVER);
+        final MessageDispatcher.Batch batch = messageDispatcher.startBatch(response.getShardPosition());
+        response.getMessages().forEach(message -> {
+            try {
+                LOG.debug("Processing message " + message.getKey());
+                final TextMessage interceptedMessage = interceptorChain.intercept(message);
+                if (interceptedMessage != null) {
+                    batch.accept(interceptedMessage);
+                } else {
+                    LOG.debug("Message {} dropped by interceptor", message.getKey());
+                }
+            } catch (final Exception e) {
+                LOG.error("Error processing message: " + e.getMessage(), e);
+            }
+        });
+        try {
+            batch.finish();
+        } catch (final Exception e) {
+            LOG.error("Error processing messages of shard {}: {}", response.getShardName(), e.getMessage(), e);
+        }
+        shardTracker.updateDurationBehind(response.getShardName(), response.getDurationBehind());
+
+        if (eventPublisher != null) {
+            eventPublisher.publishEvent(builder()
+                    .withChannelName(channelName)
+                    .withChannelDurationBehind(shardTracker.getChannelDurationBehind())
+                    .withStatus(RUNNING)
+                    .withMessage("Reading from kinesis shard.")
+                    .build());
+        }
+
+    }
+
+    /**
+     * Removes a closed shard from the {@link ChannelDurationBehind} reported by this consumer.
+     *
+     * @param shardName the name of the closed shard
+     */
+    void shardClosed(final String shardName) {
+        shardTracker.remove(shardName);
+    }
+
+}
@@ -0,0 +1,142 @@
+package de.otto.synapse.endpoint.receiver.kinesis;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardEvent;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardEventStream;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardResponse;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardResponseHandler;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single SubscribeToShard subscription of an enhanced fan-out consumer.
+ *
+ * <p>
+ *     Events pushed by Kinesis are buffered, so they can be taken by the thread that is reading the shard using
+ *     {@link #next(Duration)}. Only a single event is requested from the publisher in advance, so a slow consumer
+ *     of the shard is applying backpressure to the subscription.
+ * </p>
+ * <p>
+ *     Kinesis is closing every subscription after five minutes. After this, {@link #next(Duration)} will return
+ *     {@link Next#COMPLETED} and the shard has to be subscribed again.
+ * </p>
+ */
+class KinesisShardSubscription implements SubscribeToShardResponseHandler {
+
+    private static final Object END_OF_SUBSCRIPTION = new Object();
+
+    private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+    private volatile Subscription subscription;
+    private volatile boolean cancelled;
+
+    /**
+     * The result of {@link #next(Duration)}.
+     */
+    static final class Next {
+        static final Next COMPLETED = new Next(null);
+        static final Next TIMEOUT = new Next(null);
+
+        private final SubscribeToShardEvent event;
+
+        private Next(final SubscribeToShardEvent event) {
+            this.event = event;
+        }
+
+        SubscribeToShardEvent event() {
+            return event;
+        }
+    }
+
+    @Override
+    public void responseReceived(final SubscribeToShardResponse response) {
+    }
+
+    @Override
+    public void onEventStream(final SdkPublisher<SubscribeToShardEventStream> publisher) {
+        publisher.subscribe(new Subscriber<SubscribeToShardEventStream>() {
+            @Override
+            public void onSubscribe(final Subscription s) {
+                subscription = s;
+                if (cancelled) {
+                    s.cancel();
+                } else {
+                    s.request(1);
+                }
+            }
+
+            @Override
+            public void onNext(final SubscribeToShardEventStream eventStream) {
+                if (eventStream instanceof SubscribeToShardEvent) {
+                    events.add(eventStream);
+                } else if (subscription != null) {
+                    subscription.request(1);
+                }
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+                exceptionOccurred(t);
+            }
+
+            @Override
+            public void onComplete() {
+                complete();
+            }
+        });
+    }
+
+    @Override
+    public void exceptionOccurred(final Throwable throwable) {
+        events.add(throwable);
+    }
+
+    @Override
+    public void complete() {
+        events.add(END_OF_SUBSCRIPTION);
+    }
+
+    /**
+     * Takes the next event received from Kinesis.
+     *
+     * @param timeout the max time to wait for the next event
+     * @return Next containing the next event, {@link Next#COMPLETED} if the subscription was completed, or
+     *         {@link Next#TIMEOUT} if no event was received within the given timeout.
+     * @throws CompletionException if the subscription has failed
+     * @throws InterruptedException if the current thread was interrupted
+     */
+    Next next(final Duration timeout) throws InterruptedException {
+        final Object next = events.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        if (next == null) {
+            return Next.TIMEOUT;
+        }
+        if (next == END_OF_SUBSCRIPTION) {
+            return Next.COMPLETED;
+        }
+        if (next instanceof Throwable) {
+            final Throwable throwable = (Throwable) next;
+            throw throwable instanceof CompletionException
+                    ? (CompletionException) throwable
+                    : new CompletionException(throwable.getMessage(), throwable);
+        }
+        if (subscription != null) {
+            subscription.request(1);
+        }
+        return new Next((SubscribeToShardEvent) next);
+    }
+
+    /**
+     * Cancels the subscription.
+     */
+    void cancel() {
+        cancelled = true;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package de.otto.synapse.endpoint.receiver.kinesis;
+
+import com.google.common.collect.ImmutableList;
+import de.otto.synapse.channel.ShardPosition;
+import de.otto.synapse.channel.ShardResponse;
+import de.otto.synapse.message.TextMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static de.otto.synapse.channel.ShardResponse.shardResponse;
+
+/**
+ * Processes the {@link ShardResponse responses} of a single Kinesis shard in parallel lanes.
+ *
+ * <p>
+ *     The messages of every response are distributed to the lanes by the hash of their
+ *     {@link de.otto.synapse.message.Key#partitionKey() partition key}. Every lane is processing its part of the
+ *     responses on a separate thread, in the order the responses were {@link #submit(ShardResponse) submitted}. So
+ *     messages having the same partition key are consumed in the order of the shard, while messages of different
+ *     partition keys may be consumed concurrently.
+ * </p>
+ * <p>
+ *     Every lane is able to hold a limited number of pending responses. If a lane is full, {@link #submit(ShardResponse)}
+ *     is blocking until the lane has caught up.
+ * </p>
+ * <p>
+ *     The {@link #lowWatermark() low watermark} is the position of the latest response that - together with all
+ *     responses submitted before - has been completely processed by all lanes.
+ * </p>
+ */
+final class ShardLanes implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardLanes.class);
+
+    private final Consumer<ShardResponse> responseConsumer;
+    private final Lane[] lanes;
+    private final Deque<PendingResponse> pendingResponses = new ArrayDeque<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile ShardPosition lowWatermark;
+
+    /**
+     * Creates and starts the lanes of a shard.
+     *
+     * @param channelName the name of the channel
+     * @param startFrom the position of the shard before the first submitted response
+     * @param numberOfLanes the number of lanes
+     * @param laneCapacity the maximum number of pending responses per lane
+     * @param responseConsumer the consumer used to process the parts of the responses
+     */
+    ShardLanes(final String channelName,
+               final ShardPosition startFrom,
+               final int numberOfLanes,
+               final int laneCapacity,
+               final Consumer<ShardResponse> responseConsumer) {
+        if (numberOfLanes < 1 || laneCapacity < 1) {
+            throw new IllegalArgumentException("Number of lanes and lane capacity must be greater than zero");
+        }
+        this.responseConsumer = responseConsumer;
+        this.lowWatermark = startFrom;
+        this.lanes = new Lane[numberOfLanes];
+        final Map<String, String> contextMap = MDC.getCopyOfContextMap();
+        for (int i = 0; i < numberOfLanes; i++) {
+            final Lane lane = new Lane(laneCapacity);
+            lanes[i] = lane;
+            lane.start(new Thread(lane, "synapse-" + channelName + "-" + startFrom.shardName() + "-lane-" + i), contextMap);
+        }
+    }
+
+    /**
+     * Distributes the messages of the response to the lanes.
+     *
+     * <p>Responses without messages are passed to the first lane, so the consumer is still notified about the
+     * progress of the shard.</p>
+     *
+     * @param response the response of the shard
+     * @throws InterruptedException if the thread was interrupted while waiting for a full lane
+     * @throws IllegalStateException if processing a previous response has failed
+     */
+    void submit(final ShardResponse response) throws InterruptedException {
+        throwIfFailed();
+        final List<List<TextMessage>> parts = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            parts.add(null);
+        }
+        int numberOfParts = 0;
+        for (final TextMessage message : response.getMessages()) {
+            final int lane = laneOf(message.getKey().partitionKey());
+            List<TextMessage> part = parts.get(lane);
+            if (part == null) {
+                part = new ArrayList<>();
+                parts.set(lane, part);
+                ++numberOfParts;
+            }
+            part.add(message);
+        }
+        if (numberOfParts == 0) {
+            parts.set(0, ImmutableList.of());
+            numberOfParts = 1;
+        }
+        final PendingResponse pendingResponse = new PendingResponse(response.getShardPosition(), numberOfParts);
+        synchronized (pendingResponses) {
+            pendingResponses.addLast(pendingResponse);
+        }
+        for (int i = 0; i < lanes.length; i++) {
+            final List<TextMessage> part = parts.get(i);
+            if (part != null) {
+                lanes[i].queue.put(new Task(
+                        shardResponse(response.getShardPosition(), response.getDurationBehind(), ImmutableList.copyOf(part)),
+                        pendingResponse));
+            }
+        }
+    }
+
+    /**
+     * Waits until all submitted responses are processed.
+     *
+     * @throws InterruptedException if the thread was interrupted while waiting
+     * @throws IllegalStateException if processing a response has failed
+     */
+    void awaitCompletion() throws InterruptedException {
+        synchronized (pendingResponses) {
+            while (!pendingResponses.isEmpty() && failure.get() == null) {
+                pendingResponses.wait();
+            }
+        }
+        throwIfFailed();
+    }
+
+    /**
+     * Returns the position of the latest submitted response, that has been processed completely, together with all
+     * responses submitted before.
+     *
+     * @return low watermark of the processed responses
+     */
+    ShardPosition lowWatermark() {
+        return lowWatermark;
+    }
+
+    /**
+     * Stops the threads of the lanes. Pending responses are not processed anymore.
+     */
+    @Override
+    public void close() {
+        for (final Lane lane : lanes) {
+            lane.thread.interrupt();
+        }
+    }
+
+    private int laneOf(final String partitionKey) {
+        final int hash = partitionKey != null ? partitionKey.hashCode() : 0;
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+
+    private void completed(final PendingResponse pendingResponse) {
+        if (pendingResponse.remainingParts.decrementAndGet() == 0) {
+            synchronized (pendingResponses) {
+                while (!pendingResponses.isEmpty() && pendingResponses.peekFirst().remainingParts.get() == 0) {
+                    lowWatermark = pendingResponses.removeFirst().shardPosition;
+                }
+                pendingResponses.notifyAll();
+            }
+        }
+    }
+
+    private void failed(final Throwable e) {
+        if (failure.compareAndSet(null, e)) {
+            LOG.error("Failed to process response of shard {}, last completed position is {}: {}", lowWatermark.shardName(), lowWatermark, e.getMessage(), e);
+        }
+        synchronized (pendingResponses) {
+            pendingResponses.notifyAll();
+        }
+    }
+
+    private void throwIfFailed() {
+        final Throwable e = failure.get();
+        if (e != null) {
+            throw new IllegalStateException("Failed to process response of shard " + lowWatermark.shardName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final BlockingQueue<Task> queue;
+        private Thread thread;
+        private Map<String, String> contextMap;
+
+        private Lane(final int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void start(final Thread thread, final Map<String, String> contextMap) {
+            this.thread = thread;
+            this.contextMap = contextMap;
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            if (contextMap != null) {
+                MDC.setContextMap(contextMap);
+            }
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    final Task task = queue.take();
+                    if (failure.get() != null) {
+                        // the low watermark will not pass the failed response, so the remaining tasks are skipped:
+                        continue;
+                    }
+                    try {
+                        responseConsumer.accept(task.response);
+                        completed(task.pendingResponse);
+                    } catch (final RuntimeException | Error e) {
+                        failed(e);
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                MDC.clear();
+            }
+        }
+    }
+
+    private static final class Task {
+        private final ShardResponse response;
+        private final PendingResponse pendingResponse;
+
+        private Task(final ShardResponse response, final PendingResponse pendingResponse) {
+            this.response = response;
+            this.pendingResponse = pendingResponse;
+        }
+    }
+
+    private static final class PendingResponse {
+        private final ShardPosition shardPosition;
+        private final AtomicInteger remainingParts;
+
+        private PendingResponse(final ShardPosition shardPosition, final int parts) {
+            this.shardPosition = shardPosition;
+            this.remainingParts = new AtomicInteger(parts);
+        }
+    }
+}
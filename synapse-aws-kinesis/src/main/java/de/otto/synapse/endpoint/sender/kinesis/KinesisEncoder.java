@@ -7,21 +7,25 @@ import de.otto.synapse.translator.TextEncoder;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.kinesis.model.PutRecordsRequestEntry;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 class KinesisEncoder implements Encoder<PutRecordsRequestEntry> {
 
     private final TextEncoder textEncoder;
 
     KinesisEncoder(final MessageFormat messageFormat) {
-        this.textEncoder = new TextEncoder(messageFormat);
+        this(messageFormat, false);
+    }
+
+    KinesisEncoder(final MessageFormat messageFormat,
+                   final boolean trustJsonPayloads) {
+        this.textEncoder = new TextEncoder(messageFormat, trustJsonPayloads);
     }
 
     @Override
     public PutRecordsRequestEntry apply(final Message<String> message) {
-        final String encodedMessage = textEncoder.apply(message);
+        final byte[] encodedMessage = textEncoder.applyAsUtf8(message);
+        // the encoded bytes are not shared with anyone else, so they do not need to be copied:
         final SdkBytes sdkBytes = encodedMessage != null
-                ? SdkBytes.fromString(encodedMessage, UTF_8)
+                ? SdkBytes.fromByteArrayUnsafe(encodedMessage)
                 : SdkBytes.fromByteArray(new byte[]{});
 
         return PutRecordsRequestEntry.builder()
@@ -1,40 +1,52 @@
 package de.otto.synapse.endpoint.sender.kinesis;
 
+import com.google.common.annotations.VisibleForTesting;
 import de.otto.synapse.endpoint.MessageInterceptorRegistry;
 import de.otto.synapse.endpoint.sender.AbstractMessageSenderEndpoint;
 import de.otto.synapse.message.TextMessage;
 import de.otto.synapse.translator.MessageFormat;
 import de.otto.synapse.translator.MessageTranslator;
 import jakarta.annotation.Nonnull;
-import org.slf4j.Logger;
 import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
-import software.amazon.awssdk.services.kinesis.model.PutRecordsRequest;
 import software.amazon.awssdk.services.kinesis.model.PutRecordsRequestEntry;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 
 import static de.otto.synapse.translator.MessageFormat.defaultMessageFormat;
-import static java.util.Objects.isNull;
 import static java.util.stream.Collectors.toCollection;
-import static org.slf4j.LoggerFactory.getLogger;
 
+/**
+ * {@link de.otto.synapse.endpoint.sender.MessageSenderEndpoint} used to send messages to Kinesis streams.
+ *
+ * <p>
+ *     Batches of messages are sent using up to {@code maxInFlightRequests} concurrent PutRecords requests, each
+ *     containing up to 500 records or 5 MB of data. Failed records are resent with exponential backoff and jitter,
+ *     while messages having the same partition key are always written in the order they were sent.
+ * </p>
+ * <p>
+ *     Optionally, small messages are packed into KPL-compatible aggregated records, which are transparently
+ *     de-aggregated by the {@link de.otto.synapse.endpoint.receiver.kinesis.KinesisDecoder}.
+ * </p>
+ */
 public class KinesisMessageSender extends AbstractMessageSenderEndpoint {
 
-    private static final Logger LOG = getLogger(KinesisMessageSender.class);
+    public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 8;
 
-    private static final int PUT_RECORDS_BATCH_SIZE = 500;
-    private static final int PUT_RECORDS_BATCH_SIZE_BYTES = 5 * 1024 * 1024;
     private static final int MAX_RETRIES = 15;
-    private static final long RETRY_DELAY_MS = 1000L;
+    private static final Duration RETRY_BASE_DELAY = Duration.ofMillis(100);
+    private static final Duration RETRY_MAX_DELAY = Duration.ofSeconds(2);
 
     private final KinesisAsyncClient kinesisAsyncClient;
     private final KinesisEncoder encoder;
     private final MessageFormat messageFormat;
+    private final int maxInFlightRequests;
+    private final KinesisRecordAggregator aggregator;
+    private final Duration retryBaseDelay;
+    private final Duration retryMaxDelay;
 
     public KinesisMessageSender(final String channelName,
                                 final MessageInterceptorRegistry interceptorRegistry,
@@ -48,10 +60,91 @@ public class KinesisMessageSender extends AbstractMessageSenderEndpoint {
                                 final MessageTranslator<TextMessage> messageTranslator,
                                 final KinesisAsyncClient kinesisClient,
                                 final MessageFormat messageFormat) {
+        this(channelName, interceptorRegistry, messageTranslator, kinesisClient, messageFormat, DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+    }
+
+    public KinesisMessageSender(final String channelName,
+                                final MessageInterceptorRegistry interceptorRegistry,
+                                final MessageTranslator<TextMessage> messageTranslator,
+                                final KinesisAsyncClient kinesisClient,
+                                final MessageFormat messageFormat,
+                                final int maxInFlightRequests) {
+        this(channelName, interceptorRegistry, messageTranslator, kinesisClient, messageFormat, maxInFlightRequests, false);
+    }
+
+    public KinesisMessageSender(final String channelName,
+                                final MessageInterceptorRegistry interceptorRegistry,
+                                final MessageTranslator<TextMessage> messageTranslator,
+                                final KinesisAsyncClient kinesisClient,
+                                final MessageFormat messageFormat,
+                                final int maxInFlightRequests,
+                                final boolean aggregationEnabled) {
+        this(channelName, interceptorRegistry, messageTranslator, kinesisClient, messageFormat, maxInFlightRequests, aggregationEnabled, false);
+    }
+
+    /**
+     * Creates a KinesisMessageSender.
+     *
+     * @param channelName the name of the Kinesis stream
+     * @param interceptorRegistry registry used to determine the interceptors of the sender
+     * @param messageTranslator the translator of messages
+     * @param kinesisClient the Kinesis client
+     * @param messageFormat the format of the messages
+     * @param maxInFlightRequests the max number of concurrent PutRecords requests
+     * @param aggregationEnabled if true, messages are sent as KPL-compatible
+     *                           {@link de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord aggregated records}
+     * @param trustJsonPayloads if true, JSON payloads are embedded into V2 messages without validating them.
+     *                          See {@link de.otto.synapse.translator.TextEncoder}
+     */
+    public KinesisMessageSender(final String channelName,
+                                final MessageInterceptorRegistry interceptorRegistry,
+                                final MessageTranslator<TextMessage> messageTranslator,
+                                final KinesisAsyncClient kinesisClient,
+                                final MessageFormat messageFormat,
+                                final int maxInFlightRequests,
+                                final boolean aggregationEnabled,
+                                final boolean trustJsonPayloads) {
+        this(channelName, interceptorRegistry, messageTranslator, kinesisClient, messageFormat, maxInFlightRequests,
+                aggregationEnabled ? new KinesisRecordAggregator(new KinesisShardMap(channelName, kinesisClient)) : null,
+                new KinesisEncoder(messageFormat, trustJsonPayloads),
+                RETRY_BASE_DELAY, RETRY_MAX_DELAY);
+    }
+
+    @VisibleForTesting
+    KinesisMessageSender(final String channelName,
+                         final MessageInterceptorRegistry interceptorRegistry,
+                         final MessageTranslator<TextMessage> messageTranslator,
+                         final KinesisAsyncClient kinesisClient,
+                         final MessageFormat messageFormat,
+                         final int maxInFlightRequests,
+                         final KinesisRecordAggregator aggregator,
+                         final Duration retryBaseDelay,
+                         final Duration retryMaxDelay) {
+        this(channelName, interceptorRegistry, messageTranslator, kinesisClient, messageFormat, maxInFlightRequests,
+                aggregator, new KinesisEncoder(messageFormat), retryBaseDelay, retryMaxDelay);
+    }
+
+    private KinesisMessageSender(final String channelName,
+                                 final MessageInterceptorRegistry interceptorRegistry,
+                                 final MessageTranslator<TextMessage> messageTranslator,
+                                 final KinesisAsyncClient kinesisClient,
+                                 final MessageFormat messageFormat,
+                                 final int maxInFlightRequests,
+                                 final KinesisRecordAggregator aggregator,
+                                 final KinesisEncoder encoder,
+                                 final Duration retryBaseDelay,
+                                 final Duration retryMaxDelay) {
         super(channelName, interceptorRegistry, messageTranslator);
+        if (maxInFlightRequests < 1) {
+            throw new IllegalArgumentException("maxInFlightRequests must be greater than zero");
+        }
         this.kinesisAsyncClient = kinesisClient;
-        this.encoder = new KinesisEncoder(messageFormat);
+        this.encoder = encoder;
         this.messageFormat = messageFormat;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.aggregator = aggregator;
+        this.retryBaseDelay = retryBaseDelay;
+        this.retryMaxDelay = retryMaxDelay;
     }
 
     @Override
@@ -61,32 +154,22 @@ public class KinesisMessageSender extends AbstractMessageSenderEndpoint {
         return doSendBatch(Stream.of(message));
     }
 
+    /**
+     * Sends the messages using concurrent PutRecords requests.
+     *
+     * @param messageStream the messages to send
+     * @return CompletableFuture that is completed after all messages were written to the stream, or completed
+     *         exceptionally with a {@link RetryLimitExceededException}, if some messages could not be written.
+     */
     @Override
     protected CompletableFuture<Void> doSendBatch(@Nonnull Stream<TextMessage> messageStream) {
         // TODO: Introduce a response object and return it instead of Void
         // Just because we need a CompletableFuture<Void>, no CompletableFuture<SendMessageBatchResponse>:
-        final List<PutRecordsRequestEntry> entries = createPutRecordRequestEntries(messageStream);
-        long currentBatchSize = 0;
-        List<PutRecordsRequestEntry> batch = new ArrayList<>();
-        if (!entries.isEmpty()) {
-            for (PutRecordsRequestEntry entry : entries) {
-                currentBatchSize += getApproximateDataSize(entry);
-                if (currentBatchSize > PUT_RECORDS_BATCH_SIZE_BYTES || batch.size() + 1 > PUT_RECORDS_BATCH_SIZE) {
-                    blockingSendBatchWithRetries(batch);
-                    batch = new ArrayList<>();
-                    currentBatchSize = 0;
-                }
-                batch.add(entry);
-            }
-            if (!batch.isEmpty()) {
-                blockingSendBatchWithRetries(batch);
-            }
-        }
-        return CompletableFuture.completedFuture(null);
-    }
-
-    private int getApproximateDataSize(PutRecordsRequestEntry entry) {
-        return entry.data().asByteBuffer().limit() + entry.partitionKey().getBytes().length;
+        final List<PutRecordsRequestEntry> entries = aggregator != null
+                ? aggregator.aggregate(createPutRecordRequestEntries(messageStream))
+                : createPutRecordRequestEntries(messageStream);
+        return new PutRecordsPipeline(getChannelName(), kinesisAsyncClient, entries, maxInFlightRequests, MAX_RETRIES, retryBaseDelay, retryMaxDelay)
+                .send();
     }
 
     @Override
@@ -94,38 +177,12 @@ public class KinesisMessageSender extends AbstractMessageSenderEndpoint {
         return messageFormat;
     }
 
-    private void blockingSendBatchWithRetries(List<PutRecordsRequestEntry> batch) {
-        try {
-            int currentRetry = 0;
-            while (!blockingSendBatch(batch)) {
-                currentRetry++;
-                LOG.warn("retry to send batch of size '{}' to kinesis for nth time: {}", batch.size(), currentRetry);
-                if (currentRetry >= MAX_RETRIES) {
-                    throw new RetryLimitExceededException("Exceeded maximum number of retries.", MAX_RETRIES);
-                }
-                Thread.sleep(RETRY_DELAY_MS);
-            }
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    private boolean blockingSendBatch(List<PutRecordsRequestEntry> batch) throws ExecutionException, InterruptedException {
-        AtomicBoolean isSuccessful = new AtomicBoolean(true);
-        PutRecordsRequest putRecordsRequest = createPutRecordsRequest(batch);
-        kinesisAsyncClient.putRecords(putRecordsRequest)
-                .thenApply(response -> {
-                    isSuccessful.set(isNull(response.failedRecordCount()) || response.failedRecordCount() == 0);
-                    return response;
-                }).get();
-        return isSuccessful.get();
+    public int getMaxInFlightRequests() {
+        return maxInFlightRequests;
     }
 
-    private PutRecordsRequest createPutRecordsRequest(final List<PutRecordsRequestEntry> batch) {
-        return PutRecordsRequest.builder()
-                .streamName(getChannelName())
-                .records(batch)
-                .build();
+    public boolean isAggregationEnabled() {
+        return aggregator != null;
     }
 
     private ArrayList<PutRecordsRequestEntry> createPutRecordRequestEntries(final @Nonnull Stream<TextMessage> messageStream) {
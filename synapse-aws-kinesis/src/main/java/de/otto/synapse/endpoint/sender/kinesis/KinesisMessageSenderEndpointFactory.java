@@ -12,22 +12,58 @@ import de.otto.synapse.translator.TextMessageTranslator;
 import jakarta.annotation.Nonnull;
 import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
 
+import java.util.Set;
+
+import static java.util.Collections.emptySet;
+
 public class KinesisMessageSenderEndpointFactory implements MessageSenderEndpointFactory {
 
     private final MessageInterceptorRegistry registry;
     private final MessageTranslator<TextMessage> messageTranslator;
     private final KinesisAsyncClient kinesisClient;
+    private final int maxInFlightRequests;
+    private final boolean aggregationEnabled;
+    private final Set<String> trustedJsonPayloadChannels;
 
     public KinesisMessageSenderEndpointFactory(final MessageInterceptorRegistry registry,
                                                final KinesisAsyncClient kinesisClient) {
+        this(registry, kinesisClient, KinesisMessageSender.DEFAULT_MAX_IN_FLIGHT_REQUESTS, false);
+    }
+
+    public KinesisMessageSenderEndpointFactory(final MessageInterceptorRegistry registry,
+                                               final KinesisAsyncClient kinesisClient,
+                                               final int maxInFlightRequests,
+                                               final boolean aggregationEnabled) {
+        this(registry, kinesisClient, maxInFlightRequests, aggregationEnabled, emptySet());
+    }
+
+    /**
+     * Creates a KinesisMessageSenderEndpointFactory.
+     *
+     * @param registry registry used to determine the interceptors of the senders
+     * @param kinesisClient the Kinesis client
+     * @param maxInFlightRequests the max number of concurrent PutRecords requests per sender
+     * @param aggregationEnabled if true, messages are sent as KPL-compatible aggregated records
+     * @param trustedJsonPayloadChannels the names of the channels, whose JSON payloads are embedded into V2 messages
+     *                                   without validating them
+     */
+    public KinesisMessageSenderEndpointFactory(final MessageInterceptorRegistry registry,
+                                               final KinesisAsyncClient kinesisClient,
+                                               final int maxInFlightRequests,
+                                               final boolean aggregationEnabled,
+                                               final Set<String> trustedJsonPayloadChannels) {
         this.registry = registry;
         this.messageTranslator = new TextMessageTranslator();
         this.kinesisClient = kinesisClient;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.aggregationEnabled = aggregationEnabled;
+        this.trustedJsonPayloadChannels = Set.copyOf(trustedJsonPayloadChannels);
     }
 
     @Override
     public MessageSenderEndpoint create(final @Nonnull String channelName, MessageFormat messageFormat) {
-        return new KinesisMessageSender(channelName, registry, messageTranslator, kinesisClient, messageFormat);
+        return new KinesisMessageSender(channelName, registry, messageTranslator, kinesisClient, messageFormat, maxInFlightRequests, aggregationEnabled,
+                trustedJsonPayloadChannels.contains(channelName));
     }
 
     @Override
@@ -0,0 +1,103 @@
+package de.otto.synapse.endpoint.sender.kinesis;
+
+import de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsRequestEntry;
+import software.amazon.awssdk.services.kinesis.model.Shard;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs {@link PutRecordsRequestEntry entries} into {@link KinesisAggregatedRecord aggregated records}.
+ *
+ * <p>
+ *     Only entries that are mapped to the same shard are aggregated. The aggregated records are sent using the
+ *     starting hash key of the shard as explicit hash key, so every user record is written to the shard it would
+ *     have been written to without aggregation. Entries that are too large to be aggregated, or that can not be
+ *     mapped to a shard, are sent as they are.
+ * </p>
+ * <p>
+ *     The order of the entries of a shard is preserved.
+ * </p>
+ */
+class KinesisRecordAggregator {
+
+    /**
+     * The max size of an aggregated record. Same as the default of the Kinesis Producer Library.
+     */
+    static final int MAX_AGGREGATED_RECORD_SIZE_BYTES = 50 * 1024;
+
+    private final KinesisShardMap shardMap;
+    private final int maxAggregatedRecordSizeBytes;
+
+    KinesisRecordAggregator(final KinesisShardMap shardMap) {
+        this(shardMap, MAX_AGGREGATED_RECORD_SIZE_BYTES);
+    }
+
+    KinesisRecordAggregator(final KinesisShardMap shardMap,
+                            final int maxAggregatedRecordSizeBytes) {
+        this.shardMap = shardMap;
+        this.maxAggregatedRecordSizeBytes = maxAggregatedRecordSizeBytes;
+    }
+
+    List<PutRecordsRequestEntry> aggregate(final List<PutRecordsRequestEntry> entries) {
+        final List<PutRecordsRequestEntry> result = new ArrayList<>();
+        final Map<String, Aggregation> aggregations = new HashMap<>();
+        for (final PutRecordsRequestEntry entry : entries) {
+            final Shard shard = shardMap.shardOf(entry.partitionKey());
+            if (shard == null) {
+                result.add(entry);
+                continue;
+            }
+            final String explicitHashKey = shard.hashKeyRange().startingHashKey();
+            final byte[] data = entry.data().asByteArrayUnsafe();
+            final Aggregation aggregation = aggregations.computeIfAbsent(shard.shardId(), k -> new Aggregation(explicitHashKey));
+            if (!aggregation.tryAdd(entry, data)) {
+                aggregation.flushTo(result);
+                if (!aggregation.tryAdd(entry, data)) {
+                    result.add(entry.toBuilder().explicitHashKey(explicitHashKey).build());
+                }
+            }
+        }
+        aggregations.values().forEach(aggregation -> aggregation.flushTo(result));
+        return result;
+    }
+
+    private class Aggregation {
+        private final String explicitHashKey;
+        private KinesisAggregatedRecord.Builder builder;
+        private PutRecordsRequestEntry firstEntry;
+
+        private Aggregation(final String explicitHashKey) {
+            this.explicitHashKey = explicitHashKey;
+            this.builder = KinesisAggregatedRecord.builder(maxAggregatedRecordSizeBytes);
+        }
+
+        private boolean tryAdd(final PutRecordsRequestEntry entry, final byte[] data) {
+            if (builder.tryAdd(entry.partitionKey(), data)) {
+                if (firstEntry == null) {
+                    firstEntry = entry;
+                }
+                return true;
+            }
+            return false;
+        }
+
+        private void flushTo(final List<PutRecordsRequestEntry> result) {
+            if (builder.getNumberOfRecords() == 1) {
+                result.add(firstEntry.toBuilder().explicitHashKey(explicitHashKey).build());
+            } else if (!builder.isEmpty()) {
+                result.add(PutRecordsRequestEntry.builder()
+                        .partitionKey(firstEntry.partitionKey())
+                        .explicitHashKey(explicitHashKey)
+                        .data(SdkBytes.fromByteArrayUnsafe(builder.toByteArray()))
+                        .build());
+            }
+            builder = KinesisAggregatedRecord.builder(maxAggregatedRecordSizeBytes);
+            firstEntry = null;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package de.otto.synapse.endpoint.sender.kinesis;
+
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.ListShardsRequest;
+import software.amazon.awssdk.services.kinesis.model.ListShardsResponse;
+import software.amazon.awssdk.services.kinesis.model.Shard;
+import software.amazon.awssdk.services.kinesis.model.ShardFilter;
+import software.amazon.awssdk.services.kinesis.model.ShardFilterType;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps partition keys to the open shards of a Kinesis stream, the same way Kinesis does: the MD5 hash of the
+ * partition key, interpreted as a 128 bit unsigned integer, is mapped to the shard whose hash key range contains
+ * the hash.
+ *
+ * <p>
+ *     The shards of the stream are cached for {@link #DEFAULT_TIME_TO_LIVE}, so after resharding, it may take some
+ *     time until records are mapped to the new shards.
+ * </p>
+ */
+class KinesisShardMap {
+
+    static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(1);
+
+    private final String channelName;
+    private final KinesisAsyncClient kinesisClient;
+    private final Duration timeToLive;
+    private final Clock clock;
+
+    private volatile TreeMap<BigInteger, Shard> shardsByStartingHashKey;
+    private volatile long expiresAtMillis = 0;
+
+    KinesisShardMap(final String channelName,
+                    final KinesisAsyncClient kinesisClient) {
+        this(channelName, kinesisClient, DEFAULT_TIME_TO_LIVE, Clock.systemDefaultZone());
+    }
+
+    KinesisShardMap(final String channelName,
+                    final KinesisAsyncClient kinesisClient,
+                    final Duration timeToLive,
+                    final Clock clock) {
+        this.channelName = channelName;
+        this.kinesisClient = kinesisClient;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the open shard the partition key is mapped to.
+     *
+     * @param partitionKey the partition key of a record
+     * @return Shard, or null if there is no open shard for the partition key
+     */
+    Shard shardOf(final String partitionKey) {
+        return lookup(shards(), hashKeyOf(partitionKey));
+    }
+
+    static BigInteger hashKeyOf(final String partitionKey) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("MD5").digest(partitionKey.getBytes(StandardCharsets.UTF_8));
+            return new BigInteger(1, digest);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not supported", e);
+        }
+    }
+
+    private static Shard lookup(final TreeMap<BigInteger, Shard> shards, final BigInteger hashKey) {
+        final Map.Entry<BigInteger, Shard> entry = shards.floorEntry(hashKey);
+        if (entry == null) {
+            return null;
+        }
+        final BigInteger endingHashKey = new BigInteger(entry.getValue().hashKeyRange().endingHashKey());
+        return hashKey.compareTo(endingHashKey) <= 0 ? entry.getValue() : null;
+    }
+
+    private TreeMap<BigInteger, Shard> shards() {
+        if (clock.millis() >= expiresAtMillis) {
+            synchronized (this) {
+                if (clock.millis() >= expiresAtMillis) {
+                    shardsByStartingHashKey = listOpenShards();
+                    expiresAtMillis = clock.millis() + timeToLive.toMillis();
+                }
+            }
+        }
+        return shardsByStartingHashKey;
+    }
+
+    private TreeMap<BigInteger, Shard> listOpenShards() {
+        final TreeMap<BigInteger, Shard> shards = new TreeMap<>();
+        ListShardsResponse response = kinesisClient.listShards(ListShardsRequest.builder()
+                .streamName(channelName)
+                .shardFilter(ShardFilter.builder().type(ShardFilterType.AT_LATEST).build())
+                .build())
+                .join();
+        response.shards().forEach(shard -> shards.put(new BigInteger(shard.hashKeyRange().startingHashKey()), shard));
+        while (response.nextToken() != null) {
+            response = kinesisClient.listShards(ListShardsRequest.builder()
+                    .nextToken(response.nextToken())
+                    .build())
+                    .join();
+            response.shards().forEach(shard -> shards.put(new BigInteger(shard.hashKeyRange().startingHashKey()), shard));
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,258 @@
+package de.otto.synapse.endpoint.sender.kinesis;
+
+import org.slf4j.Logger;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsRequest;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsRequestEntry;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsResponse;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsResultEntry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.CompletableFuture.delayedExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Sends a list of {@link PutRecordsRequestEntry entries} to a Kinesis stream using up to {@code maxInFlightRequests}
+ * concurrent PutRecords requests.
+ *
+ * <p>
+ *     Entries are sent in the order of the list. An entry is only added to a request, if there is no other entry
+ *     with the same partition key (or explicit hash key, if any) in flight or waiting for a retry, so the messages
+ *     of a partition key are written in the same order as they are sent.
+ * </p>
+ * <p>
+ *     Only the failed entries of a request are resent, after a backoff with full jitter. If an entry fails, all
+ *     later entries of the same request having the same partition key are resent, too - even if they were written
+ *     successfully. This way, the latest message of a partition key is always written last, at the cost of a few
+ *     duplicate messages.
+ * </p>
+ */
+class PutRecordsPipeline {
+
+    private static final Logger LOG = getLogger(PutRecordsPipeline.class);
+
+    static final int PUT_RECORDS_BATCH_SIZE = 500;
+    static final int PUT_RECORDS_BATCH_SIZE_BYTES = 5 * 1024 * 1024;
+    /**
+     * Upper bound of pending entries that are inspected to fill a single request. Limits the cost of searching for
+     * entries with partition keys that are not currently in flight.
+     */
+    private static final int MAX_SCANNED_ENTRIES = 10 * PUT_RECORDS_BATCH_SIZE;
+
+    private final String streamName;
+    private final KinesisAsyncClient kinesisAsyncClient;
+    private final int maxInFlightRequests;
+    private final int maxRetries;
+    private final Duration retryBaseDelay;
+    private final Duration retryMaxDelay;
+
+    private final TreeMap<Integer, Entry> pendingEntries = new TreeMap<>();
+    private final Map<String, Integer> lockedOrderingKeys = new HashMap<>();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private int inFlightRequests = 0;
+    private int unfinishedEntries;
+
+    PutRecordsPipeline(final String streamName,
+                       final KinesisAsyncClient kinesisAsyncClient,
+                       final List<PutRecordsRequestEntry> entries,
+                       final int maxInFlightRequests,
+                       final int maxRetries,
+                       final Duration retryBaseDelay,
+                       final Duration retryMaxDelay) {
+        this.streamName = streamName;
+        this.kinesisAsyncClient = kinesisAsyncClient;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.maxRetries = maxRetries;
+        this.retryBaseDelay = retryBaseDelay;
+        this.retryMaxDelay = retryMaxDelay;
+        for (int i = 0; i < entries.size(); i++) {
+            pendingEntries.put(i, new Entry(i, entries.get(i)));
+        }
+        this.unfinishedEntries = entries.size();
+    }
+
+    /**
+     * Starts sending the entries.
+     *
+     * @return CompletableFuture that is completed after all entries were successfully written, or completed
+     *         exceptionally with a {@link RetryLimitExceededException}, if an entry could not be written.
+     */
+    CompletableFuture<Void> send() {
+        if (unfinishedEntries == 0) {
+            completion.complete(null);
+        } else {
+            dispatch();
+        }
+        return completion;
+    }
+
+    private void dispatch() {
+        final List<List<Entry>> batches = new ArrayList<>();
+        synchronized (this) {
+            while (!completion.isDone() && inFlightRequests < maxInFlightRequests && !pendingEntries.isEmpty()) {
+                final List<Entry> batch = nextBatch();
+                if (batch.isEmpty()) {
+                    break;
+                }
+                batch.forEach(entry -> lockedOrderingKeys.merge(entry.orderingKey(), 1, Integer::sum));
+                ++inFlightRequests;
+                batches.add(batch);
+            }
+        }
+        batches.forEach(this::putRecords);
+    }
+
+    private List<Entry> nextBatch() {
+        final List<Entry> batch = new ArrayList<>();
+        final Set<String> skippedOrderingKeys = new HashSet<>();
+        long batchSizeBytes = 0;
+        int scannedEntries = 0;
+        final Iterator<Entry> iterator = pendingEntries.values().iterator();
+        while (iterator.hasNext() && batch.size() < PUT_RECORDS_BATCH_SIZE && scannedEntries++ < MAX_SCANNED_ENTRIES) {
+            final Entry entry = iterator.next();
+            final String orderingKey = entry.orderingKey();
+            if (lockedOrderingKeys.containsKey(orderingKey) || skippedOrderingKeys.contains(orderingKey)) {
+                skippedOrderingKeys.add(orderingKey);
+                continue;
+            }
+            if (!batch.isEmpty() && batchSizeBytes + entry.sizeBytes > PUT_RECORDS_BATCH_SIZE_BYTES) {
+                break;
+            }
+            batchSizeBytes += entry.sizeBytes;
+            batch.add(entry);
+            iterator.remove();
+        }
+        return batch;
+    }
+
+    private void putRecords(final List<Entry> batch) {
+        final List<PutRecordsRequestEntry> records = new ArrayList<>(batch.size());
+        batch.forEach(entry -> records.add(entry.requestEntry));
+        kinesisAsyncClient.putRecords(PutRecordsRequest.builder()
+                        .streamName(streamName)
+                        .records(records)
+                        .build())
+                .whenComplete((response, throwable) -> {
+                    if (throwable != null) {
+                        completion.completeExceptionally(throwable);
+                    } else {
+                        onResponse(batch, response);
+                    }
+                });
+    }
+
+    private void onResponse(final List<Entry> batch, final PutRecordsResponse response) {
+        final List<Entry> failedEntries = failedEntries(batch, response);
+        final Set<Entry> failed = new HashSet<>(failedEntries);
+        final boolean finished;
+        int attempts = 0;
+        synchronized (this) {
+            --inFlightRequests;
+            for (final Entry entry : batch) {
+                if (!failed.contains(entry)) {
+                    unlock(entry.orderingKey());
+                }
+            }
+            unfinishedEntries -= batch.size() - failedEntries.size();
+            finished = unfinishedEntries == 0;
+            for (final Entry entry : failedEntries) {
+                attempts = Math.max(attempts, ++entry.attempts);
+            }
+        }
+        if (failedEntries.isEmpty()) {
+            if (finished) {
+                completion.complete(null);
+            } else {
+                dispatch();
+            }
+        } else if (attempts >= maxRetries) {
+            completion.completeExceptionally(new RetryLimitExceededException("Exceeded maximum number of retries.", maxRetries));
+        } else {
+            final long delay = retryDelayMillis(attempts);
+            LOG.warn("retry to send '{}' of '{}' records to kinesis for nth time: {}, delay={}ms", failedEntries.size(), batch.size(), attempts, delay);
+            CompletableFuture.runAsync(() -> retry(failedEntries), delayedExecutor(delay, MILLISECONDS));
+            dispatch();
+        }
+    }
+
+    private void retry(final List<Entry> failedEntries) {
+        synchronized (this) {
+            for (final Entry entry : failedEntries) {
+                unlock(entry.orderingKey());
+                pendingEntries.put(entry.index, entry);
+            }
+        }
+        dispatch();
+    }
+
+    private void unlock(final String orderingKey) {
+        lockedOrderingKeys.computeIfPresent(orderingKey, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private long retryDelayMillis(final int attempts) {
+        final long exponentialDelay = retryBaseDelay.toMillis() << Math.min(attempts - 1, 20);
+        final long maxDelay = Math.min(retryMaxDelay.toMillis(), exponentialDelay);
+        return ThreadLocalRandom.current().nextLong(maxDelay + 1);
+    }
+
+    /**
+     * Returns the entries of the batch that must be resent: the failed entries, together with all later entries
+     * having the same partition key as a failed entry. If the failed entries can not be identified from the
+     * response, all entries are resent.
+     */
+    private static List<Entry> failedEntries(final List<Entry> batch, final PutRecordsResponse response) {
+        if (response.failedRecordCount() == null || response.failedRecordCount() == 0) {
+            return emptyList();
+        }
+        final List<PutRecordsResultEntry> results = response.records();
+        if (results.size() != batch.size()) {
+            return batch;
+        }
+        final Set<String> failedOrderingKeys = new HashSet<>();
+        final List<Entry> failedEntries = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            final Entry entry = batch.get(i);
+            if (results.get(i).errorCode() != null || failedOrderingKeys.contains(entry.orderingKey())) {
+                failedOrderingKeys.add(entry.orderingKey());
+                failedEntries.add(entry);
+            }
+        }
+        return failedEntries.isEmpty() ? batch : failedEntries;
+    }
+
+    private static final class Entry {
+        private final int index;
+        private final PutRecordsRequestEntry requestEntry;
+        private final int sizeBytes;
+        private int attempts = 0;
+
+        private Entry(final int index, final PutRecordsRequestEntry requestEntry) {
+            this.index = index;
+            this.requestEntry = requestEntry;
+            this.sizeBytes = requestEntry.data().asByteBuffer().limit() + requestEntry.partitionKey().getBytes().length;
+        }
+
+        /**
+         * Entries with the same ordering key are written in order. Aggregated records are using the explicit hash
+         * key of the shard, so all aggregated records of a shard are ordered.
+         */
+        private String orderingKey() {
+            return requestEntry.explicitHashKey() != null
+                    ? requestEntry.explicitHashKey()
+                    : requestEntry.partitionKey();
+        }
+    }
+}
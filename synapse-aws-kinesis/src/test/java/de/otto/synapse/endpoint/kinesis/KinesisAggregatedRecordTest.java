@@ -0,0 +1,116 @@
+package de.otto.synapse.endpoint.kinesis;
+
+import de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord.UserRecord;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.util.List;
+
+import static de.otto.synapse.channel.ShardPosition.atPosition;
+import static de.otto.synapse.channel.ShardPosition.fromHorizon;
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
+import static de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class KinesisAggregatedRecordTest {
+
+    @Test
+    public void shouldAggregateAndDeaggregateRecords() {
+        // given
+        final KinesisAggregatedRecord.Builder builder = builder(1024);
+        builder.tryAdd("a", "first".getBytes(UTF_8));
+        builder.tryAdd("b", "second".getBytes(UTF_8));
+        builder.tryAdd("a", "third".getBytes(UTF_8));
+
+        // when
+        final byte[] data = builder.toByteArray();
+        final List<UserRecord> userRecords = deaggregate(data);
+
+        // then
+        assertThat(data.length, is(builder.getSizeBytes()));
+        assertThat(isAggregated(data), is(true));
+        assertThat(userRecords, hasSize(3));
+        assertThat(userRecords.get(0).getPartitionKey(), is("a"));
+        assertThat(new String(userRecords.get(0).getData(), UTF_8), is("first"));
+        assertThat(userRecords.get(1).getPartitionKey(), is("b"));
+        assertThat(new String(userRecords.get(1).getData(), UTF_8), is("second"));
+        assertThat(userRecords.get(2).getPartitionKey(), is("a"));
+        assertThat(new String(userRecords.get(2).getData(), UTF_8), is("third"));
+    }
+
+    @Test
+    public void shouldDeaggregateRecordInKplFormat() throws Exception {
+        // given an aggregated record as written by the KPL, including an explicit hash key table
+        final ByteArrayOutputStream message = new ByteArrayOutputStream();
+        message.write(new byte[]{0x0A, 0x02, 'p', 'k'});
+        message.write(new byte[]{0x12, 0x01, '1'});
+        message.write(new byte[]{0x1A, 0x0B, 0x08, 0x00, 0x10, 0x00, 0x1A, 0x05, 'h', 'e', 'l', 'l', 'o'});
+        final ByteArrayOutputStream record = new ByteArrayOutputStream();
+        record.write(new byte[]{(byte) 0xF3, (byte) 0x89, (byte) 0x9A, (byte) 0xC2});
+        record.write(message.toByteArray());
+        record.write(MessageDigest.getInstance("MD5").digest(message.toByteArray()));
+
+        // when
+        final List<UserRecord> userRecords = deaggregate(record.toByteArray());
+
+        // then
+        assertThat(userRecords, hasSize(1));
+        assertThat(userRecords.get(0).getPartitionKey(), is("pk"));
+        assertThat(new String(userRecords.get(0).getData(), UTF_8), is("hello"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectRecordWithInvalidDigest() {
+        final KinesisAggregatedRecord.Builder builder = builder(1024);
+        builder.tryAdd("a", "first".getBytes(UTF_8));
+        final byte[] data = builder.toByteArray();
+        data[data.length - 1] ^= 0x01;
+
+        deaggregate(data);
+    }
+
+    @Test
+    public void shouldNotDetectPlainRecordsAsAggregated() {
+        assertThat(isAggregated("{\"_synapse_msg_format\":\"v2\"}".getBytes(UTF_8)), is(false));
+        assertThat(isAggregated(new byte[0]), is(false));
+        assertThat(isAggregated(null), is(false));
+    }
+
+    @Test
+    public void shouldNotExceedMaxSize() {
+        // given
+        final KinesisAggregatedRecord.Builder builder = builder(100);
+
+        // when
+        final boolean first = builder.tryAdd("a", new byte[40]);
+        final boolean second = builder.tryAdd("b", new byte[40]);
+
+        // then
+        assertThat(first, is(true));
+        assertThat(second, is(false));
+        assertThat(builder.getNumberOfRecords(), is(1));
+        assertThat(builder.toByteArray().length <= 100, is(true));
+    }
+
+    @Test
+    public void shouldCalculateSubSequencePositions() {
+        assertThat(subSequencePosition("42", 0, 3), is("42:0"));
+        assertThat(subSequencePosition("42", 1, 3), is("42:1"));
+        assertThat(subSequencePosition("42", 2, 3), is("42"));
+        assertThat(isSubSequencePosition("42:1"), is(true));
+        assertThat(isSubSequencePosition("42"), is(false));
+        assertThat(sequenceNumberOf("42:1"), is("42"));
+        assertThat(sequenceNumberOf("42"), is("42"));
+    }
+
+    @Test
+    public void shouldResumeAtAggregatedRecordOfSubSequencePosition() {
+        assertThat(resumePositionOf(fromPosition("shard", "42:1")), is(atPosition("shard", "42")));
+        assertThat(resumePositionOf(fromPosition("shard", "42")), is(fromPosition("shard", "42")));
+        assertThat(resumePositionOf(fromHorizon("shard")), is(fromHorizon("shard")));
+    }
+}
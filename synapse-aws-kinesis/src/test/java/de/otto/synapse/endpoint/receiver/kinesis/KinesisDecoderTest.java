@@ -1,18 +1,22 @@
 package de.otto.synapse.endpoint.receiver.kinesis;
 
+import de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord;
 import de.otto.synapse.message.Key;
 import de.otto.synapse.message.Message;
+import de.otto.synapse.message.TextMessage;
 import org.junit.Test;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.kinesis.model.Record;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 import static de.otto.synapse.channel.ShardPosition.fromPosition;
 import static de.otto.synapse.message.DefaultHeaderAttr.MSG_ARRIVAL_TS;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 
@@ -149,4 +153,48 @@ public class KinesisDecoderTest {
         assertThat(message.getHeader().getAsInstant(MSG_ARRIVAL_TS), is(now));
     }
 
+    @Test
+    public void shouldDecodeAggregatedRecord() {
+        final KinesisAggregatedRecord.Builder builder = KinesisAggregatedRecord.builder(1024);
+        builder.tryAdd("first", "{\"_synapse_msg_format\":\"v2\",\"_synapse_msg_payload\":{\"some\":\"payload\"}}".getBytes(UTF_8));
+        builder.tryAdd("second", new byte[0]);
+        builder.tryAdd("third", "plain payload".getBytes(UTF_8));
+        final Instant now = Instant.now();
+        final Record record = Record.builder()
+                .partitionKey("first")
+                .data(SdkBytes.fromByteArray(builder.toByteArray()))
+                .approximateArrivalTimestamp(now)
+                .sequenceNumber("00001")
+                .build();
+
+        final List<TextMessage> messages = decoder.decodeAll(new RecordWithShard("some-shard", record));
+
+        assertThat(messages, hasSize(3));
+        assertThat(messages.get(0).getKey(), is(Key.of("first")));
+        assertThat(messages.get(0).getPayload(), is("{\"some\":\"payload\"}"));
+        assertThat(messages.get(0).getHeader().getShardPosition(), is(Optional.of(fromPosition("some-shard", "00001:0"))));
+        assertThat(messages.get(0).getHeader().getAsInstant(MSG_ARRIVAL_TS), is(now));
+        assertThat(messages.get(1).getKey(), is(Key.of("second")));
+        assertThat(messages.get(1).getPayload(), is(nullValue()));
+        assertThat(messages.get(1).getHeader().getShardPosition(), is(Optional.of(fromPosition("some-shard", "00001:1"))));
+        assertThat(messages.get(2).getKey(), is(Key.of("third")));
+        assertThat(messages.get(2).getPayload(), is("plain payload"));
+        assertThat(messages.get(2).getHeader().getShardPosition(), is(Optional.of(fromPosition("some-shard", "00001"))));
+    }
+
+    @Test
+    public void shouldDecodeNonAggregatedRecordAsSingleMessage() {
+        final Record record = Record.builder()
+                .partitionKey("42")
+                .data(SdkBytes.fromString("some payload", UTF_8))
+                .approximateArrivalTimestamp(Instant.now())
+                .sequenceNumber("00001")
+                .build();
+
+        final List<TextMessage> messages = decoder.decodeAll(new RecordWithShard("some-shard", record));
+
+        assertThat(messages, hasSize(1));
+        assertThat(messages.get(0).getPayload(), is("some payload"));
+        assertThat(messages.get(0).getHeader().getShardPosition(), is(Optional.of(fromPosition("some-shard", "00001"))));
+    }
 }
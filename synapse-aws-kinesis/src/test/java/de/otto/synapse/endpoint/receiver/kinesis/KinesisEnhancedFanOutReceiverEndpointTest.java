@@ -0,0 +1,141 @@
+package de.otto.synapse.endpoint.receiver.kinesis;
+
+import de.otto.synapse.channel.ChannelPosition;
+import de.otto.synapse.consumer.MessageConsumer;
+import de.otto.synapse.endpoint.MessageInterceptorRegistry;
+import de.otto.synapse.message.Message;
+import de.otto.synapse.testsupport.EnhancedFanOutKinesisStandIn;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import software.amazon.awssdk.services.kinesis.model.StartingPosition;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardRequest;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import static de.otto.synapse.channel.ChannelPosition.fromHorizon;
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
+import static de.otto.synapse.channel.StopCondition.endOfChannel;
+import static de.otto.synapse.testsupport.EnhancedFanOutKinesisStandIn.*;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static software.amazon.awssdk.services.kinesis.model.ShardIteratorType.AFTER_SEQUENCE_NUMBER;
+import static software.amazon.awssdk.services.kinesis.model.ShardIteratorType.TRIM_HORIZON;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KinesisEnhancedFanOutReceiverEndpointTest {
+
+    private static final Pattern MATCH_ALL = Pattern.compile(".*");
+
+    @Mock
+    private MessageConsumer<String> messageConsumer;
+    @Captor
+    private ArgumentCaptor<Message<String>> messageArgumentCaptor;
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    @Before
+    public void setUp() {
+        when(messageConsumer.keyPattern()).thenReturn(MATCH_ALL);
+        when(messageConsumer.payloadType()).thenReturn(String.class);
+    }
+
+    @Test
+    public void shouldRegisterConsumerAndConsumeAllShards() {
+        // given
+        final EnhancedFanOutKinesisStandIn kinesis = new EnhancedFanOutKinesisStandIn("some-stream")
+                .withOpenShard("shard1")
+                .withOpenShard("shard2")
+                .withSubscription("shard1", event("2", 0L, record("a", "1", "first"), record("b", "2", "second")))
+                .withSubscription("shard2", event("3", 0L, record("c", "3", "third")));
+        final KinesisEnhancedFanOutReceiverEndpoint endpoint = endpointFor(kinesis);
+        endpoint.register(messageConsumer);
+
+        // when
+        final ChannelPosition channelPosition = endpoint.consumeUntil(fromHorizon(), endOfChannel()).join();
+
+        // then
+        assertThat(kinesis.getNumberOfRegisteredConsumers(), is(1));
+        verify(messageConsumer, times(3)).accept(messageArgumentCaptor.capture());
+        final List<String> payloads = messageArgumentCaptor.getAllValues().stream().map(Message::getPayload).collect(toList());
+        assertThat(payloads, containsInAnyOrder("first", "second", "third"));
+        assertThat(channelPosition.shard("shard1"), is(fromPosition("shard1", "2")));
+        assertThat(channelPosition.shard("shard2"), is(fromPosition("shard2", "3")));
+    }
+
+    @Test
+    public void shouldNotRegisterExistingConsumer() {
+        // given
+        final EnhancedFanOutKinesisStandIn kinesis = new EnhancedFanOutKinesisStandIn("some-stream")
+                .withOpenShard("shard1")
+                .withExistingConsumer("some-consumer");
+        final KinesisEnhancedFanOutReceiverEndpoint endpoint = endpointFor(kinesis);
+
+        // when
+        endpoint.consumeUntil(fromHorizon(), endOfChannel()).join();
+
+        // then
+        assertThat(kinesis.getNumberOfRegisteredConsumers(), is(0));
+        assertThat(kinesis.getSubscribeRequests().get(0).consumerARN(), endsWith("/consumer/some-consumer"));
+    }
+
+    @Test
+    public void shouldRenewCompletedSubscriptionAtContinuationSequenceNumber() {
+        // given
+        final EnhancedFanOutKinesisStandIn kinesis = new EnhancedFanOutKinesisStandIn("some-stream")
+                .withOpenShard("shard1")
+                .withSubscription("shard1", event("1", 1000L, record("a", "1", "first")))
+                .withSubscription("shard1", event("2", 0L, record("b", "2", "second")));
+        final KinesisEnhancedFanOutReceiverEndpoint endpoint = endpointFor(kinesis);
+        endpoint.register(messageConsumer);
+
+        // when
+        final ChannelPosition channelPosition = endpoint.consumeUntil(fromHorizon(), endOfChannel()).join();
+
+        // then
+        final List<StartingPosition> startingPositions = kinesis.getSubscribeRequests().stream().map(SubscribeToShardRequest::startingPosition).collect(toList());
+        assertThat(startingPositions, hasSize(2));
+        assertThat(startingPositions.get(0).type(), is(TRIM_HORIZON));
+        assertThat(startingPositions.get(1).type(), is(AFTER_SEQUENCE_NUMBER));
+        assertThat(startingPositions.get(1).sequenceNumber(), is("1"));
+        verify(messageConsumer, times(2)).accept(messageArgumentCaptor.capture());
+        assertThat(channelPosition.shard("shard1"), is(fromPosition("shard1", "2")));
+    }
+
+    @Test
+    public void shouldContinueWithChildShardsOfClosedShard() {
+        // given
+        final EnhancedFanOutKinesisStandIn kinesis = new EnhancedFanOutKinesisStandIn("some-stream")
+                .withOpenShard("shard1")
+                .withSubscription("shard1", endOfShardEvent(List.of(childShard("shard2", "shard1")), record("a", "1", "first")))
+                .withSubscription("shard2", event("5", 0L, record("b", "5", "second")));
+        final KinesisEnhancedFanOutReceiverEndpoint endpoint = endpointFor(kinesis);
+        endpoint.register(messageConsumer);
+
+        // when
+        final ChannelPosition channelPosition = endpoint.consumeUntil(fromHorizon(), endOfChannel()).join();
+
+        // then
+        final SubscribeToShardRequest childRequest = kinesis.getSubscribeRequests().get(1);
+        assertThat(childRequest.shardId(), is("shard2"));
+        assertThat(childRequest.startingPosition().type(), is(TRIM_HORIZON));
+        verify(messageConsumer, times(2)).accept(messageArgumentCaptor.capture());
+        assertThat(channelPosition.shards(), contains("shard2"));
+        assertThat(channelPosition.shard("shard2"), is(fromPosition("shard2", "5")));
+    }
+
+    private KinesisEnhancedFanOutReceiverEndpoint endpointFor(final EnhancedFanOutKinesisStandIn kinesis) {
+        return new KinesisEnhancedFanOutReceiverEndpoint("some-stream", "some-consumer", new MessageInterceptorRegistry(), kinesis, executorService, null, null);
+    }
+}
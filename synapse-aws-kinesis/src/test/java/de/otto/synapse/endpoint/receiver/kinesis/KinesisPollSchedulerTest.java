@@ -0,0 +1,137 @@
+package de.otto.synapse.endpoint.receiver.kinesis;
+
+import de.otto.synapse.channel.ShardResponse;
+import de.otto.synapse.message.TextMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static de.otto.synapse.channel.ShardPosition.fromHorizon;
+import static de.otto.synapse.channel.ShardResponse.shardResponse;
+import static de.otto.synapse.endpoint.receiver.kinesis.KinesisPollScheduler.DECISIONS_METER;
+import static de.otto.synapse.endpoint.receiver.kinesis.KinesisPollScheduler.DELAY_METER;
+import static java.time.Duration.ZERO;
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class KinesisPollSchedulerTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private KinesisPollScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = new KinesisPollScheduler("some-channel", "some-shard", 10_000, meterRegistry, nanoTime::get);
+    }
+
+    @Test
+    public void shouldPollImmediatelyIfRecordsWereReceived() {
+        scheduler.onRequest();
+        assertThat(scheduler.nextDelay(responseWithRecords(ZERO)), is(ZERO));
+    }
+
+    @Test
+    public void shouldPollImmediatelyIfShardIsBehind() {
+        scheduler.onRequest();
+        assertThat(scheduler.nextDelay(emptyResponse(ofSeconds(42))), is(ZERO));
+    }
+
+    @Test
+    public void shouldBackOffExponentiallyOnEmptyResponses() {
+        assertThat(pollAndAdvance(emptyResponse(ZERO)), is(ofMillis(200)));
+        assertThat(pollAndAdvance(emptyResponse(ZERO)), is(ofMillis(400)));
+        assertThat(pollAndAdvance(emptyResponse(ZERO)), is(ofMillis(800)));
+        assertThat(pollAndAdvance(emptyResponse(ZERO)), is(ofMillis(1600)));
+        assertThat(pollAndAdvance(emptyResponse(ZERO)), is(ofMillis(3200)));
+        assertThat(pollAndAdvance(emptyResponse(ZERO)), is(ofMillis(6400)));
+        assertThat(pollAndAdvance(emptyResponse(ZERO)), is(ofMillis(10_000)));
+        assertThat(pollAndAdvance(emptyResponse(ZERO)), is(ofMillis(10_000)));
+    }
+
+    @Test
+    public void shouldResetBackOffIfRecordsWereReceived() {
+        pollAndAdvance(emptyResponse(ZERO));
+        pollAndAdvance(emptyResponse(ZERO));
+        pollAndAdvance(responseWithRecords(ZERO));
+
+        assertThat(pollAndAdvance(emptyResponse(ZERO)), is(ofMillis(200)));
+    }
+
+    @Test
+    public void shouldThrottleRequestsExceedingFiveRequestsPerSecond() {
+        // given
+        for (int i = 0; i < 5; ++i) {
+            scheduler.onRequest();
+            nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+
+        // when
+        final Duration delay = scheduler.nextDelay(responseWithRecords(ofSeconds(42)));
+
+        // then
+        assertThat(delay, is(ofMillis(500)));
+        assertThat(meterRegistry.get(DECISIONS_METER).tag("decision", "throttled").counter().count(), is(1.0));
+    }
+
+    @Test
+    public void shouldReportDecisionsAsMetrics() {
+        pollAndAdvance(responseWithRecords(ZERO));
+        pollAndAdvance(responseWithRecords(ZERO));
+        pollAndAdvance(emptyResponse(ZERO));
+
+        assertThat(meterRegistry.get(DECISIONS_METER).tags("channel", "some-channel", "shard", "some-shard", "decision", "immediate").counter().count(), is(2.0));
+        assertThat(meterRegistry.get(DECISIONS_METER).tag("decision", "backoff").counter().count(), is(1.0));
+        assertThat(meterRegistry.get(DELAY_METER).gauge().value(), is(200.0));
+    }
+
+    @Test
+    public void shouldRemoveGaugeOnClose() {
+        // given
+        pollAndAdvance(emptyResponse(ZERO));
+
+        // when
+        scheduler.close();
+
+        // then
+        assertThat(meterRegistry.find(DELAY_METER).gauge(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldReportDelayOfNewSchedulerForSameShard() {
+        // given
+        pollAndAdvance(emptyResponse(ZERO));
+        scheduler.close();
+
+        // when
+        scheduler = new KinesisPollScheduler("some-channel", "some-shard", 10_000, meterRegistry, nanoTime::get);
+        pollAndAdvance(emptyResponse(ZERO));
+        pollAndAdvance(emptyResponse(ZERO));
+
+        // then
+        assertThat(meterRegistry.get(DELAY_METER).gauge().value(), is(400.0));
+    }
+
+    private Duration pollAndAdvance(final ShardResponse response) {
+        scheduler.onRequest();
+        final Duration delay = scheduler.nextDelay(response);
+        nanoTime.addAndGet(delay.toNanos());
+        return delay;
+    }
+
+    private ShardResponse emptyResponse(final Duration durationBehind) {
+        return shardResponse(fromHorizon("some-shard"), durationBehind);
+    }
+
+    private ShardResponse responseWithRecords(final Duration durationBehind) {
+        return shardResponse(fromHorizon("some-shard"), durationBehind, TextMessage.of("some-key", "{}"));
+    }
+}
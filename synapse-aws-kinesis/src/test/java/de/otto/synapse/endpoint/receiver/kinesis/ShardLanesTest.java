@@ -0,0 +1,106 @@
+package de.otto.synapse.endpoint.receiver.kinesis;
+
+import de.otto.synapse.channel.ShardPosition;
+import de.otto.synapse.channel.ShardResponse;
+import de.otto.synapse.message.TextMessage;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static de.otto.synapse.channel.ShardPosition.fromHorizon;
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
+import static de.otto.synapse.channel.ShardResponse.shardResponse;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ShardLanesTest {
+
+    @Test
+    public void shouldConsumeMessagesOfPartitionKeyInOrder() throws InterruptedException {
+        // given
+        final Map<String, List<String>> consumed = new ConcurrentHashMap<>();
+        final ShardLanes lanes = new ShardLanes("some-channel", fromHorizon("some-shard"), 4, 2, response ->
+                response.getMessages().forEach(message -> consumed
+                        .computeIfAbsent(message.getKey().partitionKey(), _key -> new ArrayList<>())
+                        .add(message.getPayload())));
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            lanes.submit(response(String.valueOf(i), message("a", "a" + i), message("b", "b" + i)));
+        }
+        lanes.awaitCompletion();
+        lanes.close();
+
+        // then
+        assertThat(consumed.get("a"), contains("a0", "a1", "a2", "a3", "a4", "a5", "a6", "a7", "a8", "a9"));
+        assertThat(consumed.get("b"), contains("b0", "b1", "b2", "b3", "b4", "b5", "b6", "b7", "b8", "b9"));
+        assertThat(lanes.lowWatermark(), is(fromPosition("some-shard", "9")));
+    }
+
+    @Test
+    public void shouldNotAdvanceLowWatermarkPastPendingResponse() throws InterruptedException {
+        // given
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch consumedSecondResponse = new CountDownLatch(1);
+        final ShardLanes lanes = new ShardLanes("some-channel", fromHorizon("some-shard"), 2, 2, response -> {
+            final TextMessage message = response.getMessages().get(0);
+            try {
+                if (message.getPayload().equals("blocking")) {
+                    blocked.await();
+                } else {
+                    consumedSecondResponse.countDown();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        final String blockingKey = "some-key";
+        final String otherKey = keyOfOtherLane(blockingKey, 2);
+
+        // when
+        lanes.submit(response("1", message(blockingKey, "blocking")));
+        lanes.submit(response("2", message(otherKey, "other")));
+        consumedSecondResponse.await(1, TimeUnit.SECONDS);
+
+        // then
+        assertThat(lanes.lowWatermark(), is(fromHorizon("some-shard")));
+
+        // and when
+        blocked.countDown();
+        lanes.awaitCompletion();
+        lanes.close();
+
+        // then
+        assertThat(lanes.lowWatermark(), is(fromPosition("some-shard", "2")));
+    }
+
+    private static String keyOfOtherLane(final String key, final int numberOfLanes) {
+        for (int i = 0; ; i++) {
+            final String otherKey = "other-key-" + i;
+            if (lane(otherKey, numberOfLanes) != lane(key, numberOfLanes)) {
+                return otherKey;
+            }
+        }
+    }
+
+    private static int lane(final String key, final int numberOfLanes) {
+        final int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), numberOfLanes);
+    }
+
+    private static ShardResponse response(final String position, final TextMessage... messages) {
+        final ShardPosition shardPosition = fromPosition("some-shard", position);
+        return shardResponse(shardPosition, Duration.ZERO, messages);
+    }
+
+    private static TextMessage message(final String partitionKey, final String payload) {
+        return TextMessage.of(partitionKey, payload);
+    }
+}
@@ -27,9 +27,12 @@ import software.amazon.awssdk.services.kinesis.model.PutRecordsResultEntry;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -42,10 +45,12 @@ import static de.otto.synapse.translator.MessageFormat.SYNAPSE_MSG_HEADERS;
 import static de.otto.synapse.translator.MessageFormat.SYNAPSE_MSG_PAYLOAD;
 import static de.otto.synapse.translator.ObjectMappers.currentObjectMapper;
 import static java.lang.String.valueOf;
+import static java.time.Duration.ofMillis;
 import static java.util.Collections.singletonMap;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -64,7 +69,7 @@ public class KinesisMessageSenderV2Test {
     @Before
     public void setUp() {
         interceptorRegistry = new MessageInterceptorRegistry();
-        kinesisMessageSender = new KinesisMessageSender("test", interceptorRegistry, messageTranslator, kinesisClient, MessageFormat.V2);
+        kinesisMessageSender = new KinesisMessageSender("test", interceptorRegistry, messageTranslator, kinesisClient, MessageFormat.V2, 2, null, ofMillis(1), ofMillis(10));
     }
 
     @Test
@@ -444,7 +449,7 @@ public class KinesisMessageSenderV2Test {
 
     }
 
-    @Test(expected = RetryLimitExceededException.class)
+    @Test
     public void shouldThrowRetryLimitExceededExceptionOnTooManyRetriesForBatch() {
         // given
         when(kinesisClient.putRecords(any(PutRecordsRequest.class)))
@@ -454,10 +459,14 @@ public class KinesisMessageSenderV2Test {
                         .build()));
 
         // when
-        kinesisMessageSender.sendBatch(someEvents(10)).join();
+        final CompletableFuture<Void> result = kinesisMessageSender.sendBatch(someEvents(10));
+
+        // then
+        final CompletionException exception = assertThrows(CompletionException.class, result::join);
+        assertThat(exception.getCause(), instanceOf(RetryLimitExceededException.class));
     }
 
-    @Test(expected = RetryLimitExceededException.class)
+    @Test
     public void shouldThrowRetryLimitExceededExceptionOnTooManyRetriesForSingleMessage() {
         // given
         when(kinesisClient.putRecords(any(PutRecordsRequest.class)))
@@ -467,7 +476,150 @@ public class KinesisMessageSenderV2Test {
                         .build()));
 
         // when
-        kinesisMessageSender.send(message("someKey", null)).join();
+        final CompletableFuture<Void> result = kinesisMessageSender.send(message("someKey", null));
+
+        // then
+        final CompletionException exception = assertThrows(CompletionException.class, result::join);
+        assertThat(exception.getCause(), instanceOf(RetryLimitExceededException.class));
+    }
+
+    @Test
+    public void shouldOnlyResendFailedRecords() {
+        // given
+        when(kinesisClient.putRecords(any(PutRecordsRequest.class)))
+                .thenReturn(completedFuture(PutRecordsResponse.builder()
+                        .failedRecordCount(1)
+                        .records(
+                                PutRecordsResultEntry.builder().sequenceNumber("1").build(),
+                                PutRecordsResultEntry.builder().errorCode("ProvisionedThroughputExceededException").build(),
+                                PutRecordsResultEntry.builder().sequenceNumber("2").build())
+                        .build()))
+                .thenReturn(completedFuture(PutRecordsResponse.builder()
+                        .failedRecordCount(0)
+                        .records(PutRecordsResultEntry.builder().sequenceNumber("3").build())
+                        .build()));
+
+        // when
+        kinesisMessageSender.sendBatch(someEvents(3)).join();
+
+        // then
+        verify(kinesisClient, times(2)).putRecords(putRecordsRequestCaptor.capture());
+        final PutRecordsRequest retry = putRecordsRequestCaptor.getAllValues().get(1);
+        assertThat(retry.records(), hasSize(1));
+        assertThat(retry.records().get(0).partitionKey(), is("1"));
+    }
+
+    @Test
+    public void shouldResendLaterRecordsOfFailedPartitionKey() {
+        // given
+        when(kinesisClient.putRecords(any(PutRecordsRequest.class)))
+                .thenReturn(completedFuture(PutRecordsResponse.builder()
+                        .failedRecordCount(1)
+                        .records(
+                                PutRecordsResultEntry.builder().errorCode("InternalFailure").build(),
+                                PutRecordsResultEntry.builder().sequenceNumber("1").build(),
+                                PutRecordsResultEntry.builder().sequenceNumber("2").build())
+                        .build()))
+                .thenReturn(completedFuture(PutRecordsResponse.builder()
+                        .failedRecordCount(0)
+                        .records(PutRecordsResultEntry.builder().build(), PutRecordsResultEntry.builder().build())
+                        .build()));
+
+        // when
+        kinesisMessageSender.sendBatch(Stream.of(
+                message("a", "first"),
+                message("b", "second"),
+                message("a", "third"))).join();
+
+        // then
+        verify(kinesisClient, times(2)).putRecords(putRecordsRequestCaptor.capture());
+        final PutRecordsRequest retry = putRecordsRequestCaptor.getAllValues().get(1);
+        assertThat(retry.records(), hasSize(2));
+        assertThat(payloadOf(retry.records().get(0)), is("first"));
+        assertThat(payloadOf(retry.records().get(1)), is("third"));
+    }
+
+    @Test
+    public void shouldLimitNumberOfRequestsInFlight() {
+        // given
+        final List<CompletableFuture<PutRecordsResponse>> responses = new ArrayList<>();
+        when(kinesisClient.putRecords(any(PutRecordsRequest.class))).thenAnswer(invocation -> {
+            final CompletableFuture<PutRecordsResponse> response = new CompletableFuture<>();
+            responses.add(response);
+            return response;
+        });
+
+        // when
+        final CompletableFuture<Void> result = kinesisMessageSender.sendBatch(someEvents(1500));
+
+        // then
+        assertThat(responses, hasSize(2));
+        assertThat(result.isDone(), is(false));
+
+        // when
+        responses.get(0).complete(successfulResponse());
+
+        // then
+        assertThat(responses, hasSize(3));
+
+        // when
+        responses.get(1).complete(successfulResponse());
+        responses.get(2).complete(successfulResponse());
+
+        // then
+        assertThat(result.isDone(), is(true));
+        verify(kinesisClient, times(3)).putRecords(any(PutRecordsRequest.class));
+    }
+
+    @Test
+    public void shouldNotSendRecordsWhileRecordsOfSamePartitionKeyAreInFlight() {
+        // given
+        final List<PutRecordsRequest> requests = new ArrayList<>();
+        final List<CompletableFuture<PutRecordsResponse>> responses = new ArrayList<>();
+        when(kinesisClient.putRecords(any(PutRecordsRequest.class))).thenAnswer(invocation -> {
+            final CompletableFuture<PutRecordsResponse> response = new CompletableFuture<>();
+            requests.add(invocation.getArgument(0));
+            responses.add(response);
+            return response;
+        });
+
+        // when
+        final CompletableFuture<Void> result = kinesisMessageSender.sendBatch(Stream.concat(
+                someEvents(500),
+                Stream.of(message("0", "later"), message("other", "other"))));
+
+        // then
+        assertThat(responses, hasSize(2));
+        final PutRecordsRequest secondRequest = requests.get(1);
+        assertThat(secondRequest.records(), hasSize(1));
+        assertThat(secondRequest.records().get(0).partitionKey(), is("other"));
+
+        // when
+        responses.get(0).complete(successfulResponse());
+        responses.get(1).complete(successfulResponse());
+
+        // then
+        assertThat(responses, hasSize(3));
+        final PutRecordsRequest thirdRequest = requests.get(2);
+        assertThat(thirdRequest.records(), hasSize(1));
+        assertThat(payloadOf(thirdRequest.records().get(0)), is("later"));
+
+        responses.get(2).complete(successfulResponse());
+        assertThat(result.isDone(), is(true));
+    }
+
+    private PutRecordsResponse successfulResponse() {
+        return PutRecordsResponse.builder()
+                .failedRecordCount(0)
+                .build();
+    }
+
+    private String payloadOf(final PutRecordsRequestEntry entry) {
+        try {
+            return currentObjectMapper().readTree(entry.data().asUtf8String()).get(SYNAPSE_MSG_PAYLOAD).textValue();
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     private Stream<Message<String>> someEvents(int n) {
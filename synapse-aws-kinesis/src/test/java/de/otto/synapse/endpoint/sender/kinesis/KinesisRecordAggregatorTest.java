@@ -0,0 +1,131 @@
+package de.otto.synapse.endpoint.sender.kinesis;
+
+import de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord.UserRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.HashKeyRange;
+import software.amazon.awssdk.services.kinesis.model.ListShardsRequest;
+import software.amazon.awssdk.services.kinesis.model.ListShardsResponse;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsRequestEntry;
+import software.amazon.awssdk.services.kinesis.model.Shard;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord.deaggregate;
+import static de.otto.synapse.endpoint.kinesis.KinesisAggregatedRecord.isAggregated;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KinesisRecordAggregatorTest {
+
+    private static final BigInteger MAX_HASH_KEY = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE);
+    private static final BigInteger MIDDLE_HASH_KEY = BigInteger.ONE.shiftLeft(127);
+
+    @Mock
+    private KinesisAsyncClient kinesisClient;
+
+    @Before
+    public void setUp() {
+        when(kinesisClient.listShards(any(ListShardsRequest.class))).thenReturn(completedFuture(ListShardsResponse.builder()
+                .shards(
+                        shard("shard-1", BigInteger.ZERO, MIDDLE_HASH_KEY.subtract(BigInteger.ONE)),
+                        shard("shard-2", MIDDLE_HASH_KEY, MAX_HASH_KEY))
+                .build()));
+    }
+
+    @Test
+    public void shouldAggregateRecordsOfSameShard() {
+        // given
+        final KinesisRecordAggregator aggregator = new KinesisRecordAggregator(new KinesisShardMap("some-stream", kinesisClient));
+        final List<PutRecordsRequestEntry> entries = someEntries(100);
+
+        // when
+        final List<PutRecordsRequestEntry> aggregated = aggregator.aggregate(entries);
+
+        // then
+        assertThat(aggregated, hasSize(2));
+        for (final PutRecordsRequestEntry entry : aggregated) {
+            assertThat(isAggregated(entry.data().asByteArray()), is(true));
+            final boolean firstShard = entry.explicitHashKey().equals("0");
+            for (final UserRecord userRecord : deaggregate(entry.data().asByteArray())) {
+                final BigInteger hashKey = KinesisShardMap.hashKeyOf(userRecord.getPartitionKey());
+                assertThat(hashKey.compareTo(MIDDLE_HASH_KEY) < 0, is(firstShard));
+            }
+        }
+        final int totalUserRecords = aggregated.stream().mapToInt(entry -> deaggregate(entry.data().asByteArray()).size()).sum();
+        assertThat(totalUserRecords, is(100));
+    }
+
+    @Test
+    public void shouldPreserveOrderOfRecordsOfSameShard() {
+        // given
+        final KinesisRecordAggregator aggregator = new KinesisRecordAggregator(new KinesisShardMap("some-stream", kinesisClient), 1024);
+        final List<PutRecordsRequestEntry> entries = IntStream.range(0, 50)
+                .mapToObj(i -> entry("same-key", "payload-" + i))
+                .collect(Collectors.toList());
+
+        // when
+        final List<PutRecordsRequestEntry> aggregated = aggregator.aggregate(entries);
+
+        // then
+        assertThat(aggregated.size(), is(greaterThan(1)));
+        final List<String> payloads = aggregated.stream()
+                .flatMap(entry -> deaggregate(entry.data().asByteArray()).stream())
+                .map(userRecord -> new String(userRecord.getData(), UTF_8))
+                .collect(Collectors.toList());
+        assertThat(payloads, is(IntStream.range(0, 50).mapToObj(i -> "payload-" + i).collect(Collectors.toList())));
+        assertThat(aggregated.stream().map(PutRecordsRequestEntry::explicitHashKey).distinct().count(), is(1L));
+    }
+
+    @Test
+    public void shouldSendSingleAndLargeRecordsWithoutAggregation() {
+        // given
+        final KinesisRecordAggregator aggregator = new KinesisRecordAggregator(new KinesisShardMap("some-stream", kinesisClient), 1024);
+        final PutRecordsRequestEntry largeEntry = entry("some-key", new String(new byte[2048], UTF_8));
+
+        // when
+        final List<PutRecordsRequestEntry> aggregated = aggregator.aggregate(List.of(largeEntry));
+
+        // then
+        assertThat(aggregated, hasSize(1));
+        assertThat(isAggregated(aggregated.get(0).data().asByteArray()), is(false));
+        assertThat(aggregated.get(0).partitionKey(), is("some-key"));
+        assertThat(aggregated.get(0).explicitHashKey(), is(notNullValue()));
+    }
+
+    private List<PutRecordsRequestEntry> someEntries(final int n) {
+        return IntStream.range(0, n)
+                .mapToObj(i -> entry("key-" + i, "payload-" + i))
+                .collect(Collectors.toList());
+    }
+
+    private static PutRecordsRequestEntry entry(final String partitionKey, final String data) {
+        return PutRecordsRequestEntry.builder()
+                .partitionKey(partitionKey)
+                .data(SdkBytes.fromString(data, UTF_8))
+                .build();
+    }
+
+    private static Shard shard(final String shardId, final BigInteger startingHashKey, final BigInteger endingHashKey) {
+        return Shard.builder()
+                .shardId(shardId)
+                .hashKeyRange(HashKeyRange.builder()
+                        .startingHashKey(startingHashKey.toString())
+                        .endingHashKey(endingHashKey.toString())
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,200 @@
+package de.otto.synapse.testsupport;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+/**
+ * A local stand-in for the parts of the Kinesis API that are used by enhanced fan-out consumers.
+ *
+ * <p>
+ *     Events are scripted per shard: every call of {@link #withSubscription(String, SubscribeToShardEvent...)}
+ *     adds a subscription that is delivering the given events to the next SubscribeToShard call of the shard,
+ *     and completes afterwards - just like Kinesis is completing subscriptions after five minutes.
+ * </p>
+ */
+public class EnhancedFanOutKinesisStandIn implements KinesisAsyncClient {
+
+    public static final String STREAM_ARN_PREFIX = "arn:aws:kinesis:eu-central-1:000000000000:stream/";
+
+    private final String streamName;
+    private final List<Shard> shards = new ArrayList<>();
+    private final Map<String, Deque<List<SubscribeToShardEvent>>> subscriptions = new ConcurrentHashMap<>();
+    private final List<SubscribeToShardRequest> subscribeRequests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger registeredConsumers = new AtomicInteger();
+    private volatile String consumerName;
+
+    public EnhancedFanOutKinesisStandIn(final String streamName) {
+        this.streamName = streamName;
+    }
+
+    public EnhancedFanOutKinesisStandIn withOpenShard(final String shardId) {
+        shards.add(Shard.builder()
+                .shardId(shardId)
+                .sequenceNumberRange(SequenceNumberRange.builder().startingSequenceNumber("0").build())
+                .build());
+        return this;
+    }
+
+    public EnhancedFanOutKinesisStandIn withExistingConsumer(final String consumerName) {
+        this.consumerName = consumerName;
+        return this;
+    }
+
+    public EnhancedFanOutKinesisStandIn withSubscription(final String shardId, final SubscribeToShardEvent... events) {
+        subscriptions.computeIfAbsent(shardId, k -> new ConcurrentLinkedDeque<>()).add(List.of(events));
+        return this;
+    }
+
+    public List<SubscribeToShardRequest> getSubscribeRequests() {
+        return subscribeRequests;
+    }
+
+    public int getNumberOfRegisteredConsumers() {
+        return registeredConsumers.get();
+    }
+
+    public static SubscribeToShardEvent event(final String continuationSequenceNumber,
+                                              final long millisBehindLatest,
+                                              final Record... records) {
+        return SubscribeToShardEvent.builder()
+                .continuationSequenceNumber(continuationSequenceNumber)
+                .millisBehindLatest(millisBehindLatest)
+                .records(records)
+                .build();
+    }
+
+    public static SubscribeToShardEvent endOfShardEvent(final List<ChildShard> childShards, final Record... records) {
+        return SubscribeToShardEvent.builder()
+                .millisBehindLatest(0L)
+                .records(records)
+                .childShards(childShards)
+                .build();
+    }
+
+    public static ChildShard childShard(final String shardId, final String... parentShards) {
+        return ChildShard.builder()
+                .shardId(shardId)
+                .parentShards(parentShards)
+                .build();
+    }
+
+    public static Record record(final String partitionKey, final String sequenceNumber, final String data) {
+        return Record.builder()
+                .partitionKey(partitionKey)
+                .sequenceNumber(sequenceNumber)
+                .approximateArrivalTimestamp(Instant.now())
+                .data(SdkBytes.fromString(data, UTF_8))
+                .build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public CompletableFuture<DescribeStreamResponse> describeStream(final DescribeStreamRequest request) {
+        return completedFuture(DescribeStreamResponse.builder()
+                .streamDescription(StreamDescription.builder()
+                        .streamName(streamName)
+                        .streamARN(STREAM_ARN_PREFIX + streamName)
+                        .shards(shards)
+                        .hasMoreShards(false)
+                        .build())
+                .build());
+    }
+
+    @Override
+    public CompletableFuture<DescribeStreamConsumerResponse> describeStreamConsumer(final DescribeStreamConsumerRequest request) {
+        if (!request.consumerName().equals(consumerName)) {
+            final CompletableFuture<DescribeStreamConsumerResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(ResourceNotFoundException.builder().message("Consumer not found").build());
+            return failed;
+        }
+        return completedFuture(DescribeStreamConsumerResponse.builder()
+                .consumerDescription(ConsumerDescription.builder()
+                        .consumerName(consumerName)
+                        .consumerARN(request.streamARN() + "/consumer/" + consumerName)
+                        .consumerStatus(ConsumerStatus.ACTIVE)
+                        .streamARN(request.streamARN())
+                        .build())
+                .build());
+    }
+
+    @Override
+    public CompletableFuture<RegisterStreamConsumerResponse> registerStreamConsumer(final RegisterStreamConsumerRequest request) {
+        registeredConsumers.incrementAndGet();
+        consumerName = request.consumerName();
+        return completedFuture(RegisterStreamConsumerResponse.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<Void> subscribeToShard(final SubscribeToShardRequest request,
+                                                    final SubscribeToShardResponseHandler handler) {
+        subscribeRequests.add(request);
+        final Deque<List<SubscribeToShardEvent>> shardSubscriptions = subscriptions.get(request.shardId());
+        final List<SubscribeToShardEvent> events = shardSubscriptions != null && !shardSubscriptions.isEmpty()
+                ? shardSubscriptions.poll()
+                : List.of(event(null, 0L));
+        handler.responseReceived(SubscribeToShardResponse.builder().build());
+        handler.onEventStream(SdkPublisher.adapt(new ScriptedPublisher(events)));
+        return completedFuture(null);
+    }
+
+    private static class ScriptedPublisher implements Publisher<SubscribeToShardEventStream> {
+        private final List<SubscribeToShardEvent> events;
+
+        private ScriptedPublisher(final List<SubscribeToShardEvent> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void subscribe(final Subscriber<? super SubscribeToShardEventStream> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                private int next = 0;
+                private boolean done = false;
+
+                @Override
+                public synchronized void request(final long n) {
+                    for (long i = 0; i < n && !done; ++i) {
+                        if (next < events.size()) {
+                            subscriber.onNext(events.get(next++));
+                        }
+                        if (next == events.size()) {
+                            done = true;
+                            subscriber.onComplete();
+                        }
+                    }
+                }
+
+                @Override
+                public synchronized void cancel() {
+                    done = true;
+                }
+            });
+        }
+    }
+}
@@ -30,14 +30,21 @@ import static software.amazon.awssdk.core.retry.conditions.RetryCondition.defaul
 
 @Configuration
 @Import({SynapseAwsAuthConfiguration.class, SynapseAutoConfiguration.class})
-@EnableConfigurationProperties(AwsProperties.class)
+@EnableConfigurationProperties({AwsProperties.class, SqsProperties.class})
 public class SqsAutoConfiguration {
 
     private final AwsProperties awsProperties;
+    private final SqsProperties sqsProperties;
 
-    @Autowired
     public SqsAutoConfiguration(final AwsProperties awsProperties) {
+        this(awsProperties, new SqsProperties());
+    }
+
+    @Autowired
+    public SqsAutoConfiguration(final AwsProperties awsProperties,
+                                final SqsProperties sqsProperties) {
         this.awsProperties = awsProperties;
+        this.sqsProperties = sqsProperties;
     }
 
     @Bean
@@ -70,7 +77,7 @@ public class SqsAutoConfiguration {
     public MessageSenderEndpointFactory sqsMessageQueueSenderEndpointFactory(final MessageInterceptorRegistry registry,
                                                                              final SqsAsyncClient sqsAsyncClient,
                                                                              final @Value("${spring.application.name:Synapse Service}") String messageSenderName) {
-        return new SqsMessageSenderEndpointFactory(registry, sqsAsyncClient);
+        return new SqsMessageSenderEndpointFactory(registry, sqsAsyncClient, sqsProperties);
     }
 
     @Bean
@@ -79,7 +86,7 @@ public class SqsAutoConfiguration {
                                                                                    final SqsAsyncClient sqsAsyncClient,
                                                                                    final ApplicationEventPublisher eventPublisher) {
 
-        return new SqsMessageQueueReceiverEndpointFactory(registry, sqsAsyncClient, eventPublisher);
+        return new SqsMessageQueueReceiverEndpointFactory(registry, sqsAsyncClient, eventPublisher, sqsProperties);
     }
 
 }
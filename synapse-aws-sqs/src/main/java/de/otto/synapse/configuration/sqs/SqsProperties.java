@@ -0,0 +1,161 @@
+package de.otto.synapse.configuration.sqs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "synapse.sqs")
+public class SqsProperties {
+
+    private final Receiver receiver = new Receiver();
+    private final Sender sender = new Sender();
+
+    public Receiver getReceiver() {
+        return receiver;
+    }
+
+    public Sender getSender() {
+        return sender;
+    }
+
+    public static class Receiver {
+
+        /**
+         * The number of concurrent long-polling ReceiveMessage requests per queue. Using more than one fetcher,
+         * messages might be received out of order.
+         */
+        private int numberOfFetchers = 1;
+
+        /**
+         * The maximum number of messages returned by a single ReceiveMessage request. Valid values are 1 to 10.
+         */
+        private int maxNumberOfMessages = 10;
+
+        /**
+         * Duration of long-polling ReceiveMessage requests in seconds. Valid values are 0 to 20.
+         */
+        private int waitTimeSeconds = 2;
+
+        /**
+         * The visibility timeout of received messages in seconds. The visibility of messages that are not yet
+         * processed is extended by this timeout, every time a third of the timeout has elapsed.
+         */
+        private int visibilityTimeoutSeconds = 5;
+
+        /**
+         * The number of threads used to process received messages. Messages are assigned to threads by their
+         * MessageGroupId or message key, so messages of the same group or key are processed in order.
+         */
+        private int workerPoolSize = 1;
+
+        /**
+         * The maximum number of messages that are received, but not yet processed. Fetchers are pausing, until
+         * the number of pending messages drops below this limit.
+         */
+        private int maxPendingMessages = 100;
+
+        /**
+         * The maximum number of messages that are deleted using a single DeleteMessageBatch request. Valid values
+         * are 1 to 10.
+         */
+        private int deleteBatchSize = 10;
+
+        /**
+         * The maximum time in milliseconds, processed messages are waiting for more messages to be deleted in the
+         * same DeleteMessageBatch request.
+         */
+        private int deleteBatchLingerMillis = 100;
+
+        public int getNumberOfFetchers() {
+            return numberOfFetchers;
+        }
+
+        public void setNumberOfFetchers(int numberOfFetchers) {
+            this.numberOfFetchers = numberOfFetchers;
+        }
+
+        public int getMaxNumberOfMessages() {
+            return maxNumberOfMessages;
+        }
+
+        public void setMaxNumberOfMessages(int maxNumberOfMessages) {
+            this.maxNumberOfMessages = maxNumberOfMessages;
+        }
+
+        public int getWaitTimeSeconds() {
+            return waitTimeSeconds;
+        }
+
+        public void setWaitTimeSeconds(int waitTimeSeconds) {
+            this.waitTimeSeconds = waitTimeSeconds;
+        }
+
+        public int getVisibilityTimeoutSeconds() {
+            return visibilityTimeoutSeconds;
+        }
+
+        public void setVisibilityTimeoutSeconds(int visibilityTimeoutSeconds) {
+            this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+        }
+
+        public int getWorkerPoolSize() {
+            return workerPoolSize;
+        }
+
+        public void setWorkerPoolSize(int workerPoolSize) {
+            this.workerPoolSize = workerPoolSize;
+        }
+
+        public int getMaxPendingMessages() {
+            return maxPendingMessages;
+        }
+
+        public void setMaxPendingMessages(int maxPendingMessages) {
+            this.maxPendingMessages = maxPendingMessages;
+        }
+
+        public int getDeleteBatchSize() {
+            return deleteBatchSize;
+        }
+
+        public void setDeleteBatchSize(int deleteBatchSize) {
+            this.deleteBatchSize = deleteBatchSize;
+        }
+
+        public int getDeleteBatchLingerMillis() {
+            return deleteBatchLingerMillis;
+        }
+
+        public void setDeleteBatchLingerMillis(int deleteBatchLingerMillis) {
+            this.deleteBatchLingerMillis = deleteBatchLingerMillis;
+        }
+    }
+
+    public static class Sender {
+
+        /**
+         * The maximum number of concurrent SendMessageBatch requests used by a SqsMessageSender to send messages.
+         */
+        private int maxInFlightRequests = 8;
+
+        /**
+         * The maximum time in milliseconds single messages are waiting for other messages, so they can be sent
+         * using a single SendMessageBatch request. Disabled, if 0.
+         */
+        private long lingerMillis = 0;
+
+        public int getMaxInFlightRequests() {
+            return maxInFlightRequests;
+        }
+
+        public void setMaxInFlightRequests(int maxInFlightRequests) {
+            this.maxInFlightRequests = maxInFlightRequests;
+        }
+
+        public long getLingerMillis() {
+            return lingerMillis;
+        }
+
+        public void setLingerMillis(long lingerMillis) {
+            this.lingerMillis = lingerMillis;
+        }
+    }
+}
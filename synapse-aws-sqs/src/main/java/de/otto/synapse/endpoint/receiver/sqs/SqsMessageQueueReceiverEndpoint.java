@@ -1,6 +1,9 @@
 package de.otto.synapse.endpoint.receiver.sqs;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.otto.synapse.configuration.sqs.SqsProperties;
 import de.otto.synapse.endpoint.MessageInterceptorRegistry;
 import de.otto.synapse.endpoint.receiver.AbstractMessageReceiverEndpoint;
 import de.otto.synapse.endpoint.receiver.MessageQueueReceiverEndpoint;
@@ -15,36 +18,63 @@ import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 import software.amazon.awssdk.services.sqs.model.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static de.otto.synapse.message.Key.NO_KEY;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.time.Duration.ofMillis;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
 import static org.slf4j.LoggerFactory.getLogger;
 
+/**
+ * A {@link MessageQueueReceiverEndpoint} that is receiving messages from an SQS queue.
+ *
+ * <p>
+ *     Messages are received by a configurable number of concurrent long-polling fetchers, and processed by a
+ *     configurable number of single-threaded workers. Fetchers are pausing, if too many messages are waiting to be
+ *     processed.
+ *     Successfully processed messages are deleted using DeleteMessageBatch requests, that are sent as soon as
+ *     enough messages are processed, or the configured linger time has elapsed. The visibility of messages that are
+ *     not processed within the visibility timeout is extended, so slow consumers do not lead to messages being
+ *     received multiple times.
+ * </p>
+ * <p>
+ *     By default, a single fetcher and a single worker are used, so messages are processed in the order they are
+ *     received. If more than one worker is configured, messages are assigned to workers by their
+ *     {@code MessageGroupId} or, if the queue is not a FIFO queue, by the partition key of their message key, so
+ *     messages of the same group or entity are still processed in order. Using more than one fetcher, messages
+ *     might be received out of order.
+ * </p>
+ */
 public class SqsMessageQueueReceiverEndpoint extends AbstractMessageReceiverEndpoint implements MessageQueueReceiverEndpoint {
 
     private static final Logger LOG = getLogger(SqsMessageQueueReceiverEndpoint.class);
 
-    // TODO: Timeouts etc. should be configurable!
-
-    /**
-     * The visibility timeout should be high enough to process the message, otherwise messages
-     * might be processed multiple times, if more than one consumer is listening to the channel.
-     */
-    private static final int VISIBILITY_TIMEOUT = 5;
     /**
-     * Duration for long-polling calls to the SQS service
+     * Duration to wait during stop(), until the fetchers and workers have to stop.
      */
-    private static final int WAIT_TIME_SECONDS = 2;
+    private static final int STOP_TIMEOUT_SECONDS = 3;
     /**
-     * Duration to wait during stop(), until the receiver thread has to stop.
-     *
-     * Should be greater than WAIT_TIME_SECONDS
+     * The maximum number of messages of ReceiveMessage requests and the maximum number of entries of batch requests.
      */
-    private static final int STOP_TIMEOUT_SECONDS = 3;
+    private static final int MAX_BATCH_SIZE = 10;
 
     private static final MessageAttributeValue EMPTY_STRING_ATTR = MessageAttributeValue.builder().dataType("String").stringValue("").build();
     private static final String MSG_KEY_ATTR = "synapse_msg_key";
@@ -53,7 +83,15 @@ public class SqsMessageQueueReceiverEndpoint extends AbstractMessageReceiverEndp
     private final SqsAsyncClient sqsAsyncClient;
     @Nonnull
     private final ExecutorService executorService;
+    private final SqsProperties.Receiver properties;
     private final String queueUrl;
+    private final ExecutorService[] workers;
+    private final ScheduledExecutorService scheduler;
+    private final Semaphore pendingMessages;
+    private final Set<PendingMessage> unprocessedMessages = ConcurrentHashMap.newKeySet();
+    private final Set<CompletableFuture<ReceiveMessageResponse>> receiveRequests = ConcurrentHashMap.newKeySet();
+    private final List<software.amazon.awssdk.services.sqs.model.Message> deleteBuffer = new ArrayList<>();
+    private final AtomicInteger activeFetchers = new AtomicInteger();
     private final AtomicBoolean stopSignal = new AtomicBoolean(false);
     private final CompletableFuture<Void> stopped = new CompletableFuture<>();
 
@@ -62,9 +100,30 @@ public class SqsMessageQueueReceiverEndpoint extends AbstractMessageReceiverEndp
                                            final @Nonnull SqsAsyncClient sqsAsyncClient,
                                            final @Nonnull ExecutorService executorService,
                                            final @Nullable ApplicationEventPublisher eventPublisher) {
+        this(channelName, interceptorRegistry, sqsAsyncClient, executorService, eventPublisher, new SqsProperties());
+    }
+
+    /**
+     * Creates a SqsMessageQueueReceiverEndpoint.
+     *
+     * @param channelName the name of the SQS queue
+     * @param interceptorRegistry registry used to intercept received messages
+     * @param sqsAsyncClient the client used to access SQS
+     * @param executorService executor used to send ReceiveMessage requests. Fetchers are not blocking threads while
+     *                        waiting for responses, so a single thread is sufficient.
+     * @param eventPublisher optional publisher of MessageReceiverNotifications
+     * @param sqsProperties configuration of fetchers, workers, deletion and visibility of messages
+     */
+    public SqsMessageQueueReceiverEndpoint(final @Nonnull String channelName,
+                                           final @Nonnull MessageInterceptorRegistry interceptorRegistry,
+                                           final @Nonnull SqsAsyncClient sqsAsyncClient,
+                                           final @Nonnull ExecutorService executorService,
+                                           final @Nullable ApplicationEventPublisher eventPublisher,
+                                           final @Nonnull SqsProperties sqsProperties) {
         super(channelName, interceptorRegistry, eventPublisher);
         this.sqsAsyncClient = sqsAsyncClient;
         this.executorService = executorService;
+        this.properties = sqsProperties.getReceiver();
         try {
             this.queueUrl = sqsAsyncClient.getQueueUrl(GetQueueUrlRequest
                     .builder()
@@ -79,47 +138,155 @@ public class SqsMessageQueueReceiverEndpoint extends AbstractMessageReceiverEndp
             stopped.complete(null);
             throw new RuntimeException(e.getMessage(), e);
         }
+        this.pendingMessages = new Semaphore(max(1, properties.getMaxPendingMessages()));
+        final ThreadFactory workerThreadFactory = new ThreadFactoryBuilder().setNameFormat("sqs-worker-" + channelName + "-%d").setDaemon(true).build();
+        this.workers = new ExecutorService[max(1, properties.getWorkerPoolSize())];
+        for (int i = 0; i < workers.length; ++i) {
+            workers[i] = newSingleThreadExecutor(workerThreadFactory);
+        }
+        this.scheduler = newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("sqs-scheduler-" + channelName + "-%d").setDaemon(true).build());
     }
 
     @Override
     public CompletableFuture<Void> consume() {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                do {
-                    receiveAndProcess();
-                } while (!stopSignal.get());
-            } finally {
-                stopped.complete(null);
-            }
-        }, executorService);
+        final CompletableFuture<Void> consumption = new CompletableFuture<>();
+        final int numberOfFetchers = max(1, properties.getNumberOfFetchers());
+        final long extendVisibilityMillis = max(1000L, properties.getVisibilityTimeoutSeconds() * 1000L / 3);
+        scheduler.scheduleWithFixedDelay(this::extendVisibility, extendVisibilityMillis, extendVisibilityMillis, MILLISECONDS);
+        activeFetchers.set(numberOfFetchers);
+        for (int i = 0; i < numberOfFetchers; ++i) {
+            executorService.execute(() -> fetch(consumption));
+        }
+        return consumption;
     }
 
-    private void receiveAndProcess() {
+    /**
+     * Sends a single ReceiveMessage request and schedules the next one, as soon as the response is received.
+     *
+     * @param consumption the future returned by {@link #consume()}
+     */
+    private void fetch(final CompletableFuture<Void> consumption) {
+        final int maxNumberOfMessages = stopSignal.get() ? 0 : acquirePendingMessages();
+        if (maxNumberOfMessages == 0) {
+            fetcherStopped(consumption);
+            return;
+        }
         try {
             LOG.debug("Sending receiveMessage request...");
-            sqsAsyncClient.receiveMessage(ReceiveMessageRequest.builder()
+            final CompletableFuture<ReceiveMessageResponse> request = sqsAsyncClient.receiveMessage(ReceiveMessageRequest.builder()
                     .queueUrl(queueUrl)
-                    .visibilityTimeout(VISIBILITY_TIMEOUT)
+                    .visibilityTimeout(properties.getVisibilityTimeoutSeconds())
                     .messageAttributeNames("All")
-                    .waitTimeSeconds(WAIT_TIME_SECONDS)
-                    .build())
-                    .thenAccept(this::processResponse)
-                    .join();
-        } catch (Exception e) {
-            LOG.error(e.getMessage(), e);
-            throw new RuntimeException(e);
+                    .messageSystemAttributeNames(MessageSystemAttributeName.MESSAGE_GROUP_ID)
+                    .waitTimeSeconds(properties.getWaitTimeSeconds())
+                    .maxNumberOfMessages(maxNumberOfMessages)
+                    .build());
+            receiveRequests.add(request);
+            request.whenComplete((response, throwable) -> {
+                receiveRequests.remove(request);
+                final List<software.amazon.awssdk.services.sqs.model.Message> messages = response != null && response.hasMessages()
+                        ? response.messages()
+                        : List.of();
+                pendingMessages.release(maxNumberOfMessages - messages.size());
+                if (throwable != null) {
+                    if (stopSignal.get()) {
+                        fetcherStopped(consumption);
+                    } else {
+                        fetcherFailed(consumption, throwable);
+                    }
+                } else {
+                    LOG.debug("Received {} messages from SQS.", messages.size());
+                    messages.forEach(this::submit);
+                    try {
+                        executorService.execute(() -> fetch(consumption));
+                    } catch (final RejectedExecutionException e) {
+                        fetcherFailed(consumption, e);
+                    }
+                }
+            });
+        } catch (final Exception e) {
+            pendingMessages.release(maxNumberOfMessages);
+            fetcherFailed(consumption, e);
+        }
+    }
+
+    /**
+     * Waits until at least one more message can be received without exceeding the max number of pending
+     * messages.
+     *
+     * @return the number of messages that may be received by the next ReceiveMessage request, or 0 if the
+     * endpoint was stopped while waiting.
+     */
+    private int acquirePendingMessages() {
+        final int maxNumberOfMessages = max(1, min(MAX_BATCH_SIZE, properties.getMaxNumberOfMessages()));
+        try {
+            while (!stopSignal.get()) {
+                if (pendingMessages.tryAcquire(100, MILLISECONDS)) {
+                    int acquired = 1;
+                    while (acquired < maxNumberOfMessages && pendingMessages.tryAcquire()) {
+                        ++acquired;
+                    }
+                    return acquired;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        return 0;
+    }
+
+    private void fetcherFailed(final CompletableFuture<Void> consumption, final Throwable throwable) {
+        LOG.error(throwable.getMessage(), throwable);
+        stopSignal.set(true);
+        consumption.completeExceptionally(new RuntimeException(throwable));
+        fetcherStopped(consumption);
     }
 
-    private void processResponse(ReceiveMessageResponse response) {
-        if (response.messages() != null) {
-            LOG.debug("Received {} messages from SQS.", response.messages().size());
-            response.messages()
-                    .forEach(this::processMessage);
+    private void fetcherStopped(final CompletableFuture<Void> consumption) {
+        if (activeFetchers.decrementAndGet() == 0) {
+            consumption.complete(null);
+            stopped.complete(null);
         }
     }
 
-    private void processMessage(software.amazon.awssdk.services.sqs.model.Message sqsMessage) {
+    private void submit(final software.amazon.awssdk.services.sqs.model.Message sqsMessage) {
+        final PendingMessage pendingMessage = new PendingMessage(sqsMessage);
+        unprocessedMessages.add(pendingMessage);
+        try {
+            workers[workerOf(sqsMessage)].execute(() -> processMessage(pendingMessage));
+        } catch (final RejectedExecutionException e) {
+            LOG.warn("Unable to process SQS message {}: receiver endpoint is stopped", sqsMessage.messageId());
+            unprocessedMessages.remove(pendingMessage);
+            pendingMessages.release();
+        }
+    }
+
+    /**
+     * Returns the index of the worker that is responsible for the message, so all messages of the same message
+     * group, or having the same partition key, are processed by the same worker thread.
+     *
+     * @param sqsMessage the received message
+     * @return index of the worker
+     */
+    private int workerOf(final software.amazon.awssdk.services.sqs.model.Message sqsMessage) {
+        if (workers.length == 1) {
+            return 0;
+        }
+        String group = sqsMessage.hasAttributes()
+                ? sqsMessage.attributes().get(MessageSystemAttributeName.MESSAGE_GROUP_ID)
+                : null;
+        if (group == null) {
+            group = sqsMessage.hasMessageAttributes() && sqsMessage.messageAttributes().containsKey(MSG_KEY_ATTR)
+                    ? messageKeyOf(sqsMessage).partitionKey()
+                    : String.valueOf(sqsMessage.messageId());
+        }
+        final int h = group.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), workers.length);
+    }
+
+    private void processMessage(final PendingMessage pendingMessage) {
+        final software.amazon.awssdk.services.sqs.model.Message sqsMessage = pendingMessage.sqsMessage;
         LOG.debug("Processing message from channel={}: messageId={} receiptHandle={}, messageAttributes={}", getChannelName(), sqsMessage.messageId(), sqsMessage.receiptHandle(), sqsMessage.messageAttributes());
         try {
             final TextMessage message = TextMessage.of(
@@ -135,6 +302,9 @@ public class SqsMessageQueueReceiverEndpoint extends AbstractMessageReceiverEndp
             deleteMessage(sqsMessage);
         } catch (final Exception e) {
             LOG.error("Failed to process SQS message " + sqsMessage, e);
+        } finally {
+            unprocessedMessages.remove(pendingMessage);
+            pendingMessages.release();
         }
     }
 
@@ -162,42 +332,177 @@ public class SqsMessageQueueReceiverEndpoint extends AbstractMessageReceiverEndp
         }
     }
 
-    private void deleteMessage(software.amazon.awssdk.services.sqs.model.Message sqsMessage) {
+    /**
+     * Adds the message to the buffer of messages that will be deleted in a single DeleteMessageBatch request.
+     *
+     * @param sqsMessage the processed message
+     */
+    private void deleteMessage(final software.amazon.awssdk.services.sqs.model.Message sqsMessage) {
+        final int deleteBatchSize = max(1, min(MAX_BATCH_SIZE, properties.getDeleteBatchSize()));
+        final List<software.amazon.awssdk.services.sqs.model.Message> batch;
+        synchronized (deleteBuffer) {
+            deleteBuffer.add(sqsMessage);
+            if (deleteBuffer.size() >= deleteBatchSize) {
+                batch = drainDeleteBuffer();
+            } else {
+                batch = null;
+                if (deleteBuffer.size() == 1) {
+                    try {
+                        scheduler.schedule(this::flushDeleteBuffer, properties.getDeleteBatchLingerMillis(), MILLISECONDS);
+                    } catch (final RejectedExecutionException e) {
+                        // the endpoint is stopped and will flush the buffer
+                    }
+                }
+            }
+        }
+        if (batch != null) {
+            deleteMessageBatch(batch);
+        }
+    }
+
+    private CompletableFuture<Void> flushDeleteBuffer() {
+        final List<software.amazon.awssdk.services.sqs.model.Message> batch;
+        synchronized (deleteBuffer) {
+            batch = drainDeleteBuffer();
+        }
+        return batch.isEmpty()
+                ? completedFuture(null)
+                : deleteMessageBatch(batch);
+    }
+
+    private List<software.amazon.awssdk.services.sqs.model.Message> drainDeleteBuffer() {
+        final List<software.amazon.awssdk.services.sqs.model.Message> batch = new ArrayList<>(deleteBuffer);
+        deleteBuffer.clear();
+        return batch;
+    }
+
+    private CompletableFuture<Void> deleteMessageBatch(final List<software.amazon.awssdk.services.sqs.model.Message> batch) {
         try {
-            LOG.debug("Deleting message with receiptHandle={}", sqsMessage.receiptHandle());
-            sqsAsyncClient
-                    .deleteMessage(DeleteMessageRequest.builder()
+            LOG.debug("Deleting {} messages from channel={}", batch.size(), getChannelName());
+            final List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); ++i) {
+                entries.add(DeleteMessageBatchRequestEntry.builder()
+                        .id(String.valueOf(i))
+                        .receiptHandle(batch.get(i).receiptHandle())
+                        .build());
+            }
+            return sqsAsyncClient
+                    .deleteMessageBatch(DeleteMessageBatchRequest.builder()
                             .queueUrl(queueUrl)
-                            .receiptHandle(sqsMessage.receiptHandle())
+                            .entries(entries)
                             .build())
                     .handle((response, throwable) -> {
                         if (response != null) {
-                            LOG.debug("Received DeleteMessageResponse={}", response);
-                            return response;
+                            LOG.debug("Received DeleteMessageBatchResponse={}", response);
+                            if (response.hasFailed()) {
+                                response.failed().forEach(entry -> LOG.warn("Failed to delete message from channel {}: {}", getChannelName(), entry));
+                            }
                         } else {
-                            LOG.info("Received exception while deleting message: " + throwable.getMessage());
-                            throw new RuntimeException(throwable);
+                            LOG.info("Received exception while deleting messages: " + throwable.getMessage());
                         }
+                        return null;
                     });
         } catch (final RuntimeException e) {
-            LOG.error("Error deleting message: " + e.getMessage(), e);
-            throw e;
+            LOG.error("Error deleting messages: " + e.getMessage(), e);
+            return completedFuture(null);
+        }
+    }
+
+    /**
+     * Extends the visibility of all messages that are received, but not yet processed for more than a third of
+     * the visibility timeout.
+     */
+    private void extendVisibility() {
+        try {
+            final long threshold = System.currentTimeMillis() - properties.getVisibilityTimeoutSeconds() * 1000L / 3;
+            final List<software.amazon.awssdk.services.sqs.model.Message> messages = unprocessedMessages
+                    .stream()
+                    .filter(pendingMessage -> pendingMessage.receivedAtMillis <= threshold)
+                    .map(pendingMessage -> pendingMessage.sqsMessage)
+                    .collect(toList());
+            Lists.partition(messages, MAX_BATCH_SIZE).forEach(this::changeMessageVisibilityBatch);
+        } catch (final RuntimeException e) {
+            LOG.error("Error extending visibility of messages: " + e.getMessage(), e);
         }
     }
 
+    private void changeMessageVisibilityBatch(final List<software.amazon.awssdk.services.sqs.model.Message> batch) {
+        LOG.debug("Extending visibility of {} messages from channel={}", batch.size(), getChannelName());
+        final List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); ++i) {
+            entries.add(ChangeMessageVisibilityBatchRequestEntry.builder()
+                    .id(String.valueOf(i))
+                    .receiptHandle(batch.get(i).receiptHandle())
+                    .visibilityTimeout(properties.getVisibilityTimeoutSeconds())
+                    .build());
+        }
+        sqsAsyncClient
+                .changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest.builder()
+                        .queueUrl(queueUrl)
+                        .entries(entries)
+                        .build())
+                .whenComplete((response, throwable) -> {
+                    if (throwable != null) {
+                        LOG.warn("Received exception while extending visibility of messages: " + throwable.getMessage());
+                    } else if (response.hasFailed()) {
+                        // messages might have been deleted in the meantime
+                        response.failed().forEach(entry -> LOG.debug("Failed to extend visibility of message: {}", entry));
+                    }
+                });
+    }
+
     /**
      * Stops consumption of messages and shuts down the {@code MessageQueueReceiverEndpoint}.
+     *
+     * <p>
+     *     Pending ReceiveMessage requests are cancelled. Messages that are already received are processed and
+     *     deleted, if possible within the stop timeout.
+     * </p>
      */
     @Override
     public void stop() {
         LOG.info("Channel {} received stop signal.", getChannelName());
         stopSignal.set(true);
+        receiveRequests.forEach(request -> request.cancel(true));
         try {
             stopped
                     .thenAccept((v) -> LOG.info("SQS channel {} has been stopped", getChannelName()))
                     .get(STOP_TIMEOUT_SECONDS, SECONDS);
+            shutdownWorkers();
+            if (!awaitWorkerTermination()) {
+                LOG.warn("Messages of SQS channel {} are still processed after {}s", getChannelName(), STOP_TIMEOUT_SECONDS);
+            }
+            flushDeleteBuffer().get(STOP_TIMEOUT_SECONDS, SECONDS);
         } catch (final Exception e) {
             throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            shutdownWorkers();
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void shutdownWorkers() {
+        for (final ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    private boolean awaitWorkerTermination() throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + SECONDS.toMillis(STOP_TIMEOUT_SECONDS);
+        for (final ExecutorService worker : workers) {
+            if (!worker.awaitTermination(max(0L, deadline - System.currentTimeMillis()), MILLISECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class PendingMessage {
+        private final software.amazon.awssdk.services.sqs.model.Message sqsMessage;
+        private final long receivedAtMillis = System.currentTimeMillis();
+
+        private PendingMessage(final software.amazon.awssdk.services.sqs.model.Message sqsMessage) {
+            this.sqsMessage = sqsMessage;
         }
     }
 
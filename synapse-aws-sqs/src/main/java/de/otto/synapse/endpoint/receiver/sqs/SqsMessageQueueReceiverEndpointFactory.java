@@ -1,6 +1,7 @@
 package de.otto.synapse.endpoint.receiver.sqs;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.otto.synapse.configuration.sqs.SqsProperties;
 import de.otto.synapse.endpoint.MessageInterceptorRegistry;
 import de.otto.synapse.endpoint.receiver.MessageQueueReceiverEndpoint;
 import de.otto.synapse.endpoint.receiver.MessageQueueReceiverEndpointFactory;
@@ -21,13 +22,22 @@ public class SqsMessageQueueReceiverEndpointFactory implements MessageQueueRecei
     private final MessageInterceptorRegistry registry;
     private final SqsAsyncClient sqsAsyncClient;
     private final ApplicationEventPublisher eventPublisher;
+    private final SqsProperties sqsProperties;
 
     public SqsMessageQueueReceiverEndpointFactory(final MessageInterceptorRegistry registry,
                                                   final SqsAsyncClient sqsAsyncClient,
                                                   final ApplicationEventPublisher eventPublisher) {
+        this(registry, sqsAsyncClient, eventPublisher, new SqsProperties());
+    }
+
+    public SqsMessageQueueReceiverEndpointFactory(final MessageInterceptorRegistry registry,
+                                                  final SqsAsyncClient sqsAsyncClient,
+                                                  final ApplicationEventPublisher eventPublisher,
+                                                  final SqsProperties sqsProperties) {
         this.registry = registry;
         this.sqsAsyncClient = sqsAsyncClient;
         this.eventPublisher = eventPublisher;
+        this.sqsProperties = sqsProperties;
     }
 
     @Override
@@ -36,6 +46,6 @@ public class SqsMessageQueueReceiverEndpointFactory implements MessageQueueRecei
         final ExecutorService executorService = newCachedThreadPool(
                 new ThreadFactoryBuilder().setNameFormat("sqs-message-queue-%d").build()
         );
-        return new SqsMessageQueueReceiverEndpoint(channelName, registry, sqsAsyncClient, executorService, eventPublisher);
+        return new SqsMessageQueueReceiverEndpoint(channelName, registry, sqsAsyncClient, executorService, eventPublisher, sqsProperties);
     }
 }
@@ -0,0 +1,268 @@
+package de.otto.synapse.endpoint.sender.sqs;
+
+import org.slf4j.Logger;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.lang.String.valueOf;
+import static java.util.concurrent.CompletableFuture.delayedExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Sends {@link SendMessageBatchRequestEntry entries} to an SQS queue using up to {@code maxInFlightRequests}
+ * concurrent SendMessageBatch requests.
+ *
+ * <p>
+ *     Entries are split into requests of up to 10 entries and 256 KB, the limits of SQS. Only the failed entries of
+ *     a request are resent, after a backoff with full jitter. Entries that failed because of the sender (for example,
+ *     invalid message attributes) are not resent.
+ * </p>
+ * <p>
+ *     Entries may linger for some time, so entries of subsequent calls are sent using a single request.
+ *     Entries are sent as soon as a request is full, or the linger time of an entry has elapsed.
+ * </p>
+ * <p>
+ *     The pipeline is used by a single {@link SqsMessageSender}, so the number of concurrent requests is limited
+ *     for all messages sent to the queue.
+ * </p>
+ */
+class SendMessageBatchPipeline {
+
+    private static final Logger LOG = getLogger(SendMessageBatchPipeline.class);
+
+    static final int SEND_MESSAGE_BATCH_SIZE = 10;
+    static final int SEND_MESSAGE_BATCH_SIZE_BYTES = 256 * 1024;
+
+    private final String queueUrl;
+    private final SqsAsyncClient sqsAsyncClient;
+    private final int maxInFlightRequests;
+    private final int maxRetries;
+    private final Duration retryBaseDelay;
+    private final Duration retryMaxDelay;
+
+    private final Deque<Entry> pendingEntries = new ArrayDeque<>();
+    private int inFlightRequests = 0;
+
+    SendMessageBatchPipeline(final String queueUrl,
+                             final SqsAsyncClient sqsAsyncClient,
+                             final int maxInFlightRequests,
+                             final int maxRetries,
+                             final Duration retryBaseDelay,
+                             final Duration retryMaxDelay) {
+        this.queueUrl = queueUrl;
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.maxRetries = maxRetries;
+        this.retryBaseDelay = retryBaseDelay;
+        this.retryMaxDelay = retryMaxDelay;
+    }
+
+    /**
+     * Sends the entries.
+     *
+     * @param entries the entries to send. The ids of the entries are ignored.
+     * @param lingerMillis the max time in milliseconds to wait for more entries, before a request that is not
+     *                     yet full is sent.
+     * @return CompletableFuture that is completed after all entries were sent, or completed exceptionally with a
+     *         {@link SqsSendException}, if an entry could not be sent.
+     */
+    CompletableFuture<Void> send(final List<SendMessageBatchRequestEntry> entries, final long lingerMillis) {
+        if (entries.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final long dueAtMillis = System.currentTimeMillis() + lingerMillis;
+        final CompletableFuture<?>[] futures = new CompletableFuture<?>[entries.size()];
+        synchronized (this) {
+            for (int i = 0; i < entries.size(); i++) {
+                final Entry entry = new Entry(entries.get(i), dueAtMillis);
+                pendingEntries.addLast(entry);
+                futures[i] = entry.future;
+            }
+        }
+        if (lingerMillis > 0) {
+            CompletableFuture.runAsync(this::dispatch, delayedExecutor(lingerMillis, MILLISECONDS));
+        }
+        dispatch();
+        return CompletableFuture.allOf(futures);
+    }
+
+    private void dispatch() {
+        final List<List<Entry>> batches = new ArrayList<>();
+        synchronized (this) {
+            final long now = System.currentTimeMillis();
+            while (inFlightRequests < maxInFlightRequests && !pendingEntries.isEmpty()) {
+                final List<Entry> batch = nextBatch(now);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                ++inFlightRequests;
+                batches.add(batch);
+            }
+        }
+        batches.forEach(this::sendMessageBatch);
+    }
+
+    /**
+     * Returns the next batch of pending entries. A batch that is not full is only returned, if the linger time of
+     * one of its entries has elapsed.
+     */
+    private List<Entry> nextBatch(final long now) {
+        int batchSize = 0;
+        long batchSizeBytes = 0;
+        boolean full = false;
+        boolean due = false;
+        final Iterator<Entry> iterator = pendingEntries.iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (batchSize == SEND_MESSAGE_BATCH_SIZE || (batchSize > 0 && batchSizeBytes + entry.sizeBytes > SEND_MESSAGE_BATCH_SIZE_BYTES)) {
+                full = true;
+                break;
+            }
+            ++batchSize;
+            batchSizeBytes += entry.sizeBytes;
+            due |= entry.dueAtMillis <= now;
+        }
+        final List<Entry> batch = new ArrayList<>(batchSize);
+        if (full || due || batchSize == SEND_MESSAGE_BATCH_SIZE) {
+            for (int i = 0; i < batchSize; i++) {
+                batch.add(pendingEntries.removeFirst());
+            }
+        }
+        return batch;
+    }
+
+    private void sendMessageBatch(final List<Entry> batch) {
+        final List<SendMessageBatchRequestEntry> requestEntries = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            requestEntries.add(batch.get(i).requestEntry.toBuilder().id(valueOf(i)).build());
+        }
+        try {
+            sqsAsyncClient.sendMessageBatch(SendMessageBatchRequest.builder()
+                            .queueUrl(queueUrl)
+                            .entries(requestEntries)
+                            .build())
+                    .whenComplete((response, throwable) -> {
+                        if (throwable != null) {
+                            onFailure(batch, throwable);
+                        } else {
+                            onResponse(batch, response);
+                        }
+                    });
+        } catch (final RuntimeException e) {
+            onFailure(batch, e);
+        }
+    }
+
+    private void onFailure(final List<Entry> batch, final Throwable throwable) {
+        LOG.error("Failed to send batch of messages: " + throwable.getMessage(), throwable);
+        synchronized (this) {
+            --inFlightRequests;
+        }
+        batch.forEach(entry -> entry.future.completeExceptionally(throwable));
+        dispatch();
+    }
+
+    private void onResponse(final List<Entry> batch, final SendMessageBatchResponse response) {
+        final Map<String, BatchResultErrorEntry> errors = new HashMap<>();
+        if (response.hasFailed()) {
+            response.failed().forEach(error -> errors.put(error.id(), error));
+        }
+        final List<Entry> failedEntries = new ArrayList<>();
+        int attempts = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            final Entry entry = batch.get(i);
+            final BatchResultErrorEntry error = errors.get(valueOf(i));
+            if (error == null) {
+                entry.future.complete(null);
+            } else if (Boolean.TRUE.equals(error.senderFault())) {
+                LOG.error("Failed to send message to {}: {}", queueUrl, error);
+                entry.future.completeExceptionally(new SqsSendException("Failed to send message.", error));
+            } else if (++entry.attempts >= maxRetries) {
+                entry.future.completeExceptionally(new SqsSendException("Exceeded maximum number of retries.", error));
+            } else {
+                attempts = Math.max(attempts, entry.attempts);
+                failedEntries.add(entry);
+            }
+        }
+        if (batch.size() > errors.size()) {
+            LOG.debug("Successfully sent {} messages in a batch", batch.size() - errors.size());
+        }
+        synchronized (this) {
+            --inFlightRequests;
+        }
+        if (!failedEntries.isEmpty()) {
+            final long delay = retryDelayMillis(attempts);
+            LOG.warn("retry to send '{}' of '{}' messages to sqs for nth time: {}, delay={}ms", failedEntries.size(), batch.size(), attempts, delay);
+            CompletableFuture.runAsync(() -> retry(failedEntries), delayedExecutor(delay, MILLISECONDS));
+        }
+        dispatch();
+    }
+
+    private void retry(final List<Entry> failedEntries) {
+        synchronized (this) {
+            for (int i = failedEntries.size() - 1; i >= 0; i--) {
+                final Entry entry = failedEntries.get(i);
+                entry.dueAtMillis = 0;
+                pendingEntries.addFirst(entry);
+            }
+        }
+        dispatch();
+    }
+
+    private long retryDelayMillis(final int attempts) {
+        final long exponentialDelay = retryBaseDelay.toMillis() << Math.min(attempts - 1, 20);
+        final long maxDelay = Math.min(retryMaxDelay.toMillis(), exponentialDelay);
+        return ThreadLocalRandom.current().nextLong(maxDelay + 1);
+    }
+
+    /**
+     * Calculates the size of an entry, the same way SQS does: the size of the message body, together with the
+     * names, types and values of all message attributes.
+     */
+    static int sizeBytesOf(final SendMessageBatchRequestEntry entry) {
+        int sizeBytes = entry.messageBody() != null
+                ? entry.messageBody().getBytes(StandardCharsets.UTF_8).length
+                : 0;
+        if (entry.hasMessageAttributes()) {
+            for (final Map.Entry<String, MessageAttributeValue> attribute : entry.messageAttributes().entrySet()) {
+                final MessageAttributeValue value = attribute.getValue();
+                sizeBytes += attribute.getKey().getBytes(StandardCharsets.UTF_8).length;
+                sizeBytes += value.dataType() != null ? value.dataType().getBytes(StandardCharsets.UTF_8).length : 0;
+                sizeBytes += value.stringValue() != null ? value.stringValue().getBytes(StandardCharsets.UTF_8).length : 0;
+                sizeBytes += value.binaryValue() != null ? value.binaryValue().asByteBuffer().remaining() : 0;
+            }
+        }
+        return sizeBytes;
+    }
+
+    private static final class Entry {
+        private final SendMessageBatchRequestEntry requestEntry;
+        private final int sizeBytes;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private long dueAtMillis;
+        private int attempts = 0;
+
+        private Entry(final SendMessageBatchRequestEntry requestEntry, final long dueAtMillis) {
+            this.requestEntry = requestEntry;
+            this.sizeBytes = sizeBytesOf(requestEntry);
+            this.dueAtMillis = dueAtMillis;
+        }
+    }
+}
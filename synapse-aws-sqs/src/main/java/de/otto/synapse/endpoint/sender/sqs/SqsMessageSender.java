@@ -1,5 +1,6 @@
 package de.otto.synapse.endpoint.sender.sqs;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import de.otto.synapse.endpoint.MessageInterceptorRegistry;
 import de.otto.synapse.endpoint.sender.AbstractMessageSenderEndpoint;
@@ -11,35 +12,104 @@ import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 import software.amazon.awssdk.services.sqs.model.*;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 
-import static java.lang.String.valueOf;
 import static java.util.stream.Collectors.toList;
 
+/**
+ * {@link de.otto.synapse.endpoint.sender.MessageSenderEndpoint} used to send messages to SQS queues.
+ *
+ * <p>
+ *     Batches of messages of any size are split into SendMessageBatch requests of up to 10 messages and 256 KB,
+ *     that are sent using up to {@code maxInFlightRequests} concurrent requests. Failed messages are resent with
+ *     exponential backoff and jitter.
+ * </p>
+ * <p>
+ *     If {@code lingerMillis} is greater than zero, single messages are not sent immediately, but are waiting
+ *     up to {@code lingerMillis} for other messages, so they can be sent using a single SendMessageBatch request.
+ * </p>
+ */
 public class SqsMessageSender extends AbstractMessageSenderEndpoint {
 
     private static final Logger LOG = LoggerFactory.getLogger(SqsMessageSender.class);
 
     public static final String MSG_KEY_ATTR = "synapse_msg_key";
+    public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 8;
+
+    private static final int MAX_RETRIES = 15;
+    private static final Duration RETRY_BASE_DELAY = Duration.ofMillis(100);
+    private static final Duration RETRY_MAX_DELAY = Duration.ofSeconds(2);
 
     private final String queueUrl;
     private final SqsAsyncClient sqsAsyncClient;
+    private final int maxInFlightRequests;
+    private final long lingerMillis;
+    private final SendMessageBatchPipeline pipeline;
 
     public SqsMessageSender(final String channelName,
                             final String queueUrl,
                             final MessageInterceptorRegistry interceptorRegistry,
                             final MessageTranslator<TextMessage> messageTranslator,
                             final SqsAsyncClient sqsAsyncClient) {
+        this(channelName, queueUrl, interceptorRegistry, messageTranslator, sqsAsyncClient, DEFAULT_MAX_IN_FLIGHT_REQUESTS, 0);
+    }
+
+    /**
+     * Creates a SqsMessageSender.
+     *
+     * @param channelName the name of the SQS queue
+     * @param queueUrl the url of the SQS queue
+     * @param interceptorRegistry registry used to determine the interceptors of the sender
+     * @param messageTranslator the translator of messages
+     * @param sqsAsyncClient the SQS client
+     * @param maxInFlightRequests the max number of concurrent SendMessageBatch requests
+     * @param lingerMillis the max time in milliseconds single messages are waiting for other messages to be
+     *                     sent in the same SendMessageBatch request. If 0, single messages are sent immediately
+     *                     using SendMessage requests.
+     */
+    public SqsMessageSender(final String channelName,
+                            final String queueUrl,
+                            final MessageInterceptorRegistry interceptorRegistry,
+                            final MessageTranslator<TextMessage> messageTranslator,
+                            final SqsAsyncClient sqsAsyncClient,
+                            final int maxInFlightRequests,
+                            final long lingerMillis) {
+        this(channelName, queueUrl, interceptorRegistry, messageTranslator, sqsAsyncClient, maxInFlightRequests, lingerMillis, RETRY_BASE_DELAY, RETRY_MAX_DELAY);
+    }
+
+    @VisibleForTesting
+    SqsMessageSender(final String channelName,
+                     final String queueUrl,
+                     final MessageInterceptorRegistry interceptorRegistry,
+                     final MessageTranslator<TextMessage> messageTranslator,
+                     final SqsAsyncClient sqsAsyncClient,
+                     final int maxInFlightRequests,
+                     final long lingerMillis,
+                     final Duration retryBaseDelay,
+                     final Duration retryMaxDelay) {
         super(channelName, interceptorRegistry, messageTranslator);
+        if (maxInFlightRequests < 1) {
+            throw new IllegalArgumentException("maxInFlightRequests must be greater than zero");
+        }
+        if (lingerMillis < 0) {
+            throw new IllegalArgumentException("lingerMillis must not be negative");
+        }
         this.queueUrl = queueUrl;
         this.sqsAsyncClient = sqsAsyncClient;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.lingerMillis = lingerMillis;
+        this.pipeline = new SendMessageBatchPipeline(queueUrl, sqsAsyncClient, maxInFlightRequests, MAX_RETRIES, retryBaseDelay, retryMaxDelay);
     }
 
     @Override
     protected CompletableFuture<Void> doSend(final @Nonnull TextMessage message) {
+        if (lingerMillis > 0) {
+            return pipeline.send(List.of(toSendMessageBatchRequestEntry(message)), lingerMillis);
+        }
         final CompletableFuture<SendMessageResponse> futureResponse = sqsAsyncClient
                 .sendMessage(toSendMessageRequest(message))
                 .whenComplete(logResponse(message));
@@ -47,32 +117,34 @@ public class SqsMessageSender extends AbstractMessageSenderEndpoint {
         return CompletableFuture.allOf(futureResponse);
     }
 
+    /**
+     * Sends the messages using concurrent SendMessageBatch requests.
+     *
+     * @param messageStream the messages to send
+     * @return CompletableFuture that is completed after all messages were sent, or completed exceptionally, if
+     *         some messages could not be sent.
+     */
     @Override
     protected CompletableFuture<Void> doSendBatch(final @Nonnull Stream<TextMessage> messageStream) {
-        final SendMessageBatchRequest sendMessageBatchRequest = toSendMessageBatchRequest(messageStream);
-        if (!sendMessageBatchRequest.entries().isEmpty()) {
-            final CompletableFuture<SendMessageBatchResponse> futureResponse = sqsAsyncClient
-                    .sendMessageBatch(sendMessageBatchRequest)
-                    .whenComplete(logBatchResponse());
-            // TODO: Introduce a response object and return it instead of Void
-            // Just because we need a CompletableFuture<Void>, no CompletableFuture<SendMessageBatchResponse>:
-            return CompletableFuture.allOf(futureResponse);
-        } else {
-            return CompletableFuture.completedFuture(null);
-        }
+        // TODO: Introduce a response object and return it instead of Void
+        final List<SendMessageBatchRequestEntry> entries = messageStream
+                .map(this::toSendMessageBatchRequestEntry)
+                .collect(toList());
+        return pipeline.send(entries, 0);
     }
 
-    private SendMessageBatchRequest toSendMessageBatchRequest(final @Nonnull Stream<TextMessage> messageStream) {
-        final AtomicInteger id = new AtomicInteger(0);
-        return SendMessageBatchRequest.builder()
-                .queueUrl(queueUrl)
-                .entries(
-                        messageStream.map(message -> SendMessageBatchRequestEntry.builder()
-                                .id(valueOf(id.getAndIncrement()))
-                                .messageAttributes(of(message))
-                                .messageBody(message.getPayload())
-                                .build()).collect(toList())
-                )
+    public int getMaxInFlightRequests() {
+        return maxInFlightRequests;
+    }
+
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    private SendMessageBatchRequestEntry toSendMessageBatchRequestEntry(final @Nonnull TextMessage message) {
+        return SendMessageBatchRequestEntry.builder()
+                .messageAttributes(of(message))
+                .messageBody(message.getPayload())
                 .build();
     }
 
@@ -112,20 +184,4 @@ public class SqsMessageSender extends AbstractMessageSenderEndpoint {
         };
     }
 
-    private BiConsumer<SendMessageBatchResponse, Throwable> logBatchResponse() {
-        return (result, exception) -> {
-                if (exception != null) {
-                    LOG.error("Failed to send batch of messages: " + exception.getMessage(), exception);
-                }
-                if (result != null) {
-                    if (!result.successful().isEmpty()) {
-                        LOG.debug("Successfully sent {} messages in a batch", result.successful().size());
-                    }
-                    if (!result.failed().isEmpty()) {
-                        LOG.error("Failed to sent {} messages in a batch: {}", result.failed().size(), result.failed());
-                    }
-                }
-        };
-    }
-
 }
@@ -2,6 +2,7 @@ package de.otto.synapse.endpoint.sender.sqs;
 
 import de.otto.synapse.channel.selector.Selector;
 import de.otto.synapse.channel.selector.Sqs;
+import de.otto.synapse.configuration.sqs.SqsProperties;
 import de.otto.synapse.endpoint.MessageInterceptorRegistry;
 import de.otto.synapse.endpoint.sender.MessageSenderEndpoint;
 import de.otto.synapse.endpoint.sender.MessageSenderEndpointFactory;
@@ -18,18 +19,27 @@ public class SqsMessageSenderEndpointFactory implements MessageSenderEndpointFac
     private final MessageInterceptorRegistry registry;
     private final MessageTranslator<TextMessage> messageTranslator;
     private final SqsAsyncClient sqsAsyncClient;
+    private final SqsProperties.Sender senderProperties;
 
     public SqsMessageSenderEndpointFactory(final MessageInterceptorRegistry registry,
                                            final SqsAsyncClient sqsAsyncClient) {
+        this(registry, sqsAsyncClient, new SqsProperties());
+    }
+
+    public SqsMessageSenderEndpointFactory(final MessageInterceptorRegistry registry,
+                                           final SqsAsyncClient sqsAsyncClient,
+                                           final SqsProperties sqsProperties) {
         this.registry = registry;
         this.messageTranslator = new TextMessageTranslator();
         this.sqsAsyncClient = sqsAsyncClient;
+        this.senderProperties = sqsProperties.getSender();
     }
 
     @Override
     public MessageSenderEndpoint create(final @Nonnull String channelName, MessageFormat messageFormat) {
         try {
-            return new SqsMessageSender(channelName, urlOf(channelName), registry, messageTranslator, sqsAsyncClient);
+            return new SqsMessageSender(channelName, urlOf(channelName), registry, messageTranslator, sqsAsyncClient,
+                    senderProperties.getMaxInFlightRequests(), senderProperties.getLingerMillis());
         } catch (Exception e) {
             throw new RuntimeException("Failed to get queueUrl for channel=" + channelName + ": " + e.getMessage(), e);
         }
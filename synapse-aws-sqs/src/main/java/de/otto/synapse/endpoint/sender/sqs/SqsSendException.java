@@ -0,0 +1,23 @@
+package de.otto.synapse.endpoint.sender.sqs;
+
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+
+public class SqsSendException extends RuntimeException {
+
+    private final String code;
+    private final boolean senderFault;
+
+    public SqsSendException(final String message, final BatchResultErrorEntry error) {
+        super(message + " " + error.code() + ": " + error.message());
+        this.code = error.code();
+        this.senderFault = Boolean.TRUE.equals(error.senderFault());
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public boolean isSenderFault() {
+        return senderFault;
+    }
+}
@@ -2,6 +2,7 @@ package de.otto.synapse.endpoint.receiver.sqs;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
+import de.otto.synapse.configuration.sqs.SqsProperties;
 import de.otto.synapse.consumer.MessageConsumer;
 import de.otto.synapse.endpoint.MessageInterceptorRegistry;
 import de.otto.synapse.message.Key;
@@ -22,8 +23,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static de.otto.synapse.endpoint.MessageInterceptorRegistration.receiverChannelsWith;
 import static de.otto.synapse.endpoint.sender.sqs.SqsMessageSender.MSG_KEY_ATTR;
@@ -32,6 +35,7 @@ import static java.util.Collections.synchronizedList;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
@@ -55,18 +59,25 @@ public class SqsMessageQueueReceiverEndpointTest {
 
     private SqsMessageQueueReceiverEndpoint sqsQueueReceiver;
     private List<Message<String>> messages = synchronizedList(new ArrayList<>());
+    private List<String> deletedReceiptHandles = synchronizedList(new ArrayList<>());
+    private AtomicInteger receiptHandles = new AtomicInteger();
     private MessageInterceptorRegistry interceptorRegistry;
 
 
     @Before
     public void setUp() {
         messages.clear();
+        deletedReceiptHandles.clear();
         MockitoAnnotations.openMocks(this);
         when(sqsAsyncClient.getQueueUrl(any(GetQueueUrlRequest.class)))
                 .thenReturn(completedFuture(GetQueueUrlResponse.builder().queueUrl(QUEUE_URL).build()));
-        when(sqsAsyncClient.deleteMessage(any(DeleteMessageRequest.class))).thenReturn(completedFuture(DeleteMessageResponse.builder().build()));
+        when(sqsAsyncClient.deleteMessageBatch(any(DeleteMessageBatchRequest.class))).thenAnswer(invocation -> {
+            final DeleteMessageBatchRequest request = invocation.getArgument(0);
+            request.entries().forEach(entry -> deletedReceiptHandles.add(entry.receiptHandle()));
+            return completedFuture(DeleteMessageBatchResponse.builder().build());
+        });
         interceptorRegistry = new MessageInterceptorRegistry();
-        sqsQueueReceiver = new SqsMessageQueueReceiverEndpoint("channelName", interceptorRegistry, sqsAsyncClient, newSingleThreadExecutor(), null);
+        sqsQueueReceiver = new SqsMessageQueueReceiverEndpoint("channelName", interceptorRegistry, sqsAsyncClient, newSingleThreadExecutor(), null, sqsProperties(10));
         sqsQueueReceiver.register(MessageConsumer.of(".*", String.class, (message) -> messages.add(message)));
 
     }
@@ -119,6 +130,96 @@ public class SqsMessageQueueReceiverEndpointTest {
         assertThat(messages.get(2).getPayload(), is(PAYLOAD_3));
     }
 
+    @Test
+    public void shouldReceiveMessagesInBatches() {
+        // given:
+        addSqsMessagesToQueue(sqsMessage("first", PAYLOAD_1));
+        final ArgumentCaptor<ReceiveMessageRequest> receiveRequestCaptor = ArgumentCaptor.forClass(ReceiveMessageRequest.class);
+
+        // when: consumption is started
+        sqsQueueReceiver.consume();
+
+        // then:
+        await()
+                .atMost(5, TimeUnit.SECONDS)
+                .until(() -> messages.size() == 1);
+        verify(sqsAsyncClient, atLeastOnce()).receiveMessage(receiveRequestCaptor.capture());
+        final ReceiveMessageRequest request = receiveRequestCaptor.getAllValues().get(0);
+        assertThat(request.queueUrl(), is(QUEUE_URL));
+        assertThat(request.maxNumberOfMessages(), is(10));
+        assertThat(request.waitTimeSeconds(), is(1));
+        assertThat(request.visibilityTimeout(), is(3));
+    }
+
+    @Test
+    public void shouldProcessMessagesConcurrently() {
+        // given:
+        addSqsMessagesToQueue(
+                sqsMessage("first", PAYLOAD_1),
+                sqsMessage("second", PAYLOAD_2),
+                sqsMessage("third", PAYLOAD_3));
+        final CountDownLatch allMessagesInProgress = new CountDownLatch(EXPECTED_NUMBER_OF_ENTRIES);
+        final List<String> threads = synchronizedList(new ArrayList<>());
+
+        final SqsProperties sqsProperties = sqsProperties(10);
+        // the keys of the messages are assigned to different workers:
+        sqsProperties.getReceiver().setWorkerPoolSize(4);
+        sqsQueueReceiver = new SqsMessageQueueReceiverEndpoint("channelName", new MessageInterceptorRegistry(), sqsAsyncClient, newSingleThreadExecutor(), null, sqsProperties);
+        sqsQueueReceiver.register(MessageConsumer.of(".*", String.class, (message) -> {
+            allMessagesInProgress.countDown();
+            try {
+                // every message is waiting for the other messages, so they have to be processed concurrently
+                if (allMessagesInProgress.await(5, TimeUnit.SECONDS)) {
+                    threads.add(Thread.currentThread().getName());
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+
+        // when: consumption is started
+        sqsQueueReceiver.consume();
+
+        // then:
+        await()
+                .atMost(5, TimeUnit.SECONDS)
+                .until(() -> threads.size() == EXPECTED_NUMBER_OF_ENTRIES);
+        assertThat(threads.stream().distinct().count(), is(3L));
+    }
+
+    @Test
+    public void shouldProcessMessagesOfSameMessageGroupInOrder() {
+        // given:
+        final List<software.amazon.awssdk.services.sqs.model.Message> sqsMessages = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            sqsMessages.add(sqsMessage("key-" + i, "group-" + (i % 2), String.valueOf(i)));
+        }
+        addSqsMessagesToQueue(sqsMessages.toArray(new software.amazon.awssdk.services.sqs.model.Message[0]));
+        final List<String> group0 = synchronizedList(new ArrayList<>());
+        final List<String> group1 = synchronizedList(new ArrayList<>());
+
+        final SqsProperties sqsProperties = sqsProperties(10);
+        sqsProperties.getReceiver().setWorkerPoolSize(8);
+        sqsQueueReceiver = new SqsMessageQueueReceiverEndpoint("channelName", new MessageInterceptorRegistry(), sqsAsyncClient, newSingleThreadExecutor(), null, sqsProperties);
+        sqsQueueReceiver.register(MessageConsumer.of(".*", String.class, (message) -> {
+            if (Integer.parseInt(message.getPayload()) % 2 == 0) {
+                group0.add(message.getPayload());
+            } else {
+                group1.add(message.getPayload());
+            }
+        }));
+
+        // when: consumption is started
+        sqsQueueReceiver.consume();
+
+        // then:
+        await()
+                .atMost(5, TimeUnit.SECONDS)
+                .until(() -> group0.size() + group1.size() == 10);
+        assertThat(group0, contains("0", "2", "4", "6", "8"));
+        assertThat(group1, contains("1", "3", "5", "7", "9"));
+    }
+
     public static class TestFoo {
         public TestFoo() {
         }
@@ -161,11 +262,9 @@ public class SqsMessageQueueReceiverEndpointTest {
                 sqsMessage("second", BROKEN_PAYLOAD),
                 sqsMessage("third", PAYLOAD_3));
 
-        sqsQueueReceiver = new SqsMessageQueueReceiverEndpoint("channelName", new MessageInterceptorRegistry(), sqsAsyncClient, newSingleThreadExecutor(), null);
+        sqsQueueReceiver = new SqsMessageQueueReceiverEndpoint("channelName", new MessageInterceptorRegistry(), sqsAsyncClient, newSingleThreadExecutor(), null, sqsProperties(10));
         sqsQueueReceiver.register(MessageConsumer.of(".*", TestFoo.class, typedMessages::add));
 
-        final ArgumentCaptor<DeleteMessageRequest> deleteRequestCaptor = ArgumentCaptor.forClass(DeleteMessageRequest.class);
-
         // when: consumption is started
         sqsQueueReceiver.consume();
 
@@ -182,8 +281,11 @@ public class SqsMessageQueueReceiverEndpointTest {
         assertThat(typedMessages.get(0).getPayload(), is(new TestFoo("blue")));
 
         // and:
-        // expect delete message to be executed
-        verify(sqsAsyncClient, times(1)).deleteMessage(deleteRequestCaptor.capture());
+        // expect only the valid message to be deleted
+        await()
+                .atMost(5, TimeUnit.SECONDS)
+                .until(() -> deletedReceiptHandles.size() == 1);
+        assertThat(deletedReceiptHandles.get(0), is("receipt-handle-3"));
     }
 
     @Test
@@ -194,7 +296,7 @@ public class SqsMessageQueueReceiverEndpointTest {
                 sqsMessage("matching-of", PAYLOAD_2),
                 sqsMessage("non-matching-of", PAYLOAD_3));
 
-        sqsQueueReceiver = new SqsMessageQueueReceiverEndpoint("channelName", new MessageInterceptorRegistry(), sqsAsyncClient, newSingleThreadExecutor(), null);
+        sqsQueueReceiver = new SqsMessageQueueReceiverEndpoint("channelName", new MessageInterceptorRegistry(), sqsAsyncClient, newSingleThreadExecutor(), null, sqsProperties(10));
         sqsQueueReceiver.register(MessageConsumer.of("matching-of", String.class, (message) -> messages.add(message)));
 
         // when: consumption is started
@@ -221,28 +323,90 @@ public class SqsMessageQueueReceiverEndpointTest {
                 sqsMessage("some of", PAYLOAD_2),
                 sqsMessage("some of", PAYLOAD_3));
 
-        ArgumentCaptor<DeleteMessageRequest> deleteRequestCaptor = ArgumentCaptor.forClass(DeleteMessageRequest.class);
+        ArgumentCaptor<DeleteMessageBatchRequest> deleteRequestCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
 
         // when: consumption is started
         sqsQueueReceiver.consume();
 
         // then:
-        // wait until the messages are consumed
+        // wait until the messages are consumed and deleted
         await()
                 .atMost(5, TimeUnit.SECONDS)
-                .until(() -> messages.size() >= EXPECTED_NUMBER_OF_ENTRIES);
+                .until(() -> deletedReceiptHandles.size() >= EXPECTED_NUMBER_OF_ENTRIES);
 
         // and:
-        // expect delete message to be executed
-        verify(sqsAsyncClient, times(3)).deleteMessage(deleteRequestCaptor.capture());
+        // expect all messages to be deleted
+        verify(sqsAsyncClient, atLeastOnce()).deleteMessageBatch(deleteRequestCaptor.capture());
+        assertThat(deletedReceiptHandles, contains("receipt-handle-1", "receipt-handle-2", "receipt-handle-3"));
 
         //and: the request should contain the queue url
-        List<DeleteMessageRequest> deleteMessageRequests = deleteRequestCaptor.getAllValues();
+        List<DeleteMessageBatchRequest> deleteMessageRequests = deleteRequestCaptor.getAllValues();
         deleteMessageRequests.forEach(req -> {
             assertThat(req.queueUrl(), is(QUEUE_URL));
         });
     }
 
+    @Test
+    public void shouldDeleteMessagesInSingleBatchRequest() {
+        //given
+        addSqsMessagesToQueue(
+                sqsMessage("some of", PAYLOAD_1),
+                sqsMessage("some of", PAYLOAD_2),
+                sqsMessage("some of", PAYLOAD_3));
+
+        final SqsProperties sqsProperties = sqsProperties(10_000);
+        sqsProperties.getReceiver().setDeleteBatchSize(3);
+        sqsQueueReceiver = new SqsMessageQueueReceiverEndpoint("channelName", new MessageInterceptorRegistry(), sqsAsyncClient, newSingleThreadExecutor(), null, sqsProperties);
+        sqsQueueReceiver.register(MessageConsumer.of(".*", String.class, (message) -> messages.add(message)));
+
+        // when: consumption is started
+        sqsQueueReceiver.consume();
+
+        // then:
+        // the batch is deleted as soon as it is full, without waiting for the linger time
+        await()
+                .atMost(5, TimeUnit.SECONDS)
+                .until(() -> deletedReceiptHandles.size() == EXPECTED_NUMBER_OF_ENTRIES);
+        verify(sqsAsyncClient, times(1)).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    }
+
+    @Test
+    public void shouldExtendVisibilityOfMessagesThatAreStillProcessed() {
+        //given
+        addSqsMessagesToQueue(sqsMessage("some of", PAYLOAD_1));
+        final CountDownLatch visibilityExtended = new CountDownLatch(1);
+        final List<ChangeMessageVisibilityBatchRequest> visibilityRequests = synchronizedList(new ArrayList<>());
+        when(sqsAsyncClient.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class))).thenAnswer(invocation -> {
+            visibilityRequests.add(invocation.getArgument(0));
+            visibilityExtended.countDown();
+            return completedFuture(ChangeMessageVisibilityBatchResponse.builder().build());
+        });
+
+        sqsQueueReceiver = new SqsMessageQueueReceiverEndpoint("channelName", new MessageInterceptorRegistry(), sqsAsyncClient, newSingleThreadExecutor(), null, sqsProperties(10));
+        sqsQueueReceiver.register(MessageConsumer.of(".*", String.class, (message) -> {
+            try {
+                // slow consumer, that is waiting until the visibility of the message is extended
+                visibilityExtended.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            messages.add(message);
+        }));
+
+        // when: consumption is started
+        sqsQueueReceiver.consume();
+
+        // then:
+        await()
+                .atMost(5, TimeUnit.SECONDS)
+                .until(() -> messages.size() == 1);
+        assertThat(visibilityRequests.size() >= 1, is(true));
+        final ChangeMessageVisibilityBatchRequestEntry entry = visibilityRequests.get(0).entries().get(0);
+        assertThat(entry.receiptHandle(), is("receipt-handle-1"));
+        assertThat(entry.visibilityTimeout(), is(3));
+        assertThat(visibilityRequests.get(0).queueUrl(), is(QUEUE_URL));
+    }
+
     @Test
     public void shouldInterceptMessages() {
         // given:
@@ -311,7 +475,9 @@ public class SqsMessageQueueReceiverEndpointTest {
 
         // and:
         // expect the message to be deleted
-        verify(sqsAsyncClient, times(2)).deleteMessage(any(DeleteMessageRequest.class));
+        await()
+                .atMost(5, TimeUnit.SECONDS)
+                .until(() -> deletedReceiptHandles.size() == 2);
     }
 
     @Test(expected = RuntimeException.class)
@@ -325,15 +491,13 @@ public class SqsMessageQueueReceiverEndpointTest {
     }
 
     private void expectExceptionToBeThrownAndNotDeleteMessage() throws Throwable{
-        ArgumentCaptor<DeleteMessageRequest> deleteRequestCaptor = ArgumentCaptor.forClass(DeleteMessageRequest.class);
-
         try {
             sqsQueueReceiver.consume().get();
             fail();
         } catch (ExecutionException e) {
             // and:
-            // expect delete message to be executed
-            verify(sqsAsyncClient, never()).deleteMessage(deleteRequestCaptor.capture());
+            // expect no message to be deleted
+            verify(sqsAsyncClient, never()).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
             throw e.getCause();
         }
     }
@@ -354,9 +518,28 @@ public class SqsMessageQueueReceiverEndpointTest {
                 .thenReturn(CompletableFuture.completedFuture(emptyResponse));
     }
 
+    private SqsProperties sqsProperties(final int deleteBatchLingerMillis) {
+        final SqsProperties sqsProperties = new SqsProperties();
+        sqsProperties.getReceiver().setWaitTimeSeconds(1);
+        sqsProperties.getReceiver().setVisibilityTimeoutSeconds(3);
+        sqsProperties.getReceiver().setDeleteBatchLingerMillis(deleteBatchLingerMillis);
+        return sqsProperties;
+    }
+
+    private software.amazon.awssdk.services.sqs.model.Message sqsMessage(String key, String messageGroupId, String body) {
+        return software.amazon.awssdk.services.sqs.model.Message
+                .builder()
+                .receiptHandle("receipt-handle-" + receiptHandles.incrementAndGet())
+                .attributes(singletonMap(MessageSystemAttributeName.MESSAGE_GROUP_ID, messageGroupId))
+                .messageAttributes(singletonMap(MSG_KEY_ATTR, MessageAttributeValue.builder().dataType("String").stringValue(key).build()))
+                .body(body)
+                .build();
+    }
+
     private software.amazon.awssdk.services.sqs.model.Message sqsMessage(String key, String body) {
         return software.amazon.awssdk.services.sqs.model.Message
                 .builder()
+                .receiptHandle("receipt-handle-" + receiptHandles.incrementAndGet())
                 .messageAttributes(singletonMap(MSG_KEY_ATTR, MessageAttributeValue.builder().dataType("String").stringValue(key).build()))
                 .body(body)
                 .build();
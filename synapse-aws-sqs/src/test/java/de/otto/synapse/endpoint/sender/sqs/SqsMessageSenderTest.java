@@ -17,15 +17,23 @@ import org.mockito.junit.MockitoJUnitRunner;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 import software.amazon.awssdk.services.sqs.model.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static com.google.common.collect.ImmutableMap.of;
 import static de.otto.synapse.endpoint.MessageInterceptorRegistration.senderChannelsWith;
 import static de.otto.synapse.message.Message.message;
+import static java.time.Duration.ofMillis;
 import static java.util.Arrays.asList;
+import static java.util.Collections.synchronizedList;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -250,6 +258,150 @@ public class SqsMessageSenderTest {
         assertThat(requestArgumentCaptor.getValue().messageBody(), is(nullValue()));
     }
 
+    @Test
+    public void shouldSplitBatchIntoRequestsOfTenMessages() {
+        // given
+        sqsMessageSender = tunedSqsMessageSender(0);
+        final List<SendMessageBatchRequest> requests = respondWithSuccess();
+
+        // when
+        sqsMessageSender.sendBatch(IntStream.range(0, 25)
+                .mapToObj(i -> message("key-" + i, new ExampleJsonObject("value-" + i)))).join();
+
+        // then
+        assertThat(requests, hasSize(3));
+        assertThat(requests.get(0).entries(), hasSize(10));
+        assertThat(requests.get(1).entries(), hasSize(10));
+        assertThat(requests.get(2).entries(), hasSize(5));
+        assertThat(requests.get(2).entries().get(4).messageBody(), is("{\"value\":\"value-24\"}"));
+    }
+
+    @Test
+    public void shouldSplitBatchIntoRequestsOfLimitedSize() {
+        // given
+        sqsMessageSender = tunedSqsMessageSender(0);
+        final List<SendMessageBatchRequest> requests = respondWithSuccess();
+        final String largeValue = "x".repeat(100 * 1024);
+
+        // when
+        sqsMessageSender.sendBatch(Stream.of(
+                message("a", new ExampleJsonObject(largeValue)),
+                message("b", new ExampleJsonObject(largeValue)),
+                message("c", new ExampleJsonObject(largeValue))
+        )).join();
+
+        // then
+        assertThat(requests, hasSize(2));
+        assertThat(requests.get(0).entries(), hasSize(2));
+        assertThat(requests.get(1).entries(), hasSize(1));
+    }
+
+    @Test
+    public void shouldOnlyResendFailedMessages() {
+        // given
+        sqsMessageSender = tunedSqsMessageSender(0);
+        final List<SendMessageBatchRequest> requests = synchronizedList(new ArrayList<>());
+        when(sqsAsyncClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenAnswer(invocation -> {
+                    requests.add(invocation.getArgument(0));
+                    return completedFuture(SendMessageBatchResponse.builder()
+                            .successful(SendMessageBatchResultEntry.builder().id("0").build())
+                            .failed(BatchResultErrorEntry.builder().id("1").code("InternalError").senderFault(false).build())
+                            .build());
+                })
+                .thenAnswer(invocation -> {
+                    requests.add(invocation.getArgument(0));
+                    return completedFuture(SendMessageBatchResponse.builder()
+                            .successful(SendMessageBatchResultEntry.builder().id("0").build())
+                            .build());
+                });
+
+        // when
+        sqsMessageSender.sendBatch(Stream.of(
+                message("a", new ExampleJsonObject("apple")),
+                message("b", new ExampleJsonObject("banana"))
+        )).join();
+
+        // then
+        assertThat(requests, hasSize(2));
+        assertThat(requests.get(1).entries(), hasSize(1));
+        assertThat(requests.get(1).entries().get(0).messageBody(), is("{\"value\":\"banana\"}"));
+    }
+
+    @Test
+    public void shouldNotResendMessagesFailedBecauseOfSenderFault() {
+        // given
+        sqsMessageSender = tunedSqsMessageSender(0);
+        when(sqsAsyncClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(completedFuture(SendMessageBatchResponse.builder()
+                .failed(BatchResultErrorEntry.builder().id("0").code("InvalidMessageContents").senderFault(true).build())
+                .build()));
+
+        // when
+        final CompletableFuture<Void> result = sqsMessageSender.sendBatch(Stream.of(
+                message("a", new ExampleJsonObject("apple"))
+        ));
+
+        // then
+        final CompletionException exception = assertThrows(CompletionException.class, result::join);
+        assertThat(exception.getCause(), is(instanceOf(SqsSendException.class)));
+        assertThat(((SqsSendException) exception.getCause()).isSenderFault(), is(true));
+        verify(sqsAsyncClient, times(1)).sendMessageBatch(any(SendMessageBatchRequest.class));
+    }
+
+    @Test
+    public void shouldFailAfterMaxRetries() {
+        // given
+        sqsMessageSender = tunedSqsMessageSender(0);
+        when(sqsAsyncClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(completedFuture(SendMessageBatchResponse.builder()
+                .failed(BatchResultErrorEntry.builder().id("0").code("InternalError").senderFault(false).build())
+                .build()));
+
+        // when
+        final CompletableFuture<Void> result = sqsMessageSender.sendBatch(Stream.of(
+                message("a", new ExampleJsonObject("apple"))
+        ));
+
+        // then
+        final CompletionException exception = assertThrows(CompletionException.class, result::join);
+        assertThat(exception.getCause(), is(instanceOf(SqsSendException.class)));
+        verify(sqsAsyncClient, times(15)).sendMessageBatch(any(SendMessageBatchRequest.class));
+    }
+
+    @Test
+    public void shouldSendSingleMessagesInBatchesIfLingerIsEnabled() {
+        // given
+        final List<SendMessageBatchRequest> requests = respondWithSuccess();
+        sqsMessageSender = tunedSqsMessageSender(50);
+
+        // when
+        final CompletableFuture<Void> first = sqsMessageSender.send(message("a", new ExampleJsonObject("apple")));
+        final CompletableFuture<Void> second = sqsMessageSender.send(message("b", new ExampleJsonObject("banana")));
+        CompletableFuture.allOf(first, second).join();
+
+        // then
+        assertThat(requests, hasSize(1));
+        assertThat(requests.get(0).entries(), hasSize(2));
+        verify(sqsAsyncClient, never()).sendMessage(any(SendMessageRequest.class));
+    }
+
+    private SqsMessageSender tunedSqsMessageSender(final long lingerMillis) {
+        return new SqsMessageSender("test", "https://example.com/test", interceptorRegistry, messageTranslator, sqsAsyncClient, 2, lingerMillis, ofMillis(1), ofMillis(10));
+    }
+
+    private List<SendMessageBatchRequest> respondWithSuccess() {
+        final List<SendMessageBatchRequest> requests = synchronizedList(new ArrayList<>());
+        when(sqsAsyncClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenAnswer(invocation -> {
+            final SendMessageBatchRequest request = invocation.getArgument(0);
+            requests.add(request);
+            return completedFuture(SendMessageBatchResponse.builder()
+                    .successful(request.entries().stream()
+                            .map(entry -> SendMessageBatchResultEntry.builder().id(entry.id()).build())
+                            .toArray(SendMessageBatchResultEntry[]::new))
+                    .build());
+        });
+        return requests;
+    }
+
     private static class ExampleJsonObject {
         @JsonProperty
         private String value;
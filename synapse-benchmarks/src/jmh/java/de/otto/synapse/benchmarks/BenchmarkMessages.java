@@ -0,0 +1,101 @@
+package de.otto.synapse.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import de.otto.synapse.message.Header;
+import de.otto.synapse.message.Key;
+import de.otto.synapse.message.TextMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
+
+/**
+ * Test data shared by the benchmarks: messages having JSON payloads of a given size and realistic headers.
+ */
+public final class BenchmarkMessages {
+
+    private BenchmarkMessages() {
+    }
+
+    /**
+     * Creates a JSON object having approximately the given size in bytes.
+     *
+     * @param key the id of the entity
+     * @param sizeBytes the approximate size of the JSON
+     * @return JSON object
+     */
+    public static String jsonPayload(final String key, final int sizeBytes) {
+        final StringBuilder json = new StringBuilder(sizeBytes + 64);
+        json.append("{\"id\":\"").append(key).append("\",\"price\":4711,\"available\":true,\"attributes\":[");
+        int i = 0;
+        while (json.length() < sizeBytes) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"attribute-").append(i).append("\",\"value\":\"some value of ").append(key).append("\"}");
+            ++i;
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Creates a message with a JSON payload of approximately the given size.
+     *
+     * @param key the partition- and compaction key of the message
+     * @param payloadSizeBytes the approximate size of the payload
+     * @return TextMessage
+     */
+    public static TextMessage textMessage(final String key, final int payloadSizeBytes) {
+        return TextMessage.of(
+                Key.of(key),
+                Header.builder()
+                        .withShardPosition(fromPosition("shard-0001", "49590338271490256608559692538361571095921575989136588898"))
+                        .withAttribute("synapse_msg_sender", "synapse-benchmarks")
+                        .withAttribute("traceId", "7c4b1d0e-0d6a-4c4b-8e2d-1b2b1d0e0d6a")
+                        .build(),
+                jsonPayload(key, payloadSizeBytes));
+    }
+
+    /**
+     * Creates {@code count} messages with different keys, and JSON payloads of approximately the given size.
+     *
+     * @param count the number of messages
+     * @param payloadSizeBytes the approximate size of the payloads
+     * @return list of messages
+     */
+    public static List<TextMessage> textMessages(final int count, final int payloadSizeBytes) {
+        final List<TextMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(textMessage(key(i), payloadSizeBytes));
+        }
+        return messages;
+    }
+
+    /**
+     * Returns the key of the i-th entity.
+     *
+     * @param i the number of the entity
+     * @return key
+     */
+    public static String key(final int i) {
+        return "product-" + i;
+    }
+
+    /**
+     * The entity contained in the {@link #jsonPayload(String, int) JSON payloads}.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Product {
+        public String id;
+        public long price;
+        public boolean available;
+        public List<Attribute> attributes;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Attribute {
+        public String name;
+        public String value;
+    }
+}
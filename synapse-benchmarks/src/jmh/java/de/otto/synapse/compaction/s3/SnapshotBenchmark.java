@@ -0,0 +1,115 @@
+package de.otto.synapse.compaction.s3;
+
+import de.otto.synapse.channel.ChannelPosition;
+import de.otto.synapse.configuration.aws.SnapshotProperties;
+import de.otto.synapse.consumer.MessageConsumer;
+import de.otto.synapse.consumer.MessageDispatcher;
+import de.otto.synapse.message.TextMessage;
+import de.otto.synapse.messagestore.aws.S3SnapshotMessageStore;
+import de.otto.synapse.state.ConcurrentMapStateRepository;
+import de.otto.synapse.state.StateRepository;
+import de.otto.synapse.translator.MessageFormat;
+import de.otto.synapse.translator.TextEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static de.otto.synapse.benchmarks.BenchmarkMessages.textMessages;
+import static de.otto.synapse.channel.ChannelPosition.channelPosition;
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
+
+/**
+ * Benchmarks writing and parsing snapshots of a channel having {@code numberOfEntries} entries.
+ *
+ * <p>
+ *     The snapshots are written to and read from local temp files, so the benchmarks do not depend on S3.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SnapshotBenchmark {
+
+    private static final String CHANNEL_NAME = "benchmark-channel";
+
+    @Param({"100000"})
+    public int numberOfEntries;
+
+    @Param({"1", "4"})
+    public int numberOfThreads;
+
+    private final ChannelPosition channelPosition = channelPosition(fromPosition("shard-0001", "4711"));
+
+    private StateRepository<String> stateRepository;
+    private SnapshotProperties properties;
+    private SnapshotWriteService snapshotWriteService;
+    private SnapshotReadService snapshotReadService;
+    private File snapshotFile;
+
+    @Setup
+    public void setup() throws IOException {
+        final TextEncoder encoder = new TextEncoder(MessageFormat.V2);
+        stateRepository = new ConcurrentMapStateRepository<>("benchmark");
+        for (final TextMessage message : textMessages(numberOfEntries, 512)) {
+            stateRepository.put(message.getKey().compactionKey(), encoder.apply(message));
+        }
+        properties = new SnapshotProperties();
+        properties.setBucketName("benchmark-bucket");
+        properties.setWriterThreads(numberOfThreads);
+        properties.setReaderThreads(numberOfThreads);
+        properties.setReaderPrefetchChunks(2 * numberOfThreads);
+        properties.setChunkSizeBytes(1024 * 1024);
+        // the S3Client is only used to upload or download snapshots:
+        snapshotWriteService = new SnapshotWriteService(null, properties);
+        snapshotReadService = new SnapshotReadService(properties, null);
+        snapshotFile = snapshotWriteService.createSnapshot(CHANNEL_NAME, channelPosition, stateRepository);
+        snapshotReadService.setSnapshotFile(snapshotFile);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        stateRepository.close();
+        snapshotFile.delete();
+    }
+
+    @Benchmark
+    public long writeSnapshot() throws IOException {
+        final File file = snapshotWriteService.createSnapshot(CHANNEL_NAME, channelPosition, stateRepository);
+        final long length = file.length();
+        file.delete();
+        return length;
+    }
+
+    @Benchmark
+    public void readSnapshotInParallel(final Blackhole blackhole) throws IOException {
+        try (ParallelSnapshotReader reader = ParallelSnapshotReader.open(SnapshotSource.of(snapshotFile),
+                snapshotReadService.getSnapshotCompression(), numberOfThreads, 2 * numberOfThreads).orElseThrow()) {
+            reader.stream().forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public ChannelPosition parseSnapshot(final Blackhole blackhole) {
+        final MessageDispatcher messageDispatcher = new MessageDispatcher();
+        messageDispatcher.add(MessageConsumer.of(".*", String.class, blackhole::consume));
+        return new SnapshotParser().parse(snapshotFile, messageDispatcher);
+    }
+
+    @Benchmark
+    public void streamS3SnapshotMessageStore(final Blackhole blackhole) {
+        try (S3SnapshotMessageStore messageStore = new S3SnapshotMessageStore(CHANNEL_NAME, snapshotReadService, null)) {
+            messageStore.stream().forEach(blackhole::consume);
+        }
+    }
+}
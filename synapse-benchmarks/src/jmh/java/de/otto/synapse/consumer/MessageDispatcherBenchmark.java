@@ -0,0 +1,95 @@
+package de.otto.synapse.consumer;
+
+import de.otto.synapse.benchmarks.BenchmarkMessages.Product;
+import de.otto.synapse.message.TextMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static de.otto.synapse.benchmarks.BenchmarkMessages.textMessages;
+
+/**
+ * Benchmarks the fan-out of messages by the {@link MessageDispatcher} to a number of {@link MessageConsumer consumers}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MessageDispatcherBenchmark {
+
+    private static final int NUMBER_OF_MESSAGES = 1000;
+
+    @Param({"1", "8", "32"})
+    public int numberOfConsumers;
+
+    /**
+     * The key patterns of the consumers:
+     * <ul>
+     *     <li>{@code matchAll}: every consumer is accepting all messages,</li>
+     *     <li>{@code mixed}: a mix of literal, prefix and regex patterns, so every message is accepted by some of the
+     *     consumers.</li>
+     * </ul>
+     */
+    @Param({"matchAll", "mixed"})
+    public String keyPatterns;
+
+    /**
+     * The payload types of the consumers: {@code String}, {@code Product}, or both.
+     */
+    @Param({"string", "object", "mixed"})
+    public String payloadTypes;
+
+    private List<TextMessage> messages;
+    private MessageDispatcher dispatcher;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        messages = textMessages(NUMBER_OF_MESSAGES, 512);
+        final List<MessageConsumer<?>> consumers = new ArrayList<>();
+        for (int i = 0; i < numberOfConsumers; i++) {
+            final String keyPattern = keyPattern(i);
+            final boolean stringPayload = "string".equals(payloadTypes)
+                    || ("mixed".equals(payloadTypes) && i % 2 == 0);
+            if (stringPayload) {
+                consumers.add(MessageConsumer.of(keyPattern, String.class, blackhole::consume));
+            } else {
+                consumers.add(MessageConsumer.of(keyPattern, Product.class, blackhole::consume));
+            }
+        }
+        dispatcher = new MessageDispatcher(consumers);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_MESSAGES)
+    public void dispatch() {
+        for (final TextMessage message : messages) {
+            dispatcher.accept(message);
+        }
+    }
+
+    private String keyPattern(final int i) {
+        if ("matchAll".equals(keyPatterns)) {
+            return ".*";
+        }
+        switch (i % 4) {
+            case 0:
+                return ".*";
+            case 1:
+                return "product-" + i;
+            case 2:
+                return "product-" + (i % 10) + ".*";
+            default:
+                return "product-[0-9]*" + (i % 10);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package de.otto.synapse.consumer;
+
+import de.otto.synapse.endpoint.MethodInvokingMessageInterceptor;
+import de.otto.synapse.message.Message;
+import de.otto.synapse.message.TextMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static de.otto.synapse.benchmarks.BenchmarkMessages.textMessages;
+
+/**
+ * Compares calling annotated consumer and interceptor methods using {@link Method#invoke(Object, Object...)} with
+ * the invokers bound by {@link MethodInvokingMessageConsumer} and {@link MethodInvokingMessageInterceptor}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MethodInvokingMessageConsumerBenchmark {
+
+    private static final int NUMBER_OF_MESSAGES = 1000;
+
+    public static class AnnotatedBean {
+        private Blackhole blackhole;
+
+        public void consume(final Message<String> message) {
+            blackhole.consume(message);
+        }
+
+        public Message<String> intercept(final Message<String> message) {
+            return message;
+        }
+    }
+
+    private List<TextMessage> messages;
+    private AnnotatedBean bean;
+    private Method consumerMethod;
+    private Method interceptorMethod;
+    private MethodInvokingMessageConsumer<String> consumer;
+    private MethodInvokingMessageInterceptor interceptor;
+
+    @Setup
+    public void setup(final Blackhole blackhole) throws NoSuchMethodException {
+        messages = textMessages(NUMBER_OF_MESSAGES, 512);
+        bean = new AnnotatedBean();
+        bean.blackhole = blackhole;
+        consumerMethod = AnnotatedBean.class.getMethod("consume", Message.class);
+        interceptorMethod = AnnotatedBean.class.getMethod("intercept", Message.class);
+        consumer = new MethodInvokingMessageConsumer<>(".*", String.class, bean, consumerMethod);
+        interceptor = new MethodInvokingMessageInterceptor(bean, interceptorMethod);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_MESSAGES)
+    public void reflectiveConsumer() throws InvocationTargetException, IllegalAccessException {
+        for (final TextMessage message : messages) {
+            consumerMethod.invoke(bean, message);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_MESSAGES)
+    public void boundConsumer() {
+        for (final TextMessage message : messages) {
+            consumer.accept(message);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_MESSAGES)
+    public void reflectiveInterceptor(final Blackhole blackhole) throws InvocationTargetException, IllegalAccessException {
+        for (final TextMessage message : messages) {
+            blackhole.consume(interceptorMethod.invoke(bean, message));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_MESSAGES)
+    public void boundInterceptor(final Blackhole blackhole) {
+        for (final TextMessage message : messages) {
+            blackhole.consume(interceptor.intercept(message));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package de.otto.synapse.endpoint;
+
+import com.google.common.collect.ImmutableList;
+import de.otto.synapse.message.Header;
+import de.otto.synapse.message.TextMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static de.otto.synapse.benchmarks.BenchmarkMessages.textMessages;
+import static de.otto.synapse.endpoint.MessageFilter.messageFilter;
+
+/**
+ * Benchmarks an {@link InterceptorChain} consisting of filters and interceptors that are modifying the header of
+ * the intercepted messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class InterceptorChainBenchmark {
+
+    private static final int NUMBER_OF_MESSAGES = 1000;
+
+    @Param({"0", "1", "4", "16"})
+    public int numberOfInterceptors;
+
+    private List<TextMessage> messages;
+    private InterceptorChain interceptorChain;
+
+    @Setup
+    public void setup() {
+        messages = textMessages(NUMBER_OF_MESSAGES, 512);
+        final ImmutableList.Builder<MessageInterceptor> interceptors = ImmutableList.builder();
+        for (int i = 0; i < numberOfInterceptors; i++) {
+            if (i % 2 == 0) {
+                interceptors.add(messageFilter(message -> message.getPayload() != null));
+            } else {
+                final String attribute = "interceptor-" + i;
+                interceptors.add(message -> TextMessage.of(
+                        message.getKey(),
+                        Header.copyOf(message.getHeader()).withAttribute(attribute, "intercepted").build(),
+                        message.getPayload()));
+            }
+        }
+        interceptorChain = new InterceptorChain(interceptors.build());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_MESSAGES)
+    public void intercept(final Blackhole blackhole) {
+        for (final TextMessage message : messages) {
+            blackhole.consume(interceptorChain.intercept(message));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package de.otto.synapse.endpoint.receiver.kinesis;
+
+import de.otto.synapse.message.TextMessage;
+import de.otto.synapse.translator.MessageFormat;
+import de.otto.synapse.translator.TextEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.kinesis.model.Record;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static de.otto.synapse.benchmarks.BenchmarkMessages.textMessages;
+
+/**
+ * Benchmarks the {@link KinesisDecoder}, decoding the records of a single GetRecords response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class KinesisDecoderBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Param({"V1", "V2"})
+    public MessageFormat messageFormat;
+
+    @Param({"256", "4096"})
+    public int payloadSizeBytes;
+
+    private List<RecordWithShard> records;
+    private KinesisDecoder decoder;
+
+    @Setup
+    public void setup() {
+        final TextEncoder encoder = new TextEncoder(messageFormat);
+        final Instant now = Instant.now();
+        records = new ArrayList<>(BATCH_SIZE);
+        long sequenceNumber = 4959033827149025660L;
+        for (final TextMessage message : textMessages(BATCH_SIZE, payloadSizeBytes)) {
+            final Record record = Record.builder()
+                    .partitionKey(message.getKey().partitionKey())
+                    .sequenceNumber(String.valueOf(sequenceNumber++))
+                    .approximateArrivalTimestamp(now)
+                    .data(SdkBytes.fromByteArray(encoder.applyAsUtf8(message)))
+                    .build();
+            records.add(new RecordWithShard("shard-0001", record));
+        }
+        decoder = new KinesisDecoder();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void decode(final Blackhole blackhole) {
+        for (final RecordWithShard record : records) {
+            blackhole.consume(decoder.apply(record));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void decodeAll(final Blackhole blackhole) {
+        for (final RecordWithShard record : records) {
+            blackhole.consume(decoder.decodeAll(record));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void decodeAndGetPayload(final Blackhole blackhole) {
+        for (final RecordWithShard record : records) {
+            blackhole.consume(decoder.apply(record).getPayload());
+        }
+    }
+}
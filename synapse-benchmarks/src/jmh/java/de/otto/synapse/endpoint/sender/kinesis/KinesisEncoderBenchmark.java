@@ -0,0 +1,70 @@
+package de.otto.synapse.endpoint.sender.kinesis;
+
+import de.otto.synapse.message.TextMessage;
+import de.otto.synapse.translator.MessageFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsRequestEntry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static de.otto.synapse.benchmarks.BenchmarkMessages.textMessages;
+
+/**
+ * Benchmarks the {@link KinesisEncoder}, encoding batches of messages like the {@link KinesisMessageSender}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class KinesisEncoderBenchmark {
+
+    /** The max number of records of a single PutRecords request. */
+    private static final int BATCH_SIZE = 500;
+
+    @Param({"V1", "V2"})
+    public MessageFormat messageFormat;
+
+    @Param({"256", "4096"})
+    public int payloadSizeBytes;
+
+    private List<TextMessage> messages;
+    private KinesisEncoder encoder;
+    private KinesisEncoder trustingEncoder;
+
+    @Setup
+    public void setup() {
+        messages = textMessages(BATCH_SIZE, payloadSizeBytes);
+        encoder = new KinesisEncoder(messageFormat);
+        trustingEncoder = new KinesisEncoder(messageFormat, true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void encode(final Blackhole blackhole) {
+        for (final TextMessage message : messages) {
+            blackhole.consume(encoder.apply(message));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void encodeTrustedPayloads(final Blackhole blackhole) {
+        for (final TextMessage message : messages) {
+            blackhole.consume(trustingEncoder.apply(message));
+        }
+    }
+
+    @Benchmark
+    public PutRecordsRequestEntry encodeSingleMessage() {
+        return encoder.apply(messages.get(0));
+    }
+}
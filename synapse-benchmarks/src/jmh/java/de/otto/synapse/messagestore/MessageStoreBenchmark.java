@@ -0,0 +1,94 @@
+package de.otto.synapse.messagestore;
+
+import de.otto.synapse.message.TextMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static de.otto.synapse.benchmarks.BenchmarkMessages.textMessages;
+import static de.otto.synapse.messagestore.Indexers.partitionKeyIndexer;
+
+/**
+ * Benchmarks the in-memory {@link MessageStore} implementations of synapse-core.
+ *
+ * <p>
+ *     The Redis message stores are benchmarked by the {@code RedisMessageStoreBenchmark}, the
+ *     {@code S3SnapshotMessageStore} by the {@code SnapshotBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MessageStoreBenchmark {
+
+    private static final String CHANNEL_NAME = "benchmark-channel";
+    private static final int NUMBER_OF_MESSAGES = 10000;
+
+    @Param({"onHeapRingBuffer", "onHeapIndexing", "onHeapCompacting", "offHeapIndexing"})
+    public String messageStore;
+
+    private List<MessageStoreEntry> entries;
+    private MessageStore filledMessageStore;
+
+    @Setup
+    public void setup() {
+        entries = textMessages(NUMBER_OF_MESSAGES, 512)
+                .stream()
+                .map((TextMessage message) -> MessageStoreEntry.of(CHANNEL_NAME, message))
+                .toList();
+        filledMessageStore = createMessageStore();
+        entries.forEach(filledMessageStore::add);
+    }
+
+    @TearDown
+    public void tearDown() {
+        filledMessageStore.close();
+    }
+
+    /**
+     * Adds all entries to a new message store. The message store is created for every invocation, so the unbounded
+     * message stores are not growing during the benchmark.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_MESSAGES)
+    public long add() {
+        try (MessageStore messageStore = createMessageStore()) {
+            for (final MessageStoreEntry entry : entries) {
+                messageStore.add(entry);
+            }
+            return messageStore.size();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_MESSAGES)
+    public void stream(final Blackhole blackhole) {
+        filledMessageStore.stream().forEach(blackhole::consume);
+    }
+
+    private MessageStore createMessageStore() {
+        switch (messageStore) {
+            case "onHeapRingBuffer":
+                return new OnHeapRingBufferMessageStore(NUMBER_OF_MESSAGES);
+            case "onHeapIndexing":
+                return new OnHeapIndexingMessageStore(partitionKeyIndexer());
+            case "onHeapCompacting":
+                return new OnHeapCompactingMessageStore(true);
+            case "offHeapIndexing":
+                return new OffHeapIndexingMessageStore("benchmark", partitionKeyIndexer());
+            default:
+                throw new IllegalArgumentException("Unknown MessageStore " + messageStore);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package de.otto.synapse.messagestore.redis;
+
+import de.otto.synapse.messagestore.MessageStore;
+import de.otto.synapse.messagestore.MessageStoreEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static de.otto.synapse.benchmarks.BenchmarkMessages.textMessages;
+import static de.otto.synapse.messagestore.Indexers.partitionKeyIndexer;
+
+/**
+ * Benchmarks the Redis {@link MessageStore} implementations.
+ *
+ * <p>
+ *     The benchmark requires a running Redis server. Host and port of the server are configured using the system
+ *     properties {@code synapse.benchmarks.redis.host} and {@code synapse.benchmarks.redis.port}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RedisMessageStoreBenchmark {
+
+    private static final String CHANNEL_NAME = "benchmark-channel";
+    private static final int NUMBER_OF_MESSAGES = 1000;
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"redisRingBuffer", "redisIndexed"})
+    public String messageStore;
+
+    private LettuceConnectionFactory connectionFactory;
+    private List<MessageStoreEntry> entries;
+    private MessageStore redisMessageStore;
+
+    @Setup
+    public void setup() {
+        final RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                System.getProperty("synapse.benchmarks.redis.host", "localhost"),
+                Integer.getInteger("synapse.benchmarks.redis.port", 6379));
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        final StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+
+        switch (messageStore) {
+            case "redisRingBuffer":
+                redisMessageStore = new RedisRingBufferMessageStore("benchmark-ringbuffer", BATCH_SIZE, NUMBER_OF_MESSAGES, redisTemplate);
+                break;
+            case "redisIndexed":
+                redisMessageStore = new RedisIndexedMessageStore("benchmark-indexed", BATCH_SIZE, NUMBER_OF_MESSAGES, 3600, partitionKeyIndexer(), redisTemplate);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown MessageStore " + messageStore);
+        }
+        entries = textMessages(NUMBER_OF_MESSAGES, 512)
+                .stream()
+                .map(message -> MessageStoreEntry.of(CHANNEL_NAME, message))
+                .toList();
+        entries.forEach(redisMessageStore::add);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (redisMessageStore instanceof RedisRingBufferMessageStore) {
+            ((RedisRingBufferMessageStore) redisMessageStore).clear();
+        } else if (redisMessageStore instanceof RedisIndexedMessageStore) {
+            ((RedisIndexedMessageStore) redisMessageStore).clear();
+        }
+        redisMessageStore.close();
+        connectionFactory.destroy();
+    }
+
+    /**
+     * Adds entries to the message store. The size of the message stores is limited, so older entries are evicted.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_MESSAGES)
+    public void add() {
+        for (final MessageStoreEntry entry : entries) {
+            redisMessageStore.add(entry);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_MESSAGES)
+    public void stream(final Blackhole blackhole) {
+        redisMessageStore.stream().forEach(blackhole::consume);
+    }
+}
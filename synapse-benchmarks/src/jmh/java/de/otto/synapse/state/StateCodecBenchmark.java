@@ -0,0 +1,73 @@
+package de.otto.synapse.state;
+
+import de.otto.synapse.benchmarks.BenchmarkMessages.Attribute;
+import de.otto.synapse.benchmarks.BenchmarkMessages.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link StateCodec StateCodecs} used to serialize the values of off-heap state repositories.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StateCodecBenchmark {
+
+    @Param({"json", "smile"})
+    public String codecName;
+
+    private StateCodec<Product> codec;
+    private Product product;
+    private byte[] encoded;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+
+    @Setup
+    public void setup() throws IOException {
+        switch (codecName) {
+            case "json":
+                codec = StateCodec.json(Product.class);
+                break;
+            case "smile":
+                codec = StateCodec.smile(Product.class);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown StateCodec " + codecName);
+        }
+        product = new Product();
+        product.id = "some product";
+        product.price = 4711;
+        product.available = true;
+        product.attributes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final Attribute attribute = new Attribute();
+            attribute.name = "attribute-" + i;
+            attribute.value = "some value of attribute " + i;
+            product.attributes.add(attribute);
+        }
+        codec.encode(product, buffer);
+        encoded = buffer.toByteArray();
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        buffer.reset();
+        codec.encode(product, buffer);
+        return buffer.size();
+    }
+
+    @Benchmark
+    public Product decode() throws IOException {
+        return codec.decode(encoded, 0, encoded.length);
+    }
+}
@@ -0,0 +1,162 @@
+package de.otto.synapse.state;
+
+import de.otto.synapse.benchmarks.BenchmarkMessages.Attribute;
+import de.otto.synapse.benchmarks.BenchmarkMessages.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static de.otto.synapse.benchmarks.BenchmarkMessages.key;
+
+/**
+ * Benchmarks the {@link StateRepository} implementations, using a repository that is holding {@code numberOfEntries}
+ * products.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StateRepositoryBenchmark {
+
+    @Param({"concurrentMap", "chronicleMap", "chronicleMapSmile", "nitrite"})
+    public String repository;
+
+    @Param({"10000"})
+    public int numberOfEntries;
+
+    @Param({"100"})
+    public int batchSize;
+
+    private StateRepository<Product> stateRepository;
+    private Product product;
+
+    @Setup
+    public void setup() {
+        switch (repository) {
+            case "concurrentMap":
+                stateRepository = new ConcurrentMapStateRepository<>("benchmark");
+                break;
+            case "chronicleMap":
+                stateRepository = ChronicleMapStateRepository.builder(Product.class).withName("benchmark").build();
+                break;
+            case "chronicleMapSmile":
+                stateRepository = ChronicleMapStateRepository.builder(Product.class)
+                        .withName("benchmark")
+                        .withStateCodec(StateCodec.smile(Product.class))
+                        .build();
+                break;
+            case "nitrite":
+                stateRepository = NitriteStateRepository.builder(Product.class).withName("benchmark").build();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown StateRepository " + repository);
+        }
+        product = product("some product");
+        for (int i = 0; i < numberOfEntries; i++) {
+            stateRepository.put(key(i), product(key(i)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        stateRepository.close();
+    }
+
+    @Benchmark
+    public Optional<Product> get(final Cursor cursor) {
+        return stateRepository.get(key(cursor.next(numberOfEntries)));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<Product> getConcurrently(final Cursor cursor) {
+        return stateRepository.get(key(cursor.next(numberOfEntries)));
+    }
+
+    @Benchmark
+    public Optional<Product> compute(final Cursor cursor) {
+        return stateRepository.compute(key(cursor.next(numberOfEntries)), (key, previous) -> product);
+    }
+
+    @Benchmark
+    public Optional<Product> putAndRemove(final Cursor cursor) {
+        final String key = "new-" + cursor.next(numberOfEntries);
+        stateRepository.put(key, product);
+        return stateRepository.remove(key);
+    }
+
+    @Benchmark
+    public Map<String, Product> getAll(final Cursor cursor) {
+        return stateRepository.getAll(cursor.nextKeys(batchSize, numberOfEntries));
+    }
+
+    @Benchmark
+    public void computeAll(final Cursor cursor) {
+        stateRepository.computeAll(cursor.nextKeys(batchSize, numberOfEntries), (key, previous) -> product);
+    }
+
+    @Benchmark
+    public void putAllAndRemoveAll(final Cursor cursor) {
+        final Map<String, Product> entries = new LinkedHashMap<>();
+        for (final String key : cursor.nextKeys(batchSize, numberOfEntries)) {
+            entries.put("new-" + key, product);
+        }
+        stateRepository.putAll(entries);
+        stateRepository.removeAll(entries.keySet());
+    }
+
+    @Benchmark
+    public void consumeAll(final Blackhole blackhole) {
+        stateRepository.consumeAll((key, value) -> blackhole.consume(value));
+    }
+
+    private static Product product(final String id) {
+        final Product product = new Product();
+        product.id = id;
+        product.price = 4711;
+        product.available = true;
+        product.attributes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final Attribute attribute = new Attribute();
+            attribute.name = "attribute-" + i;
+            attribute.value = "some value of " + id;
+            product.attributes.add(attribute);
+        }
+        return product;
+    }
+
+    /**
+     * Iterates over the keys of the repository, one cursor per benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        int next(final int numberOfEntries) {
+            position = position + 1 < numberOfEntries ? position + 1 : 0;
+            return position;
+        }
+
+        List<String> nextKeys(final int batchSize, final int numberOfEntries) {
+            final List<String> keys = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                keys.add(key(next(numberOfEntries)));
+            }
+            return keys;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package de.otto.synapse.translator;
+
+import de.otto.synapse.message.Header;
+import de.otto.synapse.message.Key;
+import de.otto.synapse.message.TextMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import static de.otto.synapse.benchmarks.BenchmarkMessages.textMessage;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Benchmarks of the {@link TextEncoder} and the {@link AbstractTextDecoder}, encoding and decoding single messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TextCodecBenchmark {
+
+    @Param({"V1", "V2"})
+    public MessageFormat messageFormat;
+
+    @Param({"256", "4096"})
+    public int payloadSizeBytes;
+
+    private TextMessage message;
+    private TextEncoder encoder;
+    private TextEncoder trustingEncoder;
+    private TextDecoder decoder;
+    private BytesDecoder bytesDecoder;
+    private String encoded;
+    private byte[] encodedUtf8;
+
+    @Setup
+    public void setup() {
+        message = textMessage("product-42", payloadSizeBytes);
+        encoder = new TextEncoder(messageFormat);
+        trustingEncoder = new TextEncoder(messageFormat, true);
+        decoder = new TextDecoder();
+        bytesDecoder = new BytesDecoder();
+        encoded = encoder.apply(message);
+        encodedUtf8 = encoded.getBytes(UTF_8);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.apply(message);
+    }
+
+    @Benchmark
+    public byte[] encodeAsUtf8() {
+        return encoder.applyAsUtf8(message);
+    }
+
+    @Benchmark
+    public byte[] encodeTrustedPayloadAsUtf8() {
+        return trustingEncoder.applyAsUtf8(message);
+    }
+
+    @Benchmark
+    public TextMessage decode() {
+        return decoder.apply(encoded);
+    }
+
+    @Benchmark
+    public TextMessage decodeUtf8() {
+        return bytesDecoder.apply(encodedUtf8);
+    }
+
+    @Benchmark
+    public String decodeUtf8AndGetPayload() {
+        return bytesDecoder.apply(encodedUtf8).getPayload();
+    }
+
+    /**
+     * Decodes UTF-8 encoded messages, like the decoders of received Kinesis records.
+     */
+    private static final class BytesDecoder extends AbstractTextDecoder<byte[]> {
+        private final Header header = Header.of();
+
+        @Override
+        public TextMessage apply(final byte[] bytes) {
+            return decode(Key.of("product-42"), header, bytes);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package de.otto.synapse.compaction.s3;
+
+import de.otto.synapse.consumer.MessageConsumer;
+import de.otto.synapse.message.Message;
+import de.otto.synapse.translator.MessageFormat;
+import de.otto.synapse.translator.TextEncoder;
+import jakarta.annotation.Nonnull;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * A {@code MessageConsumer} that is collecting the changes of a channel since the last snapshot.
+ *
+ * <p>
+ *     The changes are held in a map that is sorted by the compaction keys of the messages. Deleted entries are
+ *     recorded as tombstones. This way, the delta can be merged with a sorted snapshot in a single pass, without
+ *     loading the whole snapshot into memory.
+ * </p>
+ */
+class CompactionDelta implements MessageConsumer<String> {
+
+    private final Pattern keyPattern = Pattern.compile(".*");
+    private final TextEncoder encoder;
+    private final TreeMap<String, String> changes = new TreeMap<>();
+
+    /**
+     * Creates a CompactionDelta.
+     *
+     * @param messageFormat the format used to write messages into the snapshot
+     */
+    CompactionDelta(final MessageFormat messageFormat) {
+        this.encoder = new TextEncoder(messageFormat);
+    }
+
+    @Nonnull
+    @Override
+    public Class<String> payloadType() {
+        return String.class;
+    }
+
+    @Nonnull
+    @Override
+    public Pattern keyPattern() {
+        return keyPattern;
+    }
+
+    @Override
+    public void accept(final Message<String> message) {
+        final String key = message.getKey().compactionKey();
+        if (message.getPayload() == null) {
+            // tombstone:
+            changes.put(key, null);
+        } else {
+            changes.put(key, encoder.apply(message));
+        }
+    }
+
+    /**
+     * Returns the number of changed or deleted keys.
+     *
+     * @return number of changes
+     */
+    long size() {
+        return changes.size();
+    }
+
+    /**
+     * Merges the changes with the entries of a snapshot. The merged entries are passed to {@code out} in the
+     * natural order of their keys.
+     *
+     * <p>
+     *     Changes are replacing the entries of the snapshot having the same key. Deleted entries are removed.
+     * </p>
+     *
+     * @param sortedSnapshot the entries of the snapshot, sorted by key
+     * @param out consumer of the merged entries
+     */
+    void merge(final Iterator<Map.Entry<String, String>> sortedSnapshot,
+               final BiConsumer<String, String> out) {
+        final Iterator<Map.Entry<String, String>> delta = changes.entrySet().iterator();
+        Map.Entry<String, String> snapshotEntry = next(sortedSnapshot);
+        Map.Entry<String, String> deltaEntry = next(delta);
+        while (snapshotEntry != null || deltaEntry != null) {
+            final int cmp = snapshotEntry == null
+                    ? 1
+                    : deltaEntry == null ? -1 : snapshotEntry.getKey().compareTo(deltaEntry.getKey());
+            if (cmp < 0) {
+                out.accept(snapshotEntry.getKey(), snapshotEntry.getValue());
+                snapshotEntry = next(sortedSnapshot);
+            } else {
+                if (deltaEntry.getValue() != null) {
+                    out.accept(deltaEntry.getKey(), deltaEntry.getValue());
+                }
+                if (cmp == 0) {
+                    snapshotEntry = next(sortedSnapshot);
+                }
+                deltaEntry = next(delta);
+            }
+        }
+    }
+
+    private static Map.Entry<String, String> next(final Iterator<Map.Entry<String, String>> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+}
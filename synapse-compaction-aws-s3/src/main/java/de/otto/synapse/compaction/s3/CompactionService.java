@@ -1,6 +1,8 @@
 package de.otto.synapse.compaction.s3;
 
 import de.otto.synapse.channel.ChannelPosition;
+import de.otto.synapse.configuration.aws.CompactionProperties;
+import de.otto.synapse.configuration.aws.SnapshotProperties;
 import de.otto.synapse.endpoint.receiver.MessageLogReceiverEndpoint;
 import de.otto.synapse.endpoint.receiver.MessageLogReceiverEndpointFactory;
 import de.otto.synapse.eventsource.DefaultEventSource;
@@ -15,18 +17,25 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 
 import java.time.Clock;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
 
+import static com.google.common.collect.Iterables.partition;
 import static de.otto.synapse.channel.StopCondition.*;
 import static de.otto.synapse.translator.MessageFormat.defaultMessageFormat;
 
 public class CompactionService {
 
     private static final Logger LOG = LoggerFactory.getLogger(CompactionService.class);
+    private static final int BULK_READ_SIZE = 1000;
 
     private final StateRepository<String> stateRepository;
     private final SnapshotWriteService snapshotWriteService;
     private final MessageLogReceiverEndpointFactory messageLogReceiverEndpointFactory;
     private final MessageStoreFactory<? extends MessageStore> snapshotMessageStoreFactory;
+    private final SnapshotReadService snapshotReadService;
+    private final CompactionProperties properties;
     private final Clock clock;
 
     public CompactionService(final SnapshotWriteService snapshotWriteService,
@@ -42,8 +51,38 @@ public class CompactionService {
                              final MessageLogReceiverEndpointFactory messageLogReceiverEndpointFactory,
                              final MessageStoreFactory<? extends MessageStore> messageStoreFactory,
                              final Clock clock)
+    {
+        this(snapshotWriteService, null, stateRepository, messageLogReceiverEndpointFactory, messageStoreFactory, new CompactionProperties(), clock);
+    }
+
+    /**
+     * Creates a CompactionService.
+     *
+     * <p>
+     *     If {@link CompactionProperties#isIncremental() incremental compaction} is enabled, the latest snapshot is
+     *     merged with the changes of the channel since the snapshot was created, instead of rebuilding the snapshot
+     *     from scratch.
+     * </p>
+     *
+     * @param snapshotWriteService the service used to write snapshots
+     * @param snapshotReadService the service used to read the latest snapshot, or null, if incremental compaction is disabled
+     * @param stateRepository the StateRepository used by full compactions
+     * @param messageLogReceiverEndpointFactory factory used to create the message log of the compacted channel
+     * @param messageStoreFactory factory used to create the message store of the latest snapshot
+     * @param properties the compaction properties
+     * @param clock the clock used to determine when to stop reading the channel
+     */
+    public CompactionService(final SnapshotWriteService snapshotWriteService,
+                             final SnapshotReadService snapshotReadService,
+                             final StateRepository<String> stateRepository,
+                             final MessageLogReceiverEndpointFactory messageLogReceiverEndpointFactory,
+                             final MessageStoreFactory<? extends MessageStore> messageStoreFactory,
+                             final CompactionProperties properties,
+                             final Clock clock)
     {
         this.snapshotWriteService = snapshotWriteService;
+        this.snapshotReadService = snapshotReadService;
+        this.properties = properties;
         this.stateRepository = stateRepository;
         this.messageLogReceiverEndpointFactory = messageLogReceiverEndpointFactory;
         this.snapshotMessageStoreFactory = messageStoreFactory;
@@ -51,6 +90,12 @@ public class CompactionService {
     }
 
     public String compact(final String channelName, final MessageFormat messageFormat, final Marker marker) {
+        if (properties.isIncremental() && snapshotReadService != null) {
+            final Optional<String> snapshotName = compactIncrementally(channelName, messageFormat, marker);
+            if (snapshotName.isPresent()) {
+                return snapshotName.get();
+            }
+        }
         LOG.info(marker, "Start compacting channel {} with MessageFormat {}", channelName, messageFormat);
         stateRepository.clear();
 
@@ -75,6 +120,14 @@ public class CompactionService {
                     .get();
 
             LOG.info(marker, "Finished updating snapshot data. StateRepository now holds {} entries.", stateRepository.size());
+            if (properties.isIncremental() && snapshotWriteService.getFormat() == SnapshotProperties.Format.CHUNKED) {
+                // write entries sorted by key, so the next compaction is able to merge the snapshot:
+                return snapshotWriteService.writeSnapshot(channelName, currentPosition, stateRepository.size(), out -> {
+                    for (final List<String> keys : partition(new TreeSet<>(stateRepository.keySet()), BULK_READ_SIZE)) {
+                        stateRepository.getAll(keys).forEach(out);
+                    }
+                });
+            }
             return snapshotWriteService.writeSnapshot(channelName, currentPosition, stateRepository);
         } catch (Exception e) {
             LOG.error(marker, "Exception during compaction.", e);
@@ -84,6 +137,58 @@ public class CompactionService {
         }
     }
 
+    /**
+     * Merges the latest snapshot with the changes of the channel since the snapshot was created. The entries of the
+     * snapshot are streamed from the snapshot into the new snapshot, only the changes are held in memory.
+     *
+     * @return the name of the new snapshot, or empty, if there is no sorted, chunked snapshot that can be merged
+     */
+    private Optional<String> compactIncrementally(final String channelName,
+                                                  final MessageFormat messageFormat,
+                                                  final Marker marker) {
+        final Optional<SnapshotSource> snapshotSource = snapshotReadService.retrieveLatestSnapshotSource(channelName);
+        if (snapshotSource.isEmpty()) {
+            LOG.info(marker, "No snapshot found for channel {}, falling back to full compaction", channelName);
+            return Optional.empty();
+        }
+        try {
+            final Optional<ParallelSnapshotReader> optionalReader = snapshotReadService.openParallelSnapshotReader(snapshotSource.get());
+            if (optionalReader.isEmpty()) {
+                LOG.info(marker, "Snapshot {} does not have an index, falling back to full compaction", snapshotSource.get().getName());
+                return Optional.empty();
+            }
+            if (!optionalReader.get().isSorted()) {
+                LOG.info(marker, "Snapshot {} is not sorted, falling back to full compaction", snapshotSource.get().getName());
+                optionalReader.get().close();
+                return Optional.empty();
+            }
+            try (ParallelSnapshotReader reader = optionalReader.get()) {
+                LOG.info(marker, "Start incremental compaction of channel {} with MessageFormat {}, merging snapshot {}", channelName, messageFormat, snapshotSource.get().getName());
+                final MessageLogReceiverEndpoint messageLog = messageLogReceiverEndpointFactory.create(channelName);
+                final CompactionDelta delta = new CompactionDelta(messageFormat);
+                messageLog.register(delta);
+                LOG.info(marker, "Reading channel from {} until either end of channel is reached or messages are younger than {}.", reader.getChannelPosition(), clock.instant());
+                final ChannelPosition currentPosition = messageLog
+                        .consumeUntil(
+                                reader.getChannelPosition(),
+                                endOfChannel()
+                                        .and(emptyResponse())
+                                        .or(arrivalTimestampAfterNow(clock))
+                        )
+                        .get();
+                LOG.info(marker, "Finished reading channel. Merging {} changes with {} entries of the snapshot.", delta.size(), reader.size());
+                return Optional.of(snapshotWriteService.writeSnapshot(
+                        channelName,
+                        currentPosition,
+                        reader.size() + delta.size(),
+                        out -> delta.merge(reader.entries().iterator(), out)));
+            }
+        } catch (Exception e) {
+            LOG.error(marker, "Exception during incremental compaction.", e);
+            throw new RuntimeException(e);
+        }
+    }
+
     public String compact(final String channelName) {
         return compact(channelName, defaultMessageFormat(), null);
     }
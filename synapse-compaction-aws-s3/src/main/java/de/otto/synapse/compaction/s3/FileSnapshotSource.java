@@ -0,0 +1,59 @@
+package de.otto.synapse.compaction.s3;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * {@link SnapshotSource} of a local snapshot file.
+ */
+class FileSnapshotSource implements SnapshotSource {
+
+    private final File file;
+
+    FileSnapshotSource(final File file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return file.getName();
+    }
+
+    @Override
+    public long size() throws IOException {
+        if (!file.exists()) {
+            throw new IOException("Snapshot file " + file + " does not exist");
+        }
+        return file.length();
+    }
+
+    @Override
+    public byte[] read(final long offset, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new EOFException("Unexpected end of snapshot file " + file);
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return new FileInputStream(file);
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package de.otto.synapse.compaction.s3;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link SnapshotCompression} that is compressing every chunk of a snapshot into a separate gzip member. The
+ * resulting files can be decompressed using any gzip implementation.
+ *
+ * <p>
+ *     Metadata is stored in the extra field of empty gzip members, using the subfield id {@code SX}. Gzip
+ *     implementations are ignoring unknown subfields, so metadata frames are decompressed to no data at all.
+ * </p>
+ */
+public class GzipSnapshotCompression implements SnapshotCompression {
+
+    public static final String GZIP_FILE_EXTENSION = ".json.gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FEXTRA = 4;
+    private static final byte SUBFIELD_ID1 = 'S';
+    private static final byte SUBFIELD_ID2 = 'X';
+    private static final int MAX_SUBFIELD_SIZE = 0xFFFF - 4;
+    /** Final deflate block of fixed huffman codes, only containing the end-of-block code. */
+    private static final byte[] EMPTY_DEFLATE_BLOCK = {0x03, 0x00};
+
+    private final int level;
+
+    public GzipSnapshotCompression() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a GzipSnapshotCompression.
+     *
+     * @param level the compression level (0-9), or -1 for the default compression level
+     */
+    public GzipSnapshotCompression(final int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        }
+        this.level = level;
+    }
+
+    @Override
+    public String fileExtension() {
+        return GZIP_FILE_EXTENSION;
+    }
+
+    @Override
+    public byte[] compress(final byte[] data) {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, BUFFER_SIZE) {{ def.setLevel(level); }}) {
+            gzip.write(data);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Override
+    public InputStream decompress(final InputStream compressed) throws IOException {
+        return new GZIPInputStream(compressed, BUFFER_SIZE);
+    }
+
+    @Override
+    public byte[] metadataFrame(final byte[] metadata) {
+        final ByteArrayOutputStream frames = new ByteArrayOutputStream(metadata.length + 32);
+        int offset = 0;
+        do {
+            final int length = Math.min(MAX_SUBFIELD_SIZE, metadata.length - offset);
+            // gzip header: magic, compression method, flags, mtime, extra flags, os
+            writeShort(frames, GZIP_MAGIC);
+            frames.write(Deflater.DEFLATED);
+            frames.write(FEXTRA);
+            writeInt(frames, 0);
+            frames.write(0);
+            frames.write(0xFF);
+            // extra field, consisting of a single subfield
+            writeShort(frames, length + 4);
+            frames.write(SUBFIELD_ID1);
+            frames.write(SUBFIELD_ID2);
+            writeShort(frames, length);
+            frames.write(metadata, offset, length);
+            // empty deflate stream, followed by CRC32 and size of the (empty) uncompressed data
+            frames.write(EMPTY_DEFLATE_BLOCK, 0, EMPTY_DEFLATE_BLOCK.length);
+            writeInt(frames, 0);
+            writeInt(frames, 0);
+            offset += length;
+        } while (offset < metadata.length);
+        return frames.toByteArray();
+    }
+
+    @Override
+    public Optional<byte[]> readMetadata(final byte[] frames) {
+        final ByteArrayOutputStream metadata = new ByteArrayOutputStream(frames.length);
+        int pos = 0;
+        while (pos < frames.length) {
+            if (frames.length - pos < 16
+                    || readShort(frames, pos) != GZIP_MAGIC
+                    || frames[pos + 2] != Deflater.DEFLATED
+                    || frames[pos + 3] != FEXTRA) {
+                return Optional.empty();
+            }
+            final int extraLength = readShort(frames, pos + 10);
+            final int extraEnd = pos + 12 + extraLength;
+            final int memberEnd = extraEnd + EMPTY_DEFLATE_BLOCK.length + 8;
+            if (memberEnd > frames.length
+                    || frames[extraEnd] != EMPTY_DEFLATE_BLOCK[0]
+                    || frames[extraEnd + 1] != EMPTY_DEFLATE_BLOCK[1]) {
+                return Optional.empty();
+            }
+            int subfield = pos + 12;
+            while (subfield + 4 <= extraEnd) {
+                final int subfieldLength = readShort(frames, subfield + 2);
+                if (subfield + 4 + subfieldLength > extraEnd) {
+                    return Optional.empty();
+                }
+                if (frames[subfield] == SUBFIELD_ID1 && frames[subfield + 1] == SUBFIELD_ID2) {
+                    metadata.write(frames, subfield + 4, subfieldLength);
+                }
+                subfield += 4 + subfieldLength;
+            }
+            pos = memberEnd;
+        }
+        return Optional.of(metadata.toByteArray());
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    private static void writeShort(final ByteArrayOutputStream out, final int value) {
+        out.write(value & 0xFF);
+        out.write((value >> 8) & 0xFF);
+    }
+
+    private static void writeInt(final ByteArrayOutputStream out, final int value) {
+        writeShort(out, value & 0xFFFF);
+        writeShort(out, (value >> 16) & 0xFFFF);
+    }
+
+    private static int readShort(final byte[] bytes, final int pos) {
+        return (bytes[pos] & 0xFF) | ((bytes[pos + 1] & 0xFF) << 8);
+    }
+}
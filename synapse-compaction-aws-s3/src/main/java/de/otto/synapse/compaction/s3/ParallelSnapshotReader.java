@@ -0,0 +1,282 @@
+package de.otto.synapse.compaction.s3;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.otto.synapse.channel.ChannelPosition;
+import de.otto.synapse.message.Header;
+import de.otto.synapse.message.Key;
+import de.otto.synapse.message.TextMessage;
+import de.otto.synapse.translator.Decoder;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static de.otto.synapse.channel.ChannelPosition.fromHorizon;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Reads snapshots that were written by a {@link ParallelSnapshotWriter}, using the {@link SnapshotIndex} of the
+ * snapshot.
+ *
+ * <p>
+ *     The chunks of the snapshot are read from the {@link SnapshotSource} using ranged reads, decompressed and parsed
+ *     concurrently by a pool of threads, while the messages of previous chunks are consumed. Up to
+ *     {@code prefetchChunks} chunks are read in advance.
+ * </p>
+ * <p>
+ *     The {@link #stream() stream of messages} is maintaining the order of the entries in the snapshot. It can be
+ *     consumed in parallel, and it can be consumed more than once.
+ * </p>
+ */
+public class ParallelSnapshotReader implements AutoCloseable {
+
+    private static final Logger LOG = getLogger(ParallelSnapshotReader.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final SnapshotSource source;
+    private final SnapshotCompression compression;
+    private final List<SnapshotIndex.Chunk> dataChunks;
+    private final ChannelPosition channelPosition;
+    private final boolean sorted;
+    private final int prefetchChunks;
+    private final ExecutorService executorService;
+
+    private ParallelSnapshotReader(final SnapshotSource source,
+                                   final SnapshotCompression compression,
+                                   final SnapshotIndex index,
+                                   final int numberOfThreads,
+                                   final int prefetchChunks) throws IOException {
+        this.source = source;
+        this.compression = compression;
+        this.dataChunks = index.getDataChunks();
+        this.sorted = index.isSorted();
+        this.channelPosition = parseHeader(decompress(index.getHeaderChunk()));
+        this.prefetchChunks = Math.max(1, prefetchChunks);
+        this.executorService = newFixedThreadPool(Math.max(1, numberOfThreads),
+                new ThreadFactoryBuilder().setNameFormat("snapshot-reader-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Opens a snapshot for parallel reads.
+     *
+     * @param source the snapshot
+     * @param compression the compression of the snapshot
+     * @param numberOfThreads the number of threads used to read, decompress and parse chunks of the snapshot
+     * @param prefetchChunks the max number of chunks that are read in advance
+     * @return ParallelSnapshotReader, or empty if the snapshot does not have an index
+     * @throws IOException if reading the snapshot failed
+     */
+    public static Optional<ParallelSnapshotReader> open(final SnapshotSource source,
+                                                        final SnapshotCompression compression,
+                                                        final int numberOfThreads,
+                                                        final int prefetchChunks) throws IOException {
+        if (!source.getName().endsWith(compression.fileExtension())) {
+            return Optional.empty();
+        }
+        final long size = source.size();
+        final int trailerSize = SnapshotIndex.trailerSize(compression);
+        if (size < trailerSize) {
+            return Optional.empty();
+        }
+        final Optional<SnapshotIndex.Chunk> indexFrame = SnapshotIndex.parseTrailer(
+                compression,
+                source.read(size - trailerSize, trailerSize));
+        if (indexFrame.isEmpty()) {
+            LOG.info("Snapshot {} does not have an index", source.getName());
+            return Optional.empty();
+        }
+        final Optional<byte[]> index = compression.readMetadata(source.read(indexFrame.get().offset, indexFrame.get().length));
+        if (index.isEmpty()) {
+            throw new IOException("Failed to read index of snapshot " + source.getName());
+        }
+        final SnapshotIndex snapshotIndex = SnapshotIndex.fromByteArray(index.get());
+        LOG.info("Reading snapshot {} in {} chunks using {} threads", source.getName(), snapshotIndex.getDataChunks().size(), numberOfThreads);
+        return Optional.of(new ParallelSnapshotReader(source, compression, snapshotIndex, numberOfThreads, prefetchChunks));
+    }
+
+    /**
+     * Returns the position of the channel at the time the snapshot was created.
+     *
+     * @return ChannelPosition
+     */
+    public ChannelPosition getChannelPosition() {
+        return channelPosition;
+    }
+
+    /**
+     * Returns the number of entries of the snapshot.
+     *
+     * @return number of entries
+     */
+    public long size() {
+        return dataChunks.stream().mapToLong(chunk -> chunk.entries).sum();
+    }
+
+    /**
+     * Returns true, if the entries of the snapshot are sorted by key.
+     *
+     * @return true, if the snapshot is sorted
+     */
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * Returns the messages of the snapshot in the order of the entries in the snapshot.
+     *
+     * @return Stream of messages
+     */
+    public Stream<TextMessage> stream() {
+        final Decoder<SnapshotMessage> decoder = new SnapshotMessageDecoder();
+        return new ChunkStream<>((key, value) -> decoder.apply(new SnapshotMessage(Key.of(key), Header.of(), value))).stream();
+    }
+
+    /**
+     * Returns the undecoded entries of the snapshot in the order of the entries in the snapshot.
+     *
+     * @return Stream of entries, consisting of the key and the value of the entries
+     */
+    public Stream<Map.Entry<String, String>> entries() {
+        return new ChunkStream<Map.Entry<String, String>>(SimpleImmutableEntry::new).stream();
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * The stream of the entries of all chunks. Entries are mapped to the element type of the stream by the threads
+     * reading the chunks.
+     */
+    private class ChunkStream<T> {
+
+        private final BiFunction<String, String, T> mapper;
+        private final CompletableFuture<List<T>>[] chunkFutures;
+        private final boolean[] scheduledChunks;
+
+        @SuppressWarnings("unchecked")
+        private ChunkStream(final BiFunction<String, String, T> mapper) {
+            this.mapper = mapper;
+            this.chunkFutures = new CompletableFuture[dataChunks.size()];
+            this.scheduledChunks = new boolean[dataChunks.size()];
+        }
+
+        private Stream<T> stream() {
+            return IntStream.range(0, dataChunks.size())
+                    .mapToObj(this::awaitChunk)
+                    .flatMap(List::stream);
+        }
+
+        private List<T> awaitChunk(final int chunk) {
+            final CompletableFuture<List<T>> future;
+            synchronized (this) {
+                // the stream may be split into several parts that are consumed in parallel, so every part is reading
+                // the chunks following the current chunk in advance:
+                final int toChunk = Math.min(chunk + prefetchChunks, dataChunks.size());
+                for (int i = chunk; i < toChunk; i++) {
+                    if (!scheduledChunks[i]) {
+                        scheduledChunks[i] = true;
+                        chunkFutures[i] = scheduleChunk(i);
+                    }
+                }
+                future = chunkFutures[chunk] != null
+                        ? chunkFutures[chunk]
+                        : scheduleChunk(chunk);
+                // release the entries of the chunk, as soon as they are consumed:
+                chunkFutures[chunk] = null;
+            }
+            try {
+                return future.join();
+            } catch (final CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw (UncheckedIOException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        private CompletableFuture<List<T>> scheduleChunk(final int chunk) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return parseChunk(decompress(dataChunks.get(chunk)), dataChunks.get(chunk).entries, mapper);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException("Failed to read chunk " + chunk + " of snapshot " + source.getName(), e);
+                }
+            }, executorService);
+        }
+    }
+
+    private byte[] decompress(final SnapshotIndex.Chunk chunk) throws IOException {
+        try (InputStream inputStream = compression.decompress(new ByteArrayInputStream(source.read(chunk.offset, chunk.length)))) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private static ChannelPosition parseHeader(final byte[] header) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(header)) {
+            JsonToken currentToken = parser.nextToken();
+            while (currentToken != null) {
+                if (currentToken == JsonToken.FIELD_NAME) {
+                    if ("startSequenceNumbers".equals(parser.getValueAsString())) {
+                        return SnapshotParser.processSequenceNumbers(parser);
+                    } else if ("data".equals(parser.getValueAsString())) {
+                        break;
+                    }
+                }
+                currentToken = parser.nextToken();
+            }
+        }
+        return fromHorizon();
+    }
+
+    /**
+     * Parses the entries of a chunk. Every entry of the chunk - except for the very first entry of a snapshot - is
+     * preceded by a comma, so the entries are enclosed in brackets and parsed as a JSON array.
+     */
+    private static <T> List<T> parseChunk(final byte[] chunk,
+                                          final int entries,
+                                          final BiFunction<String, String, T> mapper) throws IOException {
+        int start = 0;
+        while (start < chunk.length && Character.isWhitespace(chunk[start])) {
+            ++start;
+        }
+        if (start < chunk.length && chunk[start] == ',') {
+            ++start;
+        }
+        final byte[] array = new byte[chunk.length - start + 2];
+        array[0] = '[';
+        System.arraycopy(chunk, start, array, 1, chunk.length - start);
+        array[array.length - 1] = ']';
+
+        final List<T> result = new ArrayList<>(entries);
+        try (JsonParser parser = JSON_FACTORY.createParser(array)) {
+            JsonToken currentToken = parser.nextToken();
+            while (currentToken != null) {
+                if (currentToken == JsonToken.FIELD_NAME) {
+                    result.add(mapper.apply(parser.getValueAsString(), parser.nextTextValue()));
+                }
+                currentToken = parser.nextToken();
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,236 @@
+package de.otto.synapse.compaction.s3;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.otto.synapse.channel.ChannelPosition;
+import de.otto.synapse.channel.StartFrom;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+/**
+ * Writes snapshots as a sequence of independently compressed chunks.
+ *
+ * <p>
+ *     The decompressed chunks are forming the JSON document of a snapshot:
+ * </p>
+ * <pre><code>
+ *     {"startSequenceNumbers":[{"shard":"...","sequenceNumber":"..."}, ...],"data":[{"key":"value"},{"key":"value"}, ...]}
+ * </code></pre>
+ * <p>
+ *     The first chunk contains the start sequence numbers and the beginning of the data array, the last chunk the
+ *     end of the data array. All other chunks contain complete entries of the data array, every entry - except for
+ *     the first one - is preceded by a comma. This way, every chunk can be parsed separately.
+ * </p>
+ * <p>
+ *     Entries are serialized and compressed using a pool of threads. Compressed chunks are written to the
+ *     OutputStream in the order of the entries. The number of chunks that are serialized and compressed
+ *     concurrently is limited, so the memory needed to write a snapshot does not depend on the size of the snapshot.
+ * </p>
+ * <p>
+ *     The chunks are followed by a {@link SnapshotIndex}, so readers are able to read and decompress the chunks
+ *     concurrently.
+ * </p>
+ */
+class ParallelSnapshotWriter implements Closeable {
+
+    //JSON Fields
+    static final String DATA_FIELD_NAME = "data";
+    static final String START_SEQUENCE_NUMBERS_FIELD_NAME = "startSequenceNumbers";
+    static final String SHARD_FIELD_NAME = "shard";
+    static final String SEQUENCE_NUMBER_FIELD_NAME = "sequenceNumber";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final OutputStream outputStream;
+    private final SnapshotCompression compression;
+    private final int chunkSizeBytes;
+    private final int maxPendingChunks;
+    private final ExecutorService executorService;
+    private final Deque<PendingChunk> pendingChunks = new ArrayDeque<>();
+    private final List<SnapshotIndex.Chunk> chunks = new ArrayList<>();
+
+    private List<Map.Entry<String, String>> entries = new ArrayList<>();
+    private long entriesSizeBytes = 0;
+    private boolean firstEntryWritten = false;
+    private long bytesWritten = 0;
+    private String lastKey = null;
+    private boolean sorted = true;
+
+    /**
+     * Creates a ParallelSnapshotWriter.
+     *
+     * @param outputStream the stream the compressed chunks are written to
+     * @param compression the compression of the chunks
+     * @param numberOfThreads the number of threads used to serialize and compress chunks
+     * @param chunkSizeBytes the approximate size of uncompressed chunks
+     */
+    ParallelSnapshotWriter(final OutputStream outputStream,
+                           final SnapshotCompression compression,
+                           final int numberOfThreads,
+                           final int chunkSizeBytes) {
+        this.outputStream = outputStream;
+        this.compression = compression;
+        this.chunkSizeBytes = chunkSizeBytes;
+        this.maxPendingChunks = 2 * Math.max(1, numberOfThreads);
+        this.executorService = newFixedThreadPool(Math.max(1, numberOfThreads),
+                new ThreadFactoryBuilder().setNameFormat("snapshot-writer-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Writes the first chunk of the snapshot, containing the position of the snapshot.
+     *
+     * @param channelPosition the position of the channel at the time the snapshot was created
+     * @throws IOException if writing to the OutputStream failed
+     */
+    void writeHeader(final ChannelPosition channelPosition) throws IOException {
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (JsonGenerator jGenerator = JSON_FACTORY.createGenerator(header, JsonEncoding.UTF8)) {
+            jGenerator.writeStartObject();
+            writeSequenceNumbers(channelPosition, jGenerator);
+            jGenerator.writeArrayFieldStart(DATA_FIELD_NAME);
+            // the generator must not close the data array, so the header is flushed without closing the generator
+            jGenerator.flush();
+            writeChunk(compression.compress(header.toByteArray()), 0);
+        }
+    }
+
+    /**
+     * Adds an entry to the data array of the snapshot.
+     *
+     * @param key the key of the entry
+     * @param value the value of the entry
+     * @throws IOException if writing to the OutputStream failed
+     */
+    void write(final String key, final String value) throws IOException {
+        sorted &= lastKey == null || lastKey.compareTo(key) < 0;
+        lastKey = key;
+        entries.add(new SimpleImmutableEntry<>(key, value));
+        entriesSizeBytes += key.length() + value.length() + 8;
+        if (entriesSizeBytes >= chunkSizeBytes) {
+            submitChunk();
+        }
+    }
+
+    /**
+     * Writes all remaining entries, together with the last chunk and the index of the snapshot, and waits until all
+     * chunks are written to the OutputStream.
+     *
+     * @return the number of chunks written
+     * @throws IOException if writing to the OutputStream failed
+     */
+    long finish() throws IOException {
+        if (!entries.isEmpty()) {
+            submitChunk();
+        }
+        while (!pendingChunks.isEmpty()) {
+            writeNextChunk();
+        }
+        writeChunk(compression.compress("]}".getBytes(UTF_8)), 0);
+        final byte[] index = compression.metadataFrame(new SnapshotIndex(chunks, sorted).toByteArray());
+        final long indexOffset = bytesWritten;
+        outputStream.write(index);
+        outputStream.write(SnapshotIndex.trailer(compression, indexOffset, index.length));
+        outputStream.flush();
+        return chunks.size();
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+    }
+
+    private void submitChunk() throws IOException {
+        final List<Map.Entry<String, String>> chunk = entries;
+        final boolean leadingComma = firstEntryWritten;
+        entries = new ArrayList<>();
+        entriesSizeBytes = 0;
+        firstEntryWritten = true;
+        pendingChunks.addLast(new PendingChunk(
+                executorService.submit(() -> compression.compress(serialize(chunk, leadingComma))),
+                chunk.size()));
+        while (pendingChunks.size() >= maxPendingChunks || (!pendingChunks.isEmpty() && pendingChunks.peekFirst().future.isDone())) {
+            writeNextChunk();
+        }
+    }
+
+    private void writeNextChunk() throws IOException {
+        try {
+            final PendingChunk pendingChunk = pendingChunks.removeFirst();
+            writeChunk(pendingChunk.future.get(), pendingChunk.entries);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing snapshot");
+        } catch (final ExecutionException e) {
+            throw new IOException("Failed to write chunk of snapshot: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void writeChunk(final byte[] compressed, final int entries) throws IOException {
+        outputStream.write(compressed);
+        chunks.add(new SnapshotIndex.Chunk(bytesWritten, compressed.length, entries));
+        bytesWritten += compressed.length;
+    }
+
+    private static byte[] serialize(final List<Map.Entry<String, String>> chunk,
+                                    final boolean leadingComma) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonGenerator jGenerator = JSON_FACTORY.createGenerator(bytes, JsonEncoding.UTF8)) {
+            jGenerator.setRootValueSeparator(null);
+            boolean comma = leadingComma;
+            for (final Map.Entry<String, String> entry : chunk) {
+                if (comma) {
+                    jGenerator.writeRaw(',');
+                }
+                comma = true;
+                jGenerator.writeStartObject();
+                jGenerator.writeStringField(entry.getKey(), entry.getValue());
+                jGenerator.writeEndObject();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    static void writeSequenceNumbers(final ChannelPosition currentChannelPosition,
+                                     final JsonGenerator jGenerator) throws IOException {
+        jGenerator.writeArrayFieldStart(START_SEQUENCE_NUMBERS_FIELD_NAME);
+        for (final String shardName : currentChannelPosition.shards()) {
+            jGenerator.writeStartObject();
+            jGenerator.writeStringField(SHARD_FIELD_NAME, shardName);
+            if (currentChannelPosition.shard(shardName).startFrom() == StartFrom.HORIZON) {
+                jGenerator.writeStringField(SEQUENCE_NUMBER_FIELD_NAME, "0");
+            } else {
+                jGenerator.writeStringField(SEQUENCE_NUMBER_FIELD_NAME, currentChannelPosition.shard(shardName).position());
+            }
+            jGenerator.writeEndObject();
+        }
+        jGenerator.writeEndArray();
+    }
+
+    private static final class PendingChunk {
+        private final Future<byte[]> future;
+        private final int entries;
+
+        private PendingChunk(final Future<byte[]> future, final int entries) {
+            this.future = future;
+            this.entries = entries;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package de.otto.synapse.compaction.s3;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static java.lang.String.format;
+
+/**
+ * {@link SnapshotSource} of a snapshot stored in S3. Ranges of the snapshot are read using ranged GetObject
+ * requests, so the snapshot does not need to be downloaded before it is read.
+ */
+class S3SnapshotSource implements SnapshotSource {
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final String key;
+    private final long size;
+
+    S3SnapshotSource(final S3Client s3Client,
+                     final String bucketName,
+                     final String key,
+                     final long size) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.size = size;
+    }
+
+    @Override
+    public String getName() {
+        return key;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public byte[] read(final long offset, final int length) throws IOException {
+        try {
+            final byte[] bytes = s3Client.getObjectAsBytes(GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .range(format("bytes=%d-%d", offset, offset + length - 1))
+                    .build()).asByteArray();
+            if (bytes.length != length) {
+                throw new IOException(format("Expected %d bytes of %s, but got %d", length, key, bytes.length));
+            }
+            return bytes;
+        } catch (final SdkException e) {
+            throw new IOException("Failed to read " + key + " from bucket " + bucketName + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream openStream() {
+        return s3Client.getObject(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build());
+    }
+
+    @Override
+    public String toString() {
+        return "s3://" + bucketName + "/" + key;
+    }
+}
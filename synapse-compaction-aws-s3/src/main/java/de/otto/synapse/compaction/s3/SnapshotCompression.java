@@ -0,0 +1,64 @@
+package de.otto.synapse.compaction.s3;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * The compression of snapshot files.
+ *
+ * <p>
+ *     Snapshots are written as a sequence of independently compressed chunks, so chunks can be compressed (and
+ *     decompressed) concurrently. Implementations must use a format that supports the concatenation of compressed
+ *     frames, like gzip members or zstd frames: decompressing the concatenated chunks must return the concatenated
+ *     uncompressed data.
+ * </p>
+ */
+public interface SnapshotCompression {
+
+    /**
+     * The file extension of snapshot files using this compression, for example {@code .json.gz}.
+     *
+     * @return file extension
+     */
+    String fileExtension();
+
+    /**
+     * Compresses a single chunk of a snapshot into an independently decompressible frame.
+     *
+     * @param data the uncompressed data
+     * @return compressed frame
+     */
+    byte[] compress(byte[] data);
+
+    /**
+     * Returns an InputStream that is decompressing a sequence of compressed frames.
+     *
+     * @param compressed the compressed frames
+     * @return decompressing InputStream
+     * @throws IOException if the data can not be decompressed
+     */
+    InputStream decompress(InputStream compressed) throws IOException;
+
+    /**
+     * Creates one or more frames that are carrying the given metadata, but are decompressed to no data at all.
+     *
+     * <p>
+     *     Metadata frames are used to append the index of the chunks to a snapshot, without affecting readers that are
+     *     decompressing the whole snapshot. The size of the frames must only depend on the size of the metadata.
+     * </p>
+     *
+     * @param metadata the metadata
+     * @return metadata frames
+     */
+    byte[] metadataFrame(byte[] metadata);
+
+    /**
+     * Reads the metadata from frames that were created using {@link #metadataFrame(byte[])}.
+     *
+     * @param frames the metadata frames
+     * @return metadata, or empty if the bytes are not metadata frames
+     */
+    Optional<byte[]> readMetadata(byte[] frames);
+
+}
@@ -3,8 +3,11 @@ package de.otto.synapse.compaction.s3;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
@@ -14,6 +17,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.ZipInputStream;
 
 import static com.google.common.base.StandardSystemProperty.JAVA_IO_TMPDIR;
 import static java.lang.String.format;
@@ -22,6 +26,7 @@ import static java.time.format.DateTimeFormatter.ofPattern;
 
 public final class SnapshotFileHelper {
     public static final String COMPACTION_FILE_EXTENSION = ".json.zip";
+    private static final int BUFFER_SIZE = 64 * 1024;
     private static final Logger LOG = LoggerFactory.getLogger(SnapshotFileHelper.class);
     private static final int ONE_MB = 1024 * 1024;
     private static final DateTimeFormatter dateTimeFormatter = ofPattern("yyyy-MM-dd'T'HH-mmX").withZone(ZoneOffset.UTC);
@@ -101,12 +106,64 @@ public final class SnapshotFileHelper {
         }
     }
 
+    /**
+     * Returns true, if the file name has the extension of a snapshot file: either {@link #COMPACTION_FILE_EXTENSION}
+     * for zipped snapshots, or the extension of a snapshot written using a {@link SnapshotCompression}.
+     *
+     * @param filename the name of the file
+     * @return true, if the file is a snapshot file
+     */
+    public static boolean isSnapshotFile(String filename) {
+        return filename.endsWith(COMPACTION_FILE_EXTENSION) || filename.matches(".*\\.json\\.[a-z0-9]+");
+    }
+
+    /**
+     * Opens a snapshot file and returns an InputStream of the uncompressed JSON document.
+     *
+     * @param snapshotFile the snapshot file
+     * @param compression the compression of the snapshot, or null to use the {@link GzipSnapshotCompression default}
+     * @return InputStream of the uncompressed snapshot
+     * @throws IOException if the file can not be opened
+     */
+    public static InputStream openSnapshot(File snapshotFile, SnapshotCompression compression) throws IOException {
+        return openSnapshot(snapshotFile.getName(), new FileInputStream(snapshotFile), compression);
+    }
+
+    /**
+     * Returns an InputStream of the uncompressed JSON document of a snapshot.
+     *
+     * @param filename the file name of the snapshot
+     * @param snapshot the InputStream of the (compressed) snapshot
+     * @param compression the compression of the snapshot, or null to use the {@link GzipSnapshotCompression default}
+     * @return InputStream of the uncompressed snapshot
+     * @throws IOException if the snapshot can not be decompressed
+     */
+    public static InputStream openSnapshot(String filename, InputStream snapshot, SnapshotCompression compression) throws IOException {
+        final InputStream inputStream = new BufferedInputStream(snapshot, BUFFER_SIZE);
+        try {
+            if (filename.endsWith(COMPACTION_FILE_EXTENSION)) {
+                final ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+                zipInputStream.getNextEntry();
+                return zipInputStream;
+            } else if (compression != null && filename.endsWith(compression.fileExtension())) {
+                return compression.decompress(inputStream);
+            } else if (filename.endsWith(GzipSnapshotCompression.GZIP_FILE_EXTENSION)) {
+                return new GzipSnapshotCompression().decompress(inputStream);
+            } else {
+                throw new IllegalArgumentException("Unsupported snapshot file " + filename);
+            }
+        } catch (IOException | RuntimeException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
     public static String getSnapshotFileNamePrefix(String channelName) {
         return format("compaction-%s-snapshot-", channelName);
     }
 
     public static Instant getSnapshotTimestamp(String filename) {
-        Pattern pattern = Pattern.compile(".*-snapshot-(.*)-[0-9]*.json.zip");
+        Pattern pattern = Pattern.compile(".*-snapshot-(.*)-[0-9]*\\.json\\.[a-z0-9]+");
         Matcher matcher = pattern.matcher(filename);
         if (matcher.matches()) {
             String dateTimeString = matcher.group(1);
@@ -0,0 +1,176 @@
+package de.otto.synapse.compaction.s3;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The index of the compressed chunks of a snapshot.
+ *
+ * <p>
+ *     The index is appended to the snapshot as a {@link SnapshotCompression#metadataFrame(byte[]) metadata frame},
+ *     followed by a trailer of fixed size, that is containing the offset and length of the index:
+ * </p>
+ * <pre><code>
+ *     [header chunk][data chunk]...[data chunk][footer chunk][index][trailer]
+ * </code></pre>
+ * <p>
+ *     This way, readers are able to read the trailer and the index using ranged requests, and then read and
+ *     decompress the chunks concurrently.
+ * </p>
+ * <p>
+ *     The index is also telling whether the entries of the snapshot are sorted by key, so snapshots can be
+ *     merged with the changes of the channel, without loading the whole snapshot into memory.
+ * </p>
+ */
+final class SnapshotIndex {
+
+    private static final long TRAILER_MAGIC = 0x53594e4944583031L; // "SYNIDX01"
+    private static final int TRAILER_SIZE = 8 + 8 + 4;
+    private static final int SORTED = 1;
+
+    private final List<Chunk> chunks;
+    private final boolean sorted;
+
+    SnapshotIndex(final List<Chunk> chunks, final boolean sorted) {
+        this.chunks = Collections.unmodifiableList(new ArrayList<>(chunks));
+        this.sorted = sorted;
+    }
+
+    /**
+     * Returns true, if the entries of the snapshot are sorted by the natural order of their keys, and every key
+     * is contained only once.
+     *
+     * @return true, if the snapshot is sorted
+     */
+    boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * Returns all chunks of the snapshot. The first chunk is the header, the last chunk is the footer of the
+     * snapshot.
+     *
+     * @return list of chunks
+     */
+    List<Chunk> getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Returns the chunks containing the entries of the snapshot.
+     *
+     * @return list of data chunks
+     */
+    List<Chunk> getDataChunks() {
+        return chunks.size() > 2
+                ? chunks.subList(1, chunks.size() - 1)
+                : Collections.emptyList();
+    }
+
+    Chunk getHeaderChunk() {
+        return chunks.get(0);
+    }
+
+    byte[] toByteArray() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 + chunks.size() * 16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(sorted ? SORTED : 0);
+            out.writeInt(chunks.size());
+            for (final Chunk chunk : chunks) {
+                out.writeLong(chunk.offset);
+                out.writeInt(chunk.length);
+                out.writeInt(chunk.entries);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static SnapshotIndex fromByteArray(final byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            final int flags = in.readInt();
+            final int size = in.readInt();
+            final List<Chunk> chunks = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                chunks.add(new Chunk(in.readLong(), in.readInt(), in.readInt()));
+            }
+            return new SnapshotIndex(chunks, (flags & SORTED) != 0);
+        }
+    }
+
+    /**
+     * Returns the trailer of a snapshot, that is referring to the index at the given position.
+     *
+     * @param compression the compression of the snapshot
+     * @param indexOffset the offset of the index frame
+     * @param indexLength the length of the index frame
+     * @return trailer frame
+     */
+    static byte[] trailer(final SnapshotCompression compression, final long indexOffset, final int indexLength) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(TRAILER_SIZE);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(TRAILER_MAGIC);
+            out.writeLong(indexOffset);
+            out.writeInt(indexLength);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compression.metadataFrame(bytes.toByteArray());
+    }
+
+    /**
+     * Returns the size of the trailer frame of snapshots using the given compression.
+     *
+     * @param compression the compression of the snapshot
+     * @return size of the trailer in bytes
+     */
+    static int trailerSize(final SnapshotCompression compression) {
+        return trailer(compression, 0, 0).length;
+    }
+
+    /**
+     * Parses the trailer of a snapshot.
+     *
+     * @param compression the compression of the snapshot
+     * @param trailer the last {@link #trailerSize(SnapshotCompression)} bytes of the snapshot
+     * @return the offset and length of the index frame, or empty if the snapshot does not have an index
+     */
+    static Optional<Chunk> parseTrailer(final SnapshotCompression compression, final byte[] trailer) {
+        final Optional<byte[]> metadata = compression.readMetadata(trailer);
+        if (metadata.isEmpty() || metadata.get().length != TRAILER_SIZE) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(metadata.get()))) {
+            if (in.readLong() != TRAILER_MAGIC) {
+                return Optional.empty();
+            }
+            return Optional.of(new Chunk(in.readLong(), in.readInt(), 0));
+        } catch (final IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * A compressed chunk of a snapshot.
+     */
+    static final class Chunk {
+        final long offset;
+        final int length;
+        final int entries;
+
+        Chunk(final long offset, final int length, final int entries) {
+            this.offset = offset;
+            this.length = length;
+            this.entries = entries;
+        }
+    }
+}
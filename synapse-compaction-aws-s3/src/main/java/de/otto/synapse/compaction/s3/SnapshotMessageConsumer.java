@@ -1,6 +1,7 @@
 package de.otto.synapse.compaction.s3;
 
-import de.otto.synapse.consumer.MessageConsumer;
+import de.otto.synapse.channel.ShardPosition;
+import de.otto.synapse.consumer.BatchMessageConsumer;
 import de.otto.synapse.message.Key;
 import de.otto.synapse.message.Message;
 import de.otto.synapse.state.StateRepository;
@@ -10,6 +11,10 @@ import jakarta.annotation.Nonnull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -18,8 +23,12 @@ import java.util.regex.Pattern;
 /**
  * A {@code MessageConsumer} that is used to update Snapshots.
  *
+ * <p>
+ *     Batches of messages are applied to the {@link StateRepository} using its bulk operations, so only the
+ *     last message of every key is encoded and stored.
+ * </p>
  */
-public class SnapshotMessageConsumer implements MessageConsumer<String> {
+public class SnapshotMessageConsumer implements BatchMessageConsumer<String> {
 
     private static final Logger LOG = LoggerFactory.getLogger(SnapshotMessageConsumer.class);
 
@@ -82,4 +91,23 @@ public class SnapshotMessageConsumer implements MessageConsumer<String> {
         }
     }
 
+    @Override
+    public void acceptAll(final List<Message<String>> messages, final ShardPosition shardPosition) {
+        final Map<String, Message<String>> lastMessagePerKey = new LinkedHashMap<>();
+        for (final Message<String> message : messages) {
+            lastMessagePerKey.put(keyMapper.apply(message), message);
+        }
+        final List<String> deletedKeys = new ArrayList<>();
+        final Map<String, String> updates = new LinkedHashMap<>();
+        lastMessagePerKey.forEach((key, message) -> {
+            if (message.getPayload() == null) {
+                deletedKeys.add(key);
+            } else {
+                updates.put(key, payloadToStateMapper.apply(Optional.empty(), message));
+            }
+        });
+        stateRepository.removeAll(deletedKeys);
+        stateRepository.putAll(updates);
+    }
+
 }
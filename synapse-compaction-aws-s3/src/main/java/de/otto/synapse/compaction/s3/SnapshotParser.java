@@ -13,7 +13,6 @@ import de.otto.synapse.message.TextMessage;
 import de.otto.synapse.translator.Decoder;
 
 import java.io.*;
-import java.util.zip.ZipInputStream;
 
 import static com.google.common.collect.ImmutableMap.builder;
 import static de.otto.synapse.channel.ChannelPosition.channelPosition;
@@ -28,14 +27,9 @@ public class SnapshotParser {
     public ChannelPosition parse(final File latestSnapshot,
                                  final MessageDispatcher messageDispatcher) {
 
-        try (
-                FileInputStream fileInputStream = new FileInputStream(latestSnapshot);
-                BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream);
-                ZipInputStream zipInputStream = new ZipInputStream(bufferedInputStream)
-        ) {
+        try (InputStream inputStream = SnapshotFileHelper.openSnapshot(latestSnapshot, null)) {
             ChannelPosition channelPosition = fromHorizon();
-            zipInputStream.getNextEntry();
-            JsonParser parser = jsonFactory.createParser(zipInputStream);
+            JsonParser parser = jsonFactory.createParser(inputStream);
             while (!parser.isClosed()) {
                 JsonToken currentToken = parser.nextToken();
                 if (currentToken == JsonToken.FIELD_NAME) {
@@ -82,7 +76,7 @@ public class SnapshotParser {
         }
     }
 
-    private ChannelPosition processSequenceNumbers(final JsonParser parser) throws IOException {
+    static ChannelPosition processSequenceNumbers(final JsonParser parser) throws IOException {
         final ImmutableMap.Builder<String, ShardPosition> shardPositions = builder();
 
         String shardName = null;
@@ -8,6 +8,7 @@ import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.S3Object;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Objects;
 import java.util.Optional;
@@ -21,8 +22,11 @@ public class SnapshotReadService {
 
     private static final Logger LOG = getLogger(SnapshotReadService.class);
 
+    private final S3Client s3Client;
     private final S3Helper s3Helper;
+    private final SnapshotProperties properties;
     private final String snapshotBucketName;
+    private final SnapshotCompression compression;
     private final Marker marker;
 
     private File forcedSnapshotFile = null;
@@ -35,11 +39,30 @@ public class SnapshotReadService {
     public SnapshotReadService(final SnapshotProperties properties,
                                final S3Client s3Client,
                                final Marker marker) {
+        this(properties, s3Client, new GzipSnapshotCompression(properties.getCompressionLevel()), marker);
+    }
+
+    public SnapshotReadService(final SnapshotProperties properties,
+                               final S3Client s3Client,
+                               final SnapshotCompression compression,
+                               final Marker marker) {
+        this.s3Client = s3Client;
         this.s3Helper = new S3Helper(s3Client);
+        this.properties = properties;
         this.snapshotBucketName = properties.getBucketName();
+        this.compression = compression;
         this.marker = marker;
     }
 
+    /**
+     * Returns the compression used to read snapshots that are not zipped.
+     *
+     * @return SnapshotCompression
+     */
+    public SnapshotCompression getSnapshotCompression() {
+        return compression;
+    }
+
     /**
      * Force to read a local snapshot file instead of retrieving it from S3 bucket.
      *
@@ -72,6 +95,47 @@ public class SnapshotReadService {
         return latestSnapshot;
     }
 
+    /**
+     * Returns the latest snapshot of the channel, without downloading it, if possible.
+     *
+     * <p>
+     *     Snapshots that can be read using a {@link ParallelSnapshotReader} are read from S3 using ranged
+     *     requests. Other snapshots are downloaded to a temp file, as before.
+     * </p>
+     *
+     * @param channelName the name of the channel
+     * @return SnapshotSource of the latest snapshot, or empty if there is no snapshot
+     */
+    public Optional<SnapshotSource> retrieveLatestSnapshotSource(String channelName) {
+        if (forcedSnapshotFile != null) {
+            LOG.info(marker, "Use local Snapshot file: {}", forcedSnapshotFile);
+            return Optional.of(SnapshotSource.of(forcedSnapshotFile));
+        }
+        Optional<S3Object> s3Object = fetchSnapshotMetadataFromS3(snapshotBucketName, channelName);
+        if (s3Object.isPresent() && s3Object.get().key().endsWith(compression.fileExtension())) {
+            String latestSnapshotKey = s3Object.get().key();
+            Path snapshotFile = getTempFile(latestSnapshotKey);
+            if (existsAndHasSize(snapshotFile, s3Object.get().size())) {
+                LOG.info(marker, "Locally available snapshot file is the same as in S3, use it: {}", snapshotFile.toAbsolutePath().toString());
+                return Optional.of(SnapshotSource.of(snapshotFile.toFile()));
+            }
+            LOG.info(marker, "Reading snapshot {} from s3 bucket {}", latestSnapshotKey, snapshotBucketName);
+            return Optional.of(new S3SnapshotSource(s3Client, snapshotBucketName, latestSnapshotKey, s3Object.get().size()));
+        }
+        return retrieveLatestSnapshot(channelName).map(SnapshotSource::of);
+    }
+
+    /**
+     * Opens a snapshot for parallel reads, if the snapshot has an index of its chunks.
+     *
+     * @param snapshotSource the snapshot
+     * @return ParallelSnapshotReader, or empty if the snapshot must be read sequentially
+     * @throws IOException if reading the index of the snapshot failed
+     */
+    public Optional<ParallelSnapshotReader> openParallelSnapshotReader(SnapshotSource snapshotSource) throws IOException {
+        return ParallelSnapshotReader.open(snapshotSource, compression, properties.getReaderThreads(), properties.getReaderPrefetchChunks());
+    }
+
     Optional<File> getLatestSnapshot(final String channelName) {
         Optional<S3Object> s3Object = fetchSnapshotMetadataFromS3(snapshotBucketName, channelName);
         if (s3Object.isPresent()) {
@@ -83,7 +147,7 @@ public class SnapshotReadService {
                 return Optional.of(snapshotFile.toFile());
             }
 
-            removeTempFiles(String.format("*-%s-snapshot-*.json.zip", channelName));
+            removeTempFiles(String.format("*-%s-snapshot-*.json.*", channelName));
             LOG.info(marker, "Downloading snapshot file to {}", snapshotFile.getFileName().toAbsolutePath().toString());
             if (s3Helper.download(snapshotBucketName, latestSnapshotKey, snapshotFile)) {
                 return Optional.of(snapshotFile.toFile());
@@ -99,7 +163,7 @@ public class SnapshotReadService {
         return s3Helper.listAll(bucketName)
                 .stream()
                 .filter(o -> o.key().startsWith(getSnapshotFileNamePrefix(channelName)))
-                .filter(o -> o.key().endsWith(COMPACTION_FILE_EXTENSION))
+                .filter(o -> isSnapshotFile(o.key()))
                 .min(comparing(S3Object::lastModified, reverseOrder()));
     }
 
@@ -0,0 +1,55 @@
+package de.otto.synapse.compaction.s3;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A snapshot that can be read either sequentially, or using ranged reads.
+ */
+public interface SnapshotSource {
+
+    /**
+     * Returns the file name of the snapshot.
+     *
+     * @return file name
+     */
+    String getName();
+
+    /**
+     * Returns the size of the snapshot in bytes.
+     *
+     * @return size
+     * @throws IOException if the size can not be determined
+     */
+    long size() throws IOException;
+
+    /**
+     * Reads a range of bytes from the snapshot. The method may be called concurrently.
+     *
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     * @return the bytes
+     * @throws IOException if the bytes can not be read
+     */
+    byte[] read(long offset, int length) throws IOException;
+
+    /**
+     * Opens the snapshot for sequential reads. The returned InputStream is providing the (compressed) bytes of the
+     * snapshot.
+     *
+     * @return InputStream
+     * @throws IOException if the snapshot can not be opened
+     */
+    InputStream openStream() throws IOException;
+
+    /**
+     * Returns a SnapshotSource for a local snapshot file.
+     *
+     * @param file the snapshot file
+     * @return SnapshotSource
+     */
+    static SnapshotSource of(final File file) {
+        return new FileSnapshotSource(file);
+    }
+}
@@ -5,9 +5,9 @@ import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.annotations.VisibleForTesting;
 import de.otto.synapse.channel.ChannelPosition;
-import de.otto.synapse.channel.StartFrom;
 import de.otto.synapse.configuration.aws.SnapshotProperties;
 import de.otto.synapse.helper.s3.S3Helper;
+import de.otto.synapse.helper.s3.S3MultipartOutputStream;
 import de.otto.synapse.logging.ProgressLogger;
 import de.otto.synapse.state.StateRepository;
 import org.slf4j.Logger;
@@ -23,12 +23,17 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import static de.otto.synapse.compaction.s3.ParallelSnapshotWriter.DATA_FIELD_NAME;
+import static de.otto.synapse.compaction.s3.ParallelSnapshotWriter.writeSequenceNumbers;
 import static de.otto.synapse.compaction.s3.SnapshotFileHelper.*;
 import static java.time.format.DateTimeFormatter.ofPattern;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -39,15 +44,13 @@ public class SnapshotWriteService {
     private static final DateTimeFormatter dateTimeFormatter = ofPattern("yyyy-MM-dd'T'HH-mmX").withZone(ZoneOffset.UTC);
 
     private static final String ZIP_ENTRY = "data";
-    //JSON Fields
-    private static final String DATA_FIELD_NAME = "data";
-    private static final String START_SEQUENCE_NUMBERS_FIELD_NAME = "startSequenceNumbers";
-    private static final String SHARD_FIELD_NAME = "shard";
-    private static final String SEQUENCE_NUMBER_FIELD_NAME = "sequenceNumber";
     private static final int NUM_SNAPSHOTS_TO_KEEP = 6;
 
+    private final S3Client s3Client;
     private final S3Helper s3Helper;
+    private final SnapshotProperties properties;
     private final String snapshotBucketName;
+    private final SnapshotCompression compression;
     private final JsonFactory jsonFactory = new JsonFactory();
     private final Marker marker;
 
@@ -59,19 +62,102 @@ public class SnapshotWriteService {
     public SnapshotWriteService(final S3Client s3Client,
                                 final SnapshotProperties properties,
                                 final Marker marker) {
+        this(s3Client, properties, new GzipSnapshotCompression(properties.getCompressionLevel()), marker);
+    }
+
+    public SnapshotWriteService(final S3Client s3Client,
+                                final SnapshotProperties properties,
+                                final SnapshotCompression compression,
+                                final Marker marker) {
+        this.s3Client = s3Client;
         this.s3Helper = new S3Helper(s3Client);
+        this.properties = properties;
         this.snapshotBucketName = properties.getBucketName();
+        this.compression = compression;
         this.marker = marker;
     }
 
+    /**
+     * Returns the format of the snapshots written by this service.
+     *
+     * @return snapshot format
+     */
+    public SnapshotProperties.Format getFormat() {
+        return properties.getFormat();
+    }
 
+    /**
+     * Writes a snapshot of the state repository to S3.
+     *
+     * <p>
+     *     By default, the snapshot is streamed to S3 using a multipart upload, while it is written. If
+     *     {@link SnapshotProperties#isUseTempFile()} is enabled, the snapshot is first written to a temp file.
+     * </p>
+     * <p>
+     *     The snapshot is written using the configured {@link SnapshotProperties#getFormat() format}. Only
+     *     {@link SnapshotProperties.Format#CHUNKED chunked} snapshots are written using the {@link SnapshotCompression}.
+     * </p>
+     *
+     * @param channelName the name of the channel
+     * @param position the position of the channel
+     * @param stateRepository the state repository
+     * @return the name of the snapshot
+     * @throws IOException if writing the snapshot failed
+     */
     public String writeSnapshot(final String channelName,
                                 final ChannelPosition position,
                                 final StateRepository<String> stateRepository) throws IOException {
+        return writeSnapshot(channelName, position, stateRepository.size(), stateRepository::consumeAll);
+    }
+
+    /**
+     * Writes a snapshot of the given entries to S3.
+     *
+     * <p>
+     *     The entries are written in the order they are passed to the {@code BiConsumer}. If the keys are passed in
+     *     their natural order, the snapshot is flagged as being sorted, so it can be merged with the changes of the
+     *     channel by an incremental compaction.
+     * </p>
+     *
+     * @param channelName the name of the channel
+     * @param position the position of the channel
+     * @param expectedSize the expected number of entries, used to log the progress
+     * @param entries passes all entries of the snapshot to the given {@code BiConsumer}
+     * @return the name of the snapshot
+     * @throws IOException if writing the snapshot failed
+     */
+    public String writeSnapshot(final String channelName,
+                                final ChannelPosition position,
+                                final long expectedSize,
+                                final Consumer<BiConsumer<String, String>> entries) throws IOException {
+        if (properties.isUseTempFile()) {
+            return writeSnapshotUsingTempFile(channelName, position, expectedSize, entries);
+        }
+        final String snapshotName = createSnapshotName(channelName);
+        LOG.info(marker, "Start streaming new snapshot {} to s3 bucket {}", snapshotName, this.snapshotBucketName);
+        final S3MultipartOutputStream outputStream = new S3MultipartOutputStream(s3Client, snapshotBucketName, snapshotName,
+                properties.getPartSizeBytes(), properties.getMaxConcurrentUploads());
+        try {
+            writeSnapshot(outputStream, position, expectedSize, entries);
+            outputStream.close();
+        } catch (final IOException | RuntimeException e) {
+            LOG.error(marker, "Error during snapshot creation, aborting upload of {}", snapshotName, e);
+            outputStream.abort();
+            throw e;
+        }
+        LOG.info(marker, "Finished streaming snapshot {} to s3 bucket {}", snapshotName, this.snapshotBucketName);
+        deleteOlderSnapshots(channelName);
+        return snapshotName;
+    }
+
+    private String writeSnapshotUsingTempFile(final String channelName,
+                                              final ChannelPosition position,
+                                              final long expectedSize,
+                                              final Consumer<BiConsumer<String, String>> entries) throws IOException {
         File snapshotFile = null;
         try {
             LOG.info(marker, "Start creating new snapshot");
-            snapshotFile = createSnapshot(channelName, position, stateRepository);
+            snapshotFile = createSnapshot(channelName, position, expectedSize, entries);
             LOG.info(marker, "Finished creating snapshot file: {}", snapshotFile.getAbsolutePath());
             LOG.info(marker, "Starting uploading snapshot file {} to s3 bucket {}", snapshotFile.getAbsolutePath(), this.snapshotBucketName);
             uploadSnapshot(this.snapshotBucketName, snapshotFile);
@@ -90,24 +176,57 @@ public class SnapshotWriteService {
     File createSnapshot(final String channelName,
                         final ChannelPosition currentChannelPosition,
                         final StateRepository<String> stateRepository) throws IOException {
+        return createSnapshot(channelName, currentChannelPosition, stateRepository.size(), stateRepository::consumeAll);
+    }
+
+    private File createSnapshot(final String channelName,
+                                final ChannelPosition currentChannelPosition,
+                                final long expectedSize,
+                                final Consumer<BiConsumer<String, String>> entries) throws IOException {
         File snapshotFile = createSnapshotFile(channelName);
 
         try (FileOutputStream fos = new FileOutputStream(snapshotFile);
-             BufferedOutputStream bos = new BufferedOutputStream(fos);
-             ZipOutputStream zipOutputStream = new ZipOutputStream(bos);
-             JsonGenerator jGenerator = jsonFactory.createGenerator(zipOutputStream, JsonEncoding.UTF8)
-        ) {
-            ZipEntry zipEntry = new ZipEntry(ZIP_ENTRY);
-            zipEntry.setMethod(ZipEntry.DEFLATED);
-            zipOutputStream.putNextEntry(zipEntry);
+             BufferedOutputStream bos = new BufferedOutputStream(fos)) {
+            writeSnapshot(bos, currentChannelPosition, expectedSize, entries);
+        } catch (Exception e) {
+            LOG.info(marker, "delete file {}", snapshotFile.toPath().toString());
+            deleteFile(snapshotFile);
+            throw e;
+        }
+        return snapshotFile;
+    }
+
+    private void writeSnapshot(final OutputStream outputStream,
+                               final ChannelPosition currentChannelPosition,
+                               final long expectedSize,
+                               final Consumer<BiConsumer<String, String>> entries) throws IOException {
+        if (properties.getFormat() == SnapshotProperties.Format.CHUNKED) {
+            writeChunkedSnapshot(outputStream, currentChannelPosition, expectedSize, entries);
+        } else {
+            writeZipSnapshot(outputStream, currentChannelPosition, expectedSize, entries);
+        }
+    }
 
+    /**
+     * Writes the snapshot as a zip file containing a single JSON document. The OutputStream is not closed.
+     */
+    private void writeZipSnapshot(final OutputStream outputStream,
+                                  final ChannelPosition currentChannelPosition,
+                                  final long expectedSize,
+                                  final Consumer<BiConsumer<String, String>> entries) throws IOException {
+        final ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+        zipOutputStream.setLevel(properties.getCompressionLevel());
+        final ZipEntry zipEntry = new ZipEntry(ZIP_ENTRY);
+        zipEntry.setMethod(ZipEntry.DEFLATED);
+        zipOutputStream.putNextEntry(zipEntry);
+        try (JsonGenerator jGenerator = jsonFactory.createGenerator(zipOutputStream, JsonEncoding.UTF8)) {
+            jGenerator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
             jGenerator.writeStartObject();
             writeSequenceNumbers(currentChannelPosition, jGenerator);
-            // write to data file
             jGenerator.writeArrayFieldStart(DATA_FIELD_NAME);
 
-            ProgressLogger processedLogger = new ProgressLogger(LOG, stateRepository.size(), marker);
-            stateRepository.consumeAll((key, entry) -> {
+            ProgressLogger processedLogger = new ProgressLogger(LOG, expectedSize, marker);
+            entries.accept((key, entry) -> {
                 try {
                     processedLogger.incrementAndLog(10);
                     if (!("".equals(entry))) {
@@ -123,22 +242,47 @@ public class SnapshotWriteService {
 
             jGenerator.writeEndArray();
             jGenerator.writeEndObject();
-            jGenerator.flush();
-            zipOutputStream.closeEntry();
-        } catch (Exception e) {
-            LOG.info(marker, "delete file {}", snapshotFile.toPath().toString());
-            deleteFile(snapshotFile);
-            throw e;
-        } finally {
-            System.gc();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        zipOutputStream.closeEntry();
+        zipOutputStream.finish();
+    }
+
+    /**
+     * Writes the snapshot as a sequence of independently compressed chunks, using the {@link SnapshotCompression}.
+     */
+    private void writeChunkedSnapshot(final OutputStream outputStream,
+                                      final ChannelPosition currentChannelPosition,
+                                      final long expectedSize,
+                                      final Consumer<BiConsumer<String, String>> entries) throws IOException {
+        try (ParallelSnapshotWriter writer = new ParallelSnapshotWriter(outputStream, compression,
+                properties.getWriterThreads(), properties.getChunkSizeBytes())) {
+            writer.writeHeader(currentChannelPosition);
+
+            ProgressLogger processedLogger = new ProgressLogger(LOG, expectedSize, marker);
+            entries.accept((key, entry) -> {
+                try {
+                    processedLogger.incrementAndLog(10);
+                    if (!("".equals(entry))) {
+                        writer.write(key, entry);
+                    }
+                } catch (IOException e) {
+                    LOG.error(marker, "Error during snapshot file creation", e);
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            final long chunks = writer.finish();
+            LOG.info(marker, "Finished writing snapshot in {} chunks", chunks);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        return snapshotFile;
     }
 
     private void deleteOlderSnapshots(final String channelName) {
         String snapshotFileNamePrefix = getSnapshotFileNamePrefix(channelName);
-        String snapshotFileSuffix = ".json.zip";
-        BiPredicate<Path, BasicFileAttributes> matchSnapshotFilePattern = (path, basicFileAttributes) -> (path.getFileName().toString().startsWith(snapshotFileNamePrefix) && path.getFileName().toString().endsWith(snapshotFileSuffix));
+        BiPredicate<Path, BasicFileAttributes> matchSnapshotFilePattern = (path, basicFileAttributes) -> (path.getFileName().toString().startsWith(snapshotFileNamePrefix) && isSnapshotFile(path.getFileName().toString()));
         try (Stream<Path> pathStream = Files.find(Paths.get(getTempDir()), 1, matchSnapshotFilePattern)) {
             List<File> oldestFiles = pathStream
                     .sorted((path1, path2) -> (int) (path2.toFile().lastModified() - path1.toFile().lastModified()))
@@ -170,32 +314,26 @@ public class SnapshotWriteService {
         }
     }
 
-    private static File createSnapshotFile(String channelName) throws IOException {
-        return File.createTempFile(String.format("%s%s-", getSnapshotFileNamePrefix(channelName), dateTimeFormatter.format(Instant.now())), COMPACTION_FILE_EXTENSION);
+    private File createSnapshotFile(String channelName) throws IOException {
+        return File.createTempFile(String.format("%s%s-", getSnapshotFileNamePrefix(channelName), dateTimeFormatter.format(Instant.now())), fileExtension());
     }
 
-    private void uploadSnapshot(String bucketName, final File snapshotFile) {
-        s3Helper.upload(bucketName, snapshotFile);
+    private String createSnapshotName(String channelName) {
+        return String.format("%s%s-%d%s",
+                getSnapshotFileNamePrefix(channelName),
+                dateTimeFormatter.format(Instant.now()),
+                ThreadLocalRandom.current().nextLong(Long.MAX_VALUE),
+                fileExtension());
     }
 
-    private void writeSequenceNumbers(ChannelPosition currentChannelPosition, JsonGenerator jGenerator) throws IOException {
-        jGenerator.writeArrayFieldStart(START_SEQUENCE_NUMBERS_FIELD_NAME);
-        currentChannelPosition.shards().forEach(shardName -> {
-            try {
-                jGenerator.writeStartObject();
-                jGenerator.writeStringField(SHARD_FIELD_NAME, shardName);
-                if (currentChannelPosition.shard(shardName).startFrom() == StartFrom.HORIZON) {
-                    jGenerator.writeStringField(SEQUENCE_NUMBER_FIELD_NAME, "0");
-                } else {
-                    jGenerator.writeStringField(SEQUENCE_NUMBER_FIELD_NAME, currentChannelPosition.shard(shardName).position());
-                }
-                jGenerator.writeEndObject();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        });
-        jGenerator.writeEndArray();
+    private String fileExtension() {
+        return properties.getFormat() == SnapshotProperties.Format.CHUNKED
+                ? compression.fileExtension()
+                : COMPACTION_FILE_EXTENSION;
     }
 
+    private void uploadSnapshot(String bucketName, final File snapshotFile) {
+        s3Helper.upload(bucketName, snapshotFile);
+    }
 
 }
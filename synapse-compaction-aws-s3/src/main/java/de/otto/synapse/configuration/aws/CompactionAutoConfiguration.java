@@ -1,6 +1,7 @@
 package de.otto.synapse.configuration.aws;
 
 import de.otto.synapse.compaction.s3.CompactionService;
+import de.otto.synapse.compaction.s3.SnapshotReadService;
 import de.otto.synapse.compaction.s3.SnapshotWriteService;
 import de.otto.synapse.endpoint.receiver.MessageLogReceiverEndpointFactory;
 import de.otto.synapse.eventsource.EventSourceBuilder;
@@ -15,6 +16,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 
+import java.time.Clock;
+
 @Configuration
 @EnableConfigurationProperties(CompactionProperties.class)
 @Import(S3SnapshotAutoConfiguration.class)
@@ -30,9 +33,18 @@ public class CompactionAutoConfiguration {
     @ConditionalOnMissingBean
     @ConditionalOnProperty(prefix = "synapse.compaction", name = "enabled", havingValue = "true")
     public CompactionService compactionService(final SnapshotWriteService snapshotWriteService,
+                                               final SnapshotReadService snapshotReadService,
                                                final StateRepository<String> compactionStateRepository,
                                                final MessageLogReceiverEndpointFactory messageLogReceiverEndpointFactory,
-                                               final MessageStoreFactory<? extends MessageStore> messageStoreFactory) {
-        return new CompactionService(snapshotWriteService, compactionStateRepository, messageLogReceiverEndpointFactory, messageStoreFactory);
+                                               final MessageStoreFactory<? extends MessageStore> messageStoreFactory,
+                                               final CompactionProperties compactionProperties,
+                                               final SnapshotProperties snapshotProperties) {
+        if (compactionProperties.isIncremental() && snapshotProperties.getFormat() != SnapshotProperties.Format.CHUNKED) {
+            // zip snapshots can not be merged, so every incremental compaction would fall back to a full compaction:
+            throw new IllegalStateException("Incremental compaction requires synapse.snapshot.format=chunked, but format is "
+                    + snapshotProperties.getFormat());
+        }
+        return new CompactionService(snapshotWriteService, snapshotReadService, compactionStateRepository,
+                messageLogReceiverEndpointFactory, messageStoreFactory, compactionProperties, Clock.systemDefaultZone());
     }
 }
@@ -7,6 +7,14 @@ public class CompactionProperties {
 
     private boolean enabled = false;
 
+    /**
+     * If enabled, the latest snapshot is merged with the changes of the channel since the snapshot was created,
+     * instead of reading the whole snapshot into a StateRepository. Snapshots are written sorted by key, so they
+     * can be merged. Requires {@code synapse.snapshot.format=chunked}, otherwise the CompactionService is failing to
+     * start. Compactions fall back to a full rebuild, if the latest snapshot is not a sorted, chunked snapshot.
+     */
+    private boolean incremental = false;
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -15,5 +23,13 @@ public class CompactionProperties {
         this.enabled = enabled;
     }
 
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
 
 }
@@ -1,5 +1,7 @@
 package de.otto.synapse.configuration.aws;
 
+import de.otto.synapse.compaction.s3.GzipSnapshotCompression;
+import de.otto.synapse.compaction.s3.SnapshotCompression;
 import de.otto.synapse.compaction.s3.SnapshotReadService;
 import de.otto.synapse.compaction.s3.SnapshotWriteService;
 import de.otto.synapse.messagestore.MessageStoreFactory;
@@ -18,17 +20,25 @@ import software.amazon.awssdk.services.s3.S3Client;
 @Import(S3AutoConfiguration.class)
 public class S3SnapshotAutoConfiguration {
 
+    @Bean
+    @ConditionalOnMissingBean
+    public SnapshotCompression snapshotCompression(final SnapshotProperties snapshotProperties) {
+        return new GzipSnapshotCompression(snapshotProperties.getCompressionLevel());
+    }
+
     @Bean
     @ConditionalOnMissingBean
     public SnapshotReadService snapshotReadService(final S3Client s3Client,
-                                                   final SnapshotProperties snapshotProperties) {
-        return new SnapshotReadService(snapshotProperties, s3Client);
+                                                   final SnapshotProperties snapshotProperties,
+                                                   final SnapshotCompression snapshotCompression) {
+        return new SnapshotReadService(snapshotProperties, s3Client, snapshotCompression, null);
     }
     @Bean
     @ConditionalOnMissingBean
     public SnapshotWriteService snapshotWriteService(final S3Client s3Client,
-                                                     final SnapshotProperties snapshotProperties) {
-        return new SnapshotWriteService(s3Client, snapshotProperties);
+                                                     final SnapshotProperties snapshotProperties,
+                                                     final SnapshotCompression snapshotCompression) {
+        return new SnapshotWriteService(s3Client, snapshotProperties, snapshotCompression, null);
     }
 
     @Bean
@@ -7,6 +7,62 @@ public class SnapshotProperties {
 
     private String bucketName = null;
 
+    /**
+     * The format of written snapshots:
+     * <ul>
+     *     <li>{@code zip}: a zip file containing the JSON document of the snapshot (.json.zip). This is the format
+     *     of previous versions, that can be read by all versions of Synapse.</li>
+     *     <li>{@code chunked}: independently compressed chunks of the JSON document, followed by an index of the
+     *     chunks (.json.gz, using the default compression). Chunked snapshots are written and read concurrently,
+     *     and they are required for incremental compactions. They can only be read by services using a version of
+     *     Synapse that supports this format.</li>
+     * </ul>
+     * Both formats are always readable, independent of this property.
+     */
+    private Format format = Format.ZIP;
+
+    /**
+     * The compression level (0-9) of snapshots, or -1 for the default compression level.
+     */
+    private int compressionLevel = -1;
+
+    /**
+     * The number of threads used to serialize and compress chunks of a snapshot, if the {@link Format#CHUNKED chunked}
+     * format is used.
+     */
+    private int writerThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The approximate size of uncompressed chunks of a snapshot in bytes.
+     */
+    private int chunkSizeBytes = 4 * 1024 * 1024;
+
+    /**
+     * The size of the parts in bytes, used to upload snapshots to S3. The minimum size is 5 MB.
+     */
+    private int partSizeBytes = 16 * 1024 * 1024;
+
+    /**
+     * The maximum number of parts of a snapshot that are uploaded concurrently.
+     */
+    private int maxConcurrentUploads = 4;
+
+    /**
+     * If true, snapshots are written to a temp file before they are uploaded to S3. Otherwise, snapshots are
+     * streamed to S3 while they are written.
+     */
+    private boolean useTempFile = false;
+
+    /**
+     * The number of threads used to read, decompress and parse chunks of a snapshot.
+     */
+    private int readerThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The maximum number of chunks of a snapshot that are read in advance, while previous chunks are consumed.
+     */
+    private int readerPrefetchChunks = 2 * Runtime.getRuntime().availableProcessors();
+
     public String getBucketName() {
         return bucketName;
     }
@@ -15,4 +71,82 @@ public class SnapshotProperties {
             this.bucketName = bucketName;
         }
 
+    public Format getFormat() {
+        return format;
+    }
+
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+
+    public void setWriterThreads(int writerThreads) {
+        this.writerThreads = writerThreads;
+    }
+
+    public int getChunkSizeBytes() {
+        return chunkSizeBytes;
+    }
+
+    public void setChunkSizeBytes(int chunkSizeBytes) {
+        this.chunkSizeBytes = chunkSizeBytes;
+    }
+
+    public int getPartSizeBytes() {
+        return partSizeBytes;
+    }
+
+    public void setPartSizeBytes(int partSizeBytes) {
+        this.partSizeBytes = partSizeBytes;
+    }
+
+    public int getMaxConcurrentUploads() {
+        return maxConcurrentUploads;
+    }
+
+    public void setMaxConcurrentUploads(int maxConcurrentUploads) {
+        this.maxConcurrentUploads = maxConcurrentUploads;
+    }
+
+    public boolean isUseTempFile() {
+        return useTempFile;
+    }
+
+    public void setUseTempFile(boolean useTempFile) {
+        this.useTempFile = useTempFile;
+    }
+
+    public int getReaderThreads() {
+        return readerThreads;
+    }
+
+    public void setReaderThreads(int readerThreads) {
+        this.readerThreads = readerThreads;
+    }
+
+    public int getReaderPrefetchChunks() {
+        return readerPrefetchChunks;
+    }
+
+    public void setReaderPrefetchChunks(int readerPrefetchChunks) {
+        this.readerPrefetchChunks = readerPrefetchChunks;
+    }
+
+    public enum Format {
+        /** Legacy snapshot format: a zip file containing a single JSON document. */
+        ZIP,
+        /** Snapshots consisting of independently compressed chunks, followed by an index of the chunks. */
+        CHUNKED
+    }
 }
@@ -0,0 +1,245 @@
+package de.otto.synapse.helper.s3;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * OutputStream that uploads the written bytes to S3, without buffering the whole object in memory or on disk.
+ *
+ * <p>
+ *     The bytes are uploaded as parts of a multipart upload, while more bytes are written to the stream. Up to
+ *     {@code maxConcurrentUploads} parts are uploaded concurrently. Writing to the stream is blocked, if all of them
+ *     are still in progress.
+ * </p>
+ * <p>
+ *     Objects that are smaller than a single part are uploaded using a single PutObject request on {@link #close()}.
+ * </p>
+ */
+public class S3MultipartOutputStream extends OutputStream {
+
+    private static final Logger LOG = getLogger(S3MultipartOutputStream.class);
+    public static final int MIN_PART_SIZE_IN_BYTES = 5 * 1024 * 1024; //5 MB
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final String key;
+    private final int partSizeInBytes;
+    private final ExecutorService executorService;
+    private final Semaphore availableBuffers;
+    private final List<CompletedPart> completedParts = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private byte[] buffer;
+    private int position = 0;
+    private int partNumber = 0;
+    private String uploadId;
+    private boolean closed = false;
+
+    /**
+     * Creates an S3MultipartOutputStream.
+     *
+     * @param s3Client the S3 client
+     * @param bucketName the name of the bucket
+     * @param key the key of the uploaded object
+     * @param partSizeInBytes the size of the parts. The minimum part size of S3 is 5 MB
+     * @param maxConcurrentUploads the max number of parts that are uploaded concurrently
+     */
+    public S3MultipartOutputStream(final S3Client s3Client,
+                                   final String bucketName,
+                                   final String key,
+                                   final int partSizeInBytes,
+                                   final int maxConcurrentUploads) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.partSizeInBytes = Math.max(MIN_PART_SIZE_IN_BYTES, partSizeInBytes);
+        this.executorService = newFixedThreadPool(Math.max(1, maxConcurrentUploads),
+                new ThreadFactoryBuilder().setNameFormat("s3-upload-%d").setDaemon(true).build());
+        this.availableBuffers = new Semaphore(Math.max(1, maxConcurrentUploads));
+        this.buffer = new byte[this.partSizeInBytes];
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        ensureOpen();
+        if (position == buffer.length) {
+            uploadBufferedPart();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        ensureOpen();
+        int off = offset;
+        int remaining = length;
+        while (remaining > 0) {
+            if (position == buffer.length) {
+                uploadBufferedPart();
+            }
+            final int n = Math.min(remaining, buffer.length - position);
+            System.arraycopy(bytes, off, buffer, position, n);
+            position += n;
+            off += n;
+            remaining -= n;
+        }
+    }
+
+    /**
+     * Uploads the remaining bytes and completes the upload of the object.
+     *
+     * @throws IOException if uploading a part of the object failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (uploadId == null) {
+                final PutObjectResponse putObjectResponse = s3Client.putObject(PutObjectRequest.builder()
+                                .bucket(bucketName)
+                                .key(key)
+                                .build(),
+                        RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, position), position));
+                LOG.debug("upload {} to bucket {}: {}", key, bucketName, putObjectResponse);
+            } else {
+                if (position > 0) {
+                    uploadBufferedPart();
+                }
+                awaitUploads();
+                completedParts.sort(Comparator.comparing(CompletedPart::partNumber));
+                s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                        .build());
+                LOG.debug("upload {} to bucket {} in {} parts", key, bucketName, completedParts.size());
+            }
+        } catch (final IOException | RuntimeException e) {
+            abort();
+            throw e;
+        } finally {
+            buffer = null;
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Aborts the upload of the object. Parts that were already uploaded are removed. Calling this method more than
+     * once has no effect.
+     */
+    public void abort() {
+        closed = true;
+        executorService.shutdownNow();
+        final String abortedUploadId = uploadId;
+        if (abortedUploadId == null) {
+            return;
+        }
+        uploadId = null;
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(abortedUploadId)
+                    .build());
+        } catch (final RuntimeException e) {
+            LOG.error("Failed to abort multipart upload of {} to bucket {}: {}", key, bucketName, e.getMessage());
+        }
+    }
+
+    private void uploadBufferedPart() throws IOException {
+        checkFailure();
+        if (uploadId == null) {
+            uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build()).uploadId();
+        }
+        final String partUploadId = uploadId;
+        final byte[] part = buffer;
+        final int partLength = position;
+        final int number = ++partNumber;
+        executorService.execute(() -> uploadPart(partUploadId, number, part, partLength));
+        acquireBuffer();
+        buffer = new byte[partSizeInBytes];
+        position = 0;
+    }
+
+    private void uploadPart(final String partUploadId, final int number, final byte[] part, final int partLength) {
+        try {
+            if (failure.get() == null) {
+                final String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucketName)
+                                .key(key)
+                                .uploadId(partUploadId)
+                                .partNumber(number)
+                                .build(),
+                        RequestBody.fromInputStream(new ByteArrayInputStream(part, 0, partLength), partLength)).eTag();
+                synchronized (completedParts) {
+                    completedParts.add(CompletedPart.builder().partNumber(number).eTag(eTag).build());
+                }
+            }
+        } catch (final RuntimeException e) {
+            LOG.error("Failed to upload part {} of {} to bucket {}: {}", number, key, bucketName, e.getMessage());
+            failure.compareAndSet(null, e);
+        } finally {
+            availableBuffers.release();
+        }
+    }
+
+    private void acquireBuffer() throws IOException {
+        try {
+            availableBuffers.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading " + key);
+        }
+    }
+
+    private void awaitUploads() throws IOException {
+        executorService.shutdown();
+        try {
+            while (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.info("Waiting for upload of {} to bucket {}", key, bucketName);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading " + key);
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        final Throwable throwable = failure.get();
+        if (throwable != null) {
+            throw new IOException("Failed to upload " + key + " to bucket " + bucketName + ": " + throwable.getMessage(), throwable);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+    }
+}
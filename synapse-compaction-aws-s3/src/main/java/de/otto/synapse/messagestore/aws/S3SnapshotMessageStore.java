@@ -10,8 +10,10 @@ import de.otto.synapse.channel.ChannelPosition;
 import de.otto.synapse.channel.ShardPosition;
 import de.otto.synapse.compaction.s3.SnapshotFileHelper;
 import de.otto.synapse.compaction.s3.SnapshotMessage;
+import de.otto.synapse.compaction.s3.ParallelSnapshotReader;
 import de.otto.synapse.compaction.s3.SnapshotMessageDecoder;
 import de.otto.synapse.compaction.s3.SnapshotReadService;
+import de.otto.synapse.compaction.s3.SnapshotSource;
 import de.otto.synapse.info.SnapshotReaderNotification;
 import de.otto.synapse.info.SnapshotReaderStatus;
 import de.otto.synapse.message.Header;
@@ -33,7 +35,6 @@ import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
-import java.util.zip.ZipInputStream;
 
 import static com.google.common.collect.ImmutableMap.builder;
 import static de.otto.synapse.channel.ChannelPosition.channelPosition;
@@ -47,11 +48,10 @@ public class S3SnapshotMessageStore implements SnapshotMessageStore {
     private static final Logger LOG = getLogger(S3SnapshotMessageStore.class);
 
     private MessageIterator messageIterator;
+    private ParallelSnapshotReader parallelSnapshotReader;
     private ChannelPosition channelPosition;
 
-    private ZipInputStream zipInputStream;
-    private BufferedInputStream bufferedInputStream;
-    private FileInputStream fileInputStream;
+    private InputStream inputStream;
 
     private Instant snapshotTimestamp;
     private final String channelName;
@@ -64,30 +64,32 @@ public class S3SnapshotMessageStore implements SnapshotMessageStore {
         this.eventPublisher = eventPublisher;
         publishEvent(STARTING, "Retrieve snapshot file from S3.", null);
         try {
-            final Optional<File> latestSnapshot = snapshotReadService.retrieveLatestSnapshot(channelName);
+            final Optional<SnapshotSource> latestSnapshot = snapshotReadService.retrieveLatestSnapshotSource(channelName);
             if (latestSnapshot.isPresent()) {
-                final File snapshotFile = latestSnapshot.get();
-                this.snapshotTimestamp = SnapshotFileHelper.getSnapshotTimestamp(snapshotFile.getName());
+                final SnapshotSource snapshotSource = latestSnapshot.get();
+                this.snapshotTimestamp = SnapshotFileHelper.getSnapshotTimestamp(snapshotSource.getName());
                 publishEvent(STARTED, "Retrieve snapshot file from S3.", snapshotTimestamp);
-                fileInputStream = new FileInputStream(snapshotFile);
-                bufferedInputStream = new BufferedInputStream(fileInputStream);
-                zipInputStream = new ZipInputStream(bufferedInputStream);
-                zipInputStream.getNextEntry();
-                JsonFactory jsonFactory = new JsonFactory();
-                final JsonParser jsonParser = jsonFactory.createParser(zipInputStream);
-                while (!jsonParser.isClosed() && messageIterator == null) {
-                    JsonToken currentToken = jsonParser.nextToken();
-                    if (currentToken == JsonToken.FIELD_NAME) {
-                        switch (jsonParser.getValueAsString()) {
-                            case "startSequenceNumbers":
-                                channelPosition = processSequenceNumbers(jsonParser);
-                                break;
-                            case "data":
-                                // TODO: This expects "startSequenceNumbers" to come _before_ "data"
-                                messageIterator = new MessageIterator(jsonParser);
-                                break;
-                            default:
-                                break;
+                parallelSnapshotReader = snapshotReadService.openParallelSnapshotReader(snapshotSource).orElse(null);
+                if (parallelSnapshotReader != null) {
+                    channelPosition = parallelSnapshotReader.getChannelPosition();
+                } else {
+                    inputStream = SnapshotFileHelper.openSnapshot(snapshotSource.getName(), snapshotSource.openStream(), snapshotReadService.getSnapshotCompression());
+                    JsonFactory jsonFactory = new JsonFactory();
+                    final JsonParser jsonParser = jsonFactory.createParser(inputStream);
+                    while (!jsonParser.isClosed() && messageIterator == null) {
+                        JsonToken currentToken = jsonParser.nextToken();
+                        if (currentToken == JsonToken.FIELD_NAME) {
+                            switch (jsonParser.getValueAsString()) {
+                                case "startSequenceNumbers":
+                                    channelPosition = processSequenceNumbers(jsonParser);
+                                    break;
+                                case "data":
+                                    // TODO: This expects "startSequenceNumbers" to come _before_ "data"
+                                    messageIterator = new MessageIterator(jsonParser);
+                                    break;
+                                default:
+                                    break;
+                            }
                         }
                     }
                 }
@@ -96,25 +98,11 @@ public class S3SnapshotMessageStore implements SnapshotMessageStore {
             }
         } catch (final Exception e) {
             try {
-                if (zipInputStream != null) {
-                    zipInputStream.close();
+                if (inputStream != null) {
+                    inputStream.close();
                 }
             } catch (final Exception e1) {
-                LOG.error("Error closing zipInputStream", e1);
-            }
-            try {
-                if (bufferedInputStream != null) {
-                    bufferedInputStream.close();
-                }
-            } catch (IOException ioException) {
-                LOG.error("Exception closing bufferedInputStream", ioException);
-            }
-            try {
-                if (fileInputStream != null) {
-                    fileInputStream.close();
-                }
-            } catch (IOException ioException) {
-                LOG.error("Exception closing fileInputStream", ioException);
+                LOG.error("Error closing inputStream", e1);
             }
             publishEvent(FAILED, "Failed to load snapshot from S3: " + e.getMessage(), snapshotTimestamp);
             throw new RuntimeException(e);
@@ -126,14 +114,11 @@ public class S3SnapshotMessageStore implements SnapshotMessageStore {
         LOG.info("Closing SnapshotMessageStore");
         publishEvent(FINISHED, "Finished to load snapshot from S3.", snapshotTimestamp);
         try {
-            if (zipInputStream != null) {
-                zipInputStream.close();
+            if (parallelSnapshotReader != null) {
+                parallelSnapshotReader.close();
             }
-            if (bufferedInputStream != null) {
-                bufferedInputStream.close();
-            }
-            if (fileInputStream != null) {
-                fileInputStream.close();
+            if (inputStream != null) {
+                inputStream.close();
             }
         } catch (final IOException e) {
             throw new UncheckedIOException(e.getMessage(), e);
@@ -171,9 +156,15 @@ public class S3SnapshotMessageStore implements SnapshotMessageStore {
 
     @Override
     public Stream<MessageStoreEntry> stream() {
-        return messageIterator != null
-                ? Streams.stream(messageIterator).map(msg -> MessageStoreEntry.of(channelName, ImmutableMap.of(Index.ORIGIN, "Snapshot"), msg))
-                : Stream.empty();
+        final Stream<TextMessage> messages;
+        if (parallelSnapshotReader != null) {
+            messages = parallelSnapshotReader.stream();
+        } else if (messageIterator != null) {
+            messages = Streams.stream(messageIterator);
+        } else {
+            messages = Stream.empty();
+        }
+        return messages.map(msg -> MessageStoreEntry.of(channelName, ImmutableMap.of(Index.ORIGIN, "Snapshot"), msg));
     }
 
     /**
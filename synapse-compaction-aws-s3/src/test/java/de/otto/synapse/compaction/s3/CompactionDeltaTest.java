@@ -0,0 +1,69 @@
+package de.otto.synapse.compaction.s3;
+
+import de.otto.synapse.message.TextMessage;
+import org.junit.Test;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static de.otto.synapse.translator.MessageFormat.V1;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyIterator;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CompactionDeltaTest {
+
+    @Test
+    public void shouldMergeChangesWithSortedSnapshot() {
+        // given
+        final CompactionDelta delta = new CompactionDelta(V1);
+        delta.accept(TextMessage.of("b", "changed-b"));
+        delta.accept(TextMessage.of("c", null));
+        delta.accept(TextMessage.of("e", "new-e"));
+        delta.accept(TextMessage.of("0", "new-0"));
+
+        final List<Map.Entry<String, String>> snapshot = asList(
+                entry("a", "a"),
+                entry("b", "b"),
+                entry("c", "c"),
+                entry("d", "d"));
+
+        // when
+        final List<Map.Entry<String, String>> merged = new ArrayList<>();
+        delta.merge(snapshot.iterator(), (key, value) -> merged.add(entry(key, value)));
+
+        // then
+        assertThat(merged, contains(
+                entry("0", "new-0"),
+                entry("a", "a"),
+                entry("b", "changed-b"),
+                entry("d", "d"),
+                entry("e", "new-e")));
+    }
+
+    @Test
+    public void shouldApplyLastChangeOfKey() {
+        // given
+        final CompactionDelta delta = new CompactionDelta(V1);
+        delta.accept(TextMessage.of("a", "first"));
+        delta.accept(TextMessage.of("a", null));
+        delta.accept(TextMessage.of("b", null));
+        delta.accept(TextMessage.of("b", "second"));
+
+        // when
+        final List<Map.Entry<String, String>> merged = new ArrayList<>();
+        delta.merge(emptyIterator(), (key, value) -> merged.add(entry(key, value)));
+
+        // then
+        assertThat(delta.size(), is(2L));
+        assertThat(merged, contains(entry("b", "second")));
+    }
+
+    private static Map.Entry<String, String> entry(final String key, final String value) {
+        return new SimpleImmutableEntry<>(key, value);
+    }
+}
@@ -0,0 +1,220 @@
+package de.otto.synapse.compaction.s3;
+
+import de.otto.synapse.annotation.EnableEventSourcing;
+import de.otto.synapse.channel.ChannelPosition;
+import de.otto.synapse.channel.InMemoryChannel;
+import de.otto.synapse.channel.InMemoryChannels;
+import de.otto.synapse.configuration.InMemoryMessageLogTestConfiguration;
+import de.otto.synapse.configuration.aws.SnapshotProperties;
+import de.otto.synapse.helper.s3.S3Helper;
+import de.otto.synapse.message.TextMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static de.otto.synapse.channel.ChannelPosition.channelPosition;
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
+import static java.lang.String.valueOf;
+import static java.util.Collections.reverse;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+@RunWith(SpringRunner.class)
+@EnableAutoConfiguration
+@ComponentScan(basePackages = {"de.otto.synapse"})
+@SpringBootTest(classes = {InMemIncrementalCompactionAcceptanceTest.class, InMemoryMessageLogTestConfiguration.class})
+@TestPropertySource(properties = {
+        "spring.main.allow-bean-definition-overriding=true",
+        "synapse.snapshot.bucket-name=de-otto-promo-compaction-test-snapshots",
+        "synapse.snapshot.format=chunked",
+        "synapse.compaction.enabled=true",
+        "synapse.compaction.incremental=true"}
+)
+@EnableEventSourcing
+@DirtiesContext
+public class InMemIncrementalCompactionAcceptanceTest {
+
+    private static final String INTEGRATION_TEST_BUCKET = "de-otto-promo-compaction-test-snapshots";
+
+    @Autowired
+    private InMemoryChannels inMemoryChannels;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Autowired
+    private CompactionService compactionService;
+
+    private S3Helper s3Helper;
+
+    @Before
+    public void setup() {
+        s3Helper = new S3Helper(s3Client);
+        s3Helper.createBucket(INTEGRATION_TEST_BUCKET);
+        s3Helper.deleteAllObjectsInBucket(INTEGRATION_TEST_BUCKET);
+    }
+
+    @After
+    public void tearDown() {
+        s3Helper.deleteAllObjectsInBucket(INTEGRATION_TEST_BUCKET);
+    }
+
+    @Test
+    public void shouldWriteSortedSnapshotInFullCompaction() throws Exception {
+        //given
+        final String channelName = "incremental-compaction-test-full";
+        sendTestMessages(channelName, 1, 100, "first");
+
+        //when
+        final String fileName = compactionService.compact(channelName);
+
+        //then
+        try (ParallelSnapshotReader reader = openSnapshot(fileName)) {
+            assertThat(reader.isSorted(), is(true));
+            final List<String> keys = new ArrayList<>(entriesOf(reader).keySet());
+            assertThat(keys, hasSize(100));
+            assertThat(keys, is(keys.stream().sorted().collect(Collectors.toList())));
+        }
+    }
+
+    @Test
+    public void shouldMergeSortedSnapshotWithChangesOfChannel() throws Exception {
+        //given
+        final String channelName = "incremental-compaction-test-merge";
+        sendTestMessages(channelName, 1, 100, "first");
+        // a snapshot containing an entry that is not part of the channel, so only a merge is able to keep it:
+        uploadSnapshot(channelName, SnapshotProperties.Format.CHUNKED, endOfChannel(channelName), sortedKeys(1, 100, "snapshot-only"));
+        sendTestMessages(channelName, 50, 150, "second");
+        sendMessage(channelName, "1", null);
+
+        //when
+        final String fileName = compactionService.compact(channelName);
+
+        //then
+        try (ParallelSnapshotReader reader = openSnapshot(fileName)) {
+            assertThat(reader.isSorted(), is(true));
+            assertThat(reader.getChannelPosition(), is(endOfChannel(channelName)));
+            final Map<String, String> entries = entriesOf(reader);
+            assertThat(entries.size(), is(150));
+            assertThat(entries, hasEntry("snapshot-only", "snapshot-snapshot-only"));
+            assertThat(entries, hasEntry("2", "snapshot-2"));
+            assertThat(entries, hasEntry("49", "snapshot-49"));
+            assertThat(entries, hasEntry("50", "second-50"));
+            assertThat(entries, hasEntry("150", "second-150"));
+            assertThat(entries, not(hasKey("1")));
+        }
+    }
+
+    @Test
+    public void shouldFallBackToFullCompactionForLegacyZipSnapshot() throws Exception {
+        //given
+        final String channelName = "incremental-compaction-test-zip";
+        sendTestMessages(channelName, 1, 100, "first");
+        uploadSnapshot(channelName, SnapshotProperties.Format.ZIP, endOfChannel(channelName), sortedKeys(1, 100, "snapshot-only"));
+        sendTestMessages(channelName, 50, 150, "second");
+
+        //when
+        final String fileName = compactionService.compact(channelName);
+
+        //then
+        assertFullCompaction(fileName, channelName);
+    }
+
+    @Test
+    public void shouldFallBackToFullCompactionForUnsortedSnapshot() throws Exception {
+        //given
+        final String channelName = "incremental-compaction-test-unsorted";
+        sendTestMessages(channelName, 1, 100, "first");
+        final List<String> unsortedKeys = sortedKeys(1, 100, "snapshot-only");
+        reverse(unsortedKeys);
+        uploadSnapshot(channelName, SnapshotProperties.Format.CHUNKED, endOfChannel(channelName), unsortedKeys);
+        sendTestMessages(channelName, 50, 150, "second");
+
+        //when
+        final String fileName = compactionService.compact(channelName);
+
+        //then
+        assertFullCompaction(fileName, channelName);
+    }
+
+    private void assertFullCompaction(final String fileName, final String channelName) throws IOException {
+        try (ParallelSnapshotReader reader = openSnapshot(fileName)) {
+            assertThat(reader.isSorted(), is(true));
+            assertThat(reader.getChannelPosition(), is(endOfChannel(channelName)));
+            final Map<String, String> entries = entriesOf(reader);
+            // the in-memory message store of full compactions is not reading the snapshot from S3:
+            assertThat(entries, not(hasKey("snapshot-only")));
+            assertThat(entries.size(), is(150));
+            assertThat(entries, hasEntry("1", "first-1"));
+            assertThat(entries, hasEntry("50", "second-50"));
+        }
+    }
+
+    private void uploadSnapshot(final String channelName,
+                                final SnapshotProperties.Format format,
+                                final ChannelPosition position,
+                                final List<String> keys) throws IOException {
+        final SnapshotProperties properties = new SnapshotProperties();
+        properties.setBucketName(INTEGRATION_TEST_BUCKET);
+        properties.setFormat(format);
+        new SnapshotWriteService(s3Client, properties).writeSnapshot(channelName, position, keys.size(),
+                out -> keys.forEach(key -> out.accept(key, "snapshot-" + key)));
+    }
+
+    private ParallelSnapshotReader openSnapshot(final String fileName) throws IOException {
+        final S3Object s3Object = s3Helper.listAll(INTEGRATION_TEST_BUCKET).stream()
+                .filter(o -> o.key().equals(fileName))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Snapshot " + fileName + " not found"));
+        return ParallelSnapshotReader.open(
+                new S3SnapshotSource(s3Client, INTEGRATION_TEST_BUCKET, fileName, s3Object.size()),
+                new GzipSnapshotCompression(), 2, 2)
+                .orElseThrow(() -> new AssertionError("Snapshot " + fileName + " does not have an index"));
+    }
+
+    private Map<String, String> entriesOf(final ParallelSnapshotReader reader) {
+        final Map<String, String> entries = new LinkedHashMap<>();
+        reader.entries().forEach(entry -> entries.put(entry.getKey(), entry.getValue()));
+        return entries;
+    }
+
+    private List<String> sortedKeys(final int from, final int to, final String additionalKey) {
+        final List<String> keys = IntStream.rangeClosed(from, to)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.toList());
+        keys.add(additionalKey);
+        keys.sort(null);
+        return keys;
+    }
+
+    private ChannelPosition endOfChannel(final String channelName) {
+        final InMemoryChannel channel = inMemoryChannels.getChannel(channelName);
+        return channelPosition(fromPosition(channelName, valueOf(channel.getEventQueue().size() - 1)));
+    }
+
+    private void sendTestMessages(final String channelName, final int from, final int to, final String payloadPrefix) {
+        IntStream.rangeClosed(from, to).forEach(key -> sendMessage(channelName, valueOf(key), payloadPrefix + "-" + key));
+    }
+
+    private void sendMessage(final String channelName, final String key, final String payload) {
+        inMemoryChannels.getChannel(channelName).send(TextMessage.of(key, payload));
+    }
+}
@@ -0,0 +1,100 @@
+package de.otto.synapse.compaction.s3;
+
+import de.otto.synapse.channel.ChannelPosition;
+import de.otto.synapse.message.TextMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static de.otto.synapse.channel.ChannelPosition.channelPosition;
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ParallelSnapshotReaderTest {
+
+    private final GzipSnapshotCompression compression = new GzipSnapshotCompression();
+    private File snapshotFile;
+
+    @Before
+    public void setUp() throws IOException {
+        snapshotFile = File.createTempFile("compaction-test-snapshot-", GzipSnapshotCompression.GZIP_FILE_EXTENSION);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile.toPath());
+    }
+
+    @Test
+    public void shouldReadChunksOfSnapshotInOrder() throws Exception {
+        // given
+        final ChannelPosition channelPosition = channelPosition(fromPosition("shard1", "1234"), fromPosition("shard2", "abcde"));
+        writeSnapshot(channelPosition, 1000);
+
+        // when
+        final List<String> keys;
+        final ChannelPosition actualChannelPosition;
+        try (ParallelSnapshotReader reader = ParallelSnapshotReader.open(SnapshotSource.of(snapshotFile), compression, 4, 2).get()) {
+            actualChannelPosition = reader.getChannelPosition();
+            assertThat(reader.size(), is(1000L));
+            keys = reader.stream()
+                    .map(message -> message.getKey().compactionKey())
+                    .collect(Collectors.toList());
+        }
+
+        // then
+        assertThat(actualChannelPosition, is(channelPosition));
+        assertThat(keys, is(IntStream.range(0, 1000).mapToObj(i -> "key-" + i).collect(Collectors.toList())));
+    }
+
+    @Test
+    public void shouldConsumeSnapshotInParallel() throws Exception {
+        // given
+        writeSnapshot(channelPosition(fromPosition("shard1", "1234")), 1000);
+
+        // when
+        final List<TextMessage> messages;
+        try (ParallelSnapshotReader reader = ParallelSnapshotReader.open(SnapshotSource.of(snapshotFile), compression, 4, 2).get()) {
+            messages = reader.stream().parallel().collect(Collectors.toList());
+        }
+
+        // then
+        assertThat(messages.size(), is(1000));
+        assertThat(messages.get(999).getKey().compactionKey(), is("key-999"));
+        assertThat(messages.get(999).getPayload(), is("{\"value\":999}"));
+    }
+
+    @Test
+    public void shouldNotOpenSnapshotWithoutIndex() throws Exception {
+        // given
+        final File zippedSnapshot = new ClassPathResource("compaction-integrationtest-snapshot-2017-09-29T09-02Z-3053797267191232636.json.zip").getFile();
+
+        // when
+        final Optional<ParallelSnapshotReader> reader = ParallelSnapshotReader.open(SnapshotSource.of(zippedSnapshot), compression, 4, 2);
+
+        // then
+        assertThat(reader.isPresent(), is(false));
+    }
+
+    private void writeSnapshot(final ChannelPosition channelPosition, final int entries) throws IOException {
+        try (FileOutputStream outputStream = new FileOutputStream(snapshotFile);
+             ParallelSnapshotWriter writer = new ParallelSnapshotWriter(outputStream, compression, 4, 100)) {
+            writer.writeHeader(channelPosition);
+            for (int i = 0; i < entries; i++) {
+                writer.write("key-" + i, "{\"value\":" + i + "}");
+            }
+            writer.finish();
+        }
+    }
+}
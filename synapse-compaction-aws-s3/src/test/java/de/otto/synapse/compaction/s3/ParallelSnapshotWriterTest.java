@@ -0,0 +1,99 @@
+package de.otto.synapse.compaction.s3;
+
+import de.otto.synapse.channel.ChannelPosition;
+import de.otto.synapse.consumer.MessageConsumer;
+import de.otto.synapse.consumer.MessageDispatcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static de.otto.synapse.channel.ChannelPosition.channelPosition;
+import static de.otto.synapse.channel.ShardPosition.fromHorizon;
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ParallelSnapshotWriterTest {
+
+    private File snapshotFile;
+
+    @Before
+    public void setUp() throws IOException {
+        snapshotFile = File.createTempFile("compaction-test-snapshot-", GzipSnapshotCompression.GZIP_FILE_EXTENSION);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile.toPath());
+    }
+
+    @Test
+    public void shouldWriteSnapshotInMultipleChunks() throws Exception {
+        // given
+        final ChannelPosition channelPosition = channelPosition(fromPosition("shard1", "1234"), fromHorizon("shard2"));
+
+        // when
+        final long chunks;
+        try (FileOutputStream outputStream = new FileOutputStream(snapshotFile);
+             ParallelSnapshotWriter writer = new ParallelSnapshotWriter(outputStream, new GzipSnapshotCompression(), 4, 100)) {
+            writer.writeHeader(channelPosition);
+            for (int i = 0; i < 1000; i++) {
+                writer.write("key-" + i, "{\"value\":" + i + "}");
+            }
+            chunks = writer.finish();
+        }
+
+        // then
+        final List<String> keys = new ArrayList<>();
+        final List<Map> payloads = new ArrayList<>();
+        final MessageConsumer<Map> messageConsumer = MessageConsumer.of(".*", Map.class, (message) -> {
+            keys.add(message.getKey().compactionKey());
+            payloads.add(message.getPayload());
+        });
+        final ChannelPosition actualChannelPosition = new SnapshotParser().parse(
+                snapshotFile,
+                new MessageDispatcher(singletonList(messageConsumer)));
+
+        assertThat(chunks, is(greaterThan(2L)));
+        assertThat(actualChannelPosition, is(channelPosition));
+        assertThat(keys.size(), is(1000));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(keys.get(i), is("key-" + i));
+            assertThat(payloads.get(i).get("value"), is(i));
+        }
+    }
+
+    @Test
+    public void shouldWriteEmptySnapshot() throws Exception {
+        // given
+        final ChannelPosition channelPosition = channelPosition(fromPosition("shard1", "1234"));
+
+        // when
+        try (FileOutputStream outputStream = new FileOutputStream(snapshotFile);
+             ParallelSnapshotWriter writer = new ParallelSnapshotWriter(outputStream, new GzipSnapshotCompression(), 2, 100)) {
+            writer.writeHeader(channelPosition);
+            writer.finish();
+        }
+
+        // then
+        final List<String> keys = new ArrayList<>();
+        final MessageConsumer<Map> messageConsumer = MessageConsumer.of(".*", Map.class,
+                (message) -> keys.add(message.getKey().compactionKey()));
+        final ChannelPosition actualChannelPosition = new SnapshotParser().parse(
+                snapshotFile,
+                new MessageDispatcher(singletonList(messageConsumer)));
+
+        assertThat(actualChannelPosition, is(channelPosition));
+        assertThat(keys.size(), is(0));
+    }
+}
@@ -3,6 +3,7 @@ package de.otto.synapse.compaction.s3;
 import de.otto.synapse.channel.ChannelPosition;
 import de.otto.synapse.consumer.MessageConsumer;
 import de.otto.synapse.consumer.MessageDispatcher;
+import de.otto.synapse.configuration.aws.SnapshotProperties;
 import de.otto.synapse.state.ConcurrentMapStateRepository;
 import de.otto.synapse.state.StateRepository;
 import org.junit.After;
@@ -11,8 +12,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.*;
 
 import java.io.File;
 import java.io.IOException;
@@ -30,13 +30,18 @@ import static de.otto.synapse.channel.ChannelPosition.channelPosition;
 import static de.otto.synapse.channel.ChannelPosition.fromHorizon;
 import static de.otto.synapse.channel.ShardPosition.fromPosition;
 import static de.otto.synapse.compaction.s3.SnapshotServiceTestUtils.snapshotProperties;
+import static java.lang.String.valueOf;
 import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.core.StringEndsWith.endsWith;
 import static org.hamcrest.core.StringStartsWith.startsWith;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class SnapshotWriteServiceTest {
@@ -73,6 +78,71 @@ public class SnapshotWriteServiceTest {
         assertFalse(file.exists());
     }
 
+    @Test
+    public void shouldWriteZipSnapshotByDefault() throws Exception {
+        // given
+        StateRepository<String> stateRepository = new ConcurrentMapStateRepository<>("test");
+        stateRepository.put("testKey", "{\"content\":\"testValue1\"}");
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class))).thenReturn(PutObjectResponse.builder().build());
+
+        // when
+        String fileName = testee.writeSnapshot(STREAM_NAME, fromHorizon(), stateRepository);
+
+        // then
+        assertThat(fileName, endsWith(SnapshotFileHelper.COMPACTION_FILE_EXTENSION));
+    }
+
+    @Test
+    public void shouldWriteChunkedSnapshotIfConfigured() throws Exception {
+        // given
+        final SnapshotProperties properties = snapshotProperties();
+        properties.setFormat(SnapshotProperties.Format.CHUNKED);
+        testee = new SnapshotWriteService(s3Client, properties);
+        StateRepository<String> stateRepository = new ConcurrentMapStateRepository<>("test");
+        stateRepository.put("testKey", "{\"testValue1\": \"value1\"}");
+
+        // when
+        File snapshot = testee.createSnapshot(STREAM_NAME, fromHorizon(), stateRepository);
+
+        // then
+        assertThat(snapshot.getName(), endsWith(GzipSnapshotCompression.GZIP_FILE_EXTENSION));
+        Map<String, Map> data = new HashMap<>();
+        new SnapshotParser().parse(snapshot, new MessageDispatcher(singletonList(MessageConsumer.of(".*", Map.class,
+                (event) -> data.put(event.getKey().compactionKey(), event.getPayload())))));
+        assertThat(data.get("testKey"), is(of("testValue1", "value1")));
+    }
+
+    @Test
+    public void shouldStreamLargeSnapshotUsingMultipartUpload() throws Exception {
+        // given
+        final SnapshotProperties properties = snapshotProperties();
+        properties.setCompressionLevel(0);
+        properties.setPartSizeBytes(5 * 1024 * 1024);
+        testee = new SnapshotWriteService(s3Client, properties);
+
+        StateRepository<String> stateRepository = new ConcurrentMapStateRepository<>("test");
+        final String value = "{\"content\":\"" + "x".repeat(1024) + "\"}";
+        for (int i = 0; i < 12 * 1024; i++) {
+            stateRepository.put("testKey-" + i, value);
+        }
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class))).thenReturn(CreateMultipartUploadResponse.builder().uploadId("some-upload-id").build());
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class))).thenAnswer(invocation -> UploadPartResponse.builder()
+                .eTag("etag-" + invocation.getArgument(0, UploadPartRequest.class).partNumber())
+                .build());
+        when(s3Client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class))).thenReturn(CompleteMultipartUploadResponse.builder().build());
+
+        // when
+        testee.writeSnapshot(STREAM_NAME, fromHorizon(), stateRepository);
+
+        // then
+        verify(s3Client, times(3)).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+        verify(s3Client).completeMultipartUpload(Mockito.<CompleteMultipartUploadRequest>argThat(request ->
+                request.uploadId().equals("some-upload-id")
+                && request.multipartUpload().parts().size() == 3
+                && request.multipartUpload().parts().get(2).eTag().equals("etag-" + valueOf(3))));
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    }
+
     @Test
     public void shouldCreateCorrectSnapshotFile() throws Exception {
         StateRepository<String> stateRepository = new ConcurrentMapStateRepository<>("test");
@@ -0,0 +1,64 @@
+package de.otto.synapse.helper.s3;
+
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+
+import static de.otto.synapse.helper.s3.S3MultipartOutputStream.MIN_PART_SIZE_IN_BYTES;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class S3MultipartOutputStreamTest {
+
+    private S3Client s3Client;
+
+    @Before
+    public void setUp() {
+        s3Client = mock(S3Client.class);
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class))).thenReturn(CreateMultipartUploadResponse.builder().uploadId("some-upload-id").build());
+    }
+
+    @Test
+    public void shouldUploadSmallObjectUsingPutObject() throws IOException {
+        // given
+        final S3MultipartOutputStream outputStream = new S3MultipartOutputStream(s3Client, "some-bucket", "some-key", MIN_PART_SIZE_IN_BYTES, 2);
+
+        // when
+        outputStream.write(new byte[42]);
+        outputStream.close();
+
+        // then
+        verify(s3Client).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        verify(s3Client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    public void shouldAbortUploadOnlyOnceIfUploadingPartFails() throws IOException {
+        // given
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class))).thenThrow(S3Exception.builder().message("forced test exception").build());
+        final S3MultipartOutputStream outputStream = new S3MultipartOutputStream(s3Client, "some-bucket", "some-key", MIN_PART_SIZE_IN_BYTES, 2);
+        outputStream.write(new byte[MIN_PART_SIZE_IN_BYTES + 1]);
+
+        // when
+        try {
+            outputStream.close();
+            fail("IOException expected");
+        } catch (final IOException e) {
+            // and the upload is aborted by the caller, like the SnapshotWriteService does:
+            outputStream.abort();
+        }
+
+        // then
+        verify(s3Client, times(1)).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+}
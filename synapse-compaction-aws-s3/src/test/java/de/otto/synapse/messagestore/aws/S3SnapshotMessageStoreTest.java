@@ -1,6 +1,7 @@
 package de.otto.synapse.messagestore.aws;
 
 import de.otto.synapse.compaction.s3.SnapshotReadService;
+import de.otto.synapse.compaction.s3.SnapshotSource;
 import de.otto.synapse.info.SnapshotReaderNotification;
 import de.otto.synapse.info.SnapshotReaderStatus;
 import org.junit.Test;
@@ -39,7 +40,7 @@ public class S3SnapshotMessageStoreTest {
     @Test(expected = RuntimeException.class)
     public void shouldThrowExceptionIfDownloadFails() {
         // given
-        when(snapshotReadService.retrieveLatestSnapshot(any())).thenReturn(Optional.of(new File("someFileWithPattern-snapshot-2018-01-01T00-00Z-1234567890123456789.json.zip")));
+        when(snapshotReadService.retrieveLatestSnapshotSource(any())).thenReturn(Optional.of(SnapshotSource.of(new File("someFileWithPattern-snapshot-2018-01-01T00-00Z-1234567890123456789.json.zip"))));
 
         // when
         new S3SnapshotMessageStore(STREAM_NAME, snapshotReadService, eventPublisher);
@@ -51,7 +52,7 @@ public class S3SnapshotMessageStoreTest {
     public void shouldGetSnapshotTimestamp() throws IOException {
         // given
         final File snapshotFile = new ClassPathResource("compaction-integrationtest-snapshot-2017-09-29T09-02Z-3053797267191232636.json.zip").getFile();
-        when(snapshotReadService.retrieveLatestSnapshot(any())).thenReturn(Optional.of(snapshotFile));
+        when(snapshotReadService.retrieveLatestSnapshotSource(any())).thenReturn(Optional.of(SnapshotSource.of(snapshotFile)));
 
         // when
         final S3SnapshotMessageStore messageStore = new S3SnapshotMessageStore(STREAM_NAME, snapshotReadService, eventPublisher);
@@ -65,7 +66,7 @@ public class S3SnapshotMessageStoreTest {
         // given
         S3Exception bucketNotFoundException = NoSuchBucketException.builder().message("boom - simulate exception while loading from S3").build();
 
-        when(snapshotReadService.retrieveLatestSnapshot(any())).thenThrow(bucketNotFoundException);
+        when(snapshotReadService.retrieveLatestSnapshotSource(any())).thenThrow(bucketNotFoundException);
 
         // when
         try {
@@ -92,7 +93,7 @@ public class S3SnapshotMessageStoreTest {
     @Test
     public void shouldPublishStartingAndFinishEvents() {
         // given
-        when(snapshotReadService.retrieveLatestSnapshot(any())).thenReturn(Optional.empty());
+        when(snapshotReadService.retrieveLatestSnapshotSource(any())).thenReturn(Optional.empty());
 
         // when
         final S3SnapshotMessageStore messageStore = new S3SnapshotMessageStore(STREAM_NAME, snapshotReadService, eventPublisher);
@@ -118,7 +119,7 @@ public class S3SnapshotMessageStoreTest {
     //@Test
     public void measureRuntimeFor5000Messages() throws IOException {
         final File bigFile = new ClassPathResource("compaction-integrationtest-snapshot-2017-09-29T09-02Z-3053797267191232636.json.zip").getFile();
-        when(snapshotReadService.retrieveLatestSnapshot(any())).thenReturn(Optional.of(bigFile));
+        when(snapshotReadService.retrieveLatestSnapshotSource(any())).thenReturn(Optional.of(SnapshotSource.of(bigFile)));
 
         long ts = System.currentTimeMillis();
         final S3SnapshotMessageStore messageStore = new S3SnapshotMessageStore(STREAM_NAME, snapshotReadService, eventPublisher);
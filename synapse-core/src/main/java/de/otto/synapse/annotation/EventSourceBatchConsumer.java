@@ -0,0 +1,47 @@
+package de.otto.synapse.annotation;
+
+import de.otto.synapse.channel.ShardPosition;
+import de.otto.synapse.consumer.BatchMessageConsumer;
+import de.otto.synapse.eventsource.EventSource;
+import de.otto.synapse.message.Message;
+
+import java.lang.annotation.*;
+
+/**
+ * Variant of {@link EventSourceConsumer} for methods consuming lists of messages.
+ *
+ * <p>
+ *     The annotated method must either have a single parameter of type {@code List<Message<P>>}, or two parameters
+ *     of type {@code List<Message<P>>} and {@link ShardPosition}. The method is registered as a
+ *     {@link BatchMessageConsumer}, so it is called once per response of the {@link EventSource}, with all messages
+ *     of the response that are matching the {@link #keyPattern()}.
+ * </p>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface EventSourceBatchConsumer {
+
+    /**
+     * In some situations there might be multiple EventSource beans for a single event stream. In this
+     * case, the eventSource attribute can be used to select one of the available beans.
+     *
+     * @return name of the EventSource bean to register the EventConsumer.
+     */
+    String eventSource();
+
+    /**
+     * The regex pattern to filter events by their of that the consumer should receive.
+     *
+     * @return of pattern; defaults to <code>.*</code>
+     */
+    String keyPattern() default ".*";
+
+    /**
+     * The type of the {@link Message#getPayload()} produced by the {@link EventSource}
+     *
+     * @return payload type
+     */
+    Class<?> payloadType();
+
+}
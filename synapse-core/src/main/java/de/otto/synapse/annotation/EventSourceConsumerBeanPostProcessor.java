@@ -1,5 +1,6 @@
 package de.otto.synapse.annotation;
 
+import de.otto.synapse.consumer.MethodInvokingBatchMessageConsumer;
 import de.otto.synapse.consumer.MethodInvokingMessageConsumer;
 import de.otto.synapse.eventsource.EventSource;
 import org.slf4j.Logger;
@@ -50,11 +51,17 @@ public class EventSourceConsumerBeanPostProcessor implements BeanPostProcessor,
         if (!this.nonAnnotatedClasses.contains(bean.getClass())) {
             final Class<?> targetClass = AopUtils.getTargetClass(bean);
             final Map<Method, Set<EventSourceConsumer>> annotatedMethods = findMethodsAnnotatedWithEventSourceConsumer(targetClass);
-            if (annotatedMethods.isEmpty()) {
+            final Map<Method, EventSourceBatchConsumer> batchMethods = findMethodsAnnotatedWithEventSourceBatchConsumer(targetClass);
+            if (annotatedMethods.isEmpty() && batchMethods.isEmpty()) {
                 this.nonAnnotatedClasses.add(bean.getClass());
                 LOG.trace("No @EventSourceConsumer annotations found on bean type: {}", bean.getClass());
             } else {
-                registerEventConsumers(bean, beanName, annotatedMethods);
+                if (!annotatedMethods.isEmpty()) {
+                    registerEventConsumers(bean, beanName, annotatedMethods);
+                }
+                if (!batchMethods.isEmpty()) {
+                    registerBatchEventConsumers(bean, beanName, batchMethods);
+                }
             }
         }
         return bean;
@@ -73,6 +80,11 @@ public class EventSourceConsumerBeanPostProcessor implements BeanPostProcessor,
                 });
     }
 
+    private Map<Method, EventSourceBatchConsumer> findMethodsAnnotatedWithEventSourceBatchConsumer(Class<?> targetClass) {
+        return selectMethods(targetClass,
+                (MethodIntrospector.MetadataLookup<EventSourceBatchConsumer>) method -> AnnotationUtils.findAnnotation(method, EventSourceBatchConsumer.class));
+    }
+
     private void registerEventConsumers(final Object bean,
                                         final String beanName,
                                         final Map<Method, Set<EventSourceConsumer>> annotatedMethods) {
@@ -86,6 +98,15 @@ public class EventSourceConsumerBeanPostProcessor implements BeanPostProcessor,
         LOG.info("{} @EventSourceConsumer methods processed on bean {} : {}'", annotatedMethods.size(), beanName, annotatedMethods);
     }
 
+    private void registerBatchEventConsumers(final Object bean,
+                                             final String beanName,
+                                             final Map<Method, EventSourceBatchConsumer> annotatedMethods) {
+        annotatedMethods.forEach((method, consumerAnnotation) -> applicationContext
+                .getBean(consumerAnnotation.eventSource(), EventSource.class)
+                .register(new MethodInvokingBatchMessageConsumer<>(consumerAnnotation.keyPattern(), consumerAnnotation.payloadType(), bean, method)));
+        LOG.info("{} @EventSourceBatchConsumer methods processed on bean {} : {}'", annotatedMethods.size(), beanName, annotatedMethods);
+    }
+
     /*
      * AnnotationUtils.getRepeatableAnnotations does not look at interfaces
      */
@@ -0,0 +1,46 @@
+package de.otto.synapse.annotation;
+
+import de.otto.synapse.channel.ShardPosition;
+import de.otto.synapse.consumer.BatchMessageConsumer;
+import de.otto.synapse.endpoint.receiver.MessageLogReceiverEndpoint;
+import de.otto.synapse.message.Message;
+
+import java.lang.annotation.*;
+
+/**
+ * Variant of {@link MessageLogConsumer} for methods consuming lists of messages.
+ *
+ * <p>
+ *     The annotated method must either have a single parameter of type {@code List<Message<P>>}, or two parameters
+ *     of type {@code List<Message<P>>} and {@link ShardPosition}. The method is registered as a
+ *     {@link BatchMessageConsumer}, so it is called once per response of the {@link MessageLogReceiverEndpoint},
+ *     with all messages of the response that are matching the {@link #keyPattern()}.
+ * </p>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface MessageLogBatchConsumer {
+
+    /**
+     * The name of the {@link MessageLogReceiverEndpoint} bean from which messages should be consumed.
+     *
+     * @return bean name
+     */
+    String endpointName() default "";
+
+    /**
+     * The key-pattern used to filter messages by key.
+     *
+     * @return key pattern
+     */
+    String keyPattern() default ".*";
+
+    /**
+     * The type of the {@link Message#getPayload()} produced by the {@link MessageLogReceiverEndpoint}
+     *
+     * @return payload type
+     */
+    Class<?> payloadType();
+
+}
@@ -1,5 +1,6 @@
 package de.otto.synapse.annotation;
 
+import de.otto.synapse.consumer.MethodInvokingBatchMessageConsumer;
 import de.otto.synapse.consumer.MethodInvokingMessageConsumer;
 import de.otto.synapse.endpoint.receiver.MessageLogReceiverEndpoint;
 import de.otto.synapse.endpoint.receiver.MessageReceiverEndpoint;
@@ -56,11 +57,17 @@ public class MessageLogConsumerBeanPostProcessor implements BeanPostProcessor, O
         if (!this.nonAnnotatedClasses.contains(bean.getClass())) {
             final Class<?> targetClass = AopUtils.getTargetClass(bean);
             final Map<Method, Set<MessageLogConsumer>> annotatedMethods = findMethodsAnnotatedWithMessageLogConsumer(targetClass);
-            if (annotatedMethods.isEmpty()) {
+            final Map<Method, MessageLogBatchConsumer> batchMethods = findMethodsAnnotatedWithMessageLogBatchConsumer(targetClass);
+            if (annotatedMethods.isEmpty() && batchMethods.isEmpty()) {
                 this.nonAnnotatedClasses.add(bean.getClass());
                 LOG.trace("No @MessageLogConsumer annotations found on bean type: {}", bean.getClass());
             } else {
-                registerMessageLogConsumers(bean, beanName, annotatedMethods);
+                if (!annotatedMethods.isEmpty()) {
+                    registerMessageLogConsumers(bean, beanName, annotatedMethods);
+                }
+                if (!batchMethods.isEmpty()) {
+                    registerBatchMessageLogConsumers(bean, beanName, batchMethods);
+                }
             }
         }
         return bean;
@@ -74,6 +81,11 @@ public class MessageLogConsumerBeanPostProcessor implements BeanPostProcessor, O
                 });
     }
 
+    private Map<Method, MessageLogBatchConsumer> findMethodsAnnotatedWithMessageLogBatchConsumer(Class<?> targetClass) {
+        return selectMethods(targetClass,
+                (MethodIntrospector.MetadataLookup<MessageLogBatchConsumer>) method -> AnnotationUtils.findAnnotation(method, MessageLogBatchConsumer.class));
+    }
+
     private void registerMessageLogConsumers(final Object bean,
                                                final String beanName,
                                                final Map<Method, Set<MessageLogConsumer>> annotatedMethods) {
@@ -87,6 +99,15 @@ public class MessageLogConsumerBeanPostProcessor implements BeanPostProcessor, O
         LOG.info("{} @MessageLogConsumer methods processed on bean {} : {}'", annotatedMethods.size(), beanName, annotatedMethods);
     }
 
+    private void registerBatchMessageLogConsumers(final Object bean,
+                                                  final String beanName,
+                                                  final Map<Method, MessageLogBatchConsumer> annotatedMethods) {
+        annotatedMethods.forEach((method, consumerAnnotation) -> applicationContext
+                .getBean(consumerAnnotation.endpointName(), MessageLogReceiverEndpoint.class)
+                .register(new MethodInvokingBatchMessageConsumer<>(consumerAnnotation.keyPattern(), consumerAnnotation.payloadType(), bean, method)));
+        LOG.info("{} @MessageLogBatchConsumer methods processed on bean {} : {}'", annotatedMethods.size(), beanName, annotatedMethods);
+    }
+
     /*
      * AnnotationUtils.getRepeatableAnnotations does not look at interfaces
      */
@@ -0,0 +1,158 @@
+package de.otto.synapse.channel;
+
+import jakarta.annotation.Nonnull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static de.otto.synapse.channel.ChannelDurationBehind.channelDurationBehind;
+
+/**
+ * Mutable and thread-safe tracker of the {@link ShardPosition positions} and
+ * {@link ShardResponse#getDurationBehind() durations behind} of the shards of a channel.
+ *
+ * <p>
+ *     Every shard has its own slot that is registered when the shard is updated for the first time. Further updates
+ *     of the shard are only replacing the contents of the slot, so tracking the position of every single message does
+ *     not need to create new {@link ChannelPosition} or {@link ChannelDurationBehind} instances.
+ * </p>
+ * <p>
+ *     Immutable snapshots are only created, if {@link #getChannelPosition()} or {@link #getChannelDurationBehind()}
+ *     is called. Shards are contained in the snapshots in the order they were registered.
+ * </p>
+ */
+public final class ChannelPositionTracker {
+
+    private final ConcurrentMap<String, Slot> slotsByShardName = new ConcurrentHashMap<>();
+    private final List<Slot> slots = new CopyOnWriteArrayList<>();
+
+    public ChannelPositionTracker() {
+    }
+
+    public ChannelPositionTracker(final @Nonnull ChannelPosition startFrom) {
+        startFrom.shards().forEach(shardName -> update(startFrom.shard(shardName)));
+    }
+
+    /**
+     * Updates the position of a shard.
+     *
+     * @param shardPosition the new position of the shard
+     */
+    public void update(final @Nonnull ShardPosition shardPosition) {
+        slot(shardPosition.shardName()).position = shardPosition;
+    }
+
+    /**
+     * Updates the position and the duration behind of the shard of a response.
+     *
+     * @param response the response of a shard
+     */
+    public void update(final @Nonnull ShardResponse response) {
+        final Slot slot = slot(response.getShardName());
+        slot.position = response.getShardPosition();
+        slot.durationBehind = response.getDurationBehind();
+    }
+
+    /**
+     * Updates the duration behind of a shard.
+     *
+     * @param shardName the name of the shard
+     * @param durationBehind the duration, the shard is behind the latest message of the shard
+     */
+    public void updateDurationBehind(final @Nonnull String shardName, final @Nonnull Duration durationBehind) {
+        slot(shardName).durationBehind = durationBehind;
+    }
+
+    /**
+     * Marks the duration behind of the shards as unknown.
+     *
+     * @param shardNames the names of the shards
+     */
+    public void unknownDurationBehind(final @Nonnull Iterable<String> shardNames) {
+        shardNames.forEach(shardName -> updateDurationBehind(shardName, ChannelDurationBehind.UNKNOWN_DURATION_BEHIND));
+    }
+
+    /**
+     * Removes a shard, for example after the shard was closed.
+     *
+     * @param shardName the name of the shard
+     */
+    public void remove(final @Nonnull String shardName) {
+        synchronized (slots) {
+            final Slot slot = slotsByShardName.remove(shardName);
+            if (slot != null) {
+                slots.remove(slot);
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the current positions of all shards having a known position.
+     *
+     * @return ChannelPosition
+     */
+    @Nonnull
+    public ChannelPosition getChannelPosition() {
+        final List<ShardPosition> shardPositions = new ArrayList<>(slots.size());
+        for (final Slot slot : slots) {
+            final ShardPosition position = slot.position;
+            if (position != null) {
+                shardPositions.add(position);
+            }
+        }
+        return ChannelPosition.channelPosition(shardPositions);
+    }
+
+    /**
+     * Returns a snapshot of the current durations behind of all shards having a duration behind.
+     *
+     * @return ChannelDurationBehind
+     */
+    @Nonnull
+    public ChannelDurationBehind getChannelDurationBehind() {
+        final ChannelDurationBehind.Builder builder = channelDurationBehind();
+        for (final Slot slot : slots) {
+            final Duration durationBehind = slot.durationBehind;
+            if (durationBehind != null) {
+                builder.with(slot.shardName, durationBehind);
+            }
+        }
+        return builder.build();
+    }
+
+    private Slot slot(final String shardName) {
+        final Slot slot = slotsByShardName.get(shardName);
+        if (slot != null) {
+            return slot;
+        }
+        synchronized (slots) {
+            return slotsByShardName.computeIfAbsent(shardName, _name -> {
+                final Slot newSlot = new Slot(shardName);
+                slots.add(newSlot);
+                return newSlot;
+            });
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelPositionTracker{" +
+                "channelPosition=" + getChannelPosition() +
+                ", channelDurationBehind=" + getChannelDurationBehind() +
+                '}';
+    }
+
+    private static final class Slot {
+        private final String shardName;
+        private volatile ShardPosition position;
+        private volatile Duration durationBehind;
+
+        private Slot(final String shardName) {
+            this.shardName = shardName;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package de.otto.synapse.configuration;
+
+import de.otto.synapse.state.CachingStateRepository;
+import de.otto.synapse.state.StateRepository;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * BeanPostProcessor that is decorating {@link StateRepository} beans with a {@link CachingStateRepository}, if a
+ * cache is configured for the {@link StateRepository#getName() name} of the repository:
+ *
+ * <pre><code>
+ * synapse.state-repository.cache.[ProductRepository].maximum-size=10000
+ * </code></pre>
+ *
+ * <p>
+ *     As the bean is replaced by the caching decorator, repositories that are configured to be cached must be
+ *     injected as {@code StateRepository}, not using their implementation type.
+ * </p>
+ */
+public class CachingStateRepositoryBeanPostProcessor implements BeanPostProcessor, Ordered, EnvironmentAware {
+
+    private static final Logger LOG = getLogger(CachingStateRepositoryBeanPostProcessor.class);
+
+    private static final String PREFIX = "synapse.state-repository.cache";
+
+    private Map<String, CacheProperties> caches = Map.of();
+
+    @Override
+    public int getOrder() {
+        return LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    public void setEnvironment(final Environment environment) {
+        // names of StateRepositories are matched case-insensitive, as property keys might be converted to lower case:
+        final Map<String, CacheProperties> caches = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        caches.putAll(Binder.get(environment)
+                .bind(PREFIX, Bindable.mapOf(String.class, CacheProperties.class))
+                .orElse(Map.of()));
+        this.caches = caches;
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+        if (bean instanceof StateRepository && !(bean instanceof CachingStateRepository)) {
+            final StateRepository stateRepository = (StateRepository) bean;
+            final CacheProperties cache = caches.get(stateRepository.getName());
+            if (cache != null && cache.getMaximumSize() > 0) {
+                LOG.info("Caching up to {} values of StateRepository '{}'", cache.getMaximumSize(), stateRepository.getName());
+                return new CachingStateRepository(stateRepository, cache.getMaximumSize());
+            }
+        }
+        return bean;
+    }
+
+    public static class CacheProperties {
+        /**
+         * The maximum number of values cached on the heap.
+         */
+        private long maximumSize;
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(final long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import de.otto.synapse.channel.selector.MessageLog;
 import de.otto.synapse.eventsource.DefaultEventSourceBuilder;
 import de.otto.synapse.eventsource.EventSource;
 import de.otto.synapse.eventsource.EventSourceBuilder;
+import de.otto.synapse.eventsource.EventSourceCheckpoint;
 import de.otto.synapse.eventsource.EventSourceConsumerProcess;
 import de.otto.synapse.messagestore.MessageStoreFactory;
 import de.otto.synapse.messagestore.SnapshotMessageStore;
@@ -18,6 +19,8 @@ import org.springframework.context.annotation.*;
 
 import java.util.List;
 
+import static de.otto.synapse.eventsource.EventSourceCheckpoint.allOf;
+import static de.otto.synapse.eventsource.EventSourceCheckpoint.noCheckpoint;
 import static de.otto.synapse.messagestore.MessageStores.emptyMessageStore;
 import static org.slf4j.LoggerFactory.getLogger;
 import static org.springframework.beans.factory.config.BeanDefinition.ROLE_INFRASTRUCTURE;
@@ -31,15 +34,16 @@ public class EventSourcingAutoConfiguration {
     @Bean
     @ConditionalOnMissingBean(name = "defaultEventSourceBuilder")
     @ConditionalOnBean(name = "snapshotMessageStoreFactory")
-    public EventSourceBuilder defaultEventSourceBuilder(final MessageStoreFactory<SnapshotMessageStore> snapshotMessageStoreFactory) {
-        return new DefaultEventSourceBuilder(snapshotMessageStoreFactory, MessageLog.class);
+    public EventSourceBuilder defaultEventSourceBuilder(final MessageStoreFactory<SnapshotMessageStore> snapshotMessageStoreFactory,
+                                                        @Autowired(required = false) List<EventSourceCheckpoint> checkpoints) {
+        return new DefaultEventSourceBuilder(snapshotMessageStoreFactory, MessageLog.class, checkpointOf(checkpoints));
     }
 
     @Bean
     @ConditionalOnMissingBean(name = {"defaultEventSourceBuilder", "snapshotMessageStoreFactory"})
-    public EventSourceBuilder fallbackEventSourceBuilder() {
+    public EventSourceBuilder fallbackEventSourceBuilder(@Autowired(required = false) List<EventSourceCheckpoint> checkpoints) {
         LOG.info("No MessageStoreFactory is configured. Falling back to EventStoreBuilder w/o Snapshot MessageStore");
-        return new DefaultEventSourceBuilder((_x) -> emptyMessageStore(), MessageLog.class);
+        return new DefaultEventSourceBuilder((_x) -> emptyMessageStore(), MessageLog.class, checkpointOf(checkpoints));
     }
 
     @Bean
@@ -48,8 +52,9 @@ public class EventSourcingAutoConfiguration {
             name = "consumer-process.enabled",
             havingValue = "true",
             matchIfMissing = true)
-    public EventSourceConsumerProcess eventSourceConsumerProcess(@Autowired(required = false) List<EventSource> eventSources) {
-        return new EventSourceConsumerProcess(eventSources);
+    public EventSourceConsumerProcess eventSourceConsumerProcess(@Autowired(required = false) List<EventSource> eventSources,
+                                                                 @Autowired(required = false) List<EventSourceCheckpoint> checkpoints) {
+        return new EventSourceConsumerProcess(eventSources, checkpointOf(checkpoints));
     }
 
     @Bean
@@ -58,4 +63,8 @@ public class EventSourcingAutoConfiguration {
         return new EventSourceConsumerBeanPostProcessor();
     }
 
+    private static EventSourceCheckpoint checkpointOf(final List<EventSourceCheckpoint> checkpoints) {
+        return checkpoints != null ? allOf(checkpoints) : noCheckpoint();
+    }
+
 }
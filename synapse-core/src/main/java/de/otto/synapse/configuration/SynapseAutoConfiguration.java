@@ -117,4 +117,18 @@ public class SynapseAutoConfiguration {
         return new MessageInterceptorBeanPostProcessor();
     }
 
+    /**
+     * Activate the CachingStateRepositoryBeanPostProcessor used to decorate
+     * {@link de.otto.synapse.state.StateRepository StateRepositories} with a
+     * {@link de.otto.synapse.state.CachingStateRepository}, if configured using
+     * {@code synapse.state-repository.cache.[name].maximum-size}.
+     *
+     * @return CachingStateRepositoryBeanPostProcessor
+     */
+    @Bean
+    @Role(ROLE_INFRASTRUCTURE)
+    public static CachingStateRepositoryBeanPostProcessor cachingStateRepositoryBeanPostProcessor() {
+        return new CachingStateRepositoryBeanPostProcessor();
+    }
+
 }
@@ -0,0 +1,47 @@
+package de.otto.synapse.consumer;
+
+import de.otto.synapse.channel.ShardPosition;
+import de.otto.synapse.message.Message;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * A {@link MessageConsumer} that is able to consume all matching messages of a
+ * {@link de.otto.synapse.channel.ShardResponse} in a single call.
+ *
+ * <p>
+ *     Consumers writing to databases or off-heap maps are able to amortize the per-call overhead of such operations,
+ *     for example by applying bulk updates.
+ * </p>
+ * <p>
+ *     Receivers dispatching whole responses using a {@link MessageDispatcher.Batch} are calling
+ *     {@link #acceptAll(List, ShardPosition)} once per response. All other receivers are calling
+ *     {@link #accept(Message)}, so every message is passed to {@code acceptAll} as a single-element list.
+ * </p>
+ *
+ * @param <T> the type of the messages's payload
+ */
+public interface BatchMessageConsumer<T> extends MessageConsumer<T> {
+
+    /**
+     * Consumes a list of messages.
+     *
+     * @param messages the messages of a single shard, in the order they were received. The list is not empty.
+     * @param shardPosition the position of the shard after the messages, or null, if the position is unknown
+     */
+    void acceptAll(@Nonnull List<Message<T>> messages, @Nullable ShardPosition shardPosition);
+
+    /**
+     * Consumes a single message by calling {@link #acceptAll(List, ShardPosition)} with a single-element list.
+     *
+     * @param message the message
+     */
+    @Override
+    default void accept(final Message<T> message) {
+        acceptAll(singletonList(message), message.getHeader().getShardPosition().orElse(null));
+    }
+}
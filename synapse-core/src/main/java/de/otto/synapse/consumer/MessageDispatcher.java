@@ -1,17 +1,22 @@
 package de.otto.synapse.consumer;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectReader;
+import de.otto.synapse.channel.ShardPosition;
 import de.otto.synapse.message.Message;
 import de.otto.synapse.message.TextMessage;
+import de.otto.synapse.message.Utf8TextMessage;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import org.slf4j.Logger;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 import static de.otto.synapse.message.Message.message;
-import static de.otto.synapse.translator.ObjectMappers.currentObjectMapper;
 import static java.util.Collections.synchronizedList;
 import static java.util.Collections.unmodifiableList;
 import static java.util.regex.Pattern.compile;
@@ -38,17 +43,29 @@ public class MessageDispatcher implements Consumer<TextMessage> {
     private static final Pattern ACCEPT_ALL = compile(".*");
 
     private final List<MessageConsumer<?>> messageConsumers;
+    private volatile RoutingTable routingTable;
 
     public MessageDispatcher() {
         this.messageConsumers = synchronizedList(new ArrayList<>());
+        this.routingTable = new RoutingTable(messageConsumers);
     }
 
     public MessageDispatcher(final List<MessageConsumer<?>> messageConsumers) {
         this.messageConsumers = synchronizedList(new ArrayList<>(messageConsumers));
+        this.routingTable = new RoutingTable(this.messageConsumers);
     }
 
+    /**
+     * Registers a MessageConsumer. The {@link MessageConsumer#keyPattern()} and {@link MessageConsumer#payloadType()}
+     * of the consumer are evaluated once, when the consumer is added to the routing table of the dispatcher.
+     *
+     * @param messageConsumer the registered MessageConsumer
+     */
     public void add(final MessageConsumer<?> messageConsumer) {
-        this.messageConsumers.add(messageConsumer);
+        synchronized (messageConsumers) {
+            this.messageConsumers.add(messageConsumer);
+            this.routingTable = new RoutingTable(messageConsumers);
+        }
     }
 
     public List<MessageConsumer<?>> getAll() {
@@ -81,38 +98,177 @@ public class MessageDispatcher implements Consumer<TextMessage> {
      * translates the JSON payload into the expected {@link MessageConsumer#payloadType()} of the receiving
      * MessageConsumer.
      *
+     * <p>
+     *     The payload is deserialized at most once per distinct payload type: consumers expecting the same
+     *     payload type are receiving the same message instance.
+     * </p>
+     *
      * @param message the input argument
      */
     @Override
-    @SuppressWarnings({"unchecked", "raw"})
     public void accept(final TextMessage message) {
         LOG.debug("Accepting message={}", message);
-        messageConsumers
-                .stream()
-                .filter(consumer -> matchesKeyPattern(message, consumer.keyPattern()))
-                .forEach((MessageConsumer consumer) -> {
-                    try {
-                        final Class<?> payloadType = consumer.payloadType();
-                        if (payloadType.equals(String.class)) {
-                            consumer.accept(message);
-                        } else {
-                            Object payload = null;
-                            if (message.getPayload() != null) {
-                                payload = currentObjectMapper().readValue(message.getPayload(), payloadType);
-                            }
-                            final Message<?> tMessage = message(message.getKey(), message.getHeader(), payload);
-                            consumer.accept(tMessage);
-                        }
-                    } catch (final Exception e) {
-                        LOG.error(e.getMessage(), e);
-                        throw new IllegalStateException(e.getMessage(), e);
+        dispatch(message, this.routingTable, null);
+    }
+
+    /**
+     * Dispatches a list of messages, for example all messages of a {@link de.otto.synapse.channel.ShardResponse}.
+     *
+     * <p>
+     *     {@link BatchMessageConsumer Batch consumers} are receiving all matching messages in a single call.
+     *     See {@link Batch} for details.
+     * </p>
+     *
+     * @param messages the messages of a single shard
+     * @param shardPosition the position of the shard after the messages, or null, if the position is unknown
+     */
+    public void acceptAll(final List<? extends TextMessage> messages,
+                          final @Nullable ShardPosition shardPosition) {
+        final Batch batch = startBatch(shardPosition);
+        messages.forEach(batch::accept);
+        batch.finish();
+    }
+
+    /**
+     * Starts dispatching a batch of messages of a single shard.
+     *
+     * @param shardPosition the position of the shard after the last message of the batch, or null, if the position
+     *                      is unknown
+     * @return Batch
+     */
+    public Batch startBatch(final @Nullable ShardPosition shardPosition) {
+        return new Batch(this.routingTable, shardPosition);
+    }
+
+    /**
+     * A batch of messages that is dispatched by a {@link MessageDispatcher}.
+     *
+     * <p>
+     *     The messages are immediately dispatched to all matching consumers that are not implementing
+     *     {@link BatchMessageConsumer}. Messages matching a {@code BatchMessageConsumer} are collected, and passed to
+     *     the consumer by {@link #finish()}. So within a single consumer, the order of the messages is retained.
+     * </p>
+     * <p>
+     *     Consumers that are registered after the batch was started will not receive messages of the batch.
+     * </p>
+     */
+    public static final class Batch {
+        private final RoutingTable routingTable;
+        private final ShardPosition shardPosition;
+        private final List<Message<?>>[] batches;
+
+        @SuppressWarnings("unchecked")
+        private Batch(final RoutingTable routingTable,
+                      final ShardPosition shardPosition) {
+            this.routingTable = routingTable;
+            this.shardPosition = shardPosition;
+            this.batches = routingTable.hasBatchConsumers() ? new List[routingTable.size()] : null;
+        }
+
+        /**
+         * Dispatches a message to all consumers that are not implementing {@link BatchMessageConsumer}, and adds
+         * the message to the batches of all matching {@code BatchMessageConsumers}.
+         *
+         * @param message the message
+         * @throws IllegalStateException if a consumer failed to process the message
+         */
+        public void accept(final TextMessage message) {
+            LOG.debug("Accepting message={}", message);
+            dispatch(message, routingTable, batches);
+        }
+
+        /**
+         * Passes the collected messages to the {@link BatchMessageConsumer batch consumers}. Every consumer is
+         * called once at most, even if another consumer has failed.
+         *
+         * @throws IllegalStateException if a consumer failed to process the messages
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public void finish() {
+            if (batches == null) {
+                return;
+            }
+            IllegalStateException failure = null;
+            for (int i = 0; i < batches.length; i++) {
+                final List<Message<?>> messages = batches[i];
+                if (messages == null) {
+                    continue;
+                }
+                batches[i] = null;
+                try {
+                    ((BatchMessageConsumer) routingTable.consumer(i)).acceptAll(messages, shardPosition);
+                } catch (final Exception e) {
+                    LOG.error(e.getMessage(), e);
+                    if (failure == null) {
+                        failure = new IllegalStateException(e.getMessage(), e);
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Dispatches a message to the matching consumers. If {@code batches} is not null, messages accepted by
+     * {@link BatchMessageConsumer batch consumers} are added to the batches, instead of passing them to the consumers.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void dispatch(final TextMessage message,
+                                 final RoutingTable routingTable,
+                                 final List<Message<?>>[] batches) {
+        final boolean[] matches = routingTable.route(message.getKey().compactionKey());
+        Message<?>[] translatedMessages = null;
+        for (int i = 0; i < matches.length; i++) {
+            if (!matches[i]) {
+                continue;
+            }
+            final MessageConsumer consumer = routingTable.consumer(i);
+            try {
+                final int payloadTypeSlot = routingTable.payloadTypeSlot(i);
+                final Message<?> translatedMessage;
+                if (payloadTypeSlot < 0) {
+                    translatedMessage = message;
+                } else {
+                    if (translatedMessages == null) {
+                        translatedMessages = new Message<?>[routingTable.numberOfPayloadTypes()];
+                    }
+                    if (translatedMessages[payloadTypeSlot] == null) {
+                        final Object payload = readPayload(message, routingTable.payloadReader(payloadTypeSlot));
+                        translatedMessages[payloadTypeSlot] = message(message.getKey(), message.getHeader(), payload);
+                    }
+                    translatedMessage = translatedMessages[payloadTypeSlot];
+                }
+                if (batches != null && routingTable.isBatchConsumer(i)) {
+                    if (batches[i] == null) {
+                        batches[i] = new ArrayList<>();
                     }
-                });
+                    batches[i].add(translatedMessage);
+                } else {
+                    consumer.accept(translatedMessage);
+                }
+            } catch (final Exception e) {
+                LOG.error(e.getMessage(), e);
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
     }
 
-    private boolean matchesKeyPattern(final TextMessage message,
-                                      final Pattern keyPattern) {
-        return keyPattern.matcher(message.getKey().compactionKey()).matches();
+    private static Object readPayload(final TextMessage message,
+                                      final ObjectReader payloadReader) throws IOException {
+        if (message instanceof Utf8TextMessage) {
+            // deserialize the payload from the received bytes, without creating a String:
+            try (JsonParser parser = ((Utf8TextMessage) message).createPayloadParser(payloadReader.getFactory())) {
+                return payloadReader.readValue(parser);
+            }
+        } else if (message.getPayload() != null) {
+            return payloadReader.readValue(message.getPayload());
+        } else {
+            return null;
+        }
     }
 
 }
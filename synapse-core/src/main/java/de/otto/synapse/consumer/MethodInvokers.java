@@ -0,0 +1,139 @@
+package de.otto.synapse.consumer;
+
+import com.google.common.base.Throwables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Binds methods of class instances to functional interfaces, so the methods can be called without using
+ * {@link Method#invoke(Object, Object...)}.
+ *
+ * <p>
+ *     The invokers are generated using the {@link LambdaMetafactory}, the same way the compiler is implementing
+ *     lambdas and method references. Calls are not boxing the arguments into arrays, exceptions thrown by the method
+ *     are not wrapped into {@link InvocationTargetException InvocationTargetExceptions}, and the JIT is able to inline
+ *     the called method.
+ * </p>
+ * <p>
+ *     If a method can not be bound - for example, because the declaring class is loaded by a class loader that is
+ *     not able to see the functional interfaces - the returned invoker is falling back to reflection.
+ * </p>
+ */
+public final class MethodInvokers {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MethodInvokers.class);
+
+    /**
+     * Invoker of a method with a single parameter, ignoring the return value of the method.
+     */
+    @FunctionalInterface
+    public interface VoidInvoker {
+        void invoke(Object argument) throws Throwable;
+    }
+
+    /**
+     * Invoker of a method with two parameters, ignoring the return value of the method.
+     */
+    @FunctionalInterface
+    public interface BiVoidInvoker {
+        void invoke(Object first, Object second) throws Throwable;
+    }
+
+    /**
+     * Invoker of a method with a single parameter, returning the return value of the method.
+     */
+    @FunctionalInterface
+    public interface Invoker {
+        Object invoke(Object argument) throws Throwable;
+    }
+
+    private MethodInvokers() {
+    }
+
+    public static VoidInvoker voidInvoker(final Object instance, final Method method) {
+        final VoidInvoker invoker = bind(instance, method, VoidInvoker.class, MethodType.methodType(void.class, Object.class));
+        if (invoker != null) {
+            return invoker;
+        }
+        return argument -> invokeReflectively(instance, method, argument);
+    }
+
+    public static BiVoidInvoker biVoidInvoker(final Object instance, final Method method) {
+        final BiVoidInvoker invoker = bind(instance, method, BiVoidInvoker.class, MethodType.methodType(void.class, Object.class, Object.class));
+        if (invoker != null) {
+            return invoker;
+        }
+        return (first, second) -> invokeReflectively(instance, method, first, second);
+    }
+
+    public static Invoker invoker(final Object instance, final Method method) {
+        if (method.getReturnType().isPrimitive()) {
+            throw new IllegalArgumentException("Unable to build invoker: method " + method.getName() + " must return a reference type");
+        }
+        final Invoker invoker = bind(instance, method, Invoker.class, MethodType.methodType(Object.class, Object.class));
+        if (invoker != null) {
+            return invoker;
+        }
+        return argument -> invokeReflectively(instance, method, argument);
+    }
+
+    /**
+     * Rethrows unchecked exceptions thrown by an invoker, and wraps checked exceptions into an
+     * {@link IllegalStateException}.
+     *
+     * @param e the exception thrown by an invoker
+     * @return never returns normally; declared so callers can {@code throw} the result
+     */
+    public static RuntimeException propagate(final Throwable e) {
+        Throwables.throwIfUnchecked(e);
+        throw new IllegalStateException(e);
+    }
+
+    private static <F> F bind(final Object instance,
+                              final Method method,
+                              final Class<F> functionalInterface,
+                              final MethodType samMethodType) {
+        try {
+            final Class<?> declaringClass = method.getDeclaringClass();
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup());
+            final MethodHandle implementation = lookup.unreflect(method);
+            final MethodType instantiatedMethodType = MethodType.methodType(
+                    samMethodType.returnType() == void.class ? void.class : method.getReturnType(),
+                    method.getParameterTypes());
+            if (Modifier.isStatic(method.getModifiers())) {
+                return functionalInterface.cast(LambdaMetafactory.metafactory(
+                        lookup, "invoke", MethodType.methodType(functionalInterface),
+                        samMethodType, implementation, instantiatedMethodType)
+                        .getTarget()
+                        .invoke());
+            } else {
+                return functionalInterface.cast(LambdaMetafactory.metafactory(
+                        lookup, "invoke", MethodType.methodType(functionalInterface, declaringClass),
+                        samMethodType, implementation, instantiatedMethodType)
+                        .getTarget()
+                        .invoke(instance));
+            }
+        } catch (final Throwable e) {
+            LOG.warn("Unable to bind method {} - falling back to reflection: {}", method, e.getMessage());
+            return null;
+        }
+    }
+
+    private static Object invokeReflectively(final Object instance,
+                                             final Method method,
+                                             final Object... arguments) throws Throwable {
+        try {
+            return method.invoke(instance, arguments);
+        } catch (final InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package de.otto.synapse.consumer;
+
+import de.otto.synapse.channel.ShardPosition;
+import de.otto.synapse.message.Message;
+import jakarta.annotation.Nonnull;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import static de.otto.synapse.consumer.MethodInvokers.propagate;
+
+/**
+ * A {@link BatchMessageConsumer} that is calling a method of a class instance for every accepted list of
+ * {@link Message messages}.
+ *
+ * <p>
+ *     The method must either have a single parameter of type {@code List<Message<T>>}, or two parameters of type
+ *     {@code List<Message<T>>} and {@link ShardPosition}.
+ * </p>
+ *
+ * @param <T> The expected type of the message's payload
+ */
+public class MethodInvokingBatchMessageConsumer<T> implements BatchMessageConsumer<T> {
+
+    private final Pattern keyPattern;
+    private final Class<T> payloadType;
+    private final MethodInvokers.VoidInvoker invoker;
+    private final MethodInvokers.BiVoidInvoker invokerWithShardPosition;
+
+    public MethodInvokingBatchMessageConsumer(final String keyPattern,
+                                              final Class<T> payloadType,
+                                              final Object instance,
+                                              final Method method) {
+        Objects.requireNonNull(keyPattern, "keyPattern must not be null");
+        Objects.requireNonNull(payloadType, "payloadType must not be null");
+        Objects.requireNonNull(instance, "Unable to build MethodInvokingBatchMessageConsumer: instance parameter is null");
+        Objects.requireNonNull(method, "Unable to build MethodInvokingBatchMessageConsumer: method parameter is null");
+
+        final Class<?>[] paramTypes = method.getParameterTypes();
+        if (paramTypes.length != 1 && paramTypes.length != 2) {
+            throw new IllegalArgumentException("Unable to build MethodInvokingBatchMessageConsumer: illegal number of arguments");
+        }
+        if (!paramTypes[0].equals(List.class)) {
+            throw new IllegalArgumentException("Unable to build MethodInvokingBatchMessageConsumer: expected parameter type is List, not " + paramTypes[0].getName());
+        }
+        if (paramTypes.length == 2 && !paramTypes[1].equals(ShardPosition.class)) {
+            throw new IllegalArgumentException("Unable to build MethodInvokingBatchMessageConsumer: expected second parameter type is ShardPosition, not " + paramTypes[1].getName());
+        }
+
+        this.keyPattern = Pattern.compile(keyPattern);
+        this.payloadType = payloadType;
+        if (paramTypes.length == 2) {
+            this.invoker = null;
+            this.invokerWithShardPosition = MethodInvokers.biVoidInvoker(instance, method);
+        } else {
+            this.invoker = MethodInvokers.voidInvoker(instance, method);
+            this.invokerWithShardPosition = null;
+        }
+    }
+
+    /**
+     * Returns the expected payload type of {@link Message messages} consumed by this MessageConsumer.
+     *
+     * @return payload type
+     */
+    @Nonnull
+    @Override
+    public Class<T> payloadType() {
+        return payloadType;
+    }
+
+    /**
+     * Returns the pattern of {@link Message#getKey() message keys} accepted by this consumer.
+     *
+     * @return Pattern
+     */
+    @Nonnull
+    @Override
+    public Pattern keyPattern() {
+        return keyPattern;
+    }
+
+    @Override
+    public void acceptAll(final List<Message<T>> messages, final ShardPosition shardPosition) {
+        try {
+            if (invokerWithShardPosition != null) {
+                invokerWithShardPosition.invoke(messages, shardPosition);
+            } else {
+                invoker.invoke(messages);
+            }
+        } catch (final Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+}
@@ -3,25 +3,28 @@ package de.otto.synapse.consumer;
 import de.otto.synapse.message.Message;
 import jakarta.annotation.Nonnull;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Objects;
 import java.util.regex.Pattern;
 
+import static de.otto.synapse.consumer.MethodInvokers.propagate;
+
 /**
  * A {@link MessageConsumer} that is calling a method of a class instance for every accepted {@link Message}
  * <p>
  *     <img src="http://www.enterpriseintegrationpatterns.com/img/MessageEndpointSolution.gif" alt="MesageConsumer">
  * </p>
-
+ * <p>
+ *     The method is bound to the instance using {@link MethodInvokers}, so it is called without reflection.
+ * </p>
+ *
  * @param <T> The expected type of the message's payload
  */
 public class MethodInvokingMessageConsumer<T> implements MessageConsumer<T> {
 
     private final Pattern keyPattern;
     private final Class<T> payloadType;
-    private final Object instance;
-    private final Method method;
+    private final MethodInvokers.VoidInvoker invoker;
 
     public MethodInvokingMessageConsumer(final String keyPattern,
                                          final Class<T> payloadType,
@@ -42,8 +45,7 @@ public class MethodInvokingMessageConsumer<T> implements MessageConsumer<T> {
 
         this.keyPattern = Pattern.compile(keyPattern);
         this.payloadType = payloadType;
-        this.method = method;
-        this.instance = instance;
+        this.invoker = MethodInvokers.voidInvoker(instance, method);
     }
 
     /**
@@ -71,9 +73,9 @@ public class MethodInvokingMessageConsumer<T> implements MessageConsumer<T> {
     @Override
     public void accept(final Message<T> message) {
         try {
-            method.invoke(instance, message);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new IllegalStateException(e);
+            invoker.invoke(message);
+        } catch (final Throwable e) {
+            throw propagate(e);
         }
     }
 
@@ -0,0 +1,245 @@
+package de.otto.synapse.consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static de.otto.synapse.translator.ObjectMappers.currentObjectMapper;
+
+/**
+ * Immutable routing table of a {@link MessageDispatcher}, mapping the compaction keys of messages to the
+ * {@link MessageConsumer consumers} that are accepting the message.
+ *
+ * <p>
+ *     The {@link MessageConsumer#keyPattern() key patterns} and {@link MessageConsumer#payloadType() payload types}
+ *     of the consumers are evaluated once, when the table is created:
+ * </p>
+ * <ul>
+ *     <li>Literal patterns like {@code "some-key"} are looked up in a hash map,</li>
+ *     <li>prefix patterns like {@code "some-prefix.*"} - including {@code ".*"} - are looked up in a trie,</li>
+ *     <li>only all other patterns are matched using regular expressions.</li>
+ * </ul>
+ * <p>
+ *     Consumers expecting the same payload type share a payload type slot, so messages only need to be
+ *     deserialized once per distinct payload type.
+ * </p>
+ */
+final class RoutingTable {
+
+    private static final String REGEX_META_CHARACTERS = "\\^$.|?*+()[]{}";
+    private static final int STRING_PAYLOAD = -1;
+
+    private final MessageConsumer<?>[] consumers;
+    private final Pattern[] keyPatterns;
+    private final int[] payloadTypeSlots;
+    private final Class<?>[] payloadTypes;
+    private final Map<String, int[]> literalRoutes;
+    private final TrieNode prefixRoutes;
+    private final int[] regexRoutes;
+    private final boolean allConsumersMatchAll;
+    private final boolean[] batchConsumers;
+    private final boolean hasBatchConsumers;
+
+    private volatile PayloadReaders payloadReaders;
+
+    RoutingTable(final List<MessageConsumer<?>> messageConsumers) {
+        final int size = messageConsumers.size();
+        this.consumers = messageConsumers.toArray(new MessageConsumer<?>[0]);
+        this.keyPatterns = new Pattern[size];
+        this.payloadTypeSlots = new int[size];
+        this.batchConsumers = new boolean[size];
+
+        final Map<Class<?>, Integer> slots = new LinkedHashMap<>();
+        final Map<String, List<Integer>> literals = new HashMap<>();
+        final List<Integer> regexes = new ArrayList<>();
+        final TrieNode trie = new TrieNode();
+        boolean matchAll = true;
+        boolean anyBatchConsumer = false;
+
+        for (int i = 0; i < size; i++) {
+            final MessageConsumer<?> consumer = consumers[i];
+            final Pattern keyPattern = consumer.keyPattern();
+            keyPatterns[i] = keyPattern;
+
+            batchConsumers[i] = consumer instanceof BatchMessageConsumer;
+            anyBatchConsumer |= batchConsumers[i];
+
+            final Class<?> payloadType = consumer.payloadType();
+            payloadTypeSlots[i] = payloadType.equals(String.class)
+                    ? STRING_PAYLOAD
+                    : slots.computeIfAbsent(payloadType, _type -> slots.size());
+
+            final String regex = keyPattern.pattern();
+            final String literal = keyPattern.flags() == 0 ? literalOf(regex) : null;
+            final String prefix = keyPattern.flags() == 0 && regex.endsWith(".*")
+                    ? literalOf(regex.substring(0, regex.length() - 2))
+                    : null;
+            if (literal != null) {
+                literals.computeIfAbsent(literal, _key -> new ArrayList<>()).add(i);
+            } else if (prefix != null) {
+                trie.add(prefix, i);
+            } else {
+                regexes.add(i);
+            }
+            matchAll &= prefix != null && prefix.isEmpty();
+        }
+
+        this.payloadTypes = slots.keySet().toArray(new Class<?>[0]);
+        this.literalRoutes = new HashMap<>();
+        literals.forEach((key, indexes) -> literalRoutes.put(key, toArray(indexes)));
+        this.prefixRoutes = trie;
+        this.regexRoutes = toArray(regexes);
+        this.allConsumersMatchAll = matchAll;
+        this.hasBatchConsumers = anyBatchConsumer;
+    }
+
+    int size() {
+        return consumers.length;
+    }
+
+    MessageConsumer<?> consumer(final int index) {
+        return consumers[index];
+    }
+
+    boolean isBatchConsumer(final int index) {
+        return batchConsumers[index];
+    }
+
+    boolean hasBatchConsumers() {
+        return hasBatchConsumers;
+    }
+
+    /**
+     * Returns the payload type slot of a consumer, or -1, if the consumer is expecting String payloads.
+     */
+    int payloadTypeSlot(final int index) {
+        return payloadTypeSlots[index];
+    }
+
+    int numberOfPayloadTypes() {
+        return payloadTypes.length;
+    }
+
+    /**
+     * Returns the ObjectReader used to deserialize payloads of the given slot, using the
+     * {@link de.otto.synapse.translator.ObjectMappers#currentObjectMapper() current ObjectMapper}.
+     */
+    ObjectReader payloadReader(final int slot) {
+        final ObjectMapper objectMapper = currentObjectMapper();
+        PayloadReaders readers = payloadReaders;
+        if (readers == null || readers.objectMapper != objectMapper) {
+            readers = new PayloadReaders(objectMapper, payloadTypes);
+            payloadReaders = readers;
+        }
+        return readers.readers[slot];
+    }
+
+    /**
+     * Returns the consumers accepting messages with the given key.
+     *
+     * @param key the compaction key of a message
+     * @return array containing true at the index of every matching consumer
+     */
+    boolean[] route(final String key) {
+        final boolean[] matches = new boolean[consumers.length];
+        if (hasLineTerminator(key)) {
+            // '.' is not matching line terminators, so the trie can not be used:
+            for (int i = 0; i < consumers.length; i++) {
+                matches[i] = keyPatterns[i].matcher(key).matches();
+            }
+            return matches;
+        }
+        if (allConsumersMatchAll) {
+            Arrays.fill(matches, true);
+            return matches;
+        }
+        final int[] literalMatches = literalRoutes.get(key);
+        if (literalMatches != null) {
+            for (final int i : literalMatches) {
+                matches[i] = true;
+            }
+        }
+        TrieNode node = prefixRoutes;
+        int position = 0;
+        while (node != null) {
+            for (final int i : node.consumers) {
+                matches[i] = true;
+            }
+            node = position < key.length() && node.children != null
+                    ? node.children.get(key.charAt(position++))
+                    : null;
+        }
+        for (final int i : regexRoutes) {
+            matches[i] = keyPatterns[i].matcher(key).matches();
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the literal String matched by the given regular expression, or null, if the expression is not a
+     * literal.
+     */
+    static String literalOf(final String regex) {
+        if (regex.startsWith("\\Q") && regex.endsWith("\\E") && regex.length() >= 4
+                && regex.indexOf("\\E") == regex.length() - 2) {
+            return regex.substring(2, regex.length() - 2);
+        }
+        for (int i = 0; i < regex.length(); i++) {
+            if (REGEX_META_CHARACTERS.indexOf(regex.charAt(i)) >= 0) {
+                return null;
+            }
+        }
+        return regex;
+    }
+
+    private static boolean hasLineTerminator(final String key) {
+        for (int i = 0; i < key.length(); i++) {
+            final char c = key.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] toArray(final List<Integer> indexes) {
+        return indexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static final class TrieNode {
+        private Map<Character, TrieNode> children;
+        private int[] consumers = new int[0];
+
+        private void add(final String prefix, final int consumer) {
+            TrieNode node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                if (node.children == null) {
+                    node.children = new HashMap<>();
+                }
+                node = node.children.computeIfAbsent(prefix.charAt(i), _c -> new TrieNode());
+            }
+            node.consumers = Arrays.copyOf(node.consumers, node.consumers.length + 1);
+            node.consumers[node.consumers.length - 1] = consumer;
+        }
+    }
+
+    private static final class PayloadReaders {
+        private final ObjectMapper objectMapper;
+        private final ObjectReader[] readers;
+
+        private PayloadReaders(final ObjectMapper objectMapper, final Class<?>[] payloadTypes) {
+            this.objectMapper = objectMapper;
+            this.readers = new ObjectReader[payloadTypes.length];
+            for (int i = 0; i < payloadTypes.length; i++) {
+                readers[i] = objectMapper.readerFor(payloadTypes[i]);
+            }
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package de.otto.synapse.consumer;
 
+import de.otto.synapse.channel.ShardPosition;
 import de.otto.synapse.message.Key;
 import de.otto.synapse.message.Message;
 import de.otto.synapse.state.StateRepository;
 import jakarta.annotation.Nonnull;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -13,16 +18,23 @@ import java.util.regex.Pattern;
 /**
  * A {@code MessageConsumer} that is updating a {@link StateRepository}.
  *
+ * <p>
+ *     The consumer is a {@link BatchMessageConsumer}: if the state is derived from the message only, without
+ *     looking at the previous state, a batch containing multiple messages for the same key is applied to the
+ *     {@code StateRepository} using a single update per key.
+ * </p>
+ *
  * @param <P> the type of the {@link Message} payload
  * @param <S> the type of the {@link StateRepository} entries
  */
-public class StatefulMessageConsumer<P, S> implements MessageConsumer<P> {
+public class StatefulMessageConsumer<P, S> implements BatchMessageConsumer<P> {
 
     private final Pattern keyPattern;
     private final StateRepository<S> stateRepository;
     private final Class<P> payloadType;
     private final Function<? super Message<P>, String> keyMapper;
     private final BiFunction<Optional<S>, ? super Message<P>, S> payloadToStateMapper;
+    private final boolean ignoresPreviousState;
 
     /**
      * Creates a StatefulMessageConsumer.
@@ -81,6 +93,7 @@ public class StatefulMessageConsumer<P, S> implements MessageConsumer<P> {
         this.stateRepository = stateRepository;
         this.payloadToStateMapper = (_previousValue, message) -> payloadToStateMapper.apply(message);
         this.keyMapper = keyMapper;
+        this.ignoresPreviousState = true;
     }
 
     /**
@@ -102,6 +115,7 @@ public class StatefulMessageConsumer<P, S> implements MessageConsumer<P> {
         this.stateRepository = stateRepository;
         this.payloadToStateMapper = payloadToStateMapper;
         this.keyMapper = keyMapper;
+        this.ignoresPreviousState = false;
     }
 
     /**
@@ -137,4 +151,43 @@ public class StatefulMessageConsumer<P, S> implements MessageConsumer<P> {
         }
     }
 
+    /**
+     * Applies a list of messages to the {@link StateRepository}.
+     *
+     * <p>
+     *     If the state is derived from the message only, just the last message of every key is applied, using the
+     *     bulk operations of the {@link StateRepository}. Otherwise, all messages are applied in order.
+     * </p>
+     *
+     * @param messages the messages of a single shard, in the order they were received
+     * @param shardPosition the position of the shard after the messages, or null
+     */
+    @Override
+    public void acceptAll(final List<Message<P>> messages, final ShardPosition shardPosition) {
+        if (!ignoresPreviousState || messages.size() == 1) {
+            messages.forEach(this::accept);
+        } else {
+            final Map<String, Message<P>> lastMessagePerKey = new LinkedHashMap<>();
+            for (final Message<P> message : messages) {
+                final String key = keyMapper.apply(message);
+                // re-inserting the key moves it to the end, so keys are updated in the order of their last message:
+                lastMessagePerKey.remove(key);
+                lastMessagePerKey.put(key, message);
+            }
+            final List<String> deletedKeys = new ArrayList<>();
+            final Map<String, Message<P>> updates = new LinkedHashMap<>();
+            lastMessagePerKey.forEach((key, message) -> {
+                if (message.getPayload() == null) {
+                    deletedKeys.add(key);
+                } else {
+                    updates.put(key, message);
+                }
+            });
+            stateRepository.removeAll(deletedKeys);
+            stateRepository.computeAll(
+                    updates.keySet(),
+                    (key, previousValue) -> payloadToStateMapper.apply(previousValue, updates.get(key)));
+        }
+    }
+
 }
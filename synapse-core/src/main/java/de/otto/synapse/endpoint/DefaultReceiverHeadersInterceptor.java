@@ -51,11 +51,12 @@ public class DefaultReceiverHeadersInterceptor {
     @de.otto.synapse.annotation.MessageInterceptor(endpointType = EndpointType.RECEIVER)
     public TextMessage addDefaultHeaders(@Nonnull TextMessage message) {
 
-        final Header.Builder headers = copyOf(message.getHeader());
-
-        if (enabled) {
-            headers.withAttribute(MSG_RECEIVER_TS, clock.instant());
+        if (!enabled) {
+            return message;
         }
-        return TextMessage.of(message.getKey(), headers.build(), message.getPayload());
+        final Header header = copyOf(message.getHeader())
+                .withAttribute(MSG_RECEIVER_TS, clock.instant())
+                .build();
+        return message.withHeader(header);
     }
 }
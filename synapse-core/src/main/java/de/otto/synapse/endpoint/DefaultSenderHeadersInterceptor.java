@@ -3,6 +3,7 @@ package de.otto.synapse.endpoint;
 import de.otto.synapse.configuration.SynapseProperties;
 import de.otto.synapse.message.DefaultHeaderAttr;
 import de.otto.synapse.message.Header;
+import de.otto.synapse.message.MessageIdGenerator;
 import de.otto.synapse.message.TextMessage;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
@@ -10,7 +11,6 @@ import jakarta.annotation.Nullable;
 import java.time.Clock;
 import java.util.EnumSet;
 import java.util.Set;
-import java.util.UUID;
 
 import static de.otto.synapse.message.DefaultHeaderAttr.*;
 import static de.otto.synapse.message.Header.copyOf;
@@ -45,7 +45,7 @@ public class DefaultSenderHeadersInterceptor {
         /**
          * Add a {@link DefaultHeaderAttr#MSG_ID} to the message header.
          *
-         * The value of the header is a UUID.
+         * The value of the header is a time-ordered UUID, created by a {@link MessageIdGenerator}.
          */
         MESSAGE_ID,
         /**
@@ -57,6 +57,7 @@ public class DefaultSenderHeadersInterceptor {
     private final Set<Capability> capabilities;
     private final String senderName;
     private final Clock clock;
+    private final MessageIdGenerator messageIdGenerator;
 
     /**
      * Creates a new DefaultSenderHeadersInterceptor with default configuration.
@@ -85,6 +86,7 @@ public class DefaultSenderHeadersInterceptor {
                 : EnumSet.noneOf(Capability.class);
 
         this.clock = clock;
+        this.messageIdGenerator = new MessageIdGenerator(clock);
     }
 
     @Nullable
@@ -97,11 +99,11 @@ public class DefaultSenderHeadersInterceptor {
             headers.withAttribute(MSG_SENDER, senderName);
         }
         if (capabilities.contains(Capability.MESSAGE_ID)) {
-            headers.withAttribute(MSG_ID, UUID.randomUUID().toString());
+            headers.withAttribute(MSG_ID, messageIdGenerator.nextId());
         }
         if (capabilities.contains(Capability.TIMESTAMP)) {
             headers.withAttribute(MSG_SENDER_TS, clock.instant());
         }
-        return TextMessage.of(message.getKey(), headers.build(), message.getPayload());
+        return message.withHeader(headers.build());
     }
 }
@@ -1,18 +1,20 @@
 package de.otto.synapse.endpoint;
 
 import de.otto.synapse.consumer.MessageConsumer;
+import de.otto.synapse.consumer.MethodInvokers;
 import de.otto.synapse.message.Message;
 import de.otto.synapse.message.TextMessage;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.Arrays;
 import java.util.Objects;
 
+import static de.otto.synapse.consumer.MethodInvokers.propagate;
+
 /**
  * A {@link MessageConsumer} that is calling a method of a class instance for every accepted {@link Message}
  * <p>
@@ -21,9 +23,8 @@ import java.util.Objects;
  */
 public class MethodInvokingMessageInterceptor implements MessageInterceptor {
 
-    private final Object instance;
-    private final Method method;
-    private final boolean returnsMessage;
+    private final MethodInvokers.Invoker invoker;
+    private final MethodInvokers.VoidInvoker voidInvoker;
 
     public MethodInvokingMessageInterceptor(final Object instance,
                                             final Method method) {
@@ -43,9 +44,9 @@ public class MethodInvokingMessageInterceptor implements MessageInterceptor {
         assertIsMessageWithStringTypeParam(method.getGenericParameterTypes()[0]);
         assertIsMessage(method.getParameterTypes()[0]);
 
-        this.method = method;
-        this.instance = instance;
-        this.returnsMessage = method.getReturnType() != Void.class && method.getReturnType() != void.class;
+        final boolean returnsMessage = method.getReturnType() != Void.class && method.getReturnType() != void.class;
+        this.invoker = returnsMessage ? MethodInvokers.invoker(instance, method) : null;
+        this.voidInvoker = returnsMessage ? null : MethodInvokers.voidInvoker(instance, method);
     }
 
     private void assertIsMessageWithStringTypeParam(final Type type) {
@@ -76,19 +77,19 @@ public class MethodInvokingMessageInterceptor implements MessageInterceptor {
     @SuppressWarnings("unchecked")
     public TextMessage intercept(@Nonnull TextMessage message) {
         try {
-            if (returnsMessage) {
-                final Message<String> interceptedMessage = (Message<String>) method.invoke(instance, message);
+            if (invoker != null) {
+                final Message<String> interceptedMessage = (Message<String>) invoker.invoke(message);
                 if (interceptedMessage == null || interceptedMessage == message || interceptedMessage instanceof TextMessage) {
                     return (TextMessage) interceptedMessage;
                 } else {
                     return TextMessage.of(interceptedMessage);
                 }
             } else {
-                method.invoke(instance, message);
+                voidInvoker.invoke(message);
                 return message;
             }
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new IllegalStateException(e);
+        } catch (final Throwable e) {
+            throw propagate(e);
         }
     }
 }
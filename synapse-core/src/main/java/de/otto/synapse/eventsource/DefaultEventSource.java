@@ -2,6 +2,7 @@ package de.otto.synapse.eventsource;
 
 import de.otto.synapse.channel.ChannelPosition;
 import de.otto.synapse.channel.ShardResponse;
+import de.otto.synapse.consumer.MessageDispatcher;
 import de.otto.synapse.endpoint.receiver.MessageLogReceiverEndpoint;
 import de.otto.synapse.logging.LogHelper;
 import de.otto.synapse.messagestore.MessageStore;
@@ -16,10 +17,13 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.*;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 
+import static de.otto.synapse.eventsource.EventSourceCheckpoint.noCheckpoint;
+import static de.otto.synapse.eventsource.PartitionedMessageReplay.partitionedMessageReplay;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -29,13 +33,12 @@ public class DefaultEventSource extends AbstractEventSource {
     private static final int LOG_MESSAGE_COUNTER_EVERY_NTH_MESSAGE = 100_000;
 
     private final MessageStore messageStore;
+    private final EventSourceCheckpoint checkpoint;
     private final Marker marker;
 
     public DefaultEventSource(final @Nonnull MessageStore messageStore,
                               final @Nonnull MessageLogReceiverEndpoint messageLog) {
-        super(messageLog);
-        this.messageStore = messageStore;
-        this.marker = null;
+        this(messageStore, messageLog, noCheckpoint());
     }
 
     public DefaultEventSource(final @Nonnull MessageStore messageStore,
@@ -43,17 +46,45 @@ public class DefaultEventSource extends AbstractEventSource {
                               final @Nonnull Marker marker) {
         super(messageLog);
         this.messageStore = messageStore;
+        this.checkpoint = noCheckpoint();
         this.marker = marker;
     }
 
+    /**
+     * Creates a DefaultEventSource that is resuming from the position of the {@link EventSourceCheckpoint}, if the
+     * checkpoint has a position for the channel. In this case, the {@code messageStore} is not consumed.
+     *
+     * @param messageStore the snapshot MessageStore
+     * @param messageLog the MessageLogReceiverEndpoint
+     * @param checkpoint the checkpoint of the channel
+     */
+    public DefaultEventSource(final @Nonnull MessageStore messageStore,
+                              final @Nonnull MessageLogReceiverEndpoint messageLog,
+                              final @Nonnull EventSourceCheckpoint checkpoint) {
+        super(messageLog);
+        this.messageStore = messageStore;
+        this.checkpoint = checkpoint;
+        this.marker = null;
+    }
+
     @Nonnull
     @Override
     public CompletableFuture<ChannelPosition> consumeUntil(final @Nonnull Predicate<ShardResponse> stopCondition) {
-        return consumeMessageStore()
+        final Optional<ChannelPosition> checkpointPosition = checkpoint.getChannelPosition(getChannelName());
+        final CompletableFuture<ChannelPosition> startFrom;
+        if (checkpointPosition.isPresent()) {
+            LOG.info(marker, "Skipping message store for channel '{}': resuming from checkpoint {}", getChannelName(), checkpointPosition.get());
+            startFrom = CompletableFuture.completedFuture(checkpointPosition.get());
+        } else {
+            startFrom = consumeMessageStore();
+        }
+        return startFrom
                 .thenCompose(channelPosition -> getMessageLogReceiverEndpoint().consumeUntil(channelPosition, stopCondition))
                 .handle((channelPosition, throwable) -> {
                     if (throwable != null) {
                         LOG.error(marker, "Failed to start consuming from EventSource {}: {}. Closing MessageStore.", getChannelName(), throwable.getMessage(), throwable);
+                    } else if (channelPosition != null && checkpoint.isCheckpointing(getChannelName())) {
+                        checkpoint.checkpoint(getChannelName(), channelPosition);
                     }
                     try {
                         messageStore.close();
@@ -71,9 +102,8 @@ public class DefaultEventSource extends AbstractEventSource {
         if (messageStore.isCompacting()) {
             numberOfDispatcherThreads = Runtime.getRuntime().availableProcessors();
         }
+        final int numberOfLanes = numberOfDispatcherThreads;
 
-        final ExecutorService executorService = Executors.newCachedThreadPool(new CustomizableThreadFactory("synapse-messagestore-dispatcher-"));
-        final Semaphore lock = new Semaphore(numberOfDispatcherThreads);
         final String channelName = getChannelName();
 
         LOG.info(marker, "Starting to read message store for channel '{}'.", channelName);
@@ -89,40 +119,30 @@ public class DefaultEventSource extends AbstractEventSource {
             if (copyOfContextMap != null) {
                 MDC.setContextMap(copyOfContextMap);
             }
-            messageStore
-                    .stream()
-                    .filter(entry -> entry.getChannelName().equals(channelName))
-                    .map(MessageStoreEntry::getTextMessage)
-                    .map(message -> getMessageLogReceiverEndpoint().intercept(message))
-                    .filter(Objects::nonNull)
-                    .forEach(message -> {
-                        try {
-                            lock.acquire();
-                        } catch (InterruptedException e) {
-                            LOG.error(marker, e.getMessage(), e);
-                        }
-                        executorService.execute(() -> {
-                            if (copyOfContextMap != null) {
-                                MDC.setContextMap(copyOfContextMap);
-                            }
-                            try {
-                                getMessageLogReceiverEndpoint().getMessageDispatcher().accept(message);
-                            } finally {
-                                long counter = messageCounter.getAndIncrement();
-                                if (counter > 0 && counter % LOG_MESSAGE_COUNTER_EVERY_NTH_MESSAGE == 0) {
-                                    double messagesPerSecond = LogHelper.calculateMessagesPerSecond(previousMessageLogTime.getAndSet(System.currentTimeMillis()), LOG_MESSAGE_COUNTER_EVERY_NTH_MESSAGE);
-                                    LOG.info(marker, "Consumed {} messages ({} per second) from message store for channel '{}'", counter, String.format( "%.2f", messagesPerSecond), channelName );
-                                }
-                                lock.release();
+            final MessageDispatcher messageDispatcher = getMessageLogReceiverEndpoint().getMessageDispatcher();
+            final PartitionedMessageReplay replay = partitionedMessageReplay(numberOfLanes, marker, messageDispatcher);
+            try {
+                messageStore
+                        .stream()
+                        .filter(entry -> entry.getChannelName().equals(channelName))
+                        .map(MessageStoreEntry::getTextMessage)
+                        .map(message -> getMessageLogReceiverEndpoint().intercept(message))
+                        .filter(Objects::nonNull)
+                        .forEach(message -> {
+                            replay.submit(message);
+                            long counter = messageCounter.getAndIncrement();
+                            if (counter > 0 && counter % LOG_MESSAGE_COUNTER_EVERY_NTH_MESSAGE == 0) {
+                                double messagesPerSecond = LogHelper.calculateMessagesPerSecond(previousMessageLogTime.getAndSet(System.currentTimeMillis()), LOG_MESSAGE_COUNTER_EVERY_NTH_MESSAGE);
+                                LOG.info(marker, "Consumed {} messages ({} per second) from message store for channel '{}'", counter, String.format( "%.2f", messagesPerSecond), channelName );
                             }
                         });
-                    });
-            executorService.shutdown();
-            try {
-                executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MINUTES);
+                replay.awaitCompletion();
                 LOG.info(marker, "Consumed a total of {} messages from message store for channel '{}', totalMessagesPerSecond={}", messageCounter.get(), channelName, String.format( "%.2f", LogHelper.calculateMessagesPerSecond(firstMessageLogTime, messageCounter.get())));
             } catch (InterruptedException e) {
                 LOG.error(marker, e.getMessage(), e);
+                Thread.currentThread().interrupt();
+            } finally {
+                shutdown(replay);
             }
 
             LOG.info(marker, "Finished reading message store for channel '{}'. Duration was {}.", channelName, Duration.between(startTime, Instant.now()));
@@ -133,4 +153,13 @@ public class DefaultEventSource extends AbstractEventSource {
         ));
     }
 
+    private void shutdown(final PartitionedMessageReplay replay) {
+        try {
+            replay.shutdown();
+        } catch (final InterruptedException e) {
+            LOG.error(marker, e.getMessage(), e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
 }
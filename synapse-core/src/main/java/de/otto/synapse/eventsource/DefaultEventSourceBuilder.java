@@ -6,22 +6,43 @@ import de.otto.synapse.endpoint.receiver.MessageLogReceiverEndpoint;
 import de.otto.synapse.messagestore.MessageStore;
 import de.otto.synapse.messagestore.MessageStoreFactory;
 
+import static de.otto.synapse.eventsource.EventSourceCheckpoint.noCheckpoint;
+import static de.otto.synapse.messagestore.MessageStores.emptyMessageStore;
+
 public class DefaultEventSourceBuilder implements EventSourceBuilder {
 
     private final MessageStoreFactory<? extends MessageStore> snapshotMessageStoreFactory;
     private final Class<? extends MessageLog> selector;
+    private final EventSourceCheckpoint checkpoint;
 
     public DefaultEventSourceBuilder(final MessageStoreFactory<? extends MessageStore> snapshotMessageStoreFactory,
                                      final Class<? extends MessageLog> selector) {
+        this(snapshotMessageStoreFactory, selector, noCheckpoint());
+    }
+
+    /**
+     * Creates a builder of event sources that are resuming from the positions of the {@link EventSourceCheckpoint}.
+     * If a position is available for a channel, no snapshot MessageStore is created for the channel.
+     *
+     * @param snapshotMessageStoreFactory the factory used to create snapshot MessageStores
+     * @param selector the selector of the supported message logs
+     * @param checkpoint the checkpoint of the local state
+     */
+    public DefaultEventSourceBuilder(final MessageStoreFactory<? extends MessageStore> snapshotMessageStoreFactory,
+                                     final Class<? extends MessageLog> selector,
+                                     final EventSourceCheckpoint checkpoint) {
         this.snapshotMessageStoreFactory = snapshotMessageStoreFactory;
         this.selector = selector;
+        this.checkpoint = checkpoint;
     }
 
     @Override
     public EventSource buildEventSource(MessageLogReceiverEndpoint messageLogReceiverEndpoint) {
         final String channelName = messageLogReceiverEndpoint.getChannelName();
-        final MessageStore messageStore = snapshotMessageStoreFactory.createMessageStoreFor(channelName);
-        return new DefaultEventSource(messageStore, messageLogReceiverEndpoint);
+        final MessageStore messageStore = checkpoint.getChannelPosition(channelName).isPresent()
+                ? emptyMessageStore()
+                : snapshotMessageStoreFactory.createMessageStoreFor(channelName);
+        return new DefaultEventSource(messageStore, messageLogReceiverEndpoint, checkpoint);
     }
 
     @Override
@@ -27,7 +27,7 @@ public class DelegateEventSource implements EventSource {
         final MessageLogReceiverEndpoint messageLogReceiverEndpoint = applicationContext.getBean(messageLogBeanName, MessageLogReceiverEndpoint.class);
         final EventSourceBuilder builder = eventSourceBuilder
                 .stream()
-                .filter(b -> b.matches(selector))
+                .filter(b -> b.matches(selector) || b.selector().isAssignableFrom(selector))
                 .min(new BestMatchingSelectableComparator(selector))
                 .orElseThrow(() -> new IllegalStateException(format("Unable to create EventSource for channelName=%s: no matching EventSourceBuilder found in the ApplicationContext.", messageLogReceiverEndpoint.getChannelName())));
         this.delegate = builder.buildEventSource(messageLogReceiverEndpoint);
@@ -0,0 +1,125 @@
+package de.otto.synapse.eventsource;
+
+import de.otto.synapse.channel.ChannelPosition;
+import jakarta.annotation.Nonnull;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Checkpoint of the positions of channels, up to which the messages of the channels have been applied to some
+ * persistent local state, like a persisted {@link de.otto.synapse.state.ChronicleMapStateRepository}.
+ *
+ * <p>
+ *     If a checkpoint is available for the channel of a {@link DefaultEventSource}, the event source is skipping the
+ *     snapshot {@link de.otto.synapse.messagestore.MessageStore} and continues to consume the message log at the
+ *     position of the checkpoint. After the event source has finished consuming, the latest position of the channel
+ *     is passed to {@link #checkpoint(String, ChannelPosition)}.
+ * </p>
+ * <p>
+ *     Checkpoints are scoped to the channels that are {@link #isCheckpointing(String) checkpointed}: positions of other
+ *     channels are neither restored nor recorded. A channel must only be checkpointed, if all state that is derived
+ *     from the messages of the channel is restored from the local state. Otherwise, the skipped messages of the
+ *     snapshot would be missing.
+ * </p>
+ */
+public interface EventSourceCheckpoint {
+
+    /**
+     * Returns true, if the positions of the channel are checkpointed.
+     *
+     * @param channelName the name of the channel
+     * @return true, if the channel is checkpointed, false otherwise
+     */
+    boolean isCheckpointing(@Nonnull String channelName);
+
+    /**
+     * Returns the position of the channel, up to which the messages have been applied to the local state.
+     *
+     * @param channelName the name of the channel
+     * @return ChannelPosition, or empty if there is no checkpoint for the channel
+     */
+    @Nonnull
+    Optional<ChannelPosition> getChannelPosition(@Nonnull String channelName);
+
+    /**
+     * Records the position of a channel, after all messages up to this position have been applied to the local
+     * state.
+     *
+     * @param channelName the name of the channel
+     * @param channelPosition the position of the channel
+     */
+    void checkpoint(@Nonnull String channelName, @Nonnull ChannelPosition channelPosition);
+
+    /**
+     * Returns a checkpoint that is never restoring a channel position.
+     *
+     * @return EventSourceCheckpoint
+     */
+    static EventSourceCheckpoint noCheckpoint() {
+        return new EventSourceCheckpoint() {
+            @Override
+            public boolean isCheckpointing(final @Nonnull String channelName) {
+                return false;
+            }
+
+            @Nonnull
+            @Override
+            public Optional<ChannelPosition> getChannelPosition(final @Nonnull String channelName) {
+                return Optional.empty();
+            }
+
+            @Override
+            public void checkpoint(final @Nonnull String channelName, final @Nonnull ChannelPosition channelPosition) {
+            }
+        };
+    }
+
+    /**
+     * Combines multiple checkpoints, for example the checkpoints of several persisted state repositories.
+     *
+     * <p>Only the checkpoints that are {@link #isCheckpointing(String) checkpointing} a channel are taking part in
+     * restoring and recording the positions of the channel. The position of a channel is only restored, if all
+     * these checkpoints are having the same position for the channel.</p>
+     *
+     * @param checkpoints the combined checkpoints
+     * @return EventSourceCheckpoint
+     */
+    static EventSourceCheckpoint allOf(final @Nonnull List<? extends EventSourceCheckpoint> checkpoints) {
+        if (checkpoints.isEmpty()) {
+            return noCheckpoint();
+        }
+        if (checkpoints.size() == 1) {
+            return checkpoints.get(0);
+        }
+        return new EventSourceCheckpoint() {
+            @Override
+            public boolean isCheckpointing(final @Nonnull String channelName) {
+                return checkpoints.stream().anyMatch(checkpoint -> checkpoint.isCheckpointing(channelName));
+            }
+
+            @Nonnull
+            @Override
+            public Optional<ChannelPosition> getChannelPosition(final @Nonnull String channelName) {
+                Optional<ChannelPosition> channelPosition = Optional.empty();
+                for (final EventSourceCheckpoint checkpoint : checkpoints) {
+                    if (checkpoint.isCheckpointing(channelName)) {
+                        final Optional<ChannelPosition> position = checkpoint.getChannelPosition(channelName);
+                        if (position.isEmpty() || (channelPosition.isPresent() && !channelPosition.equals(position))) {
+                            return Optional.empty();
+                        }
+                        channelPosition = position;
+                    }
+                }
+                return channelPosition;
+            }
+
+            @Override
+            public void checkpoint(final @Nonnull String channelName, final @Nonnull ChannelPosition channelPosition) {
+                checkpoints.stream()
+                        .filter(checkpoint -> checkpoint.isCheckpointing(channelName))
+                        .forEach(checkpoint -> checkpoint.checkpoint(channelName, channelPosition));
+            }
+        };
+    }
+}
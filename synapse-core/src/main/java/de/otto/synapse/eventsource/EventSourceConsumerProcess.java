@@ -5,19 +5,47 @@ import org.slf4j.Logger;
 import org.springframework.context.SmartLifecycle;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import static de.otto.synapse.eventsource.EventSourceCheckpoint.noCheckpoint;
 import static org.slf4j.LoggerFactory.getLogger;
 
 public class EventSourceConsumerProcess implements SmartLifecycle {
 
     private static final Logger LOG = getLogger(EventSourceConsumerProcess.class);
 
+    /**
+     * Maximum time to wait for the event sources to finish on {@link #stop()}, so their final positions can be
+     * recorded by {@link EventSourceCheckpoint checkpoints} before the application context is closed.
+     */
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+
     private final List<EventSource> eventSources;
+    private final EventSourceCheckpoint checkpoint;
+    private final List<CompletableFuture<?>> consumptions = new CopyOnWriteArrayList<>();
 
     private volatile boolean running = false;
 
     public EventSourceConsumerProcess(final List<EventSource> eventSources) {
+        this(eventSources, noCheckpoint());
+    }
+
+    /**
+     * Creates an EventSourceConsumerProcess that is waiting on {@link #stop()} for the event sources of all channels
+     * that are {@link EventSourceCheckpoint#isCheckpointing(String) checkpointed} by the given checkpoint. Event
+     * sources of other channels are stopped without waiting for them to finish.
+     *
+     * @param eventSources the event sources
+     * @param checkpoint the checkpoint used to record the positions of the event sources
+     */
+    public EventSourceConsumerProcess(final List<EventSource> eventSources,
+                                      final EventSourceCheckpoint checkpoint) {
         this.eventSources = eventSources;
+        this.checkpoint = checkpoint;
     }
 
     @Override
@@ -45,7 +73,10 @@ public class EventSourceConsumerProcess implements SmartLifecycle {
             eventSources.forEach(eventSource -> {
                 try {
                     LOG.info("Starting {}...", eventSource.getChannelName());
-                    eventSource.consume();
+                    final CompletableFuture<?> consumption = eventSource.consume();
+                    if (consumption != null && checkpoint.isCheckpointing(eventSource.getChannelName())) {
+                        consumptions.add(consumption);
+                    }
                 } catch (Exception e) {
                     LOG.error("Starting failed: " + e.getMessage(), e);
                     stop();
@@ -61,10 +92,29 @@ public class EventSourceConsumerProcess implements SmartLifecycle {
     public void stop() {
         LOG.info("Shutting down...");
         eventSources.forEach(EventSource::stop);
+        awaitConsumptions();
         running = false;
         LOG.info("...done.");
     }
 
+    private void awaitConsumptions() {
+        if (consumptions.isEmpty()) {
+            return;
+        }
+        try {
+            CompletableFuture
+                    .allOf(consumptions.toArray(new CompletableFuture<?>[0]))
+                    .get(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            LOG.warn("EventSource failed: {}", e.getMessage());
+        } catch (final TimeoutException e) {
+            LOG.warn("EventSources did not finish within {} seconds", STOP_TIMEOUT_SECONDS);
+        }
+        consumptions.clear();
+    }
+
     /**
      * Check whether this component is currently running.
      * <p>In the case of a container, this will return {@code true} only if <i>all</i>
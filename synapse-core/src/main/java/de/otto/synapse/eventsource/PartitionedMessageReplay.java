@@ -0,0 +1,216 @@
+package de.otto.synapse.eventsource;
+
+import de.otto.synapse.message.Key;
+import de.otto.synapse.message.TextMessage;
+import jakarta.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+import static java.util.Collections.emptyList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Replays messages, for example from a {@link de.otto.synapse.messagestore.MessageStore}, using a fixed number of
+ * single-threaded lanes.
+ *
+ * <p>
+ *     Messages are assigned to lanes by the hash of their {@link Key#partitionKey() partition key}, so all messages
+ *     having the same partition key are processed by the same thread, in the order they were submitted. Messages are
+ *     handed over to the lanes in batches using bounded queues: if a lane is not able to keep up, {@link #submit}
+ *     will block until there is space in the lane's queue.
+ * </p>
+ * <p>
+ *     Instances are not thread-safe: {@link #submit(TextMessage)}, {@link #awaitCompletion()} and
+ *     {@link #shutdown()} must be called from a single producer thread. If the replay is not completed, for example
+ *     because reading the messages failed, {@link #shutdown()} must be called to terminate the lanes.
+ * </p>
+ */
+class PartitionedMessageReplay {
+
+    private static final Logger LOG = getLogger(PartitionedMessageReplay.class);
+
+    static final int DEFAULT_BATCH_SIZE = 512;
+    static final int DEFAULT_QUEUE_CAPACITY = 8;
+
+    /**
+     * Marker used to signal the end of the replay to a lane.
+     */
+    private static final List<TextMessage> END_OF_REPLAY = emptyList();
+
+    private final Lane[] lanes;
+    private final int batchSize;
+    private final Marker marker;
+
+    /**
+     * Creates and starts a PartitionedMessageReplay.
+     *
+     * @param numberOfLanes the number of lanes (and threads) used to process messages
+     * @param batchSize the max number of messages that are handed over to a lane at once
+     * @param queueCapacity the max number of batches that are queued per lane
+     * @param threadFactory the factory used to create the lane threads
+     * @param marker optional marker used for logging
+     * @param consumer the consumer of the messages
+     */
+    PartitionedMessageReplay(final int numberOfLanes,
+                             final int batchSize,
+                             final int queueCapacity,
+                             final @Nonnull ThreadFactory threadFactory,
+                             final Marker marker,
+                             final @Nonnull Consumer<TextMessage> consumer) {
+        if (numberOfLanes < 1 || batchSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("numberOfLanes, batchSize and queueCapacity must be greater than zero");
+        }
+        this.batchSize = batchSize;
+        this.marker = marker;
+        this.lanes = new Lane[numberOfLanes];
+        final Map<String, String> copyOfContextMap = MDC.getCopyOfContextMap();
+        for (int i = 0; i < numberOfLanes; ++i) {
+            lanes[i] = new Lane(queueCapacity, consumer, copyOfContextMap);
+            lanes[i].thread = threadFactory.newThread(lanes[i]);
+            lanes[i].thread.start();
+        }
+    }
+
+    /**
+     * Creates and starts a PartitionedMessageReplay using default batch sizes and queue capacities.
+     *
+     * @param numberOfLanes the number of lanes (and threads) used to process messages
+     * @param marker optional marker used for logging
+     * @param consumer the consumer of the messages
+     * @return PartitionedMessageReplay
+     */
+    static PartitionedMessageReplay partitionedMessageReplay(final int numberOfLanes,
+                                                             final Marker marker,
+                                                             final @Nonnull Consumer<TextMessage> consumer) {
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("synapse-messagestore-dispatcher-");
+        threadFactory.setDaemon(true);
+        return new PartitionedMessageReplay(
+                numberOfLanes,
+                DEFAULT_BATCH_SIZE,
+                DEFAULT_QUEUE_CAPACITY,
+                threadFactory,
+                marker,
+                consumer);
+    }
+
+    /**
+     * Submits a message to the lane that is responsible for the message's partition key.
+     *
+     * @param message the message
+     */
+    void submit(final @Nonnull TextMessage message) {
+        final Lane lane = lanes[laneOf(message.getKey())];
+        lane.pending.add(message);
+        if (lane.pending.size() >= batchSize) {
+            lane.handOver(new ArrayList<>(batchSize));
+        }
+    }
+
+    /**
+     * Hands over all pending messages to the lanes and waits until all lanes have processed their messages.
+     *
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    void awaitCompletion() throws InterruptedException {
+        for (final Lane lane : lanes) {
+            if (!lane.pending.isEmpty()) {
+                lane.handOver(null);
+            }
+            lane.put(END_OF_REPLAY);
+        }
+        for (final Lane lane : lanes) {
+            lane.thread.join();
+        }
+    }
+
+    /**
+     * Terminates all lanes that are still running, discarding messages that were not yet processed, and waits until
+     * the lane threads have finished. Calling this method after {@link #awaitCompletion()} has no effect.
+     *
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    void shutdown() throws InterruptedException {
+        for (final Lane lane : lanes) {
+            if (lane.thread.isAlive()) {
+                lane.thread.interrupt();
+            }
+        }
+        for (final Lane lane : lanes) {
+            lane.thread.join();
+        }
+    }
+
+    int numberOfLanes() {
+        return lanes.length;
+    }
+
+    int laneOf(final Key key) {
+        final int h = key.partitionKey().hashCode();
+        return Math.floorMod(h ^ (h >>> 16), lanes.length);
+    }
+
+    private final class Lane implements Runnable {
+        private final BlockingQueue<List<TextMessage>> queue;
+        private final Consumer<TextMessage> consumer;
+        private final Map<String, String> contextMap;
+        private List<TextMessage> pending = new ArrayList<>(batchSize);
+        private Thread thread;
+
+        private Lane(final int queueCapacity,
+                     final Consumer<TextMessage> consumer,
+                     final Map<String, String> contextMap) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.consumer = consumer;
+            this.contextMap = contextMap;
+        }
+
+        private void handOver(final List<TextMessage> nextBatch) {
+            put(pending);
+            pending = nextBatch;
+        }
+
+        private void put(final List<TextMessage> batch) {
+            try {
+                queue.put(batch);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while replaying messages: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (contextMap != null) {
+                MDC.setContextMap(contextMap);
+            }
+            try {
+                List<TextMessage> batch;
+                while ((batch = queue.take()) != END_OF_REPLAY) {
+                    for (final TextMessage message : batch) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            return;
+                        }
+                        try {
+                            consumer.accept(message);
+                        } catch (final RuntimeException e) {
+                            LOG.error(marker, "Failed to dispatch message with key '{}': {}", message.getKey(), e.getMessage(), e);
+                        }
+                    }
+                }
+            } catch (final InterruptedException e) {
+                LOG.debug(marker, "Lane interrupted: {}", e.getMessage());
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
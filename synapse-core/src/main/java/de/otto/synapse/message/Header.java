@@ -16,6 +16,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 /**
  * The Header of a {@link Message}.
@@ -28,6 +29,14 @@ import java.util.Optional;
  * <p>
  *     <img src="http://www.enterpriseintegrationpatterns.com/img/MessageSolution.gif" alt="Message">
  * </p>
+ * <p>
+ *     Headers created using {@link #copyOf(Header)} are sharing the attributes of the copied header: only the
+ *     added attributes are stored in the new header, on top of the attributes of the copied header. This way,
+ *     interceptors are able to add attributes without copying all attributes of the message.
+ * </p>
+ * <p>
+ *     Instants returned by {@link #getAsInstant(String)} are parsed only once per header and attribute.
+ * </p>
  * @see <a href="http://www.enterpriseintegrationpatterns.com/patterns/messaging/Message.html">EIP: Message</a>
  */
 public class Header implements Serializable {
@@ -35,6 +44,12 @@ public class Header implements Serializable {
 
     private static final long serialVersionUID = -6285737687861009394L;
 
+    /**
+     * The maximum number of headers stacked on top of each other, before the attributes are copied into a single
+     * header. This is limiting the costs of looking up attributes.
+     */
+    private static final int MAX_DEPTH = 4;
+
     public static Header of() {
         return new Header(null, ImmutableMap.of());
     }
@@ -53,22 +68,35 @@ public class Header implements Serializable {
     }
 
     public static Builder builder() {
-        return new Builder();
+        return new Builder(null);
     }
 
     public static Builder copyOf(final Header header) {
-        return new Builder()
-                .withShardPosition(header.shardPosition)
-                .withAttributes(header.getAll());
+        return new Builder(header)
+                .withShardPosition(header.shardPosition);
     }
 
     private final ShardPosition shardPosition;
     private final ImmutableMap<String, String> attributes;
+    private final Header base;
+    private final int depth;
+    private transient volatile ImmutableMap<String, String> allAttributes;
+    private transient volatile ImmutableMap<String, Instant> instants;
 
     private Header(final ShardPosition shardPosition,
                    final ImmutableMap<String, String> attributes) {
+        this(shardPosition, null, attributes, ImmutableMap.of());
+    }
+
+    private Header(final ShardPosition shardPosition,
+                   final Header base,
+                   final ImmutableMap<String, String> attributes,
+                   final ImmutableMap<String, Instant> instants) {
         this.shardPosition = shardPosition;
+        this.base = base;
+        this.depth = base != null ? base.depth + 1 : 0;
         this.attributes = attributes;
+        this.instants = instants;
     }
 
     @Nonnull
@@ -79,11 +107,41 @@ public class Header implements Serializable {
     @Nonnull
     @JsonAnyGetter
     public ImmutableMap<String, String> getAll() {
-        return attributes;
+        if (base == null) {
+            return attributes;
+        }
+        ImmutableMap<String, String> result = allAttributes;
+        if (result == null) {
+            result = ImmutableMap.<String, String>builder()
+                    .putAll(base.getAll())
+                    .putAll(attributes)
+                    .buildKeepingLast();
+            allAttributes = result;
+        }
+        return result;
+    }
+
+    /**
+     * Performs the given action for each attribute of the header, without creating a map containing all
+     * attributes.
+     *
+     * @param action the action performed for each attribute
+     */
+    public void forEach(final @Nonnull BiConsumer<String, String> action) {
+        if (base == null || allAttributes != null) {
+            getAll().forEach(action);
+        } else {
+            base.forEach((key, value) -> {
+                if (!attributes.containsKey(key)) {
+                    action.accept(key, value);
+                }
+            });
+            attributes.forEach(action);
+        }
     }
 
     public boolean containsKey(final String key) {
-        return attributes.containsKey(key);
+        return attributes.containsKey(key) || (base != null && base.containsKey(key));
     }
 
     public boolean containsKey(final HeaderAttr attr) {
@@ -93,7 +151,7 @@ public class Header implements Serializable {
     @Nullable
     @JsonIgnore
     public Object get(final String key) {
-        return attributes.get(key);
+        return lookup(key);
     }
 
     @Nullable
@@ -105,7 +163,8 @@ public class Header implements Serializable {
     @Nullable
     @JsonIgnore
     public Object get(final String key, final String defaultValue) {
-        return attributes.getOrDefault(key, defaultValue);
+        final String value = lookup(key);
+        return value != null ? value : defaultValue;
     }
 
     @Nullable
@@ -117,7 +176,7 @@ public class Header implements Serializable {
     @Nullable
     @JsonIgnore
     public String getAsString(final String key) {
-        return Objects.toString(attributes.get(key), null);
+        return lookup(key);
     }
 
     @Nullable
@@ -129,7 +188,7 @@ public class Header implements Serializable {
     @Nullable
     @JsonIgnore
     public String getAsString(final String key, final String defaultValue) {
-        return Objects.toString(attributes.get(key), defaultValue);
+        return Objects.toString(lookup(key), defaultValue);
     }
 
     @Nullable
@@ -141,9 +200,7 @@ public class Header implements Serializable {
     @Nullable
     @JsonIgnore
     public Instant getAsInstant(final String key) {
-        return containsKey(key)
-                ? Instant.parse(attributes.get(key))
-                : null;
+        return getAsInstant(key, (Instant) null);
     }
 
     @Nullable
@@ -155,9 +212,26 @@ public class Header implements Serializable {
     @Nullable
     @JsonIgnore
     public Instant getAsInstant(final String key, final Instant defaultValue) {
-        return containsKey(key)
-                ? Instant.parse(attributes.get(key))
-                : defaultValue;
+        if (base != null && !attributes.containsKey(key)) {
+            // parsed instants of inherited attributes are cached by the header containing the attribute:
+            return base.getAsInstant(key, defaultValue);
+        }
+        final ImmutableMap<String, Instant> parsed = instants;
+        final Instant instant = parsed != null ? parsed.get(key) : null;
+        if (instant != null) {
+            return instant;
+        }
+        final String value = attributes.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        final Instant result = Instant.parse(value);
+        // racing threads may lose some parsed instants, which is fine as they are parsed again:
+        instants = ImmutableMap.<String, Instant>builder()
+                .putAll(parsed != null ? parsed : ImmutableMap.of())
+                .put(key, result)
+                .buildKeepingLast();
+        return result;
     }
 
     @Nullable
@@ -166,31 +240,49 @@ public class Header implements Serializable {
         return getAsInstant(attr.key(), defaultValue);
     }
 
+    private String lookup(final String key) {
+        Header header = this;
+        while (header != null) {
+            final String value = header.attributes.get(key);
+            if (value != null) {
+                return value;
+            }
+            header = header.base;
+        }
+        return null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Header header = (Header) o;
         return Objects.equals(shardPosition, header.shardPosition) &&
-                Objects.equals(attributes, header.attributes);
+                Objects.equals(getAll(), header.getAll());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(shardPosition, attributes);
+        return Objects.hash(shardPosition, getAll());
     }
 
     @Override
     public String toString() {
         return "Header{" +
                 "shardPosition=" + shardPosition +
-                ", attributes=" + attributes +
+                ", attributes=" + getAll() +
                 '}';
     }
 
     public static class Builder {
+        private final Header base;
         private ShardPosition shardPosition;
         private final Map<String, String> attributes = new HashMap<>();
+        private final Map<String, Instant> instants = new HashMap<>();
+
+        private Builder(final Header base) {
+            this.base = base;
+        }
 
         public Builder withShardPosition(final @Nonnull ShardPosition shardPosition) {
             this.shardPosition = shardPosition;
@@ -199,6 +291,7 @@ public class Header implements Serializable {
 
         public Builder withAttribute(final @Nonnull String key, final @Nonnull String value) {
             this.attributes.put(key, value);
+            this.instants.remove(key);
             return this;
         }
 
@@ -208,6 +301,7 @@ public class Header implements Serializable {
 
         public Builder withAttribute(final @Nonnull String key, final @Nonnull Instant value) {
             this.attributes.put(key, value.toString());
+            this.instants.put(key, value);
             return this;
         }
 
@@ -216,12 +310,24 @@ public class Header implements Serializable {
         }
 
         public Builder withAttributes(final @Nonnull Map<String, String> attributes) {
-            this.attributes.putAll(attributes);
+            attributes.forEach(this::withAttribute);
             return this;
         }
 
         public Header build() {
-            return new Header(shardPosition, ImmutableMap.copyOf(attributes));
+            if (base == null) {
+                return new Header(shardPosition, null, ImmutableMap.copyOf(attributes), ImmutableMap.copyOf(instants));
+            }
+            if (attributes.isEmpty() && Objects.equals(shardPosition, base.shardPosition)) {
+                return base;
+            }
+            if (base.depth + 1 >= MAX_DEPTH) {
+                return new Header(shardPosition, null, ImmutableMap.<String, String>builder()
+                        .putAll(base.getAll())
+                        .putAll(attributes)
+                        .buildKeepingLast(), ImmutableMap.copyOf(instants));
+            }
+            return new Header(shardPosition, base, ImmutableMap.copyOf(attributes), ImmutableMap.copyOf(instants));
         }
     }
 }
@@ -0,0 +1,59 @@
+package de.otto.synapse.message;
+
+import jakarta.annotation.Nonnull;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator of unique {@link DefaultHeaderAttr#MSG_ID message ids}.
+ *
+ * <p>
+ *     The generated ids are time-ordered UUIDs in the layout of UUID version 7: the most significant bits are
+ *     containing the current time in milliseconds, followed by a sequence number that is incremented for every
+ *     id generated within the same millisecond. The least significant bits are chosen randomly, once per generator.
+ * </p>
+ * <p>
+ *     In contrast to {@link UUID#randomUUID()}, generating an id does not require a secure random number for every
+ *     message, and threads are not contending on a shared random source. The ids of a generator are strictly
+ *     monotonic, even if the clock is going backwards.
+ * </p>
+ */
+public final class MessageIdGenerator {
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final long VARIANT_RFC_4122 = 0x8000000000000000L;
+
+    private final Clock clock;
+    private final long leastSignificantBits;
+    private final AtomicLong lastTimestampAndSequence = new AtomicLong();
+
+    public MessageIdGenerator() {
+        this(Clock.systemUTC());
+    }
+
+    public MessageIdGenerator(final @Nonnull Clock clock) {
+        this.clock = clock;
+        this.leastSignificantBits = (new SecureRandom().nextLong() & VARIANT_MASK) | VARIANT_RFC_4122;
+    }
+
+    /**
+     * Returns the next message id.
+     *
+     * @return String representation of a time-ordered UUID
+     */
+    @Nonnull
+    public String nextId() {
+        final long now = clock.millis() << SEQUENCE_BITS;
+        // if more ids than the sequence can hold are generated within a millisecond, the timestamp is running ahead:
+        final long timestampAndSequence = lastTimestampAndSequence.updateAndGet(last -> Math.max(last + 1, now));
+        final long timestamp = timestampAndSequence >>> SEQUENCE_BITS;
+        final long sequence = timestampAndSequence & ((1L << SEQUENCE_BITS) - 1);
+        final long mostSignificantBits = (timestamp << 16) | VERSION_7 | sequence;
+        return new UUID(mostSignificantBits, leastSignificantBits).toString();
+    }
+}
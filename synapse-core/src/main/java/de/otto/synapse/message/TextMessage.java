@@ -84,4 +84,15 @@ public class TextMessage extends Message<String> {
         return new TextMessage(Key.of(key), Header.of(), payload);
     }
 
+    /**
+     * Returns a copy of this message, having the given header instead of the header of this message.
+     *
+     * @param header the header of the copied message
+     * @return TextMessage
+     */
+    @Nonnull
+    public TextMessage withHeader(final @Nonnull Header header) {
+        return new TextMessage(getKey(), header, getPayload());
+    }
+
 }
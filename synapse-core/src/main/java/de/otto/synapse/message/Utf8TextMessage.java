@@ -0,0 +1,154 @@
+package de.otto.synapse.message;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import jakarta.annotation.Nonnull;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A {@link TextMessage} that is backed by the UTF-8 encoded bytes of a received message.
+ *
+ * <p>
+ *     The payload is only located in the received bytes when the message is decoded. Receivers like the
+ *     {@link de.otto.synapse.consumer.MessageDispatcher} are able to deserialize the payload directly from the
+ *     {@link #getPayloadBytes() payload bytes}, or using a {@link #createPayloadParser(JsonFactory) parser}, without
+ *     creating a String representation of the payload first.
+ * </p>
+ * <p>
+ *     The String representation of the payload is created lazily, when {@link #getPayload()} is called for the first
+ *     time. JSON payloads of messages in {@link de.otto.synapse.translator.MessageFormat#V2 V2 format} are returned
+ *     in compact form, just like payloads of messages decoded from Strings.
+ * </p>
+ */
+public class Utf8TextMessage extends TextMessage {
+
+    private static final long serialVersionUID = -3360938052126485311L;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final byte[] bytes;
+    private final int payloadOffset;
+    private final int payloadLength;
+    private final boolean jsonPayload;
+    private transient volatile String payload;
+
+    private Utf8TextMessage(final @Nonnull Key key,
+                            final @Nonnull Header header,
+                            final @Nonnull byte[] bytes,
+                            final int payloadOffset,
+                            final int payloadLength,
+                            final boolean jsonPayload) {
+        super(key, header, null);
+        this.bytes = bytes;
+        this.payloadOffset = payloadOffset;
+        this.payloadLength = payloadLength;
+        this.jsonPayload = jsonPayload;
+    }
+
+    /**
+     * Creates a message with a payload that is identical to the given range of bytes.
+     *
+     * @param key Key of the created message
+     * @param header Header of the created message
+     * @param bytes the UTF-8 encoded bytes of the received message
+     * @param payloadOffset the offset of the payload
+     * @param payloadLength the length of the payload
+     * @return Utf8TextMessage
+     */
+    @Nonnull
+    public static Utf8TextMessage of(final @Nonnull Key key,
+                                     final @Nonnull Header header,
+                                     final @Nonnull byte[] bytes,
+                                     final int payloadOffset,
+                                     final int payloadLength) {
+        return new Utf8TextMessage(key, header, bytes, payloadOffset, payloadLength, false);
+    }
+
+    /**
+     * Creates a message with a payload that is a JSON object or array, located at the given range of bytes.
+     *
+     * @param key Key of the created message
+     * @param header Header of the created message
+     * @param bytes the UTF-8 encoded bytes of the received message
+     * @param payloadOffset the offset of the JSON payload
+     * @param payloadLength the length of the JSON payload
+     * @return Utf8TextMessage
+     */
+    @Nonnull
+    public static Utf8TextMessage ofJson(final @Nonnull Key key,
+                                         final @Nonnull Header header,
+                                         final @Nonnull byte[] bytes,
+                                         final int payloadOffset,
+                                         final int payloadLength) {
+        return new Utf8TextMessage(key, header, bytes, payloadOffset, payloadLength, true);
+    }
+
+    /**
+     * Returns a read-only view of the UTF-8 encoded payload, without copying the received bytes.
+     *
+     * @return payload bytes
+     */
+    @Nonnull
+    public ByteBuffer getPayloadBytes() {
+        return ByteBuffer.wrap(bytes, payloadOffset, payloadLength).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Creates a parser reading the payload from the received bytes.
+     *
+     * @param jsonFactory the factory used to create the parser, typically the factory of an ObjectMapper
+     * @return JsonParser
+     * @throws IOException if the parser could not be created
+     */
+    @Nonnull
+    public JsonParser createPayloadParser(final @Nonnull JsonFactory jsonFactory) throws IOException {
+        return jsonFactory.createParser(bytes, payloadOffset, payloadLength);
+    }
+
+    /**
+     * Returns a copy of this message with the given header, that is sharing the received bytes and the payload of
+     * this message.
+     *
+     * @param header the header of the copied message
+     * @return Utf8TextMessage
+     */
+    @Nonnull
+    @Override
+    public Utf8TextMessage withHeader(final @Nonnull Header header) {
+        final Utf8TextMessage copy = new Utf8TextMessage(getKey(), header, bytes, payloadOffset, payloadLength, jsonPayload);
+        copy.payload = payload;
+        return copy;
+    }
+
+    @Override
+    public String getPayload() {
+        String result = payload;
+        if (result == null) {
+            result = jsonPayload
+                    ? compactJson()
+                    : new String(bytes, payloadOffset, payloadLength, UTF_8);
+            payload = result;
+        }
+        return result;
+    }
+
+    private String compactJson() {
+        final StringWriter writer = new StringWriter(payloadLength);
+        try (JsonParser parser = createPayloadParser(JSON_FACTORY);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to read payload: " + e.getMessage(), e);
+        }
+        return writer.toString();
+    }
+
+}
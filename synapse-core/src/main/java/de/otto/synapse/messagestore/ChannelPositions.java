@@ -2,31 +2,33 @@ package de.otto.synapse.messagestore;
 
 import com.google.common.collect.ImmutableSet;
 import de.otto.synapse.channel.ChannelPosition;
+import de.otto.synapse.channel.ChannelPositionTracker;
 import de.otto.synapse.channel.ShardPosition;
 
-import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
-import static de.otto.synapse.channel.ChannelPosition.*;
+import static de.otto.synapse.channel.ChannelPosition.fromHorizon;
 
 
 class ChannelPositions {
 
-    private final ConcurrentMap<String, ChannelPosition> channelPositions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ChannelPositionTracker> channelPositions = new ConcurrentHashMap<>();
 
     void updateFrom(final MessageStoreEntry entry) {
-        channelPositions.compute(entry.getChannelName(), (key, existing) -> {
-            final Optional<ShardPosition> shardPosition = entry
-                    .getTextMessage()
-                    .getHeader()
-                    .getShardPosition();
-            if (existing != null) {
-                return shardPosition.map(s -> merge(existing, channelPosition(s))).orElse(existing);
-            } else {
-                return shardPosition.map(ChannelPosition::channelPosition).orElseGet(ChannelPosition::fromHorizon);
-            }
-        });
+        final String channelName = entry.getChannelName();
+        ChannelPositionTracker tracker = channelPositions.get(channelName);
+        if (tracker == null) {
+            tracker = channelPositions.computeIfAbsent(channelName, _name -> new ChannelPositionTracker());
+        }
+        final ShardPosition shardPosition = entry
+                .getTextMessage()
+                .getHeader()
+                .getShardPosition()
+                .orElse(null);
+        if (shardPosition != null) {
+            tracker.update(shardPosition);
+        }
     }
 
     public ImmutableSet<String> getChannelNames() {
@@ -34,6 +36,7 @@ class ChannelPositions {
     }
 
     public ChannelPosition getLatestChannelPosition(final String channelName) {
-        return channelPositions.getOrDefault(channelName, fromHorizon());
+        final ChannelPositionTracker tracker = channelPositions.get(channelName);
+        return tracker != null ? tracker.getChannelPosition() : fromHorizon();
     }
 }
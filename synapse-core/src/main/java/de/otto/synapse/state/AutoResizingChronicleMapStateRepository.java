@@ -0,0 +1,635 @@
+package de.otto.synapse.state;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.Striped;
+import net.openhft.chronicle.hash.ChronicleHashClosedException;
+import net.openhft.chronicle.map.ChronicleMap;
+import net.openhft.chronicle.map.ChronicleMapBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static com.google.common.collect.Iterators.unmodifiableIterator;
+import static de.otto.synapse.translator.ObjectMappers.currentObjectMapper;
+import static java.util.Optional.ofNullable;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+
+/**
+ * A {@code StateRepository} that is storing the event-sourced entities off the heap in a {@code ChronicleMap}, and that
+ * is migrating the entities to a larger ChronicleMap, when the map is getting full.
+ *
+ * <p>
+ *     A ChronicleMap has a fixed capacity that is configured when the map is created. If more entries, or larger
+ *     entries, than configured are stored in the map, the map has to use slower overflow tiers, and it finally fails
+ *     to store more entries. This repository is checking the fill ratio and the free space of the map on a sample of
+ *     the write operations. If a threshold is exceeded, a new ChronicleMap is created in the background, using the
+ *     actual number of entries multiplied by the {@link Builder#withGrowthFactor(double) growth factor}, and the average
+ *     sizes of keys and values, as sampled from the current map.
+ * </p>
+ * <p>
+ *     While the entries are copied to the new map, the repository can still be used: reads are served by the current
+ *     map, and writes are applied to both maps. Writes and copies of the same key are serialized using striped locks,
+ *     so a copied entry can not overwrite a more recent write. After all entries are copied, the new map replaces the
+ *     current map, and the current map is closed.
+ * </p>
+ * <p>
+ *     The current fill ratio, free space and sizes are available using {@link #getFillRatio()},
+ *     {@link #getPercentageFreeSpace()}, {@link #getAverageKeySize()} and {@link #getAverageValueSize()}, so they can
+ *     be reported as metrics.
+ * </p>
+ * <p>
+ *     Iterators of the {@link #keySet()} are bound to the map that was current when the iteration started, and might
+ *     fail if a migration is completed during the iteration.
+ * </p>
+ *
+ * @param <V> The type of the event-sourced entities stored in the {@code StateRepository}
+ */
+public class AutoResizingChronicleMapStateRepository<V> implements StateRepository<V> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AutoResizingChronicleMapStateRepository.class);
+
+    private static final int LOCK_STRIPES = 64;
+    private static final int SAMPLE_SIZE = 256;
+
+    private final String name;
+    private final Function<Sizing, ChronicleMap<String, V>> mapFactory;
+    private final double maxFillRatio;
+    private final int minPercentageFreeSpace;
+    private final double growthFactor;
+    private final int checkInterval;
+
+    private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+    private final ReadWriteLock migrationLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean migrating = new AtomicBoolean(false);
+    private final AtomicInteger migrations = new AtomicInteger();
+    private final ExecutorService migrationExecutor;
+
+    private volatile ChronicleMap<String, V> current;
+    private volatile Sizing sizing;
+    private volatile ChronicleMap<String, V> target;
+
+    private AutoResizingChronicleMapStateRepository(final Builder<V> builder) {
+        this.name = builder.name;
+        this.mapFactory = builder.mapFactory != null ? builder.mapFactory : builder::createChronicleMap;
+        this.maxFillRatio = builder.maxFillRatio;
+        this.minPercentageFreeSpace = builder.minPercentageFreeSpace;
+        this.growthFactor = builder.growthFactor;
+        this.checkInterval = builder.checkInterval;
+        this.sizing = new Sizing(builder.entries, builder.averageKeySize, builder.averageValueSize);
+        this.current = mapFactory.apply(sizing);
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("synapse-state-migration-");
+        threadFactory.setDaemon(true);
+        this.migrationExecutor = newSingleThreadExecutor(threadFactory);
+    }
+
+    public static <V> Builder<V> builder(final Class<V> clazz) {
+        return new Builder<>(clazz);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return read(map -> unmodifiableIterator(map.keySet().iterator()), Set.<String>of().iterator());
+            }
+
+            @Override
+            public boolean contains(final Object key) {
+                return read(map -> map.containsKey(key), false);
+            }
+
+            @Override
+            public int size() {
+                return (int) Math.min(Integer.MAX_VALUE, AutoResizingChronicleMapStateRepository.this.size());
+            }
+        };
+    }
+
+    @Override
+    public Optional<V> get(final String key) {
+        return ofNullable(read(map -> map.get(key), null));
+    }
+
+    @Override
+    public Map<String, V> getAll(final Collection<String> keys) {
+        return read(map -> {
+            final Map<String, V> result = new LinkedHashMap<>();
+            for (final String key : keys) {
+                final V value = map.get(key);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+            return result;
+        }, Map.of());
+    }
+
+    /**
+     * Applies the consumer to all entries of the repository. Migrations are not completed, until the consumer was
+     * applied to all entries.
+     *
+     * @param consumer the consumer of the entries
+     */
+    @Override
+    public void consumeAll(final BiConsumer<? super String, ? super V> consumer) {
+        migrationLock.readLock().lock();
+        try {
+            read(map -> {
+                map.forEach(consumer);
+                return null;
+            }, null);
+        } finally {
+            migrationLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<V> put(final String key, final V value) {
+        return write(key, map -> {
+            final V previous = map.put(key, value);
+            mirror(key, value);
+            return ofNullable(previous);
+        });
+    }
+
+    @Override
+    public Optional<V> compute(final String key,
+                               final BiFunction<? super String, ? super Optional<V>, ? extends V> remappingFunction) {
+        return write(key, map -> {
+            final V value = map.compute(key, (k, v) -> remappingFunction.apply(k, ofNullable(v)));
+            mirror(key, value);
+            return ofNullable(value);
+        });
+    }
+
+    @Override
+    public Optional<V> remove(final String key) {
+        return write(key, map -> {
+            final V previous = map.remove(key);
+            mirror(key, null);
+            return ofNullable(previous);
+        });
+    }
+
+    @Override
+    public void clear() {
+        withAllLocks(() -> {
+            current.clear();
+            final ChronicleMap<String, V> targetMap = target;
+            if (targetMap != null) {
+                targetMap.clear();
+            }
+        });
+    }
+
+    @Override
+    public long size() {
+        return read(ChronicleMap::longSize, 0L);
+    }
+
+    /**
+     * Closes the repository, cancelling a running migration.
+     */
+    @Override
+    public void close() throws Exception {
+        LOG.info("Closing StateRepository.");
+        migrationExecutor.shutdownNow();
+        migrationExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        withAllLocks(() -> {
+            final ChronicleMap<String, V> targetMap = target;
+            if (targetMap != null) {
+                target = null;
+                targetMap.close();
+            }
+            current.close();
+        });
+    }
+
+    /**
+     * Returns the number of entries the current ChronicleMap was sized for.
+     *
+     * @return configured number of entries
+     */
+    public long getEntries() {
+        return sizing.entries;
+    }
+
+    /**
+     * Returns the ratio of the number of entries to the number of entries the current ChronicleMap was sized for.
+     *
+     * @return fill ratio
+     */
+    public double getFillRatio() {
+        return (double) size() / sizing.entries;
+    }
+
+    /**
+     * Returns the percentage of free space in the segments of the current ChronicleMap.
+     *
+     * @return percentage of free space, between 0 and 100
+     */
+    public int getPercentageFreeSpace() {
+        return read(map -> (int) map.percentageFreeSpace(), 0);
+    }
+
+    /**
+     * Returns the average size of the serialized keys, sampled from the current ChronicleMap.
+     *
+     * @return average key size in bytes, or the configured size, if the map is empty
+     */
+    public double getAverageKeySize() {
+        return read(this::sample, sizing).averageKeySize;
+    }
+
+    /**
+     * Returns the average size of the serialized values, sampled from the current ChronicleMap.
+     *
+     * @return average value size in bytes, or the configured size, if the map is empty
+     */
+    public double getAverageValueSize() {
+        return read(this::sample, sizing).averageValueSize;
+    }
+
+    /**
+     * Returns the number of completed migrations to a larger ChronicleMap.
+     *
+     * @return number of migrations
+     */
+    public int getMigrationCount() {
+        return migrations.get();
+    }
+
+    /**
+     * Returns true, if the entries are currently migrated to a larger ChronicleMap.
+     *
+     * @return true while migrating, false otherwise
+     */
+    public boolean isMigrating() {
+        return migrating.get();
+    }
+
+    /**
+     * Applies a read operation to the current map. If the map was replaced by a migration and closed, while the
+     * operation was executed, the operation is retried using the new map.
+     */
+    private <T> T read(final Function<ChronicleMap<String, V>, T> operation, final T resultIfClosed) {
+        while (true) {
+            final ChronicleMap<String, V> map = current;
+            try {
+                return operation.apply(map);
+            } catch (final ChronicleHashClosedException e) {
+                if (map == current) {
+                    LOG.warn("could not read from closed state repository", e);
+                    return resultIfClosed;
+                }
+            }
+        }
+    }
+
+    private Optional<V> write(final String key, final Function<ChronicleMap<String, V>, Optional<V>> operation) {
+        final Lock lock = locks.get(key);
+        lock.lock();
+        try {
+            return operation.apply(current);
+        } catch (final ChronicleHashClosedException e) {
+            LOG.warn("could not write to closed state repository", e);
+            return Optional.empty();
+        } finally {
+            lock.unlock();
+            if (checkInterval <= 1 || ThreadLocalRandom.current().nextInt(checkInterval) == 0) {
+                checkCapacity();
+            }
+        }
+    }
+
+    /**
+     * Applies a write to the target map of a running migration. Must be called while holding the lock of the key.
+     */
+    private void mirror(final String key, final V value) {
+        final ChronicleMap<String, V> targetMap = target;
+        if (targetMap != null) {
+            if (value != null) {
+                targetMap.put(key, value);
+            } else {
+                targetMap.remove(key);
+            }
+        }
+    }
+
+    private void withAllLocks(final Runnable runnable) {
+        for (int i = 0; i < locks.size(); i++) {
+            locks.getAt(i).lock();
+        }
+        try {
+            runnable.run();
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.getAt(i).unlock();
+            }
+        }
+    }
+
+    private void checkCapacity() {
+        if (migrating.get()) {
+            return;
+        }
+        final Sizing currentSizing = sizing;
+        final ChronicleMap<String, V> map = current;
+        try {
+            final long size = map.longSize();
+            final double fillRatio = (double) size / currentSizing.entries;
+            final int percentageFreeSpace = map.percentageFreeSpace();
+            if (fillRatio >= maxFillRatio || percentageFreeSpace < minPercentageFreeSpace) {
+                final Sizing sampled = sample(map);
+                final Sizing newSizing = new Sizing(
+                        (long) Math.ceil(Math.max(currentSizing.entries, size) * growthFactor),
+                        sampled.averageKeySize,
+                        sampled.averageValueSize);
+                if (migrating.compareAndSet(false, true)) {
+                    LOG.info("StateRepository {} is getting full ({} of {} entries, {}% free space): migrating to {}",
+                            name, size, currentSizing.entries, percentageFreeSpace, newSizing);
+                    migrationExecutor.execute(() -> migrate(newSizing));
+                }
+            }
+        } catch (final ChronicleHashClosedException e) {
+            // replaced by a concurrent migration, or closed
+        }
+    }
+
+    private void migrate(final Sizing newSizing) {
+        final long started = System.currentTimeMillis();
+        final ChronicleMap<String, V> source = current;
+        ChronicleMap<String, V> targetMap = null;
+        try {
+            targetMap = mapFactory.apply(newSizing);
+            target = targetMap;
+            long copied = 0;
+            for (final String key : source.keySet()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Migration of StateRepository " + name + " interrupted");
+                }
+                final Lock lock = locks.get(key);
+                lock.lock();
+                try {
+                    final V value = source.get(key);
+                    if (value != null) {
+                        targetMap.put(key, value);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                ++copied;
+            }
+            migrationLock.writeLock().lock();
+            try {
+                final ChronicleMap<String, V> migrated = targetMap;
+                withAllLocks(() -> {
+                    current = migrated;
+                    sizing = newSizing;
+                    target = null;
+                });
+            } finally {
+                migrationLock.writeLock().unlock();
+            }
+            // the target is the current map, now, and must not be discarded if closing the source fails:
+            targetMap = null;
+            migrations.incrementAndGet();
+            source.close();
+            LOG.info("Migrated {} entries of StateRepository {} in {}ms", copied, name, System.currentTimeMillis() - started);
+        } catch (final InterruptedException | ChronicleHashClosedException e) {
+            LOG.info("Migration of StateRepository {} cancelled", name);
+            discard(targetMap);
+        } catch (final RuntimeException e) {
+            LOG.error("Migration of StateRepository {} failed: {}", name, e.getMessage(), e);
+            discard(targetMap);
+        } finally {
+            migrating.set(false);
+        }
+    }
+
+    private void discard(final ChronicleMap<String, V> targetMap) {
+        if (targetMap != null) {
+            withAllLocks(() -> target = null);
+            targetMap.close();
+        }
+    }
+
+    /**
+     * Samples the average sizes of the serialized keys and values of the map, without deserializing the entries.
+     */
+    private Sizing sample(final ChronicleMap<String, V> map) {
+        final long[] totals = new long[3];
+        map.forEachEntryWhile(entry -> {
+            totals[0] += entry.key().size();
+            totals[1] += entry.value().size();
+            return ++totals[2] < SAMPLE_SIZE;
+        });
+        final long count = totals[2];
+        final Sizing currentSizing = sizing;
+        return count == 0
+                ? currentSizing
+                : new Sizing(currentSizing.entries,
+                        Math.max(1.0, (double) totals[0] / count),
+                        Math.max(1.0, (double) totals[1] / count));
+    }
+
+    static final class Sizing {
+        private final long entries;
+        private final double averageKeySize;
+        private final double averageValueSize;
+
+        private Sizing(final long entries, final double averageKeySize, final double averageValueSize) {
+            this.entries = entries;
+            this.averageKeySize = averageKeySize;
+            this.averageValueSize = averageValueSize;
+        }
+
+        @Override
+        public String toString() {
+            return "Sizing{" +
+                    "entries=" + entries +
+                    ", averageKeySize=" + averageKeySize +
+                    ", averageValueSize=" + averageValueSize +
+                    '}';
+        }
+    }
+
+    public static final class Builder<V> {
+
+        private static final int DEFAULT_KEY_SIZE_BYTES = 128;
+        private static final double DEFAULT_VALUE_SIZE_BYTES = 512;
+        private static final long DEFAULT_ENTRY_COUNT = 100_000;
+        private static final double DEFAULT_MAX_FILL_RATIO = 0.8;
+        private static final int DEFAULT_MIN_PERCENTAGE_FREE_SPACE = 10;
+        private static final double DEFAULT_GROWTH_FACTOR = 2.0;
+        private static final int DEFAULT_CHECK_INTERVAL = 1024;
+
+        private final Class<V> clazz;
+        private String name;
+        private ObjectMapper objectMapper = currentObjectMapper();
+        private StateCodec<V> stateCodec;
+        private long entries = DEFAULT_ENTRY_COUNT;
+        private double averageKeySize = DEFAULT_KEY_SIZE_BYTES;
+        private double averageValueSize = DEFAULT_VALUE_SIZE_BYTES;
+        private double maxFillRatio = DEFAULT_MAX_FILL_RATIO;
+        private int minPercentageFreeSpace = DEFAULT_MIN_PERCENTAGE_FREE_SPACE;
+        private double growthFactor = DEFAULT_GROWTH_FACTOR;
+        private int checkInterval = DEFAULT_CHECK_INTERVAL;
+        private Function<Sizing, ChronicleMap<String, V>> mapFactory;
+
+        private Builder(final Class<V> clazz) {
+            this.clazz = clazz;
+            this.name = clazz.getSimpleName();
+        }
+
+        public Builder<V> withName(final String val) {
+            name = val;
+            return this;
+        }
+
+        public Builder<V> withObjectMapper(final ObjectMapper val) {
+            objectMapper = val;
+            return this;
+        }
+
+        /**
+         * Configures the {@link StateCodec} used to serialize the values. If no codec is configured, the values are
+         * serialized as JSON, using the {@link #withObjectMapper(ObjectMapper) ObjectMapper} of the builder.
+         *
+         * @param val the codec
+         * @return this
+         */
+        public Builder<V> withStateCodec(final StateCodec<V> val) {
+            stateCodec = val;
+            return this;
+        }
+
+        /**
+         * Configures the number of entries of the initial ChronicleMap.
+         *
+         * @param val number of entries
+         * @return this
+         */
+        public Builder<V> withEntries(final long val) {
+            entries = val;
+            return this;
+        }
+
+        public Builder<V> withAverageKeySize(final double val) {
+            averageKeySize = val;
+            return this;
+        }
+
+        public Builder<V> withAverageValueSize(final double val) {
+            averageValueSize = val;
+            return this;
+        }
+
+        /**
+         * Configures the ratio of the number of entries to the configured number of entries of the map, that is
+         * triggering a migration to a larger map. Defaults to 0.8.
+         *
+         * @param val max fill ratio
+         * @return this
+         */
+        public Builder<V> withMaxFillRatio(final double val) {
+            maxFillRatio = val;
+            return this;
+        }
+
+        /**
+         * Configures the minimum percentage of free space in the segments of the map. If there is less free space,
+         * for example because the values are larger than configured, a migration to a larger map is triggered.
+         * Defaults to 10.
+         *
+         * @param val min percentage of free space
+         * @return this
+         */
+        public Builder<V> withMinPercentageFreeSpace(final int val) {
+            minPercentageFreeSpace = val;
+            return this;
+        }
+
+        /**
+         * Configures the factor used to calculate the number of entries of the migrated map from the number of
+         * entries of the current map. Defaults to 2.0.
+         *
+         * @param val growth factor
+         * @return this
+         */
+        public Builder<V> withGrowthFactor(final double val) {
+            growthFactor = val;
+            return this;
+        }
+
+        /**
+         * Configures how often the capacity of the map is checked: on average, the capacity is checked on every
+         * {@code val}th write. Defaults to 1024.
+         *
+         * @param val check interval
+         * @return this
+         */
+        public Builder<V> withCheckInterval(final int val) {
+            checkInterval = val;
+            return this;
+        }
+
+        /**
+         * Replaces the factory used to create the initial and the migrated ChronicleMaps. For testing purposes only.
+         *
+         * @param val the map factory
+         * @return this
+         */
+        Builder<V> withMapFactory(final Function<Sizing, ChronicleMap<String, V>> val) {
+            mapFactory = val;
+            return this;
+        }
+
+        public AutoResizingChronicleMapStateRepository<V> build() {
+            if (growthFactor <= 1.0) {
+                throw new IllegalArgumentException("growthFactor must be greater than 1.0");
+            }
+            if (stateCodec == null) {
+                stateCodec = StateCodec.json(objectMapper, clazz);
+            }
+            return new AutoResizingChronicleMapStateRepository<>(this);
+        }
+
+        ChronicleMap<String, V> createChronicleMap(final Sizing sizing) {
+            final ChronicleMapBuilder<String, V> chronicleMapBuilder = ChronicleMapBuilder.of(String.class, clazz)
+                    .name(name)
+                    .averageKeySize(sizing.averageKeySize)
+                    .averageValueSize(sizing.averageValueSize)
+                    .entries(sizing.entries);
+            if (clazz != String.class) {
+                chronicleMapBuilder.valueMarshaller(new ChronicleMapBytesMarshaller<>(stateCodec));
+            }
+            return chronicleMapBuilder.create();
+        }
+    }
+}
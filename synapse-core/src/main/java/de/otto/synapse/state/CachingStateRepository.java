@@ -0,0 +1,217 @@
+package de.otto.synapse.state;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.ToIntBiFunction;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.Optional.ofNullable;
+
+/**
+ * A {@link StateRepository} that is caching the values of a delegate repository on the heap.
+ *
+ * <p>
+ *     Off-heap repositories like the {@link ChronicleMapStateRepository} or the {@link NitriteStateRepository} are
+ *     deserializing the value on every access. If only a small number of entities is read frequently, the
+ *     CachingStateRepository is able to serve these entities from a bounded cache of deserialized values, instead.
+ *     The cache is using the frequency-aware W-TinyLFU eviction policy of Caffeine, so infrequently accessed entities
+ *     are not replacing the frequently accessed ones.
+ * </p>
+ * <p>
+ *     The cached entry of a key is invalidated after every modification of the key. Values are loaded atomically per
+ *     key, so a concurrent modification is never overwritten by a stale value. Values returned by the repository are
+ *     shared by all callers and must not be modified.
+ * </p>
+ * <p>
+ *     {@link #getAll(Collection)} is returning cached values, if available, but values that are loaded from the
+ *     delegate in bulk are not added to the cache.
+ * </p>
+ *
+ * @param <V> The type of the event-sourced entities stored in the {@code StateRepository}
+ */
+public class CachingStateRepository<V> extends DelegatingStateRepository<V> {
+
+    private final StateRepository<V> delegate;
+    private final Cache<String, V> cache;
+
+    /**
+     * Creates a CachingStateRepository that is caching up to {@code maximumSize} values.
+     *
+     * @param delegate the delegate StateRepository
+     * @param maximumSize the maximum number of cached values
+     */
+    public CachingStateRepository(final StateRepository<V> delegate,
+                                  final long maximumSize) {
+        this(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build(), delegate);
+    }
+
+    /**
+     * Creates a CachingStateRepository that is caching values up to a maximum total weight.
+     *
+     * @param delegate the delegate StateRepository
+     * @param maximumWeight the maximum total weight of the cached values
+     * @param weigher function used to calculate the weight of an entry
+     */
+    public CachingStateRepository(final StateRepository<V> delegate,
+                                  final long maximumWeight,
+                                  final ToIntBiFunction<String, ? super V> weigher) {
+        this(Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((String key, V value) -> weigher.applyAsInt(key, value))
+                .recordStats()
+                .build(), delegate);
+    }
+
+    private CachingStateRepository(final Cache<String, V> cache,
+                                   final StateRepository<V> delegate) {
+        super(requireNonNull(delegate, "Parameter 'delegate' must not be null"));
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Optional<V> get(final String key) {
+        return ofNullable(cache.get(key, k -> delegate.get(k).orElse(null)));
+    }
+
+    @Override
+    public Map<String, V> getAll(final Collection<String> keys) {
+        final Map<String, V> cached = cache.getAllPresent(keys);
+        if (cached.size() == keys.size()) {
+            return cached;
+        }
+        final List<String> missingKeys = new ArrayList<>(keys.size() - cached.size());
+        for (final String key : keys) {
+            if (!cached.containsKey(key)) {
+                missingKeys.add(key);
+            }
+        }
+        final Map<String, V> loaded = delegate.getAll(missingKeys);
+        final Map<String, V> result = new LinkedHashMap<>();
+        for (final String key : keys) {
+            final V value = cached.containsKey(key) ? cached.get(key) : loaded.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<V> put(final String key, final V value) {
+        try {
+            return delegate.put(key, value);
+        } finally {
+            cache.invalidate(key);
+        }
+    }
+
+    @Override
+    public Optional<V> compute(final String key,
+                               final BiFunction<? super String, ? super Optional<V>, ? extends V> remappingFunction) {
+        try {
+            return delegate.compute(key, remappingFunction);
+        } finally {
+            cache.invalidate(key);
+        }
+    }
+
+    @Override
+    public Optional<V> remove(final String key) {
+        try {
+            return delegate.remove(key);
+        } finally {
+            cache.invalidate(key);
+        }
+    }
+
+    @Override
+    public void putAll(final Map<String, ? extends V> entries) {
+        try {
+            delegate.putAll(entries);
+        } finally {
+            cache.invalidateAll(entries.keySet());
+        }
+    }
+
+    @Override
+    public void computeAll(final Collection<String> keys,
+                           final BiFunction<? super String, ? super Optional<V>, ? extends V> remappingFunction) {
+        try {
+            delegate.computeAll(keys, remappingFunction);
+        } finally {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    @Override
+    public void removeAll(final Collection<String> keys) {
+        try {
+            delegate.removeAll(keys);
+        } finally {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            delegate.clear();
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        cache.invalidateAll();
+        delegate.close();
+    }
+
+    /**
+     * Returns the number of reads that were served by the cache.
+     *
+     * @return hit count
+     */
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    /**
+     * Returns the number of reads that were not served by the cache.
+     *
+     * @return miss count
+     */
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * Returns the number of values that were evicted from the cache, because the cache was full.
+     *
+     * @return eviction count
+     */
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    /**
+     * Returns the approximate number of cached values.
+     *
+     * @return number of cached values
+     */
+    public long getCacheSize() {
+        return cache.estimatedSize();
+    }
+}
@@ -6,49 +6,166 @@ import net.openhft.chronicle.core.util.ReadResolvable;
 import net.openhft.chronicle.hash.serialization.BytesReader;
 import net.openhft.chronicle.hash.serialization.BytesWriter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static de.otto.synapse.translator.ObjectMappers.currentObjectMapper;
 
+/**
+ * Marshaller of the values of a {@link ChronicleMapStateRepository}, using a {@link StateCodec} to serialize the
+ * values.
+ *
+ * <p>
+ *     Values are encoded into and decoded from thread-local buffers that are reused for all values of the thread,
+ *     so marshalling a value is neither allocating stream adapters for the off-heap {@link Bytes}, nor a new
+ *     buffer per value.
+ * </p>
+ * <p>
+ *     The marshallers of persisted ChronicleMaps are stored in the header of the map file and deserialized again,
+ *     when the file is opened. Because codecs are not serializable in general, the codec is not stored in the file.
+ *     Instead, the marshaller of a persisted map is identified by a key that is used to look up the codec configured
+ *     for the map, when the marshaller is deserialized.
+ * </p>
+ *
+ * @param <V> the type of the values
+ */
 public final class ChronicleMapBytesMarshaller<V> implements
         BytesWriter<V>,
         BytesReader<V>,
         ReadResolvable<ChronicleMapBytesMarshaller> {
 
-    private final ObjectMapper objectMapper;
-    private final Class<V> clazz;
+    /** Buffers that have grown larger than this are not kept for reuse. */
+    private static final int MAX_REUSED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<ReusableBuffers> BUFFERS = ThreadLocal.withInitial(ReusableBuffers::new);
+
+    private static final ConcurrentMap<String, StateCodec<?>> PERSISTED_CODECS = new ConcurrentHashMap<>();
+
+    private final String codecKey;
+    private transient StateCodec<V> codec;
 
     public ChronicleMapBytesMarshaller(Class<V> clazz) {
-        this.objectMapper = currentObjectMapper();
-        this.clazz = clazz;
+        this(currentObjectMapper(), clazz);
     }
 
     public ChronicleMapBytesMarshaller(ObjectMapper objectMapper,
                                        Class<V> clazz) {
-        this.objectMapper = objectMapper;
-        this.clazz = clazz;
+        this(StateCodec.json(objectMapper, clazz));
+    }
+
+    public ChronicleMapBytesMarshaller(StateCodec<V> codec) {
+        this.codecKey = null;
+        this.codec = codec;
+    }
+
+    /**
+     * Creates a marshaller for a persisted ChronicleMap. The codec is registered using the given key, so it can be
+     * resolved when the marshaller is read from the header of the map file.
+     *
+     * @param codecKey the key of the codec, for example the path of the map file
+     * @param codec the codec
+     */
+    ChronicleMapBytesMarshaller(final String codecKey, final StateCodec<V> codec) {
+        this.codecKey = codecKey;
+        this.codec = codec;
+        PERSISTED_CODECS.put(codecKey, codec);
+    }
+
+    /**
+     * Removes the codec registered for a persisted ChronicleMap, after the map was closed.
+     *
+     * @param codecKey the key of the codec
+     */
+    static void unregisterCodec(final String codecKey) {
+        PERSISTED_CODECS.remove(codecKey);
+    }
+
+    static boolean isCodecRegistered(final String codecKey) {
+        return PERSISTED_CODECS.containsKey(codecKey);
     }
 
     @Override
     public V read(Bytes<?> in, V using) {
+        final int length = (int) in.readRemaining();
+        final ReusableBuffers buffers = BUFFERS.get();
+        final byte[] bytes = buffers.readBuffer(length);
+        in.read(bytes, 0, length);
         try {
-            return objectMapper.readValue(in.inputStream(), clazz);
+            return codec.decode(bytes, 0, length);
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            buffers.releaseReadBuffer();
         }
     }
 
     @Override
     public void write(Bytes<?> out, V toWrite) {
+        final ReusableBuffers buffers = BUFFERS.get();
+        final WriteBuffer buffer = buffers.writeBuffer();
         try {
-            objectMapper.writeValue(out.writer(), toWrite);
+            codec.encode(toWrite, buffer);
+            out.write(buffer.array(), 0, buffer.size());
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            buffers.releaseWriteBuffer();
         }
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public ChronicleMapBytesMarshaller readResolve() {
+        if (codec == null) {
+            codec = (StateCodec<V>) PERSISTED_CODECS.get(codecKey);
+            if (codec == null) {
+                throw new IllegalStateException("No StateCodec registered for ChronicleMap " + codecKey);
+            }
+        }
         return this;
     }
+
+    private static final class ReusableBuffers {
+        private byte[] readBuffer = new byte[1024];
+        private WriteBuffer writeBuffer = new WriteBuffer();
+
+        private byte[] readBuffer(final int length) {
+            if (readBuffer.length < length) {
+                readBuffer = new byte[Math.max(length, readBuffer.length * 2)];
+            }
+            return readBuffer;
+        }
+
+        private void releaseReadBuffer() {
+            if (readBuffer.length > MAX_REUSED_BUFFER_SIZE) {
+                readBuffer = new byte[1024];
+            }
+        }
+
+        private WriteBuffer writeBuffer() {
+            writeBuffer.reset();
+            return writeBuffer;
+        }
+
+        private void releaseWriteBuffer() {
+            if (writeBuffer.array().length > MAX_REUSED_BUFFER_SIZE) {
+                writeBuffer = new WriteBuffer();
+            }
+        }
+    }
+
+    /**
+     * ByteArrayOutputStream giving access to the internal buffer, so the encoded value does not need to be copied.
+     */
+    private static final class WriteBuffer extends ByteArrayOutputStream {
+        private WriteBuffer() {
+            super(1024);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+    }
 }
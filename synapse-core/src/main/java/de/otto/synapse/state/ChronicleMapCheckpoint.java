@@ -0,0 +1,179 @@
+package de.otto.synapse.state;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.otto.synapse.channel.ChannelPosition;
+import de.otto.synapse.channel.ShardPosition;
+import de.otto.synapse.channel.StartFrom;
+import de.otto.synapse.eventsource.EventSourceCheckpoint;
+import jakarta.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static de.otto.synapse.channel.ChannelPosition.channelPosition;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * {@link EventSourceCheckpoint} of a persisted {@link ChronicleMapStateRepository}.
+ *
+ * <p>
+ *     The checkpoint is stored in a JSON file next to the file of the ChronicleMap, mapping channel names to the
+ *     positions of the shards. The file is only written after the ChronicleMap has been closed, and it is deleted
+ *     when the ChronicleMap is opened again. So if the checkpoint file exists, the ChronicleMap was closed properly
+ *     and contains all messages up to the positions of the checkpoint, and nothing more.
+ * </p>
+ * <p>
+ *     The checkpoint is scoped to the channels that are consumed into the ChronicleMap. Positions of other channels
+ *     are neither restored nor recorded.
+ * </p>
+ */
+final class ChronicleMapCheckpoint implements EventSourceCheckpoint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChronicleMapCheckpoint.class);
+    private static final TypeReference<Map<String, Map<String, String>>> CHECKPOINT_TYPE = new TypeReference<>() {};
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Path checkpointFile;
+    private final Set<String> channelNames;
+    private final Map<String, ChannelPosition> restoredPositions;
+    private final ConcurrentMap<String, ChannelPosition> positions = new ConcurrentHashMap<>();
+
+    private ChronicleMapCheckpoint(final Path checkpointFile,
+                                   final Set<String> channelNames,
+                                   final Map<String, ChannelPosition> restoredPositions) {
+        this.checkpointFile = checkpointFile;
+        this.channelNames = Set.copyOf(channelNames);
+        this.restoredPositions = restoredPositions;
+    }
+
+    /**
+     * Returns the file of the checkpoint belonging to the file of a ChronicleMap.
+     */
+    static Path checkpointFileOf(final File mapFile) {
+        return mapFile.toPath().resolveSibling(mapFile.getName() + ".checkpoint");
+    }
+
+    /**
+     * Reads and deletes the checkpoint of a ChronicleMap.
+     *
+     * @param mapFile the file of the ChronicleMap
+     * @param channelNames the names of the channels that are consumed into the ChronicleMap
+     * @return checkpoint, or empty, if the file does not exist, could not be read, or is not containing the positions
+     *         of all channels
+     */
+    static Optional<ChronicleMapCheckpoint> restore(final File mapFile, final Set<String> channelNames) {
+        final Path checkpointFile = checkpointFileOf(mapFile);
+        if (!Files.exists(checkpointFile)) {
+            return Optional.empty();
+        }
+        final Map<String, ChannelPosition> restoredPositions = new LinkedHashMap<>();
+        try {
+            final Map<String, Map<String, String>> checkpoint = OBJECT_MAPPER.readValue(checkpointFile.toFile(), CHECKPOINT_TYPE);
+            checkpoint.entrySet().removeIf(entry -> !channelNames.contains(entry.getKey()));
+            checkpoint.forEach((channelName, shards) -> restoredPositions.put(channelName, channelPosition(shards
+                    .entrySet()
+                    .stream()
+                    .map(shard -> shard.getValue().isEmpty()
+                            ? ShardPosition.fromHorizon(shard.getKey())
+                            : ShardPosition.fromPosition(shard.getKey(), shard.getValue()))
+                    .collect(toList()))));
+        } catch (final IOException | RuntimeException e) {
+            LOG.warn("Unable to read checkpoint {}: {}", checkpointFile, e.getMessage());
+            delete(checkpointFile);
+            return Optional.empty();
+        }
+        // the checkpoint is not valid anymore, as soon as the ChronicleMap is modified:
+        if (!delete(checkpointFile)) {
+            return Optional.empty();
+        }
+        if (!restoredPositions.keySet().equals(channelNames)) {
+            LOG.warn("Checkpoint {} is not matching the channels {}", checkpointFile, channelNames);
+            return Optional.empty();
+        }
+        return Optional.of(new ChronicleMapCheckpoint(checkpointFile, channelNames, restoredPositions));
+    }
+
+    /**
+     * Creates an empty checkpoint for a ChronicleMap and deletes an existing checkpoint file.
+     */
+    static ChronicleMapCheckpoint empty(final File mapFile, final Set<String> channelNames) {
+        final Path checkpointFile = checkpointFileOf(mapFile);
+        delete(checkpointFile);
+        return new ChronicleMapCheckpoint(checkpointFile, channelNames, Map.of());
+    }
+
+    @Override
+    public boolean isCheckpointing(final @Nonnull String channelName) {
+        return channelNames.contains(channelName);
+    }
+
+    @Nonnull
+    @Override
+    public Optional<ChannelPosition> getChannelPosition(final @Nonnull String channelName) {
+        return Optional.ofNullable(restoredPositions.get(channelName));
+    }
+
+    @Override
+    public void checkpoint(final @Nonnull String channelName, final @Nonnull ChannelPosition channelPosition) {
+        if (isCheckpointing(channelName)) {
+            positions.put(channelName, channelPosition);
+        }
+    }
+
+    /**
+     * Writes the recorded positions to the checkpoint file. Must only be called after the ChronicleMap was closed.
+     */
+    void write() {
+        if (!positions.keySet().equals(channelNames)) {
+            LOG.warn("Not writing checkpoint {}: missing positions of channels {}", checkpointFile, channelNames);
+            return;
+        }
+        final Map<String, Map<String, String>> checkpoint = new LinkedHashMap<>();
+        for (final Map.Entry<String, ChannelPosition> entry : positions.entrySet()) {
+            final ChannelPosition channelPosition = entry.getValue();
+            final List<ShardPosition> shardPositions = channelPosition.shards().stream()
+                    .map(channelPosition::shard)
+                    .collect(toList());
+            if (shardPositions.stream().anyMatch(shard -> shard.startFrom() != StartFrom.POSITION && shard.startFrom() != StartFrom.HORIZON)) {
+                LOG.warn("Not writing checkpoint {}: unsupported position {} of channel {}", checkpointFile, channelPosition, entry.getKey());
+                return;
+            }
+            final Map<String, String> shards = new LinkedHashMap<>();
+            shardPositions.forEach(shard -> shards.put(shard.shardName(), shard.position()));
+            checkpoint.put(entry.getKey(), shards);
+        }
+        final Path tempFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try {
+            OBJECT_MAPPER.writeValue(tempFile.toFile(), checkpoint);
+            Files.move(tempFile, checkpointFile, ATOMIC_MOVE, REPLACE_EXISTING);
+            LOG.info("Wrote checkpoint {}: {}", checkpointFile, positions);
+        } catch (final IOException e) {
+            LOG.error("Unable to write checkpoint {}: {}", checkpointFile, e.getMessage(), e);
+            delete(tempFile);
+        }
+    }
+
+    private static boolean delete(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (final IOException e) {
+            LOG.warn("Unable to delete {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -1,14 +1,24 @@
 package de.otto.synapse.state;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import de.otto.synapse.eventsource.EventSourceCheckpoint;
 import net.openhft.chronicle.hash.ChronicleHashClosedException;
 import net.openhft.chronicle.map.ChronicleMap;
 import net.openhft.chronicle.map.ChronicleMapBuilder;
+import net.openhft.chronicle.map.ExternalMapQueryContext;
+import net.openhft.chronicle.map.MapEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+import static de.otto.synapse.eventsource.EventSourceCheckpoint.noCheckpoint;
 import static de.otto.synapse.translator.ObjectMappers.currentObjectMapper;
 
 /**
@@ -20,6 +30,19 @@ import static de.otto.synapse.translator.ObjectMappers.currentObjectMapper;
  * <p>In order to be able to access the {@link #keySet()} of the stored entities, this implementation is storing
  * a copy of the keys in a separate {@link java.util.concurrent.ConcurrentSkipListSet}</p>
  *
+ * <p>The bulk operations {@link #putAll(Map)} and {@link #removeAll(Collection)} are using query contexts of the
+ * ChronicleMap, so the previous values of the entries are neither copied from off-heap memory nor deserialized.</p>
+ *
+ * <p>Values are serialized using a {@link StateCodec} that can be configured using
+ * {@link Builder#withStateCodec(StateCodec)}. By default, values are serialized as JSON.</p>
+ *
+ * <p>Using {@link Builder#withPersistedFile(File, String...)}, the ChronicleMap is persisted to a file, so the state
+ * is still available after a restart of the service. When the repository is {@link #close() closed}, the positions of
+ * the channels that are consumed into the repository are written into a checkpoint next to the file. On the next start,
+ * the {@link #getCheckpoint() checkpoint} can be used by event sources to skip the snapshot and to continue reading
+ * the message log at the checkpointed positions. If the service was not shut down properly, there is no checkpoint
+ * and the persisted file is discarded, because it is unknown which messages have been applied to the map.</p>
+ *
  * @param <V> The type of the event-sourced entities stored in the {@code StateRepository}
  */
 public class ChronicleMapStateRepository<V> extends ConcurrentMapStateRepository<V> {
@@ -30,9 +53,51 @@ public class ChronicleMapStateRepository<V> extends ConcurrentMapStateRepository
     private static final double DEFAULT_VALUE_SIZE_BYTES = 512;
     private static final long DEFAULT_ENTRY_COUNT = 100_000;
 
+    private final ChronicleMap<String, V> chronicleMap;
+    private final ChronicleMapCheckpoint checkpoint;
+    private final String codecKey;
+
     private ChronicleMapStateRepository(final String name,
-                                        final ChronicleMap<String, V> chronicleMap) {
+                                        final ChronicleMap<String, V> chronicleMap,
+                                        final ChronicleMapCheckpoint checkpoint,
+                                        final String codecKey) {
         super(name, chronicleMap);
+        this.chronicleMap = chronicleMap;
+        this.checkpoint = checkpoint;
+        this.codecKey = codecKey;
+    }
+
+    /**
+     * Returns the checkpoint of a persisted repository. The checkpoint is restoring the channel positions that were
+     * checkpointed when the repository was closed the last time. Expose the checkpoint as a Spring bean, to let
+     * the event sources of the repository continue at the checkpointed positions.
+     *
+     * <p>If the repository is not persisted, the checkpoint is never restoring any positions.</p>
+     *
+     * @return EventSourceCheckpoint
+     */
+    public EventSourceCheckpoint getCheckpoint() {
+        return checkpoint != null ? checkpoint : noCheckpoint();
+    }
+
+    /**
+     * Closes the ChronicleMap. If the repository is persisted, the checkpointed channel positions are written
+     * after the map was closed, and the codec registered for the map file is released.
+     *
+     * @throws Exception if closing the map fails
+     */
+    @Override
+    public void close() throws Exception {
+        try {
+            super.close();
+            if (checkpoint != null) {
+                checkpoint.write();
+            }
+        } finally {
+            if (codecKey != null) {
+                ChronicleMapBytesMarshaller.unregisterCodec(codecKey);
+            }
+        }
     }
 
     @Override
@@ -55,6 +120,53 @@ public class ChronicleMapStateRepository<V> extends ConcurrentMapStateRepository
         }
     }
 
+    @Override
+    public Map<String, V> getAll(final Collection<String> keys) {
+        try {
+            return super.getAll(keys);
+        } catch (ChronicleHashClosedException e) {
+            LOG.warn("could not get on closed state repository", e);
+            return Map.of();
+        }
+    }
+
+    @Override
+    public void putAll(final Map<String, ? extends V> entries) {
+        try {
+            entries.forEach((key, value) -> {
+                try (ExternalMapQueryContext<String, V, ?> context = chronicleMap.queryContext(key)) {
+                    // the update lock must be acquired before reading the entry, as read locks can not be upgraded:
+                    context.updateLock().lock();
+                    final MapEntry<String, V> entry = context.entry();
+                    if (entry != null) {
+                        context.replaceValue(entry, context.wrapValueAsData(value));
+                    } else {
+                        context.insert(context.absentEntry(), context.wrapValueAsData(value));
+                    }
+                }
+            });
+        } catch (ChronicleHashClosedException e) {
+            LOG.warn("could not put on closed state repository", e);
+        }
+    }
+
+    @Override
+    public void removeAll(final Collection<String> keys) {
+        try {
+            for (final String key : keys) {
+                try (ExternalMapQueryContext<String, V, ?> context = chronicleMap.queryContext(key)) {
+                    context.updateLock().lock();
+                    final MapEntry<String, V> entry = context.entry();
+                    if (entry != null) {
+                        context.remove(entry);
+                    }
+                }
+            }
+        } catch (ChronicleHashClosedException e) {
+            LOG.warn("could not remove on closed state repository", e);
+        }
+    }
+
     @Override
     public long size() {
         try {
@@ -71,12 +183,14 @@ public class ChronicleMapStateRepository<V> extends ConcurrentMapStateRepository
     public static final class Builder<V> {
 
         private ObjectMapper objectMapper = currentObjectMapper();
+        private StateCodec<V> stateCodec;
 
         private final Class<V> clazz;
         private String name;
         private ChronicleMapBuilder<String, V> chronicleMapBuilder;
         private boolean customValueMarshaller = false;
-
+        private File persistedFile;
+        private Set<String> persistedChannelNames = Set.of();
 
         private Builder(Class<V> clazz) {
             this.clazz = clazz;
@@ -88,6 +202,18 @@ public class ChronicleMapStateRepository<V> extends ConcurrentMapStateRepository
             return this;
         }
 
+        /**
+         * Configures the {@link StateCodec} used to serialize the values. If no codec is configured, the values are
+         * serialized as JSON, using the {@link #withObjectMapper(ObjectMapper) ObjectMapper} of the builder.
+         *
+         * @param val the codec
+         * @return this
+         */
+        public Builder<V> withStateCodec(final StateCodec<V> val) {
+            stateCodec = val;
+            return this;
+        }
+
         public Builder<V> withName(final String val) {
             name = val;
             return this;
@@ -103,6 +229,28 @@ public class ChronicleMapStateRepository<V> extends ConcurrentMapStateRepository
             return this;
         }
 
+        /**
+         * Persists the ChronicleMap to the given file. If the file exists and has a valid checkpoint, the
+         * repository is opened with the persisted entries. Otherwise, the file is replaced by an empty map.
+         *
+         * <p>The checkpoint of the repository is scoped to the given channels: only the event sources of these
+         * channels are resuming at the checkpointed positions. All state that is derived from the messages of
+         * these channels must be stored in persisted repositories, because the snapshots of the channels are
+         * skipped on restart.</p>
+         *
+         * @param file the file of the ChronicleMap
+         * @param channelNames the names of the channels that are consumed into the repository
+         * @return this
+         */
+        public Builder<V> withPersistedFile(final File file, final String... channelNames) {
+            if (channelNames.length == 0) {
+                throw new IllegalArgumentException("The channels consumed into a persisted repository are required");
+            }
+            persistedFile = file;
+            persistedChannelNames = Set.of(channelNames);
+            return this;
+        }
+
         public ChronicleMapStateRepository<V> build() {
 
             if (chronicleMapBuilder == null) {
@@ -114,10 +262,38 @@ public class ChronicleMapStateRepository<V> extends ConcurrentMapStateRepository
 
             boolean doesClassNeedToBeSerialized = clazz != String.class;
             if (!customValueMarshaller && doesClassNeedToBeSerialized) {
-                chronicleMapBuilder.valueMarshaller(new ChronicleMapBytesMarshaller<>(objectMapper, clazz));
+                final StateCodec<V> codec = stateCodec != null
+                        ? stateCodec
+                        : StateCodec.json(objectMapper, clazz);
+                chronicleMapBuilder.valueMarshaller(persistedFile != null
+                        ? new ChronicleMapBytesMarshaller<>(persistedFile.getAbsolutePath(), codec)
+                        : new ChronicleMapBytesMarshaller<>(codec));
             }
 
-            return new ChronicleMapStateRepository<>(name, chronicleMapBuilder.create());
+            if (persistedFile == null) {
+                return new ChronicleMapStateRepository<>(name, chronicleMapBuilder.create(), null, null);
+            }
+            return createPersisted();
+        }
+
+        private ChronicleMapStateRepository<V> createPersisted() {
+            final ChronicleMapCheckpoint checkpoint = ChronicleMapCheckpoint.restore(persistedFile, persistedChannelNames).orElseGet(() -> {
+                if (persistedFile.exists()) {
+                    LOG.warn("Discarding ChronicleMap {} without checkpoint", persistedFile);
+                    if (!persistedFile.delete()) {
+                        throw new IllegalStateException("Unable to delete ChronicleMap " + persistedFile);
+                    }
+                }
+                return ChronicleMapCheckpoint.empty(persistedFile, persistedChannelNames);
+            });
+            try {
+                final ChronicleMap<String, V> chronicleMap = chronicleMapBuilder.createPersistedTo(persistedFile);
+                LOG.info("Opened ChronicleMap {} with {} entries", persistedFile, chronicleMap.longSize());
+                return new ChronicleMapStateRepository<>(name, chronicleMap, checkpoint, persistedFile.getAbsolutePath());
+            } catch (final IOException e) {
+                ChronicleMapBytesMarshaller.unregisterCodec(persistedFile.getAbsolutePath());
+                throw new UncheckedIOException("Unable to open ChronicleMap " + persistedFile, e);
+            }
         }
     }
 }
@@ -2,6 +2,9 @@ package de.otto.synapse.state;
 
 import org.slf4j.Logger;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -77,6 +80,38 @@ public class ConcurrentMapStateRepository<V> implements StateRepository<V> {
         return ofNullable(concurrentMap.remove(key));
     }
 
+    @Override
+    public Map<String, V> getAll(final Collection<String> keys) {
+        final Map<String, V> result = new LinkedHashMap<>();
+        for (final String key : keys) {
+            final V value = concurrentMap.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void putAll(final Map<String, ? extends V> entries) {
+        concurrentMap.putAll(entries);
+    }
+
+    @Override
+    public void computeAll(final Collection<String> keys,
+                           final BiFunction<? super String, ? super Optional<V>, ? extends V> remappingFunction) {
+        for (final String key : keys) {
+            concurrentMap.compute(key, (k, v) -> remappingFunction.apply(k, ofNullable(v)));
+        }
+    }
+
+    @Override
+    public void removeAll(final Collection<String> keys) {
+        for (final String key : keys) {
+            concurrentMap.remove(key);
+        }
+    }
+
     @Override
     public void clear() {
         concurrentMap.clear();
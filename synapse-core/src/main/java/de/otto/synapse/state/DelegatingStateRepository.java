@@ -1,5 +1,7 @@
 package de.otto.synapse.state;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiConsumer;
@@ -13,6 +15,15 @@ public class DelegatingStateRepository<V> implements StateRepository<V> {
         this.delegate = delegate;
     }
 
+    /**
+     * Returns the StateRepository that is decorated by this repository.
+     *
+     * @return delegate StateRepository
+     */
+    public StateRepository<V> getDelegate() {
+        return delegate;
+    }
+
     @Override
     public String getName() {
         return delegate.getName();
@@ -38,6 +49,26 @@ public class DelegatingStateRepository<V> implements StateRepository<V> {
         return delegate.remove(key);
     }
 
+    @Override
+    public Map<String, V> getAll(Collection<String> keys) {
+        return delegate.getAll(keys);
+    }
+
+    @Override
+    public void putAll(Map<String, ? extends V> entries) {
+        delegate.putAll(entries);
+    }
+
+    @Override
+    public void computeAll(Collection<String> keys, BiFunction<? super String, ? super Optional<V>, ? extends V> remappingFunction) {
+        delegate.computeAll(keys, remappingFunction);
+    }
+
+    @Override
+    public void removeAll(Collection<String> keys) {
+        delegate.removeAll(keys);
+    }
+
     @Override
     public void clear() {
         delegate.clear();
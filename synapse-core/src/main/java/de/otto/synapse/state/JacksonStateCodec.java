@@ -0,0 +1,35 @@
+package de.otto.synapse.state;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A {@link StateCodec} that is using an {@link ObjectMapper} to serialize values. The format of the serialized
+ * values depends on the {@link com.fasterxml.jackson.core.JsonFactory} of the ObjectMapper.
+ *
+ * @param <V> the type of the values
+ */
+final class JacksonStateCodec<V> implements StateCodec<V> {
+
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+
+    JacksonStateCodec(final ObjectMapper objectMapper, final Class<V> type) {
+        this.writer = objectMapper.writerFor(type);
+        this.reader = objectMapper.readerFor(type);
+    }
+
+    @Override
+    public void encode(final V value, final OutputStream out) throws IOException {
+        writer.writeValue(out, value);
+    }
+
+    @Override
+    public V decode(final byte[] bytes, final int offset, final int length) throws IOException {
+        return reader.readValue(bytes, offset, length);
+    }
+}
@@ -1,19 +1,28 @@
 package de.otto.synapse.state;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Striped;
 import org.dizitart.no2.*;
 
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.google.common.collect.Sets.newHashSet;
 import static de.otto.synapse.translator.ObjectMappers.currentObjectMapper;
@@ -28,6 +37,7 @@ import static org.dizitart.no2.IndexType.NonUnique;
 import static org.dizitart.no2.IndexType.Unique;
 import static org.dizitart.no2.filters.Filters.ALL;
 import static org.dizitart.no2.filters.Filters.eq;
+import static org.dizitart.no2.filters.Filters.in;
 
 /**
  * A StateRepository with extra functionality for secondary indexes, queries, sorting and paging of
@@ -35,6 +45,16 @@ import static org.dizitart.no2.filters.Filters.eq;
  *
  * <p>This implementation is using a <a href="https://www.dizitart.org/nitrite-database.html">Nitrite Database</a>
  * to store the entities either on heap, off heap or in a file system.</p>
+ *
+ * <p>Modifications are locked per key, using striped locks over the unique index of the keys, so modifications of
+ * different keys, for example by the threads of different shards, are executed concurrently. Only {@link #clear()}
+ * and {@link #close()} are locking the whole repository.</p>
+ *
+ * <p>The bulk operations like {@link #putAll(Map)} are locking all keys of the batch at once. Existing documents
+ * are looked up using a single query, and new documents are inserted at once.</p>
+ *
+ * <p>Query results are available as lazily mapped {@link Stream streams} using {@code streamBy(...)}, so documents
+ * are only converted into values, or projections of values, when they are consumed.</p>
  * @param <V>
  */
 public class NitriteStateRepository<V> implements StateRepository<V>, Closeable {
@@ -42,12 +62,14 @@ public class NitriteStateRepository<V> implements StateRepository<V>, Closeable
     private static final String IDX_ID = "_idx_id";
     private static final TypeReference<Map<String,Object>> JSON_MAP = new TypeReference<Map<String, Object>>() {};
     private static final Document ID_PROJECTION = createDocument(IDX_ID, null);
+    private static final int KEY_LOCK_STRIPES = 64;
 
     private final String name;
     private final Class<V> valueType;
     private final Nitrite nitrite;
     private final NitriteCollection collection;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Striped<Lock> keyLocks = Striped.lock(KEY_LOCK_STRIPES);
 
     public NitriteStateRepository(final String name,
                                   final Class<V> valueType,
@@ -75,66 +97,86 @@ public class NitriteStateRepository<V> implements StateRepository<V>, Closeable
 
     @Override
     public Set<String> keySet() {
-        try {
-            lock.readLock().lock();
-            return stream(collection
-                    .find()
-                    .project(ID_PROJECTION)
-                    .spliterator(), false)
-                    .map(d -> d.getOrDefault(IDX_ID, "").toString())
-                    .collect(toSet());
-        } finally {
-            lock.readLock().unlock();
-        }
+        return withSharedLock(() -> stream(collection
+                .find()
+                .project(ID_PROJECTION)
+                .spliterator(), false)
+                .map(d -> d.getOrDefault(IDX_ID, "").toString())
+                .collect(toSet()));
     }
 
     public Collection<V> findBy(final Filter filter) {
-        return findInternal(() -> collection.find(filter));
+        return streamBy(filter).collect(toList());
     }
 
     public Collection<V> findBy(final FindOptions findOptions) {
-        return findInternal(() -> collection.find(findOptions));
+        return streamBy(findOptions).collect(toList());
     }
 
     public Collection<V> findBy(final Filter filter, final FindOptions findOptions) {
-        return findInternal(() -> collection.find(filter, findOptions));
+        return streamBy(filter, findOptions).collect(toList());
     }
 
     public Collection<V> findBy(final String key, final Object value) {
-        return findInternal(() -> collection.find(eq(key, value)));
+        return streamBy(eq(key, value)).collect(toList());
     }
 
-    private Collection<V> findInternal(final Supplier<Cursor> findFunc) {
-        try {
-            lock.readLock().lock();
-            final Cursor documents = findFunc.get();
-            return stream(documents.spliterator(), false)
-                    .map(document -> currentObjectMapper().convertValue(document, valueType))
-                    .collect(toList());
-        } finally {
-            lock.readLock().unlock();
+    /**
+     * Returns a stream of the values matching the filter. The documents are converted into values lazily, when the
+     * stream is consumed. Streams must be consumed before the repository is closed.
+     *
+     * @param filter the filter
+     * @return stream of values
+     */
+    public Stream<V> streamBy(final Filter filter) {
+        return streamInternal(() -> collection.find(filter), valueType);
+    }
+
+    public Stream<V> streamBy(final FindOptions findOptions) {
+        return streamInternal(() -> collection.find(findOptions), valueType);
+    }
+
+    public Stream<V> streamBy(final Filter filter, final FindOptions findOptions) {
+        return streamInternal(() -> collection.find(filter, findOptions), valueType);
+    }
+
+    /**
+     * Returns a stream of projections of the values matching the filter. Only the given fields of the documents are
+     * converted into instances of the projection type, when the stream is consumed.
+     *
+     * @param filter the filter
+     * @param projectionType the type of the projections
+     * @param fields the fields of the documents that are contained in the projections
+     * @param <P> the type of the projections
+     * @return stream of projections
+     */
+    public <P> Stream<P> streamBy(final Filter filter, final Class<P> projectionType, final String... fields) {
+        final Document projection = new Document();
+        for (final String field : fields) {
+            projection.put(field, null);
         }
+        return withSharedLock(() -> stream(collection
+                .find(filter)
+                .project(projection)
+                .spliterator(), false))
+                .map(document -> toValue(document, projectionType))
+                .filter(Objects::nonNull);
+    }
+
+    private <T> Stream<T> streamInternal(final Supplier<Cursor> findFunc, final Class<T> type) {
+        return withSharedLock(() -> stream(findFunc.get().spliterator(), false))
+                .map(document -> toValue(document, type))
+                .filter(Objects::nonNull);
     }
+
     @Override
     public Optional<V> get(String key) {
-        try {
-            lock.readLock().lock();
-            final Document document = collection
-                .find(eq(IDX_ID, key))
-                .firstOrDefault();
-            return document != null
-                    ? of(currentObjectMapper().convertValue(document, valueType))
-                    : empty();
-        } finally {
-            lock.readLock().unlock();
-        }
-
+        return withSharedLock(() -> find(key));
     }
 
     @Override
     public void consumeAll(final BiConsumer<? super String, ? super V> consumer) {
-        try {
-            lock.readLock().lock();
+        withSharedLock(() -> {
             collection.find().forEach(document -> {
                 final String key = document.get(IDX_ID).toString();
                 final V value = currentObjectMapper().convertValue(document, valueType);
@@ -143,68 +185,136 @@ public class NitriteStateRepository<V> implements StateRepository<V>, Closeable
                 }
                 consumer.accept(key, value);
             });
-        } finally {
-            lock.readLock().unlock();
-        }
+            return null;
+        });
     }
 
     @Override
     public Optional<V> put(String key, V value) {
-        try {
-            lock.writeLock().lock();
-
-            final Map<String, Object> mapValue = currentObjectMapper().convertValue(value, JSON_MAP);
-            final Document document = new Document(mapValue);
-            document.put(IDX_ID, key);
-            final Optional<V> previous = get(key);
-            collection.insert(document);
+        return withKeyLock(key, () -> {
+            final Document document = toDocument(key, value);
+            final Optional<V> previous = find(key);
+            if (previous.isPresent()) {
+                collection.update(eq(IDX_ID, key), document);
+            } else {
+                collection.insert(document);
+            }
             return previous;
-        } finally {
-            lock.writeLock().unlock();
-        }
+        });
     }
 
     @Override
     public Optional<V> compute(final String key, final BiFunction<? super String, ? super Optional<V>, ? extends V> remappingFunction) {
-        try {
-            lock.writeLock().lock();
-
-            final Optional<V> previous = get(key);
+        return withKeyLock(key, () -> {
+            final Optional<V> previous = find(key);
             final V computed = remappingFunction.apply(key, previous);
             if (previous.isPresent()) {
                 if (computed != null) {
-                    final Map<String, Object> mapValue = currentObjectMapper().convertValue(computed, JSON_MAP);
-                    final Document document = new Document(mapValue);
-                    document.put(IDX_ID, key);
-                    collection.update(eq(IDX_ID, key), document);
+                    collection.update(eq(IDX_ID, key), toDocument(key, computed));
                 } else {
                     collection.remove(eq(IDX_ID, key));
                 }
             } else {
                 if (computed != null) {
-                    final Map<String, Object> mapValue = currentObjectMapper().convertValue(computed, JSON_MAP);
-                    final Document document = new Document(mapValue);
-                    document.put(IDX_ID, key);
-                    collection.insert(document);
+                    collection.insert(toDocument(key, computed));
                 }
             }
 
             return Optional.ofNullable(computed);
-        } finally {
-            lock.writeLock().unlock();
-        }
+        });
     }
 
     @Override
     public Optional<V> remove(String key) {
-        try {
-            lock.writeLock().lock();
-            Optional<V> previous = get(key);
-            collection.remove(eq(IDX_ID, key));
+        return withKeyLock(key, () -> {
+            final Optional<V> previous = find(key);
+            if (previous.isPresent()) {
+                collection.remove(eq(IDX_ID, key));
+            }
             return previous;
-        } finally {
-            lock.writeLock().unlock();
+        });
+    }
+
+    @Override
+    public Map<String, V> getAll(final Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return new LinkedHashMap<>();
         }
+        return withSharedLock(() -> {
+            final Map<String, V> found = findAll(keys);
+            final Map<String, V> result = new LinkedHashMap<>();
+            for (final String key : keys) {
+                final V value = found.get(key);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public void putAll(final Map<String, ? extends V> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        withKeyLocks(entries.keySet(), () -> {
+            final Set<String> existingKeys = findExistingKeys(entries.keySet());
+            final List<Document> inserts = new ArrayList<>(entries.size() - existingKeys.size());
+            entries.forEach((key, value) -> {
+                final Document document = toDocument(key, value);
+                if (existingKeys.contains(key)) {
+                    collection.update(eq(IDX_ID, key), document);
+                } else {
+                    inserts.add(document);
+                }
+            });
+            insertAll(inserts);
+        });
+    }
+
+    @Override
+    public void computeAll(final Collection<String> keys,
+                           final BiFunction<? super String, ? super Optional<V>, ? extends V> remappingFunction) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        withKeyLocks(keys, () -> {
+            final Map<String, V> previousValues = findAll(keys);
+            // keys might be contained multiple times, so every computation must see the result of the previous one:
+            final Map<String, V> computedValues = new LinkedHashMap<>();
+            for (final String key : keys) {
+                final V previous = computedValues.containsKey(key) ? computedValues.get(key) : previousValues.get(key);
+                computedValues.put(key, remappingFunction.apply(key, Optional.ofNullable(previous)));
+            }
+            final List<Document> inserts = new ArrayList<>();
+            final List<String> removals = new ArrayList<>();
+            computedValues.forEach((key, computed) -> {
+                final boolean existing = previousValues.containsKey(key);
+                if (computed != null) {
+                    final Document document = toDocument(key, computed);
+                    if (existing) {
+                        collection.update(eq(IDX_ID, key), document);
+                    } else {
+                        inserts.add(document);
+                    }
+                } else if (existing) {
+                    removals.add(key);
+                }
+            });
+            insertAll(inserts);
+            if (!removals.isEmpty()) {
+                collection.remove(in(IDX_ID, removals.toArray()));
+            }
+        });
+    }
+
+    @Override
+    public void removeAll(final Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        withKeyLocks(keys, () -> collection.remove(in(IDX_ID, keys.toArray())));
     }
 
     @Override
@@ -219,12 +329,7 @@ public class NitriteStateRepository<V> implements StateRepository<V>, Closeable
 
     @Override
     public long size() {
-        try {
-            lock.readLock().lock();
-            return collection.size();
-        } finally {
-            lock.readLock().unlock();
-        }
+        return withSharedLock(collection::size);
     }
 
     @Override
@@ -237,6 +342,97 @@ public class NitriteStateRepository<V> implements StateRepository<V>, Closeable
         }
     }
 
+    /**
+     * Executes an operation that must not run concurrently to {@link #clear()} or {@link #close()}.
+     */
+    private <T> T withSharedLock(final Supplier<T> operation) {
+        lock.readLock().lock();
+        try {
+            return operation.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Executes a modification of a single key, while holding the lock of the key.
+     */
+    private <T> T withKeyLock(final String key, final Supplier<T> operation) {
+        return withSharedLock(() -> {
+            final Lock keyLock = keyLocks.get(key);
+            keyLock.lock();
+            try {
+                return operation.get();
+            } finally {
+                keyLock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Executes a modification of multiple keys, while holding the locks of all keys. The locks are acquired in the
+     * order of the stripes, so concurrent bulk operations are not able to deadlock.
+     */
+    private void withKeyLocks(final Collection<String> keys, final Runnable operation) {
+        withSharedLock(() -> {
+            final List<Lock> locks = ImmutableList.copyOf(keyLocks.bulkGet(keys));
+            locks.forEach(Lock::lock);
+            try {
+                operation.run();
+            } finally {
+                locks.forEach(Lock::unlock);
+            }
+            return null;
+        });
+    }
+
+    private Optional<V> find(final String key) {
+        final Document document = collection
+                .find(eq(IDX_ID, key))
+                .firstOrDefault();
+        return document != null
+                ? of(currentObjectMapper().convertValue(document, valueType))
+                : empty();
+    }
+
+    private Map<String, V> findAll(final Collection<String> keys) {
+        final Map<String, V> result = new HashMap<>();
+        collection.find(in(IDX_ID, keys.toArray())).forEach(document ->
+                result.put(document.get(IDX_ID).toString(), currentObjectMapper().convertValue(document, valueType)));
+        return result;
+    }
+
+    private Set<String> findExistingKeys(final Set<String> keys) {
+        return stream(collection
+                .find(in(IDX_ID, keys.toArray()))
+                .project(ID_PROJECTION)
+                .spliterator(), false)
+                .map(d -> d.get(IDX_ID).toString())
+                .collect(toSet());
+    }
+
+    private void insertAll(final List<Document> documents) {
+        if (!documents.isEmpty()) {
+            collection.insert(documents.toArray(new Document[0]));
+        }
+    }
+
+    private Document toDocument(final String key, final V value) {
+        final Map<String, Object> mapValue = currentObjectMapper().convertValue(value, JSON_MAP);
+        final Document document = new Document(mapValue);
+        document.put(IDX_ID, key);
+        return document;
+    }
+
+    /**
+     * Converts a document into a value. Documents that were removed after the query was executed are mapped to null.
+     */
+    private static <T> T toValue(final Document document, final Class<T> type) {
+        return document != null
+                ? currentObjectMapper().convertValue(document, type)
+                : null;
+    }
+
     public static <V> NitriteStateRepository.Builder<V> builder(Class<V> clazz) {
         return new NitriteStateRepository.Builder<>(clazz);
     }
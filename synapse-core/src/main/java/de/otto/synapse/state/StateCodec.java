@@ -0,0 +1,89 @@
+package de.otto.synapse.state;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static de.otto.synapse.translator.ObjectMappers.currentObjectMapper;
+
+/**
+ * Codec used by off-heap {@link StateRepository StateRepositories} like the {@link ChronicleMapStateRepository} to
+ * serialize and deserialize the stored values.
+ *
+ * <p>
+ *     Implementations must be thread-safe. The buffers passed to the codec are reused by the repository, so codecs
+ *     must neither keep references to the {@code OutputStream} after {@link #encode(Object, OutputStream)} returned,
+ *     nor to the byte array after {@link #decode(byte[], int, int)} returned.
+ * </p>
+ * <p>
+ *     Besides the Jackson based codecs {@link #json(ObjectMapper, Class) JSON} and {@link #smile(Class) Smile},
+ *     applications may implement codecs for a fixed schema of their values, for example using a
+ *     {@link java.io.DataOutputStream}, to get the smallest possible entries.
+ * </p>
+ *
+ * @param <V> the type of the values
+ */
+public interface StateCodec<V> {
+
+    /**
+     * Writes the serialized value into the output stream.
+     *
+     * @param value the value
+     * @param out the output stream
+     * @throws IOException if serializing the value fails
+     */
+    void encode(V value, OutputStream out) throws IOException;
+
+    /**
+     * Reads a value from a range of a byte array.
+     *
+     * @param bytes the array containing the serialized value
+     * @param offset the offset of the first byte of the value
+     * @param length the number of bytes of the value
+     * @return deserialized value
+     * @throws IOException if deserializing the value fails
+     */
+    V decode(byte[] bytes, int offset, int length) throws IOException;
+
+    /**
+     * Returns a codec that is serializing values as JSON, using the
+     * {@link de.otto.synapse.translator.ObjectMappers#currentObjectMapper() current ObjectMapper}.
+     *
+     * @param type the type of the values
+     * @param <V> the type of the values
+     * @return StateCodec
+     */
+    static <V> StateCodec<V> json(final Class<V> type) {
+        return json(currentObjectMapper(), type);
+    }
+
+    /**
+     * Returns a codec that is serializing values as JSON.
+     *
+     * @param objectMapper the ObjectMapper used to serialize the values
+     * @param type the type of the values
+     * @param <V> the type of the values
+     * @return StateCodec
+     */
+    static <V> StateCodec<V> json(final ObjectMapper objectMapper, final Class<V> type) {
+        return new JacksonStateCodec<>(objectMapper, type);
+    }
+
+    /**
+     * Returns a codec that is serializing values using the binary JSON format
+     * <a href="https://github.com/FasterXML/smile-format-specification">Smile</a>. The configuration and modules of the
+     * {@link de.otto.synapse.translator.ObjectMappers#currentObjectMapper() current ObjectMapper} are used.
+     *
+     * <p>Compared to JSON, Smile values are smaller and faster to parse, because property names are
+     * back-referenced and numbers are stored in binary form.</p>
+     *
+     * @param type the type of the values
+     * @param <V> the type of the values
+     * @return StateCodec
+     */
+    static <V> StateCodec<V> smile(final Class<V> type) {
+        return new JacksonStateCodec<>(currentObjectMapper().copyWith(new SmileFactory()), type);
+    }
+}
@@ -1,5 +1,8 @@
 package de.otto.synapse.state;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiConsumer;
@@ -134,6 +137,78 @@ public interface StateRepository<V> extends AutoCloseable {
      */
     Optional<V> remove(String key);
 
+    /**
+     * Returns the values of all given keys that are contained in this repository.
+     *
+     * <p>Keys without a mapping are not contained in the returned map. The entries of the returned map are
+     * in the iteration order of the given keys.</p>
+     *
+     * <p>The default implementation is calling {@link #get(String)} for every key. Implementations should
+     * override this method, if they are able to fetch multiple values at once - for example, by
+     * acquiring locks or (de)serializing entities only once per batch.</p>
+     *
+     * @param keys the keys whose associated values are to be returned
+     * @return map containing the keys and values of all existing mappings
+     * @throws NullPointerException if keys is null or contains null keys
+     */
+    default Map<String, V> getAll(final Collection<String> keys) {
+        final Map<String, V> result = new LinkedHashMap<>();
+        for (final String key : keys) {
+            get(key).ifPresent(value -> result.put(key, value));
+        }
+        return result;
+    }
+
+    /**
+     * Associates all values of the given map with their keys in this repository.
+     *
+     * <p>In contrast to {@link #put(String, Object)}, the previous values are not returned, so implementations
+     * do not need to read them.</p>
+     *
+     * <p>The default implementation is calling {@link #put(String, Object)} for every entry.</p>
+     *
+     * @param entries the entries to be stored in this repository
+     * @throws NullPointerException if entries is null or contains null keys or values
+     */
+    default void putAll(final Map<String, ? extends V> entries) {
+        entries.forEach(this::put);
+    }
+
+    /**
+     * Computes the mappings of all given keys, just like {@link #compute(String, BiFunction)}.
+     *
+     * <p>The keys are computed in their iteration order. If the function throws an (unchecked) exception, the
+     * exception is rethrown. Depending on the implementation, the mappings of the keys that have already been
+     * computed may or may not be changed in this case.</p>
+     *
+     * <p>The default implementation is calling {@link #compute(String, BiFunction)} for every key.</p>
+     *
+     * @param keys              the keys whose mappings are to be computed
+     * @param remappingFunction the function to compute a value
+     * @throws NullPointerException if keys is null or contains null keys, or the remappingFunction is null
+     */
+    default void computeAll(final Collection<String> keys,
+                            final BiFunction<? super String, ? super Optional<V>, ? extends V> remappingFunction) {
+        for (final String key : keys) {
+            compute(key, remappingFunction);
+        }
+    }
+
+    /**
+     * Removes the mappings of all given keys from this repository.
+     *
+     * <p>In contrast to {@link #remove(String)}, the previous values are not returned, so implementations
+     * do not need to read them.</p>
+     *
+     * <p>The default implementation is calling {@link #remove(String)} for every key.</p>
+     *
+     * @param keys the keys whose mappings are to be removed
+     * @throws NullPointerException if keys is null or contains null keys
+     */
+    default void removeAll(final Collection<String> keys) {
+        keys.forEach(this::remove);
+    }
+
     /**
      * Removes all of the mappings from this repository (optional operation).
      * The repository will be empty after this call returns.
@@ -2,6 +2,7 @@ package de.otto.synapse.subscription;
 
 import de.otto.synapse.message.Message;
 
+import java.util.Collection;
 import java.util.stream.Stream;
 
 public interface SnapshotProvider {
@@ -22,4 +23,18 @@ public interface SnapshotProvider {
      * @return Stream of messages
      */
     Stream<? extends Message<?>> snapshot(final String entityId);
+
+    /**
+     * Returns a stream containing all Messages required to get
+     * the most current snapshots for the entities that are identified
+     * by the given entityIds.
+     *
+     * <p>The default implementation is concatenating the {@link #snapshot(String) snapshots} of the entities.</p>
+     *
+     * @param entityIds the identifiers used to select the entities.
+     * @return Stream of messages
+     */
+    default Stream<? extends Message<?>> snapshot(final Collection<String> entityIds) {
+        return entityIds.stream().flatMap(this::snapshot);
+    }
 }
@@ -3,6 +3,7 @@ package de.otto.synapse.subscription;
 import de.otto.synapse.message.Message;
 import de.otto.synapse.state.StateRepository;
 
+import java.util.Collection;
 import java.util.stream.Stream;
 
 import static java.util.Collections.singletonList;
@@ -46,4 +47,12 @@ public class StateRepositorySnapshotProvider<E> implements SnapshotProvider {
                 .map((E t) -> entityToMessagesTransformer.apply(entityId, t).stream())
                 .orElse(Stream.empty());
     }
+
+    @Override
+    public Stream<? extends Message<?>> snapshot(final Collection<String> entityIds) {
+        return stateRepository.getAll(entityIds)
+                .entrySet()
+                .stream()
+                .flatMap(entry -> entityToMessagesTransformer.apply(entry.getKey(), entry.getValue()).stream());
+    }
 }
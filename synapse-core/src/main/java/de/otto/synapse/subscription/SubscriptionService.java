@@ -7,7 +7,6 @@ import de.otto.synapse.endpoint.MessageInterceptor;
 import de.otto.synapse.endpoint.MessageInterceptorRegistry;
 import de.otto.synapse.endpoint.sender.MessageSenderEndpoint;
 import de.otto.synapse.endpoint.sender.MessageSenderEndpointFactory;
-import de.otto.synapse.message.Message;
 import de.otto.synapse.subscription.events.SubscriptionCreated;
 import de.otto.synapse.subscription.events.SubscriptionUpdated;
 import org.slf4j.Logger;
@@ -19,7 +18,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.stream.Stream;
 
 import static de.otto.synapse.endpoint.MessageInterceptorRegistration.matchingSenderChannelsWith;
 import static java.util.stream.Collectors.toList;
@@ -105,10 +103,9 @@ public class SubscriptionService {
                               final String targetChannel,
                               final SnapshotProvider snapshotProvider) {
         final MessageSenderEndpoint messageSenderEndpoint = targetSenders.get(targetChannel);
-        entityIds.forEach(id -> {
-            Stream<? extends Message<?>> snapshot = snapshotProvider.snapshot(id);
-            messageSenderEndpoint.sendBatch(snapshot).join();
-        });
+        if (!entityIds.isEmpty()) {
+            messageSenderEndpoint.sendBatch(snapshotProvider.snapshot(entityIds)).join();
+        }
     }
 
 }
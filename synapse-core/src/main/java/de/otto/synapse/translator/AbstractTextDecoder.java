@@ -1,18 +1,23 @@
 package de.otto.synapse.translator;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import de.otto.synapse.message.Header;
 import de.otto.synapse.message.Key;
 import de.otto.synapse.message.TextMessage;
+import de.otto.synapse.message.Utf8TextMessage;
 import org.slf4j.Logger;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
 import static de.otto.synapse.message.Header.copyOf;
 import static de.otto.synapse.translator.ObjectMappers.currentObjectMapper;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.emptyMap;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -46,6 +51,142 @@ public abstract class AbstractTextDecoder<T> implements Decoder<T> {
         }
     }
 
+    /**
+     * Decodes a message from its UTF-8 encoded representation.
+     *
+     * <p>
+     *     Messages in {@link MessageFormat#V2 V2 format} are decoded using a single streaming pass over the bytes,
+     *     without building a JSON tree. The payload is not copied: the returned {@link Utf8TextMessage} is referring
+     *     to the payload within the given bytes, so it can be deserialized without converting it into a String.
+     * </p>
+     *
+     * @param prototypeKey the key of the message, if the message does not contain a key
+     * @param prototypeHeader the header of the message, that is merged with the header attributes of the message
+     * @param body the UTF-8 encoded message, or null
+     * @return TextMessage
+     */
+    protected TextMessage decode(final Key prototypeKey,
+                                 final Header prototypeHeader,
+                                 final byte[] body) {
+        if (body == null || body.length == 0) {
+            return TextMessage.of(prototypeKey, prototypeHeader, null);
+        }
+        switch (MessageFormat.versionOf(body)) {
+            case V1:
+                return Utf8TextMessage.of(prototypeKey, prototypeHeader, body, 0, body.length);
+            case V2:
+                try {
+                    return decodeV2(prototypeKey, prototypeHeader, body);
+                } catch (final IOException | RuntimeException e) {
+                    LOG.error("Exception caught while parsing record {}: {}", new String(body, UTF_8), e.getMessage());
+                    return Utf8TextMessage.of(prototypeKey, prototypeHeader, body, 0, body.length);
+                }
+            default:
+                throw new IllegalStateException("Unsupported message format: " + new String(body, UTF_8));
+        }
+    }
+
+    private static TextMessage decodeV2(final Key prototypeKey,
+                                        final Header prototypeHeader,
+                                        final byte[] body) throws IOException {
+        Key key = prototypeKey;
+        Map<String, String> attributes = emptyMap();
+        JsonToken payloadToken = null;
+        String payload = null;
+        int payloadOffset = 0;
+        int payloadLength = 0;
+        try (JsonParser parser = currentObjectMapper().getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalStateException("Expected JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken token = parser.nextToken();
+                switch (fieldName) {
+                    case MessageFormat.SYNAPSE_MSG_KEY:
+                        key = keyFrom(parser, token).orElse(prototypeKey);
+                        break;
+                    case MessageFormat.SYNAPSE_MSG_HEADERS:
+                        attributes = attributesFrom(parser, token);
+                        break;
+                    case MessageFormat.SYNAPSE_MSG_PAYLOAD:
+                        payloadToken = token;
+                        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                            payloadOffset = (int) parser.getTokenLocation().getByteOffset();
+                            parser.skipChildren();
+                            payloadLength = (int) parser.getCurrentLocation().getByteOffset() - payloadOffset;
+                        } else if (token == JsonToken.VALUE_NULL) {
+                            payload = null;
+                        } else {
+                            payload = parser.getText();
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        final Header header = copyOf(prototypeHeader)
+                .withAttributes(attributes)
+                .build();
+        return payloadToken == JsonToken.START_OBJECT || payloadToken == JsonToken.START_ARRAY
+                ? Utf8TextMessage.ofJson(key, header, body, payloadOffset, payloadLength)
+                : TextMessage.of(key, header, payload);
+    }
+
+    private static Map<String, String> attributesFrom(final JsonParser parser,
+                                                      final JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return emptyMap();
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IllegalStateException("Unexpected header attributes: " + parser.getText());
+        }
+        final Map<String, String> attributes = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            if (!value.isScalarValue() || value == JsonToken.VALUE_NULL) {
+                throw new IllegalStateException("Unexpected value of header attribute " + name);
+            }
+            attributes.put(name, parser.getText());
+        }
+        return attributes;
+    }
+
+    private static Optional<Key> keyFrom(final JsonParser parser,
+                                         final JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return Optional.empty();
+        } else if (token == JsonToken.START_OBJECT) {
+            boolean hasPartitionKey = false;
+            boolean hasCompactionKey = false;
+            String partitionKey = null;
+            String compactionKey = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                final String text = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                parser.skipChildren();
+                if (MessageFormat.SYNAPSE_MSG_PARTITIONKEY.equals(name)) {
+                    hasPartitionKey = true;
+                    partitionKey = text;
+                } else if (MessageFormat.SYNAPSE_MSG_COMPACTIONKEY.equals(name)) {
+                    hasCompactionKey = true;
+                    compactionKey = text;
+                }
+            }
+            if (!hasPartitionKey || !hasCompactionKey) {
+                throw new IllegalStateException("Incomplete message key");
+            }
+            return Optional.of(Key.of(partitionKey, compactionKey));
+        } else {
+            final String msg = "Unexpected json token " + token + " in message key";
+            LOG.error(msg);
+            throw new IllegalStateException(msg);
+        }
+    }
+
     private static Map<String, String> attributesFrom(final JsonNode json) {
         final JsonNode headersJson = json.get(MessageFormat.SYNAPSE_MSG_HEADERS);
         if (headersJson != null) {
@@ -77,7 +218,7 @@ public abstract class AbstractTextDecoder<T> implements Decoder<T> {
         final JsonNode payloadJson = json.get(MessageFormat.SYNAPSE_MSG_PAYLOAD);
         if (payloadJson == null || payloadJson.isNull()) {
             return null;
-        } else if (payloadJson.isObject()) {
+        } else if (payloadJson.isObject() || payloadJson.isArray()) {
             return payloadJson.toString();
         } else {
             return payloadJson.asText();
@@ -2,6 +2,8 @@ package de.otto.synapse.translator;
 
 import java.util.regex.Pattern;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * Identifies the format used to encode or decode messages.
  */
@@ -20,6 +22,9 @@ public enum MessageFormat {
     public static final String SYNAPSE_MSG_PAYLOAD = "_synapse_msg_payload";
 
     private static final Pattern V2_PATTERN = Pattern.compile("\\{\\s*\"" + SYNAPSE_MSG_FORMAT + "\"\\s*:\\s*\"v2\".+");
+    private static final byte[] V2_FORMAT_FIELD = ("\"" + SYNAPSE_MSG_FORMAT + "\"").getBytes(UTF_8);
+    private static final byte[] COLON = {':'};
+    private static final byte[] V2_VERSION = "\"v2\"".getBytes(UTF_8);
 
     /**
      * Returns the default message format used by Synapse to encode messages.
@@ -44,4 +49,65 @@ public enum MessageFormat {
         } else {
             return V1;
         }
-    }}
+    }
+
+    /**
+     * Determines the {@code MessageFormat} from the UTF-8 encoded representation of some message, without decoding
+     * the message into a String.
+     *
+     * @param message the UTF-8 encoded representation of some message
+     * @return MessageFormat of the message
+     * @see #versionOf(String)
+     */
+    public static MessageFormat versionOf(final byte[] message) {
+        if (message == null || message.length == 0 || message[0] != '{') {
+            return V1;
+        }
+        int pos = skipWhitespace(message, 1);
+        pos = expect(message, pos, V2_FORMAT_FIELD);
+        pos = expect(message, skipWhitespace(message, pos), COLON);
+        pos = expect(message, skipWhitespace(message, pos), V2_VERSION);
+        if (pos < 0 || pos == message.length) {
+            return V1;
+        }
+        // just like V2_PATTERN, the remaining message must not contain line terminators:
+        for (int i = pos; i < message.length; i++) {
+            final byte b = message[i];
+            if (b == '\n' || b == '\r') {
+                return V1;
+            }
+            if (b == (byte) 0xC2 && i + 1 < message.length && message[i + 1] == (byte) 0x85) {
+                return V1;
+            }
+            if (b == (byte) 0xE2 && i + 2 < message.length && message[i + 1] == (byte) 0x80
+                    && (message[i + 2] == (byte) 0xA8 || message[i + 2] == (byte) 0xA9)) {
+                return V1;
+            }
+        }
+        return V2;
+    }
+
+    private static int skipWhitespace(final byte[] message, final int from) {
+        int pos = from;
+        while (pos >= 0 && pos < message.length && isWhitespace(message[pos])) {
+            ++pos;
+        }
+        return pos;
+    }
+
+    private static boolean isWhitespace(final byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    private static int expect(final byte[] message, final int from, final byte[] expected) {
+        if (from < 0 || from + expected.length > message.length) {
+            return -1;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (message[from + i] != expected[i]) {
+                return -1;
+            }
+        }
+        return from + expected.length;
+    }
+}
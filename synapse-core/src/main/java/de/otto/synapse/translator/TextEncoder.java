@@ -1,28 +1,63 @@
 package de.otto.synapse.translator;
 
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.NullNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.node.TextNode;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
 import de.otto.synapse.message.Message;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 
 import static de.otto.synapse.translator.MessageFormat.*;
-import static de.otto.synapse.translator.ObjectMappers.currentObjectMapper;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
+/**
+ * Encodes messages into their String representation, using a {@link MessageFormat}.
+ *
+ * <p>
+ *     Messages in {@link MessageFormat#V2 V2 format} are written using a streaming {@link JsonGenerator} that is
+ *     reused by every thread. Payloads that are valid JSON are spliced into the encoded message as they are, without
+ *     parsing them into a JSON tree. All other payloads are encoded as JSON strings.
+ * </p>
+ * <p>
+ *     By default, payloads are validated using a streaming parser, before they are spliced into the message.
+ *     Senders of channels that are known to only contain JSON payloads - for example, payloads serialized by the
+ *     {@link TextMessageTranslator} - may trust their payloads, so the validation of the payloads is skipped.
+ * </p>
+ */
 public class TextEncoder implements Encoder<String> {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final ThreadLocal<ReusableGenerator<StringBuilderWriter>> STRING_GENERATOR = new ThreadLocal<>();
+    private static final ThreadLocal<ReusableGenerator<ByteArrayBuilder>> UTF8_GENERATOR = new ThreadLocal<>();
+
     private final MessageFormat messageFormat;
+    private final boolean trustJsonPayloads;
 
     public TextEncoder() {
         this(defaultMessageFormat());
     }
 
     public TextEncoder(final MessageFormat messageFormat) {
+        this(messageFormat, false);
+    }
+
+    /**
+     * Creates a TextEncoder.
+     *
+     * @param messageFormat the format of the encoded messages
+     * @param trustJsonPayloads if true, payloads starting like a JSON object or array are expected to be valid JSON
+     *                          and are spliced into V2 messages without validating them first.
+     */
+    public TextEncoder(final MessageFormat messageFormat,
+                       final boolean trustJsonPayloads) {
         this.messageFormat = messageFormat;
+        this.trustJsonPayloads = trustJsonPayloads;
     }
 
     @Override
@@ -30,6 +65,23 @@ public class TextEncoder implements Encoder<String> {
         return encode(message, messageFormat);
     }
 
+    /**
+     * Encodes the message into its UTF-8 encoded representation, without creating an intermediate String for
+     * messages in V2 format.
+     *
+     * @param message the message
+     * @return UTF-8 encoded message, or null, if the message is a V1 message without payload
+     */
+    public byte[] applyAsUtf8(final Message<String> message) {
+        switch (messageFormat) {
+            case V1:
+                return message.getPayload() != null ? message.getPayload().getBytes(UTF_8) : null;
+            case V2:
+                return encodeV2AsUtf8(message);
+            default:
+                throw new IllegalStateException("Unsupported MessageFormat " + messageFormat);
+        }
+    }
 
     protected String encode(final Message<String> message,
                             final MessageFormat messageFormat) {
@@ -43,46 +95,175 @@ public class TextEncoder implements Encoder<String> {
         }
     }
 
-    private String encode(final Message<String> message) {
-        return encode(message, defaultMessageFormat());
+    private String encodeV2(final Message<String> message) {
+        ReusableGenerator<StringBuilderWriter> reusable = STRING_GENERATOR.get();
+        if (reusable == null) {
+            final StringBuilderWriter writer = new StringBuilderWriter();
+            reusable = new ReusableGenerator<>(writer, createGenerator(() -> JSON_FACTORY.createGenerator(writer)));
+            STRING_GENERATOR.set(reusable);
+        }
+        try {
+            writeV2(message, reusable.generator);
+            reusable.generator.flush();
+            return reusable.output.getAndReset();
+        } catch (final IOException | RuntimeException e) {
+            // the state of the generator is undefined, so it must not be reused:
+            STRING_GENERATOR.remove();
+            throw new IllegalStateException(String.format("Cannot encode message %s", message), e);
+        }
     }
 
-    private static String encodeV2(Message<String> message) {
-        ObjectMapper mapper = currentObjectMapper();
+    private byte[] encodeV2AsUtf8(final Message<String> message) {
+        ReusableGenerator<ByteArrayBuilder> reusable = UTF8_GENERATOR.get();
+        if (reusable == null) {
+            final ByteArrayBuilder bytes = new ByteArrayBuilder();
+            reusable = new ReusableGenerator<>(bytes, createGenerator(() -> JSON_FACTORY.createGenerator(bytes, JsonEncoding.UTF8)));
+            UTF8_GENERATOR.set(reusable);
+        }
         try {
-            ObjectNode root = mapper.createObjectNode();
-            root.put(SYNAPSE_MSG_FORMAT, "v2");
-            root.set(SYNAPSE_MSG_KEY, encodeKeysV2(message, mapper));
-            root.set(SYNAPSE_MSG_HEADERS, encodeHeadersV2(message, mapper));
-            root.set(SYNAPSE_MSG_PAYLOAD, encodePayloadV2(message, mapper));
-            return root.toString();
-        } catch (IOException e) {
+            writeV2(message, reusable.generator);
+            reusable.generator.flush();
+            final byte[] result = reusable.output.toByteArray();
+            reusable.output.reset();
+            return result;
+        } catch (final IOException | RuntimeException e) {
+            UTF8_GENERATOR.remove();
             throw new IllegalStateException(String.format("Cannot encode message %s", message), e);
         }
     }
 
-    private static ObjectNode encodeKeysV2(Message<String> message, ObjectMapper mapper) {
-        ObjectNode keyNode = mapper.createObjectNode();
-        keyNode.put(SYNAPSE_MSG_PARTITIONKEY, message.getKey().partitionKey());
-        keyNode.put(SYNAPSE_MSG_COMPACTIONKEY, message.getKey().compactionKey());
-        return keyNode;
+    private void writeV2(final Message<String> message,
+                         final JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField(SYNAPSE_MSG_FORMAT, "v2");
+        generator.writeObjectFieldStart(SYNAPSE_MSG_KEY);
+        generator.writeStringField(SYNAPSE_MSG_PARTITIONKEY, message.getKey().partitionKey());
+        generator.writeStringField(SYNAPSE_MSG_COMPACTIONKEY, message.getKey().compactionKey());
+        generator.writeEndObject();
+        generator.writeObjectFieldStart(SYNAPSE_MSG_HEADERS);
+        try {
+            message.getHeader().forEach((key, value) -> {
+                try {
+                    generator.writeStringField(key, value);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.writeEndObject();
+        generator.writeFieldName(SYNAPSE_MSG_PAYLOAD);
+        writePayload(message.getPayload(), generator);
+        generator.writeEndObject();
     }
 
-    private static JsonNode encodeHeadersV2(Message<String> message, ObjectMapper mapper) {
-        return mapper.convertValue(message.getHeader().getAll(), JsonNode.class);
+    private void writePayload(final String payload,
+                              final JsonGenerator generator) throws IOException {
+        if (payload == null) {
+            generator.writeNull();
+        } else if (hasLineBreak(payload)) {
+            // V2 messages must not contain line breaks, so the payload is written in compact form:
+            if (isJson(payload)) {
+                try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+                    parser.nextToken();
+                    generator.copyCurrentStructure(parser);
+                }
+            } else {
+                generator.writeString(payload);
+            }
+        } else if ((trustJsonPayloads && startsLikeJsonContainer(payload)) || isJson(payload)) {
+            generator.writeRawValue(payload);
+        } else {
+            generator.writeString(payload);
+        }
     }
 
-    private static JsonNode encodePayloadV2(Message<String> message, ObjectMapper mapper) throws IOException {
-        JsonNode jsonPayload;
-        try {
-            if (message.getPayload() == null) {
-                jsonPayload = NullNode.getInstance();
-            } else {
-                jsonPayload = mapper.readTree(message.getPayload());
+    /**
+     * Returns true, if the payload is a single valid JSON value, without parsing it into a tree.
+     */
+    private static boolean isJson(final String payload) {
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            final JsonToken first = parser.nextToken();
+            if (first == null) {
+                return false;
             }
-        } catch (JsonParseException e) {
-            jsonPayload = new TextNode(message.getPayload());
+            parser.skipChildren();
+            return parser.nextToken() == null;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean startsLikeJsonContainer(final String payload) {
+        final char first = payload.isEmpty() ? 0 : payload.charAt(0);
+        final char last = payload.isEmpty() ? 0 : payload.charAt(payload.length() - 1);
+        return (first == '{' && last == '}') || (first == '[' && last == ']');
+    }
+
+    private static boolean hasLineBreak(final String payload) {
+        return payload.indexOf('\n') >= 0 || payload.indexOf('\r') >= 0;
+    }
+
+    private static JsonGenerator createGenerator(final GeneratorSupplier supplier) {
+        try {
+            final JsonGenerator generator = supplier.get();
+            // the generator is writing one root value per message:
+            generator.setRootValueSeparator(null);
+            return generator;
+        } catch (final IOException e) {
+            throw new IllegalStateException("Cannot create JsonGenerator: " + e.getMessage(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface GeneratorSupplier {
+        JsonGenerator get() throws IOException;
+    }
+
+    /**
+     * An unsynchronized Writer that can be reset after every message.
+     */
+    private static final class StringBuilderWriter extends Writer {
+        private final StringBuilder builder = new StringBuilder(256);
+
+        @Override
+        public void write(final char[] chars, final int offset, final int length) {
+            builder.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(final String str, final int offset, final int length) {
+            builder.append(str, offset, offset + length);
+        }
+
+        @Override
+        public void write(final int c) {
+            builder.append((char) c);
+        }
+
+        private String getAndReset() {
+            final String result = builder.toString();
+            builder.setLength(0);
+            return result;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class ReusableGenerator<O> {
+        private final O output;
+        private final JsonGenerator generator;
+
+        private ReusableGenerator(final O output, final JsonGenerator generator) {
+            this.output = output;
+            this.generator = generator;
         }
-        return jsonPayload;
     }
 }
@@ -1,8 +1,10 @@
 package de.otto.synapse.annotation;
 
+import de.otto.synapse.channel.ShardPosition;
 import de.otto.synapse.configuration.InMemoryMessageLogTestConfiguration;
 import de.otto.synapse.configuration.SynapseAutoConfiguration;
 import de.otto.synapse.consumer.MessageConsumer;
+import de.otto.synapse.consumer.MethodInvokingBatchMessageConsumer;
 import de.otto.synapse.consumer.MethodInvokingMessageConsumer;
 import de.otto.synapse.eventsource.DelegateEventSource;
 import de.otto.synapse.message.Message;
@@ -16,6 +18,7 @@ import org.springframework.context.annotation.Bean;
 import java.util.List;
 import java.util.Set;
 
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -87,6 +90,47 @@ public class EventSourceConsumerBeanPostProcessorTest {
         assertThat(pattern).containsExactlyInAnyOrder("apple.*", "banana.*");
     }
 
+    @Test
+    public void shouldRegisterBatchEventConsumers() {
+        context.register(BatchConsumerConfiguration.class);
+        context.register(InMemoryMessageLogTestConfiguration.class);
+        context.refresh();
+
+        final DelegateEventSource someStreamEventSource = context.getBean("testEventSource", DelegateEventSource.class);
+        final List<MessageConsumer<?>> messageConsumers = someStreamEventSource.getMessageDispatcher().getAll();
+        assertThat(messageConsumers).hasSize(3);
+        final List<MessageConsumer<?>> batchConsumers = messageConsumers.stream()
+                .filter(consumer -> consumer instanceof MethodInvokingBatchMessageConsumer)
+                .collect(toList());
+        assertThat(batchConsumers).hasSize(2);
+        assertThat(batchConsumers.stream().map(consumer -> consumer.keyPattern().pattern()).collect(toSet()))
+                .containsExactlyInAnyOrder("apple.*", ".*");
+        assertThat(batchConsumers.stream().map(MessageConsumer::payloadType).collect(toSet()))
+                .containsExactlyInAnyOrder(String.class, Integer.class);
+    }
+
+    @Test(expected = BeanCreationException.class)
+    public void shouldFailToRegisterBatchConsumerBecauseOfMissingEventSource() {
+        context.register(BatchConsumerConfigurationWithMissingEventSource.class);
+        context.register(InMemoryMessageLogTestConfiguration.class);
+        context.refresh();
+    }
+
+    @EnableEventSource(name = "testEventSource", channelName = "some-stream")
+    static class BatchConsumerConfiguration {
+        @Bean
+        public TestBatchConsumer test() {
+            return new TestBatchConsumer();
+        }
+    }
+
+    static class BatchConsumerConfigurationWithMissingEventSource {
+        @Bean
+        public TestBatchConsumer test() {
+            return new TestBatchConsumer();
+        }
+    }
+
     @EnableEventSource(name = "testEventSource", channelName = "some-stream")
     @EnableEventSource(name = "otherStreamTestSource", channelName = "other-stream")
     static class ThreeConsumersAtTwoEventSourcesConfiguration {
@@ -175,6 +219,27 @@ public class EventSourceConsumerBeanPostProcessorTest {
 
     }
 
+    static class TestBatchConsumer {
+        @EventSourceConsumer(
+                eventSource = "testEventSource",
+                payloadType = String.class)
+        public void single(Message<String> message) {
+        }
+
+        @EventSourceBatchConsumer(
+                eventSource = "testEventSource",
+                keyPattern = "apple.*",
+                payloadType = String.class)
+        public void batch(List<Message<String>> messages) {
+        }
+
+        @EventSourceBatchConsumer(
+                eventSource = "testEventSource",
+                payloadType = Integer.class)
+        public void batchWithShardPosition(List<Message<Integer>> messages, ShardPosition shardPosition) {
+        }
+    }
+
     static class TestConsumerWithSnapshotEventSource {
         @EventSourceConsumer(
                 eventSource = "someTestEventSource",
@@ -1,7 +1,9 @@
 package de.otto.synapse.annotation;
 
+import de.otto.synapse.channel.ShardPosition;
 import de.otto.synapse.configuration.InMemoryMessageLogTestConfiguration;
 import de.otto.synapse.consumer.MessageConsumer;
+import de.otto.synapse.consumer.MethodInvokingBatchMessageConsumer;
 import de.otto.synapse.consumer.MethodInvokingMessageConsumer;
 import de.otto.synapse.endpoint.receiver.MessageLogReceiverEndpoint;
 import de.otto.synapse.message.Message;
@@ -16,6 +18,7 @@ import org.springframework.context.annotation.Import;
 import java.util.List;
 import java.util.Set;
 
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -87,6 +90,47 @@ public class MessageLogConsumerBeanPostProcessorTest {
         assertThat(pattern).containsExactlyInAnyOrder("apple.*", "banana.*");
     }
 
+    @Test
+    public void shouldRegisterBatchLogConsumers() {
+        context.register(BatchConsumerConfiguration.class);
+        context.register(InMemoryMessageLogTestConfiguration.class);
+        context.refresh();
+
+        final MessageLogReceiverEndpoint testLog = context.getBean("testLog", MessageLogReceiverEndpoint.class);
+        final List<MessageConsumer<?>> messageConsumers = testLog.getMessageDispatcher().getAll();
+        assertThat(messageConsumers).hasSize(3);
+        final List<MessageConsumer<?>> batchConsumers = messageConsumers.stream()
+                .filter(consumer -> consumer instanceof MethodInvokingBatchMessageConsumer)
+                .collect(toList());
+        assertThat(batchConsumers).hasSize(2);
+        assertThat(batchConsumers.stream().map(consumer -> consumer.keyPattern().pattern()).collect(toSet()))
+                .containsExactlyInAnyOrder("apple.*", ".*");
+        assertThat(batchConsumers.stream().map(MessageConsumer::payloadType).collect(toSet()))
+                .containsExactlyInAnyOrder(String.class, Integer.class);
+    }
+
+    @Test(expected = BeanCreationException.class)
+    public void shouldFailToRegisterBatchConsumerBecauseOfMissingLog() {
+        context.register(BatchConsumerConfigurationWithMissingLog.class);
+        context.register(InMemoryMessageLogTestConfiguration.class);
+        context.refresh();
+    }
+
+    @EnableMessageLogReceiverEndpoint(name = "testLog", channelName = "some-channel")
+    static class BatchConsumerConfiguration {
+        @Bean
+        public TestBatchConsumer test() {
+            return new TestBatchConsumer();
+        }
+    }
+
+    static class BatchConsumerConfigurationWithMissingLog {
+        @Bean
+        public TestBatchConsumer test() {
+            return new TestBatchConsumer();
+        }
+    }
+
     @EnableMessageLogReceiverEndpoint(name = "testLog", channelName = "some-channel")
     @EnableMessageLogReceiverEndpoint(name = "otherLog", channelName = "other-channel")
     static class ThreeConsumersAtTwoLogsConfiguration {
@@ -151,6 +195,27 @@ public class MessageLogConsumerBeanPostProcessorTest {
 
     }
 
+    static class TestBatchConsumer {
+        @MessageLogConsumer(
+                endpointName = "testLog",
+                payloadType = String.class)
+        public void single(Message<String> message) {
+        }
+
+        @MessageLogBatchConsumer(
+                endpointName = "testLog",
+                keyPattern = "apple.*",
+                payloadType = String.class)
+        public void batch(List<Message<String>> messages) {
+        }
+
+        @MessageLogBatchConsumer(
+                endpointName = "testLog",
+                payloadType = Integer.class)
+        public void batchWithShardPosition(List<Message<Integer>> messages, ShardPosition shardPosition) {
+        }
+    }
+
     static class SingleTestConsumer{
         @MessageLogConsumer(
                 endpointName = "someLog",
@@ -0,0 +1,77 @@
+package de.otto.synapse.channel;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static de.otto.synapse.channel.ChannelDurationBehind.channelDurationBehind;
+import static de.otto.synapse.channel.ChannelPosition.channelPosition;
+import static de.otto.synapse.channel.ShardPosition.fromHorizon;
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
+import static de.otto.synapse.channel.ShardResponse.shardResponse;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class ChannelPositionTrackerTest {
+
+    @Test
+    public void shouldReturnFromHorizonIfNothingWasTracked() {
+        // given
+        final ChannelPositionTracker tracker = new ChannelPositionTracker();
+
+        // then
+        assertThat(tracker.getChannelPosition(), is(ChannelPosition.fromHorizon()));
+        assertThat(tracker.getChannelDurationBehind(), is(channelDurationBehind().build()));
+    }
+
+    @Test
+    public void shouldTrackLatestPositionOfShards() {
+        // given
+        final ChannelPositionTracker tracker = new ChannelPositionTracker(channelPosition(fromHorizon("first"), fromHorizon("second")));
+
+        // when
+        tracker.update(fromPosition("second", "1"));
+        tracker.update(fromPosition("first", "1"));
+        tracker.update(fromPosition("second", "2"));
+
+        // then
+        final ChannelPosition channelPosition = tracker.getChannelPosition();
+        assertThat(channelPosition, is(channelPosition(fromPosition("first", "1"), fromPosition("second", "2"))));
+        assertThat(channelPosition.shards(), contains("first", "second"));
+    }
+
+    @Test
+    public void shouldNotChangeSnapshotsOnUpdate() {
+        // given
+        final ChannelPositionTracker tracker = new ChannelPositionTracker();
+        tracker.update(fromPosition("first", "1"));
+        final ChannelPosition snapshot = tracker.getChannelPosition();
+
+        // when
+        tracker.update(fromPosition("first", "2"));
+
+        // then
+        assertThat(snapshot, is(channelPosition(fromPosition("first", "1"))));
+    }
+
+    @Test
+    public void shouldTrackDurationBehindOfShards() {
+        // given
+        final ChannelPositionTracker tracker = new ChannelPositionTracker();
+        tracker.unknownDurationBehind(asList("first", "second", "third"));
+
+        // when
+        tracker.update(shardResponse(fromPosition("first", "1"), Duration.ofSeconds(1)));
+        tracker.updateDurationBehind("second", Duration.ofSeconds(2));
+        tracker.remove("third");
+
+        // then
+        assertThat(tracker.getChannelDurationBehind(), is(channelDurationBehind()
+                .with("first", Duration.ofSeconds(1))
+                .with("second", Duration.ofSeconds(2))
+                .build()));
+        assertThat(tracker.getChannelPosition(), is(channelPosition(fromPosition("first", "1"))));
+    }
+}
@@ -0,0 +1,58 @@
+package de.otto.synapse.configuration;
+
+import de.otto.synapse.state.CachingStateRepository;
+import de.otto.synapse.state.ConcurrentMapStateRepository;
+import de.otto.synapse.state.StateRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingStateRepositoryBeanPostProcessorTest {
+
+    private AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    @After
+    public void close() {
+        if (this.context != null) {
+            this.context.close();
+        }
+    }
+
+    @Test
+    public void shouldDecorateConfiguredStateRepositoryWithCache() {
+        TestPropertyValues.of(
+                "synapse.state-repository.cache.[Products].maximum-size=100"
+        ).applyTo(context);
+        context.register(SynapseAutoConfiguration.class, StateRepositoryConfiguration.class);
+        context.refresh();
+
+        assertThat(context.getBean("productRepository")).isInstanceOf(CachingStateRepository.class);
+        assertThat(context.getBean("otherRepository")).isInstanceOf(ConcurrentMapStateRepository.class);
+    }
+
+    @Test
+    public void shouldNotDecorateStateRepositoriesWithoutConfiguredCache() {
+        context.register(SynapseAutoConfiguration.class, StateRepositoryConfiguration.class);
+        context.refresh();
+
+        assertThat(context.getBean("productRepository")).isInstanceOf(ConcurrentMapStateRepository.class);
+    }
+
+    @Configuration
+    static class StateRepositoryConfiguration {
+        @Bean
+        public StateRepository<String> productRepository() {
+            return new ConcurrentMapStateRepository<>("Products");
+        }
+
+        @Bean
+        public StateRepository<String> otherRepository() {
+            return new ConcurrentMapStateRepository<>("Other");
+        }
+    }
+}
@@ -1,14 +1,25 @@
 package de.otto.synapse.consumer;
 
+import de.otto.synapse.channel.ShardPosition;
 import de.otto.synapse.message.Message;
 import de.otto.synapse.message.TextMessage;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
 import static de.otto.synapse.channel.ShardPosition.fromHorizon;
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
 import static de.otto.synapse.consumer.TestMessageConsumer.testEventConsumer;
 import static de.otto.synapse.message.Header.of;
 import static de.otto.synapse.message.Message.message;
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -65,8 +76,11 @@ public class MessageDispatcherTest {
             fail();
         } catch (final IllegalStateException e) {
             // then
+            // key patterns and payload types are only evaluated when the consumers are registered:
             verify(appleConsumer).keyPattern();
             verify(appleConsumer).payloadType();
+            verify(bananaConsumer).keyPattern();
+            verify(bananaConsumer).payloadType();
             verifyNoMoreInteractions(appleConsumer);
             verifyNoMoreInteractions(bananaConsumer);
             throw e;
@@ -104,6 +118,96 @@ public class MessageDispatcherTest {
         verify(eventConsumerCherry, never()).accept(any(Message.class));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldRouteLiteralPrefixAndRegexKeyPatterns() {
+        // given
+        TestMessageConsumer<String> literalConsumer = spy(testEventConsumer("apple", String.class));
+        TestMessageConsumer<String> quotedConsumer = spy(testEventConsumer(Pattern.quote("apple.pie"), String.class));
+        TestMessageConsumer<String> prefixConsumer = spy(testEventConsumer("apple.*", String.class));
+        TestMessageConsumer<String> regexConsumer = spy(testEventConsumer("[a-z]+\\.[0-9]+", String.class));
+
+        MessageDispatcher messageDispatcher = new MessageDispatcher(asList(literalConsumer, quotedConsumer, prefixConsumer, regexConsumer));
+
+        // when
+        messageDispatcher.accept(TextMessage.of("apple", of(fromHorizon("test")), "{}"));
+        messageDispatcher.accept(TextMessage.of("apple.pie", of(fromHorizon("test")), "{}"));
+        messageDispatcher.accept(TextMessage.of("apple.123", of(fromHorizon("test")), "{}"));
+        messageDispatcher.accept(TextMessage.of("apple\n", of(fromHorizon("test")), "{}"));
+
+        // then
+        assertThat(keysOf(literalConsumer), contains("apple"));
+        assertThat(keysOf(quotedConsumer), contains("apple.pie"));
+        assertThat(keysOf(prefixConsumer), contains("apple", "apple.pie", "apple.123"));
+        assertThat(keysOf(regexConsumer), contains("apple.123"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldDeserializePayloadOncePerPayloadType() {
+        // given
+        TestMessageConsumer<Apple> firstAppleConsumer = testEventConsumer(".*", Apple.class);
+        TestMessageConsumer<Apple> secondAppleConsumer = testEventConsumer(".*", Apple.class);
+        TestMessageConsumer<Banana> bananaConsumer = testEventConsumer(".*", Banana.class);
+
+        MessageDispatcher messageDispatcher = new MessageDispatcher();
+        messageDispatcher.add(firstAppleConsumer);
+        messageDispatcher.add(bananaConsumer);
+        messageDispatcher.add(secondAppleConsumer);
+
+        // when
+        messageDispatcher.accept(TextMessage.of("someKey", of(fromHorizon("test")), "{}"));
+
+        // then
+        assertThat(firstAppleConsumer.getConsumedMessages().get(0).getPayload(), is(sameInstance(secondAppleConsumer.getConsumedMessages().get(0).getPayload())));
+        assertThat(bananaConsumer.getConsumedMessages().get(0).getPayload(), is(new Banana()));
+    }
+
+    @Test
+    public void shouldPassMatchingMessagesOfBatchToBatchConsumers() {
+        // given
+        final List<List<Message<String>>> batches = new ArrayList<>();
+        final List<ShardPosition> shardPositions = new ArrayList<>();
+        final BatchMessageConsumer<String> batchConsumer = new BatchMessageConsumer<String>() {
+            @Override
+            public void acceptAll(final List<Message<String>> messages, final ShardPosition shardPosition) {
+                batches.add(messages);
+                shardPositions.add(shardPosition);
+            }
+
+            @Override
+            public Class<String> payloadType() {
+                return String.class;
+            }
+
+            @Override
+            public Pattern keyPattern() {
+                return Pattern.compile("apple.*");
+            }
+        };
+        final TestMessageConsumer<String> singleMessageConsumer = testEventConsumer(".*", String.class);
+        final MessageDispatcher messageDispatcher = new MessageDispatcher(asList(batchConsumer, singleMessageConsumer));
+
+        // when
+        messageDispatcher.acceptAll(asList(
+                TextMessage.of("apple", of(fromHorizon("test")), "{}"),
+                TextMessage.of("banana", of(fromHorizon("test")), "{}"),
+                TextMessage.of("apple.pie", of(fromHorizon("test")), "{}")), fromPosition("test", "42"));
+
+        // then
+        assertThat(batches.size(), is(1));
+        assertThat(batches.get(0).stream().map(message -> message.getKey().compactionKey()).collect(toList()), contains("apple", "apple.pie"));
+        assertThat(shardPositions, contains(fromPosition("test", "42")));
+        assertThat(keysOf(singleMessageConsumer), contains("apple", "banana", "apple.pie"));
+    }
+
+    private static List<String> keysOf(final TestMessageConsumer<String> consumer) {
+        return consumer.getConsumedMessages()
+                .stream()
+                .map(message -> message.getKey().compactionKey())
+                .collect(toList());
+    }
+
     static class Apple {
         public boolean equals(Object o) {
             return o instanceof Apple;
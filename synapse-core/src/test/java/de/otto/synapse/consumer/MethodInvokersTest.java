@@ -0,0 +1,119 @@
+package de.otto.synapse.consumer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.otto.synapse.consumer.MethodInvokers.propagate;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class MethodInvokersTest {
+
+    static class TestTarget {
+        private final List<Object> invocations = new ArrayList<>();
+
+        void packagePrivateMethod(final String argument) {
+            invocations.add(argument);
+        }
+
+        private String privateMethodWithResult(final String argument) {
+            return "result of " + argument;
+        }
+
+        void methodWithTwoParameters(final List<String> first, final Integer second) {
+            invocations.add(first);
+            invocations.add(second);
+        }
+
+        void throwingChecked(final String argument) throws IOException {
+            throw new IOException("checked");
+        }
+
+        void throwingUnchecked(final String argument) {
+            throw new UnsupportedOperationException("unchecked");
+        }
+    }
+
+    private final TestTarget target = new TestTarget();
+
+    @Test
+    public void shouldInvokePackagePrivateMethod() throws Throwable {
+        // given
+        final MethodInvokers.VoidInvoker invoker = MethodInvokers.voidInvoker(target, TestTarget.class.getDeclaredMethod("packagePrivateMethod", String.class));
+
+        // when
+        invoker.invoke("foo");
+
+        // then
+        assertThat(target.invocations).containsExactly("foo");
+    }
+
+    @Test
+    public void shouldNotUseReflectionToInvokeMethod() throws NoSuchMethodException {
+        // when
+        final MethodInvokers.VoidInvoker invoker = MethodInvokers.voidInvoker(target, TestTarget.class.getDeclaredMethod("packagePrivateMethod", String.class));
+
+        // then
+        assertThat(invoker.getClass().isHidden()).isTrue();
+    }
+
+    @Test
+    public void shouldReturnResultOfPrivateMethod() throws Throwable {
+        // given
+        final MethodInvokers.Invoker invoker = MethodInvokers.invoker(target, TestTarget.class.getDeclaredMethod("privateMethodWithResult", String.class));
+
+        // when
+        final Object result = invoker.invoke("foo");
+
+        // then
+        assertThat(result).isEqualTo("result of foo");
+    }
+
+    @Test
+    public void shouldInvokeMethodWithTwoParameters() throws Throwable {
+        // given
+        final MethodInvokers.BiVoidInvoker invoker = MethodInvokers.biVoidInvoker(target, TestTarget.class.getDeclaredMethod("methodWithTwoParameters", List.class, Integer.class));
+
+        // when
+        invoker.invoke(asList("foo", "bar"), 42);
+
+        // then
+        assertThat(target.invocations).containsExactly(asList("foo", "bar"), 42);
+    }
+
+    @Test
+    public void shouldWrapCheckedExceptions() throws NoSuchMethodException {
+        // given
+        final MethodInvokers.VoidInvoker invoker = MethodInvokers.voidInvoker(target, TestTarget.class.getDeclaredMethod("throwingChecked", String.class));
+
+        // when
+        try {
+            invokeAndPropagate(invoker, "foo");
+            fail();
+        } catch (final IllegalStateException e) {
+            // then
+            assertThat(e).hasCauseInstanceOf(IOException.class);
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldRethrowUncheckedExceptions() throws NoSuchMethodException {
+        // given
+        final MethodInvokers.VoidInvoker invoker = MethodInvokers.voidInvoker(target, TestTarget.class.getDeclaredMethod("throwingUnchecked", String.class));
+
+        // when
+        invokeAndPropagate(invoker, "foo");
+    }
+
+    private static void invokeAndPropagate(final MethodInvokers.VoidInvoker invoker, final Object argument) {
+        try {
+            invoker.invoke(argument);
+        } catch (final Throwable e) {
+            throw propagate(e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package de.otto.synapse.consumer;
+
+import de.otto.synapse.channel.ShardPosition;
+import de.otto.synapse.message.Message;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class MethodInvokingBatchMessageConsumerTest {
+
+    private List<Message<String>> receivedMessages;
+    private ShardPosition receivedShardPosition;
+
+    public void validMethod(final List<Message<String>> messages) {
+        receivedMessages = messages;
+    }
+
+    public void validMethodWithShardPosition(final List<Message<String>> messages, final ShardPosition shardPosition) {
+        receivedMessages = messages;
+        receivedShardPosition = shardPosition;
+    }
+
+    public void methodWithWrongSecondParameter(final List<Message<String>> messages, final String foo) {
+        receivedMessages = messages;
+    }
+
+    public void methodWithTooManyParameters(final List<Message<String>> messages, final ShardPosition shardPosition, final String foo) {
+        receivedMessages = messages;
+    }
+
+    public void methodWithMissingListParam(final Message<String> message) {
+    }
+
+    public void failingMethod(final List<Message<String>> messages) {
+        throw new IllegalStateException("forced test exception");
+    }
+
+    @Before
+    public void setup() {
+        receivedMessages = null;
+        receivedShardPosition = null;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldInvokeMethodWithAllMessages() throws NoSuchMethodException {
+        // given
+        final Method method = MethodInvokingBatchMessageConsumerTest.class.getMethod("validMethod", List.class);
+        final MethodInvokingBatchMessageConsumer<String> consumer = new MethodInvokingBatchMessageConsumer<>(".*", String.class, this, method);
+        final List<Message<String>> messages = asList(mock(Message.class), mock(Message.class));
+        // when
+        consumer.acceptAll(messages, fromPosition("some-shard", "42"));
+        // then
+        assertThat(receivedMessages).isSameAs(messages);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldInvokeMethodWithAllMessagesAndShardPosition() throws NoSuchMethodException {
+        // given
+        final Method method = MethodInvokingBatchMessageConsumerTest.class.getMethod("validMethodWithShardPosition", List.class, ShardPosition.class);
+        final MethodInvokingBatchMessageConsumer<String> consumer = new MethodInvokingBatchMessageConsumer<>(".*", String.class, this, method);
+        final List<Message<String>> messages = asList(mock(Message.class), mock(Message.class));
+        // when
+        consumer.acceptAll(messages, fromPosition("some-shard", "42"));
+        // then
+        assertThat(receivedMessages).isSameAs(messages);
+        assertThat(receivedShardPosition).isEqualTo(fromPosition("some-shard", "42"));
+    }
+
+    @Test
+    public void shouldExposeKeyPatternAndPayloadType() throws NoSuchMethodException {
+        final Method method = MethodInvokingBatchMessageConsumerTest.class.getMethod("validMethod", List.class);
+        final MethodInvokingBatchMessageConsumer<String> consumer = new MethodInvokingBatchMessageConsumer<>("some-.*", String.class, this, method);
+        assertThat(consumer.keyPattern().pattern()).isEqualTo("some-.*");
+        assertThat(consumer.payloadType()).isEqualTo(String.class);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    @SuppressWarnings("unchecked")
+    public void shouldPropagateRuntimeExceptions() throws NoSuchMethodException {
+        final Method method = MethodInvokingBatchMessageConsumerTest.class.getMethod("failingMethod", List.class);
+        final MethodInvokingBatchMessageConsumer<String> consumer = new MethodInvokingBatchMessageConsumer<>(".*", String.class, this, method);
+        consumer.acceptAll(asList(mock(Message.class)), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailBuildingConsumerWithWrongSecondParameter() throws NoSuchMethodException {
+        final Method method = MethodInvokingBatchMessageConsumerTest.class.getMethod("methodWithWrongSecondParameter", List.class, String.class);
+        new MethodInvokingBatchMessageConsumer<>(".*", String.class, this, method);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailBuildingConsumerWithTooManyArgs() throws NoSuchMethodException {
+        final Method method = MethodInvokingBatchMessageConsumerTest.class.getMethod("methodWithTooManyParameters", List.class, ShardPosition.class, String.class);
+        new MethodInvokingBatchMessageConsumer<>(".*", String.class, this, method);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailBuildingConsumerWithMissingListArg() throws NoSuchMethodException {
+        final Method method = MethodInvokingBatchMessageConsumerTest.class.getMethod("methodWithMissingListParam", Message.class);
+        new MethodInvokingBatchMessageConsumer<>(".*", String.class, this, method);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldFailBuildingConsumerWithMissingMethod() {
+        new MethodInvokingBatchMessageConsumer<>(".*", String.class, this, null);
+    }
+
+}
@@ -10,6 +10,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import static de.otto.synapse.channel.ShardPosition.fromPosition;
 import static de.otto.synapse.message.Header.of;
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -87,6 +88,25 @@ public class StatefulMessageConsumerTest {
 
     }
 
+    @Test
+    public void shouldApplyLastMessageOfKeyInBatch() {
+        //given
+        final StatefulMessageConsumer<String, String> consumer = statefulMessageConsumer();
+        stateRepository.put("deletedKey", "foo");
+
+        //when
+        consumer.acceptAll(asList(
+                Message.message("someKey", of(fromPosition("some-shard", "1")), "first"),
+                Message.message("deletedKey", of(fromPosition("some-shard", "2")), "bar"),
+                Message.message("someKey", of(fromPosition("some-shard", "3")), "second"),
+                Message.message("deletedKey", of(fromPosition("some-shard", "4")), null)
+        ), fromPosition("some-shard", "4"));
+
+        //then
+        assertThat(stateRepository.get("someKey").get()).isEqualTo("second");
+        assertThat(stateRepository.get("deletedKey")).isEmpty();
+    }
+
     private StatefulMessageConsumer<String, String> statefulMessageConsumer() {
         return new StatefulMessageConsumer<>(".*", String.class, stateRepository, Message::getPayload);
     }
@@ -0,0 +1,72 @@
+package de.otto.synapse.eventsource;
+
+import de.otto.synapse.channel.ChannelPosition;
+import de.otto.synapse.channel.selector.MessageLog;
+import de.otto.synapse.endpoint.receiver.MessageLogReceiverEndpoint;
+import de.otto.synapse.messagestore.MessageStore;
+import de.otto.synapse.messagestore.MessageStoreFactory;
+import de.otto.synapse.state.ChronicleMapStateRepository;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+
+import static de.otto.synapse.channel.ChannelPosition.channelPosition;
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
+import static de.otto.synapse.eventsource.EventSourceCheckpoint.allOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultEventSourceBuilderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldOnlySkipSnapshotsOfCheckpointedChannels() throws Exception {
+        // given
+        final File file = new File(temporaryFolder.getRoot(), "persisted-repository.dat");
+        final ChannelPosition persistedPosition = channelPosition(fromPosition("shard-1", "42"));
+        // and a persisted repository consuming 'persisted-channel', while 'in-memory-channel' is consumed into
+        // in-memory repositories, that was closed after both channels were consumed:
+        ChronicleMapStateRepository<String> persistedRepository = ChronicleMapStateRepository.builder(String.class)
+                .withPersistedFile(file, "persisted-channel")
+                .build();
+        persistedRepository.getCheckpoint().checkpoint("persisted-channel", persistedPosition);
+        persistedRepository.getCheckpoint().checkpoint("in-memory-channel", channelPosition(fromPosition("shard-1", "4711")));
+        persistedRepository.close();
+        // and the restarted persisted repository:
+        persistedRepository = ChronicleMapStateRepository.builder(String.class)
+                .withPersistedFile(file, "persisted-channel")
+                .build();
+        final MessageStoreFactory<MessageStore> messageStoreFactory = mock(MessageStoreFactory.class);
+        when(messageStoreFactory.createMessageStoreFor("in-memory-channel")).thenReturn(mock(MessageStore.class));
+        final DefaultEventSourceBuilder builder = new DefaultEventSourceBuilder(
+                messageStoreFactory, MessageLog.class, allOf(List.of(persistedRepository.getCheckpoint())));
+
+        // when
+        builder.buildEventSource(mockMessageLog("persisted-channel"));
+        builder.buildEventSource(mockMessageLog("in-memory-channel"));
+
+        // then
+        verify(messageStoreFactory, never()).createMessageStoreFor("persisted-channel");
+        verify(messageStoreFactory).createMessageStoreFor("in-memory-channel");
+        assertThat(persistedRepository.getCheckpoint().getChannelPosition("persisted-channel"), is(Optional.of(persistedPosition)));
+        assertThat(persistedRepository.getCheckpoint().getChannelPosition("in-memory-channel"), is(Optional.empty()));
+        persistedRepository.close();
+    }
+
+    private MessageLogReceiverEndpoint mockMessageLog(final String channelName) {
+        final MessageLogReceiverEndpoint messageLog = mock(MessageLogReceiverEndpoint.class);
+        when(messageLog.getChannelName()).thenReturn(channelName);
+        return messageLog;
+    }
+}
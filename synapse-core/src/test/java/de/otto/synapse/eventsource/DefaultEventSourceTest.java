@@ -10,6 +10,7 @@ import de.otto.synapse.messagestore.MessageStore;
 import de.otto.synapse.messagestore.MessageStoreEntry;
 import org.junit.Test;
 
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -20,6 +21,8 @@ import static de.otto.synapse.channel.ShardPosition.fromPosition;
 import static de.otto.synapse.channel.StopCondition.shutdown;
 import static de.otto.synapse.messagestore.MessageStores.emptyMessageStore;
 import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
@@ -55,6 +58,30 @@ public class DefaultEventSourceTest {
         verify(messageLog).consumeUntil(fromHorizon(), shutdown());
     }
 
+    @Test
+    public void shouldTerminateDispatcherThreadsIfMessageStoreFails() throws ExecutionException, InterruptedException {
+        // given
+        final MessageStore messageStore = mock(MessageStore.class);
+        when(messageStore.isCompacting()).thenReturn(true);
+        when(messageStore.stream()).thenReturn(Stream.concat(
+                Stream.of(MessageStoreEntry.of("some-channel", TextMessage.of(Key.of("1"), "{}"))),
+                Stream.<MessageStoreEntry>generate(() -> {
+                    throw new IllegalStateException("boom");
+                })));
+        final MessageLogReceiverEndpoint messageLog = mockMessageLogReceiverEndpoint();
+        final DefaultEventSource eventSource = new DefaultEventSource(messageStore, messageLog);
+
+        // when
+        eventSource.consume().get();
+
+        // then
+        verify(messageLog, never()).consumeUntil(any(ChannelPosition.class), any(Predicate.class));
+        await()
+                .atMost(1, SECONDS)
+                .until(() -> Thread.getAllStackTraces().keySet().stream()
+                        .noneMatch(thread -> thread.getName().startsWith("synapse-messagestore-dispatcher-")));
+    }
+
     @Test
     public void shouldInterceptMessagesFromMessageStore() throws ExecutionException, InterruptedException {
         // given
@@ -201,6 +228,27 @@ public class DefaultEventSourceTest {
         assertThat(eventSource.isStopping(), is(true));
     }
 
+    @Test
+    public void shouldResumeFromCheckpointWithoutReadingMessageStore() throws ExecutionException, InterruptedException {
+        // given
+        final ChannelPosition checkpointPosition = channelPosition(fromPosition("shard1", "4711"));
+        final ChannelPosition latestPosition = channelPosition(fromPosition("shard1", "4712"));
+        final EventSourceCheckpoint checkpoint = mock(EventSourceCheckpoint.class);
+        when(checkpoint.isCheckpointing("some-channel")).thenReturn(true);
+        when(checkpoint.getChannelPosition("some-channel")).thenReturn(Optional.of(checkpointPosition));
+        final MessageStore messageStore = mockMessageStore(fromHorizon());
+        final MessageLogReceiverEndpoint messageLog = mockMessageLogReceiverEndpoint(latestPosition);
+        final DefaultEventSource eventSource = new DefaultEventSource(messageStore, messageLog, checkpoint);
+
+        // when
+        eventSource.consume().get();
+
+        // then
+        verify(messageStore, never()).stream();
+        verify(messageLog).consumeUntil(checkpointPosition, shutdown());
+        verify(checkpoint).checkpoint("some-channel", latestPosition);
+    }
+
     private MessageLogReceiverEndpoint mockMessageLogReceiverEndpoint() {
         final MessageLogReceiverEndpoint messageLog = mock(MessageLogReceiverEndpoint.class);
         when(messageLog.getChannelName()).thenReturn("some-channel");
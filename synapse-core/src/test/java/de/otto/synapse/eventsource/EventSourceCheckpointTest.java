@@ -0,0 +1,58 @@
+package de.otto.synapse.eventsource;
+
+import de.otto.synapse.channel.ChannelPosition;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static de.otto.synapse.channel.ChannelPosition.channelPosition;
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
+import static de.otto.synapse.eventsource.EventSourceCheckpoint.allOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EventSourceCheckpointTest {
+
+    private static final ChannelPosition SOME_POSITION = channelPosition(fromPosition("shard-1", "42"));
+    private static final ChannelPosition OTHER_POSITION = channelPosition(fromPosition("shard-1", "4711"));
+
+    @Test
+    public void shouldOnlyUseCheckpointsOfTheChannel() {
+        // given
+        final EventSourceCheckpoint first = checkpoint("first-channel", SOME_POSITION);
+        final EventSourceCheckpoint second = checkpoint("second-channel", OTHER_POSITION);
+        // when
+        final EventSourceCheckpoint checkpoint = allOf(List.of(first, second));
+        checkpoint.checkpoint("first-channel", OTHER_POSITION);
+        // then
+        assertThat(checkpoint.getChannelPosition("first-channel"), is(Optional.of(SOME_POSITION)));
+        assertThat(checkpoint.getChannelPosition("second-channel"), is(Optional.of(OTHER_POSITION)));
+        assertThat(checkpoint.getChannelPosition("third-channel"), is(Optional.empty()));
+        verify(first).checkpoint("first-channel", OTHER_POSITION);
+        verify(second, never()).checkpoint("first-channel", OTHER_POSITION);
+    }
+
+    @Test
+    public void shouldNotRestoreDifferentPositionsOfTheSameChannel() {
+        // given
+        final EventSourceCheckpoint checkpoint = allOf(List.of(
+                checkpoint("some-channel", SOME_POSITION),
+                checkpoint("some-channel", OTHER_POSITION)));
+        // when
+        final Optional<ChannelPosition> channelPosition = checkpoint.getChannelPosition("some-channel");
+        // then
+        assertThat(channelPosition, is(Optional.empty()));
+    }
+
+    private EventSourceCheckpoint checkpoint(final String channelName, final ChannelPosition channelPosition) {
+        final EventSourceCheckpoint checkpoint = mock(EventSourceCheckpoint.class);
+        when(checkpoint.isCheckpointing(channelName)).thenReturn(true);
+        when(checkpoint.getChannelPosition(channelName)).thenReturn(Optional.of(channelPosition));
+        return checkpoint;
+    }
+}
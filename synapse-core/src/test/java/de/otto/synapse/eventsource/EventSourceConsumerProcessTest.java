@@ -1,5 +1,6 @@
 package de.otto.synapse.eventsource;
 
+import de.otto.synapse.channel.ChannelPosition;
 import de.otto.synapse.channel.InMemoryChannel;
 import de.otto.synapse.consumer.TestMessageConsumer;
 import de.otto.synapse.endpoint.MessageInterceptorRegistry;
@@ -7,12 +8,15 @@ import de.otto.synapse.message.Key;
 import de.otto.synapse.message.TextMessage;
 import org.junit.Test;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static de.otto.synapse.consumer.TestMessageConsumer.testEventConsumer;
 import static de.otto.synapse.messagestore.MessageStores.emptyMessageStore;
 import static java.util.Collections.singletonList;
 import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.*;
 
 public class EventSourceConsumerProcessTest {
@@ -43,6 +47,47 @@ public class EventSourceConsumerProcessTest {
         verify(eventSource).stop();
     }
 
+    @Test(timeout = 5000)
+    public void shouldNotWaitForEventSourcesWithoutCheckpoint() {
+        // given
+        final EventSource eventSource = mock(EventSource.class);
+        when(eventSource.getChannelName()).thenReturn("some-channel");
+        when(eventSource.consume()).thenReturn(new CompletableFuture<>());
+        final EventSourceCheckpoint checkpoint = mock(EventSourceCheckpoint.class);
+        when(checkpoint.isCheckpointing("some-channel")).thenReturn(false);
+        final EventSourceConsumerProcess process = new EventSourceConsumerProcess(singletonList(eventSource), checkpoint);
+        process.start();
+
+        // when
+        process.stop();
+
+        // then
+        verify(eventSource).stop();
+    }
+
+    @Test
+    public void shouldWaitForCheckpointedEventSources() {
+        // given
+        final CompletableFuture<ChannelPosition> consumption = new CompletableFuture<>();
+        final EventSource eventSource = mock(EventSource.class);
+        when(eventSource.getChannelName()).thenReturn("some-channel");
+        when(eventSource.consume()).thenReturn(consumption);
+        doAnswer(invocation -> CompletableFuture.runAsync(
+                () -> consumption.complete(ChannelPosition.fromHorizon()),
+                CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS))
+        ).when(eventSource).stop();
+        final EventSourceCheckpoint checkpoint = mock(EventSourceCheckpoint.class);
+        when(checkpoint.isCheckpointing("some-channel")).thenReturn(true);
+        final EventSourceConsumerProcess process = new EventSourceConsumerProcess(singletonList(eventSource), checkpoint);
+        process.start();
+
+        // when
+        process.stop();
+
+        // then
+        assertThat(consumption.isDone(), is(true));
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void shouldCallConsumeOnEventSource() throws InterruptedException {
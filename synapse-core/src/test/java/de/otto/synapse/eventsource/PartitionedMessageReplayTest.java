@@ -0,0 +1,140 @@
+package de.otto.synapse.eventsource;
+
+import de.otto.synapse.message.Key;
+import de.otto.synapse.message.TextMessage;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import static de.otto.synapse.eventsource.PartitionedMessageReplay.partitionedMessageReplay;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class PartitionedMessageReplayTest {
+
+    @Test
+    public void shouldDispatchAllMessages() throws InterruptedException {
+        // given
+        final List<TextMessage> received = new CopyOnWriteArrayList<>();
+        final PartitionedMessageReplay replay = new PartitionedMessageReplay(4, 3, 2, Executors.defaultThreadFactory(), null, received::add);
+
+        // when
+        for (int i = 0; i < 1000; ++i) {
+            replay.submit(TextMessage.of(Key.of(String.valueOf(i)), "{}"));
+        }
+        replay.awaitCompletion();
+
+        // then
+        assertThat(received.size(), is(1000));
+    }
+
+    @Test
+    public void shouldKeepOrderingOfMessagesWithSamePartitionKey() throws InterruptedException {
+        // given
+        final Map<String, List<String>> received = new ConcurrentHashMap<>();
+        final PartitionedMessageReplay replay = partitionedMessageReplay(4, null, message -> received
+                .computeIfAbsent(message.getKey().partitionKey(), k -> new CopyOnWriteArrayList<>())
+                .add(message.getPayload()));
+
+        // when
+        for (int i = 0; i < 10_000; ++i) {
+            replay.submit(TextMessage.of(Key.of("key-" + (i % 10), "compaction-" + i), String.valueOf(i / 10)));
+        }
+        replay.awaitCompletion();
+
+        // then
+        assertThat(received.size(), is(10));
+        received.values().forEach(payloads -> {
+            assertThat(payloads.size(), is(1000));
+            for (int i = 0; i < payloads.size(); ++i) {
+                assertThat(payloads.get(i), is(String.valueOf(i)));
+            }
+        });
+    }
+
+    @Test
+    public void shouldAssignSamePartitionKeyToSameLane() throws InterruptedException {
+        // given
+        final PartitionedMessageReplay replay = new PartitionedMessageReplay(8, 1, 1, Executors.defaultThreadFactory(), null, message -> {});
+
+        // when
+        final int lane = replay.laneOf(Key.of("some-entity", "first"));
+
+        // then
+        assertThat(replay.laneOf(Key.of("some-entity", "second")), is(lane));
+        assertThat(replay.laneOf(Key.of("some-entity")), is(lane));
+        replay.awaitCompletion();
+    }
+
+    @Test
+    public void shouldContinueAfterFailingMessage() throws InterruptedException {
+        // given
+        final List<String> received = new CopyOnWriteArrayList<>();
+        final PartitionedMessageReplay replay = partitionedMessageReplay(1, null, message -> {
+            if (message.getPayload().equals("fail")) {
+                throw new IllegalStateException("boom");
+            }
+            received.add(message.getPayload());
+        });
+
+        // when
+        replay.submit(TextMessage.of(Key.of("1"), "first"));
+        replay.submit(TextMessage.of(Key.of("1"), "fail"));
+        replay.submit(TextMessage.of(Key.of("1"), "last"));
+        replay.awaitCompletion();
+
+        // then
+        assertThat(received, contains("first", "last"));
+    }
+
+    @Test(timeout = 5000)
+    public void shouldTerminateLanesOnShutdown() throws InterruptedException {
+        // given
+        final List<Thread> threads = new CopyOnWriteArrayList<>();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            threads.add(thread);
+            return thread;
+        };
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final PartitionedMessageReplay replay = new PartitionedMessageReplay(2, 1, 1, threadFactory, null, message -> {
+            blocked.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        replay.submit(TextMessage.of(Key.of("1"), "first"));
+        replay.submit(TextMessage.of(Key.of("1"), "second"));
+        blocked.await();
+
+        // when
+        replay.shutdown();
+
+        // then
+        assertThat(threads.size(), is(2));
+        threads.forEach(thread -> assertThat(thread.isAlive(), is(false)));
+    }
+
+    @Test
+    public void shouldUseDaemonThreadsByDefault() throws InterruptedException {
+        // given
+        final List<Boolean> daemon = new CopyOnWriteArrayList<>();
+        final PartitionedMessageReplay replay = partitionedMessageReplay(1, null, message -> daemon.add(Thread.currentThread().isDaemon()));
+
+        // when
+        replay.submit(TextMessage.of(Key.of("1"), "first"));
+        replay.awaitCompletion();
+
+        // then
+        assertThat(daemon, contains(true));
+    }
+}
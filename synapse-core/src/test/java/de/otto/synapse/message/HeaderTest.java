@@ -4,8 +4,12 @@ import com.google.common.collect.ImmutableMap;
 import org.junit.Test;
 
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
+import static de.otto.synapse.message.Header.copyOf;
 import static de.otto.synapse.message.Header.of;
 import static java.time.Instant.now;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -44,4 +48,57 @@ public class HeaderTest {
         final Header header = of(ImmutableMap.of());
         assertThat(header.getShardPosition(), is(Optional.empty()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldAddAttributesToCopiedHeader() {
+        // given
+        final Header header = of(fromPosition("some-shard", "42"), ImmutableMap.of("x", "foo", "y", "bar"));
+
+        // when
+        final Header copy = copyOf(header)
+                .withAttribute("y", "changed")
+                .withAttribute("z", "new")
+                .build();
+
+        // then
+        assertThat(copy.getAll(), is(ImmutableMap.of("x", "foo", "y", "changed", "z", "new")));
+        assertThat(copy.getAsString("y"), is("changed"));
+        assertThat(copy.getShardPosition(), is(Optional.of(fromPosition("some-shard", "42"))));
+        assertThat(copy, is(Header.builder()
+                .withShardPosition(fromPosition("some-shard", "42"))
+                .withAttributes(ImmutableMap.of("x", "foo", "y", "changed", "z", "new"))
+                .build()));
+        assertThat(header.getAll(), is(ImmutableMap.of("x", "foo", "y", "bar")));
+    }
+
+    @Test
+    public void shouldIterateOverAttributesOfCopiedHeaders() {
+        // given
+        Header header = of(ImmutableMap.of("a", "0"));
+        for (int i = 1; i < 10; i++) {
+            header = copyOf(header).withAttribute("a", String.valueOf(i)).withAttribute("b" + i, "x").build();
+        }
+
+        // when
+        final Map<String, String> attributes = new HashMap<>();
+        header.forEach(attributes::put);
+
+        // then
+        assertThat(attributes, is(header.getAll()));
+        assertThat(attributes.get("a"), is("9"));
+        assertThat(attributes.size(), is(10));
+    }
+
+    @Test
+    public void shouldReturnInstantOfCopiedHeader() {
+        // given
+        final Instant time = now();
+        final Header header = copyOf(Header.builder().withAttribute("ts", time).build())
+                .withAttribute("other", "foo")
+                .build();
+
+        // then
+        assertThat(header.getAsInstant("ts"), is(time));
+        assertThat(header.getAsInstant("unknown", Instant.MIN), is(Instant.MIN));
+    }
+}
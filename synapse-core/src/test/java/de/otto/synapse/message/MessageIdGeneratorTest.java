@@ -0,0 +1,51 @@
+package de.otto.synapse.message;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static java.time.ZoneOffset.UTC;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class MessageIdGeneratorTest {
+
+    @Test
+    public void shouldGenerateMonotonicIdsWithinSameMillisecond() {
+        // given
+        final MessageIdGenerator generator = new MessageIdGenerator(Clock.fixed(Instant.now(), UTC));
+
+        // when
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(generator.nextId());
+        }
+
+        // then
+        assertThat(new HashSet<>(ids).size(), is(10_000));
+        for (int i = 1; i < ids.size(); i++) {
+            assertThat(UUID.fromString(ids.get(i - 1)).compareTo(UUID.fromString(ids.get(i))), is(lessThan(0)));
+        }
+    }
+
+    @Test
+    public void shouldGenerateVersion7Uuids() {
+        // given
+        final Instant now = Instant.parse("2024-01-01T00:00:00.123Z");
+        final MessageIdGenerator generator = new MessageIdGenerator(Clock.fixed(now, UTC));
+
+        // when
+        final UUID uuid = UUID.fromString(generator.nextId());
+
+        // then
+        assertThat(uuid.version(), is(7));
+        assertThat(uuid.variant(), is(2));
+        assertThat(uuid.getMostSignificantBits() >>> 16, is(now.toEpochMilli()));
+    }
+}
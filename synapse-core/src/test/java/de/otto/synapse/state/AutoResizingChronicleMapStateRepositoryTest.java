@@ -0,0 +1,109 @@
+package de.otto.synapse.state;
+
+import de.otto.synapse.state.ChronicleMapStateRepositoryTest.SomePojo;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class AutoResizingChronicleMapStateRepositoryTest {
+
+    private AutoResizingChronicleMapStateRepository<SomePojo> repository;
+
+    @After
+    public void tearDown() throws Exception {
+        if (repository != null) {
+            repository.close();
+        }
+    }
+
+    @Test
+    public void shouldMigrateToLargerMapIfFillRatioIsExceeded() {
+        // given
+        repository = AutoResizingChronicleMapStateRepository.builder(SomePojo.class)
+                .withEntries(1_000)
+                .withMaxFillRatio(0.5)
+                .withCheckInterval(1)
+                .build();
+        // when
+        for (int i = 0; i < 800; i++) {
+            repository.put("key-" + i, new SomePojo("value-" + i, i));
+        }
+        await().atMost(10, SECONDS).until(() -> repository.getMigrationCount() >= 1 && !repository.isMigrating());
+        // then
+        assertThat(repository.getEntries(), is(2_000L));
+        assertThat(repository.size(), is(800L));
+        for (int i = 0; i < 800; i++) {
+            assertThat(repository.get("key-" + i), is(Optional.of(new SomePojo("value-" + i, i))));
+        }
+    }
+
+    @Test
+    public void shouldKeepWritesDuringMigration() throws InterruptedException {
+        // given
+        final CountDownLatch migrationStarted = new CountDownLatch(1);
+        final CountDownLatch continueMigration = new CountDownLatch(1);
+        final AtomicInteger createdMaps = new AtomicInteger();
+        final AutoResizingChronicleMapStateRepository.Builder<SomePojo> builder = AutoResizingChronicleMapStateRepository.builder(SomePojo.class)
+                .withEntries(1_000)
+                .withMaxFillRatio(0.5)
+                .withCheckInterval(1);
+        repository = builder
+                .withMapFactory(sizing -> {
+                    // the first map is the initial map, the second one is the target of the migration:
+                    if (createdMaps.incrementAndGet() > 1) {
+                        migrationStarted.countDown();
+                        awaitUninterruptibly(continueMigration);
+                    }
+                    return builder.createChronicleMap(sizing);
+                })
+                .build();
+        for (int i = 0; i < 600; i++) {
+            repository.put("key-" + i, new SomePojo("value-" + i, i));
+        }
+        assertThat(migrationStarted.await(10, SECONDS), is(true));
+        assertThat(repository.isMigrating(), is(true));
+        // when the repository is modified while the migration is blocked
+        for (int i = 0; i < 600; i++) {
+            repository.compute("key-" + i, (key, previous) -> new SomePojo(previous.get().someString, previous.get().someInteger + 1));
+        }
+        repository.remove("key-0");
+        // and while the entries are copied
+        continueMigration.countDown();
+        for (int i = 1; i < 600; i++) {
+            repository.compute("key-" + i, (key, previous) -> new SomePojo(previous.get().someString, previous.get().someInteger + 1));
+        }
+        await().atMost(10, SECONDS).until(() -> repository.getMigrationCount() >= 1 && !repository.isMigrating());
+        // then
+        assertThat(repository.getEntries(), is(2_000L));
+        assertThat(repository.size(), is(599L));
+        assertThat(repository.get("key-0"), is(Optional.empty()));
+        for (int i = 1; i < 600; i++) {
+            assertThat(repository.get("key-" + i), is(Optional.of(new SomePojo("value-" + i, i + 2))));
+        }
+    }
+
+    @Test
+    public void shouldSampleAverageSizes() {
+        // given
+        repository = AutoResizingChronicleMapStateRepository.builder(SomePojo.class)
+                .withStateCodec(new ChronicleMapStateRepositoryTest.SomePojoCodec())
+                .build();
+        // when
+        repository.put("0123456789", new SomePojo("0123456789", 42));
+        // then
+        assertThat(repository.getAverageKeySize(), is(greaterThanOrEqualTo(10.0)));
+        // two bytes length of the string, ten bytes of the string, four bytes of the int:
+        assertThat(repository.getAverageValueSize(), is(16.0));
+    }
+
+}
@@ -0,0 +1,94 @@
+package de.otto.synapse.state;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CachingStateRepositoryTest {
+
+    @Test
+    public void shouldServeRepeatedReadsFromCache() {
+        // given
+        final StateRepository<String> delegate = spy(new ConcurrentMapStateRepository<String>("test"));
+        delegate.put("someKey", "some value");
+        final CachingStateRepository<String> repository = new CachingStateRepository<>(delegate, 100);
+        // when
+        repository.get("someKey");
+        final Optional<String> result = repository.get("someKey");
+        // then
+        assertThat(result, is(Optional.of("some value")));
+        verify(delegate, times(1)).get("someKey");
+        assertThat(repository.getHitCount(), is(1L));
+        assertThat(repository.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotCacheMissingValues() {
+        // given
+        final CachingStateRepository<String> repository = new CachingStateRepository<>(new ConcurrentMapStateRepository<>("test"), 100);
+        // when
+        repository.get("someKey");
+        repository.put("someKey", "some value");
+        // then
+        assertThat(repository.get("someKey"), is(Optional.of("some value")));
+    }
+
+    @Test
+    public void shouldInvalidateCachedValuesOnModification() {
+        // given
+        final CachingStateRepository<String> repository = new CachingStateRepository<>(new ConcurrentMapStateRepository<>("test"), 100);
+        repository.put("someKey", "A");
+        repository.get("someKey");
+        // when
+        repository.put("someKey", "B");
+        // then
+        assertThat(repository.get("someKey"), is(Optional.of("B")));
+
+        // when
+        repository.compute("someKey", (key, previous) -> previous.get() + "C");
+        // then
+        assertThat(repository.get("someKey"), is(Optional.of("BC")));
+
+        // when
+        repository.remove("someKey");
+        // then
+        assertThat(repository.get("someKey"), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldInvalidateCachedValuesOnBulkModification() {
+        // given
+        final CachingStateRepository<String> repository = new CachingStateRepository<>(new ConcurrentMapStateRepository<>("test"), 100);
+        repository.putAll(Map.of("A", "1", "B", "2"));
+        repository.get("A");
+        repository.get("B");
+        // when
+        repository.putAll(Map.of("A", "3"));
+        repository.removeAll(asList("B"));
+        // then
+        assertThat(repository.get("A"), is(Optional.of("3")));
+        assertThat(repository.get("B"), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldGetAllFromCacheAndDelegate() {
+        // given
+        final StateRepository<String> delegate = spy(new ConcurrentMapStateRepository<String>("test"));
+        delegate.putAll(Map.of("A", "1", "B", "2"));
+        final CachingStateRepository<String> repository = new CachingStateRepository<>(delegate, 100);
+        repository.get("A");
+        // when
+        final Map<String, String> result = repository.getAll(asList("A", "B", "C"));
+        // then
+        assertThat(result, is(Map.of("A", "1", "B", "2")));
+        verify(delegate).getAll(asList("B", "C"));
+    }
+}
@@ -1,21 +1,39 @@
 package de.otto.synapse.state;
 
+import de.otto.synapse.channel.ChannelPosition;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
-
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import static de.otto.synapse.channel.ChannelPosition.channelPosition;
+import static de.otto.synapse.channel.ShardPosition.fromHorizon;
+import static de.otto.synapse.channel.ShardPosition.fromPosition;
 import static de.otto.synapse.state.ChronicleMapStateRepository.builder;
+import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
 public class ChronicleMapStateRepositoryTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void shouldRetrieveValueAfterPut() {
         // given
@@ -76,6 +94,126 @@ public class ChronicleMapStateRepositoryTest {
         assertThat(resultKeys, containsInAnyOrder("someKeyA", "someKeyB", "someKeyC"));
     }
 
+    @Test
+    public void shouldPutAndRemoveAllEntries() {
+        // given
+        ChronicleMapStateRepository<SomePojo> repository = builder(SomePojo.class).build();
+        repository.put("someKeyA", new SomePojo("A", 1));
+        repository.put("someKeyC", new SomePojo("C", 1));
+        final Map<String, SomePojo> entries = new LinkedHashMap<>();
+        entries.put("someKeyA", new SomePojo("A", 2));
+        entries.put("someKeyB", new SomePojo("B", 1));
+        // when
+        repository.putAll(entries);
+        repository.removeAll(asList("someKeyC", "someUnknownKey"));
+        // then
+        assertThat(repository.size(), is(2L));
+        assertThat(repository.getAll(asList("someKeyA", "someKeyB", "someKeyC")), is(entries));
+    }
+
+    @Test
+    public void shouldIgnoreRemoveAllOnClosedRepository() throws Exception {
+        // given
+        final ChronicleMapStateRepository<SomePojo> repository = builder(SomePojo.class).build();
+        repository.put("someKey", new SomePojo("A", 1));
+        repository.close();
+        // when
+        repository.removeAll(asList("someKey", "otherKey"));
+        // then
+        assertThat(repository.size(), is(0L));
+    }
+
+    @Test
+    public void shouldStoreValuesUsingSmileCodec() {
+        // given
+        ChronicleMapStateRepository<SomePojo> repository = builder(SomePojo.class)
+                .withStateCodec(StateCodec.smile(SomePojo.class))
+                .build();
+        // when
+        repository.put("someKeyA", new SomePojo("A", 1));
+        repository.compute("someKeyA", (key, previous) -> new SomePojo(previous.get().someString + "B", 2));
+        // then
+        assertThat(repository.get("someKeyA"), is(Optional.of(new SomePojo("AB", 2))));
+    }
+
+    @Test
+    public void shouldStoreValuesUsingCustomCodec() {
+        // given
+        ChronicleMapStateRepository<SomePojo> repository = builder(SomePojo.class)
+                .withStateCodec(new SomePojoCodec())
+                .build();
+        // when
+        repository.put("someKeyA", new SomePojo("A", 1));
+        repository.put("someKeyB", new SomePojo("B".repeat(10_000), 2));
+        // then
+        assertThat(repository.get("someKeyA"), is(Optional.of(new SomePojo("A", 1))));
+        assertThat(repository.get("someKeyB"), is(Optional.of(new SomePojo("B".repeat(10_000), 2))));
+    }
+
+    @Test
+    public void shouldRestorePersistedValuesAndCheckpoint() throws Exception {
+        // given
+        final File file = new File(temporaryFolder.getRoot(), "some-repository.dat");
+        final ChannelPosition channelPosition = channelPosition(fromPosition("shard-1", "42"), fromHorizon("shard-2"));
+        ChronicleMapStateRepository<SomePojo> repository = builder(SomePojo.class).withPersistedFile(file, "some-channel").build();
+        repository.put("someKey", new SomePojo("A", 1));
+        repository.getCheckpoint().checkpoint("some-channel", channelPosition);
+        repository.close();
+        // when
+        repository = builder(SomePojo.class).withPersistedFile(file, "some-channel").build();
+        // then
+        assertThat(repository.get("someKey"), is(Optional.of(new SomePojo("A", 1))));
+        assertThat(repository.getCheckpoint().getChannelPosition("some-channel"), is(Optional.of(channelPosition)));
+        assertThat(repository.getCheckpoint().getChannelPosition("other-channel"), is(Optional.empty()));
+        repository.close();
+    }
+
+    @Test
+    public void shouldDiscardPersistedValuesWithoutCheckpoint() throws Exception {
+        // given
+        final File file = new File(temporaryFolder.getRoot(), "some-repository.dat");
+        ChronicleMapStateRepository<SomePojo> repository = builder(SomePojo.class).withPersistedFile(file, "some-channel").build();
+        repository.put("someKey", new SomePojo("A", 1));
+        repository.getCheckpoint().checkpoint("some-channel", channelPosition(fromPosition("shard-1", "42")));
+        repository.close();
+        // when
+        repository = builder(SomePojo.class).withPersistedFile(file, "some-channel").build();
+        repository.close();
+        repository = builder(SomePojo.class).withPersistedFile(file, "some-channel").build();
+        // then
+        assertThat(repository.size(), is(0L));
+        assertThat(repository.getCheckpoint().getChannelPosition("some-channel"), is(Optional.empty()));
+        repository.close();
+    }
+
+    @Test
+    public void shouldReleaseCodecOfPersistedRepositoryOnClose() throws Exception {
+        // given
+        final File file = new File(temporaryFolder.getRoot(), "some-repository.dat");
+        final ChronicleMapStateRepository<SomePojo> repository = builder(SomePojo.class).withPersistedFile(file, "some-channel").build();
+        assertThat(ChronicleMapBytesMarshaller.isCodecRegistered(file.getAbsolutePath()), is(true));
+        // when
+        repository.close();
+        // then
+        assertThat(ChronicleMapBytesMarshaller.isCodecRegistered(file.getAbsolutePath()), is(false));
+    }
+
+    static class SomePojoCodec implements StateCodec<SomePojo> {
+        @Override
+        public void encode(final SomePojo value, final OutputStream out) throws IOException {
+            final DataOutputStream dataOut = new DataOutputStream(out);
+            dataOut.writeUTF(value.someString);
+            dataOut.writeInt(value.someInteger);
+            dataOut.flush();
+        }
+
+        @Override
+        public SomePojo decode(final byte[] bytes, final int offset, final int length) throws IOException {
+            final DataInputStream dataIn = new DataInputStream(new ByteArrayInputStream(bytes, offset, length));
+            return new SomePojo(dataIn.readUTF(), dataIn.readInt());
+        }
+    }
+
     public static class SomePojo {
 
         public String someString;
@@ -9,8 +9,15 @@ import org.junit.Test;
 import org.slf4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.google.common.collect.Iterables.getFirst;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.dizitart.no2.filters.Filters.eq;
 import static de.otto.synapse.state.NitriteStateRepository.builder;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.core.Is.is;
@@ -175,6 +182,102 @@ public class NitriteStateRepositoryTest {
         assertEquals(repository.get("someKeyB").get().someInteger, 42);
     }
 
+    @Test
+    public void shouldPutAllEntries() {
+        // given
+        repository.put("someKeyA", new SomePojo("A", 1));
+        final Map<String, SomePojo> entries = new LinkedHashMap<>();
+        entries.put("someKeyA", new SomePojo("A", 2));
+        entries.put("someKeyB", new SomePojo("B", 1));
+        // when
+        repository.putAll(entries);
+        // then
+        assertEquals(repository.size(), 2L);
+        assertThat(repository.getAll(asList("someKeyA", "someKeyB", "someUnknownKey")), is(entries));
+    }
+
+    @Test
+    public void shouldComputeAndRemoveAllEntries() {
+        // given
+        repository.put("someKeyA", new SomePojo("A", 1));
+        repository.put("someKeyB", new SomePojo("B", 1));
+        repository.put("someKeyC", new SomePojo("C", 1));
+        // when
+        repository.computeAll(asList("someKeyA", "someKeyB", "someKeyD"), (key, value) -> key.equals("someKeyB")
+                ? null
+                : new SomePojo(key, value.map(v -> v.someInteger + 1).orElse(42)));
+        repository.removeAll(singletonList("someKeyC"));
+        // then
+        assertThat(repository.keySet(), containsInAnyOrder("someKeyA", "someKeyD"));
+        assertEquals(repository.get("someKeyA").get().someInteger, 2);
+        assertEquals(repository.get("someKeyD").get().someInteger, 42);
+    }
+
+    @Test
+    public void shouldComputeDuplicateKeysSequentially() {
+        // given
+        repository.put("someKeyA", new SomePojo("A", 1));
+        // when
+        repository.computeAll(asList("someKeyA", "someKeyA", "someKeyB", "someKeyB"), (key, value) ->
+                new SomePojo(key, value.map(v -> v.someInteger + 1).orElse(42)));
+        // then
+        assertThat(repository.keySet(), containsInAnyOrder("someKeyA", "someKeyB"));
+        assertEquals(repository.get("someKeyA").get().someInteger, 3);
+        assertEquals(repository.get("someKeyB").get().someInteger, 43);
+    }
+
+    @Test
+    public void shouldReplaceExistingEntryOnPut() {
+        // given
+        repository.put("someKey", new SomePojo("A", 1));
+        // when
+        final Optional<SomePojo> previous = repository.put("someKey", new SomePojo("B", 2));
+        // then
+        assertThat(previous, is(Optional.of(new SomePojo("A", 1))));
+        assertThat(repository.get("someKey"), is(Optional.of(new SomePojo("B", 2))));
+        assertEquals(1, repository.size());
+    }
+
+    @Test
+    public void shouldStreamProjectionsOfMatchingValues() {
+        // given
+        repository.put("someKeyA", new SomePojo("A", 1));
+        repository.put("someKeyB", new SomePojo("B", 1));
+        repository.put("someKeyC", new SomePojo("C", 2));
+        // when
+        final List<String> result = repository.streamBy(eq("someInteger", 1), SomeProjection.class, "someString")
+                .map(projection -> projection.someString)
+                .collect(toList());
+        // then
+        assertThat(result, containsInAnyOrder("A", "B"));
+    }
+
+    @Test
+    public void shouldPutConcurrently() throws Exception {
+        // given
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        final List<Future<?>> futures = new ArrayList<>();
+        // when
+        for (int thread = 0; thread < 4; thread++) {
+            final int shard = thread;
+            futures.add(executorService.submit(() -> {
+                for (int i = 0; i < 250; i++) {
+                    repository.compute("someKey" + (i % 10), (key, previous) -> new SomePojo(key, previous.map(p -> p.someInteger + 1).orElse(1)));
+                    repository.put("shard" + shard + "-" + i, new SomePojo("s" + i, i));
+                }
+            }));
+        }
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+        // then
+        assertEquals(1010, repository.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(100, repository.get("someKey" + i).get().someInteger);
+        }
+    }
+
     @Test
     @Ignore
     public void performance() {
@@ -190,6 +293,11 @@ public class NitriteStateRepositoryTest {
         LOG.info("Retrieved " + keys.size() + " keys");
     }
 
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class SomeProjection {
+        public String someString;
+    }
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class SomePojo {
 
@@ -6,11 +6,13 @@ import de.otto.synapse.message.Header;
 import de.otto.synapse.message.Key;
 import de.otto.synapse.message.Message;
 import de.otto.synapse.message.TextMessage;
+import de.otto.synapse.message.Utf8TextMessage;
 import org.junit.Assert;
 import org.junit.Test;
 
 import static com.google.common.collect.ImmutableBiMap.of;
 import static de.otto.synapse.message.Key.NO_KEY;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.is;
 
@@ -150,4 +152,55 @@ public class AbstractTextDecoderTest {
         Assert.assertThat(transformed.getKey(), is(message.getKey()));
         Assert.assertThat(transformed.getPayload(), is(message.getPayload()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldDecodeV2FormatFromBytesWithoutCopyingPayload() {
+        final String body = "{\"_synapse_msg_format\":\"v2\","
+                + "\"_synapse_msg_key\":{\"partitionKey\":\"p1\",\"compactionKey\":\"p2\"},"
+                + "\"_synapse_msg_headers\":{\"attr\":\"value\"},"
+                + "\"_synapse_msg_payload\": { \"some\" : \"payload\" } }";
+
+        final TextMessage message = decoder.decode(NO_KEY, Header.of(), body.getBytes(UTF_8));
+
+        assertThat(message).isInstanceOf(Utf8TextMessage.class);
+        assertThat(UTF_8.decode(((Utf8TextMessage) message).getPayloadBytes()).toString()).isEqualTo("{ \"some\" : \"payload\" }");
+        assertThat(message).isEqualTo(decoder.decode(NO_KEY, Header.of(), body));
+        assertThat(message.getPayload()).isEqualTo("{\"some\":\"payload\"}");
+        assertThat(message.getKey()).isEqualTo(Key.of("p1", "p2"));
+        assertThat(message.getHeader().getAsString("attr")).isEqualTo("value");
+    }
+
+    @Test
+    public void shouldDecodeV2FormatWithArrayPayloadFromBytesAndStringsAlike() {
+        final String body = "{\"_synapse_msg_format\":\"v2\","
+                + "\"_synapse_msg_headers\":{},"
+                + "\"_synapse_msg_payload\": [ {\"some\" : \"payload\"}, 42 ] }";
+
+        final TextMessage fromBytes = decoder.decode(NO_KEY, Header.of(), body.getBytes(UTF_8));
+        final TextMessage fromString = decoder.decode(NO_KEY, Header.of(), body);
+
+        assertThat(fromString.getPayload()).isEqualTo("[{\"some\":\"payload\"},42]");
+        assertThat(fromBytes.getPayload()).isEqualTo(fromString.getPayload());
+        assertThat(fromBytes).isEqualTo(fromString);
+    }
+
+    @Test
+    public void shouldDecodeV1FormatFromBytes() {
+        final String body = "some non-json body";
+
+        final TextMessage message = decoder.decode(Key.of("foo"), Header.of(), body.getBytes(UTF_8));
+
+        assertThat(message.getKey()).isEqualTo(Key.of("foo"));
+        assertThat(message.getPayload()).isEqualTo(body);
+    }
+
+    @Test
+    public void shouldDecodeBrokenV2FormatFromBytesAsV1Format() {
+        final String body = "{\"_synapse_msg_format\":\"v2\",\"_synapse_msg_headers\":{\"attr\":{}},\"_synapse_msg_payload\":{}}";
+
+        final TextMessage message = decoder.decode(Key.of("foo"), Header.of(), body.getBytes(UTF_8));
+
+        assertThat(message).isEqualTo(decoder.decode(Key.of("foo"), Header.of(), body));
+        assertThat(message.getPayload()).isEqualTo(body);
+    }
+}
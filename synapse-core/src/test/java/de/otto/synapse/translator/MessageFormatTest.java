@@ -2,6 +2,7 @@ package de.otto.synapse.translator;
 
 import org.junit.Test;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 
 
@@ -11,4 +12,21 @@ public class MessageFormatTest {
     public void shouldReturnDefaultMessageFormat() {
         assertThat(MessageFormat.defaultMessageFormat()).isEqualTo(MessageFormat.V1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldDetermineMessageFormatFromBytes() {
+        final String[] messages = {
+                "{\"_synapse_msg_format\":\"v2\",\"_synapse_msg_payload\":{}}",
+                "{ \"_synapse_msg_format\" :\t\"v2\" }",
+                "{\"_synapse_msg_format\":\"v2\"",
+                "{\"_synapse_msg_format\":\"v2\",\n\"_synapse_msg_payload\":{}}",
+                "{\"_synapse_msg_format\":\"v1\",\"_synapse_msg_payload\":{}}",
+                "{\"foo\":\"bar\"}",
+                ""
+        };
+        for (final String message : messages) {
+            assertThat(MessageFormat.versionOf(message.getBytes(UTF_8))).isEqualTo(MessageFormat.versionOf(message));
+        }
+        assertThat(MessageFormat.versionOf((byte[]) null)).isEqualTo(MessageFormat.V1);
+    }
+}
@@ -9,6 +9,7 @@ import org.junit.Test;
 
 import static com.google.common.collect.ImmutableBiMap.of;
 import static de.otto.synapse.message.Key.NO_KEY;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.is;
 
@@ -37,4 +38,34 @@ public class TextEncoderTest {
         assertThat(encoded).isEqualTo("{\"_synapse_msg_format\":\"v2\",\"_synapse_msg_key\":{\"partitionKey\":\"foo\",\"compactionKey\":\"bar\"},\"_synapse_msg_headers\":{\"attr\":\"value\"},\"_synapse_msg_payload\":{}}");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldEmbedJsonPayloadWithoutReformattingIt() {
+        final TextEncoder encoder = new TextEncoder(MessageFormat.V2);
+        final TextMessage someMessage = TextMessage.of(Key.of("foo"), Header.of(), "{\"some\": [1, 2.50]}");
+        final String encoded = encoder.apply(someMessage);
+        assertThat(encoded).isEqualTo("{\"_synapse_msg_format\":\"v2\",\"_synapse_msg_key\":{\"partitionKey\":\"foo\",\"compactionKey\":\"foo\"},\"_synapse_msg_headers\":{},\"_synapse_msg_payload\":{\"some\": [1, 2.50]}}");
+    }
+
+    @Test
+    public void shouldEncodeInvalidJsonPayloadAsString() {
+        final TextEncoder encoder = new TextEncoder(MessageFormat.V2);
+        final String encoded = encoder.apply(TextMessage.of(Key.of("foo"), Header.of(), "{} trailing"));
+        assertThat(encoded).endsWith("\"_synapse_msg_payload\":\"{} trailing\"}");
+    }
+
+    @Test
+    public void shouldRemoveLineBreaksFromJsonPayload() {
+        final TextEncoder encoder = new TextEncoder(MessageFormat.V2, true);
+        final String encoded = encoder.apply(TextMessage.of(Key.of("foo"), Header.of(), "{\n  \"some\" : \"payload\"\n}"));
+        assertThat(encoded).endsWith("\"_synapse_msg_payload\":{\"some\":\"payload\"}}");
+        assertThat(MessageFormat.versionOf(encoded)).isEqualTo(MessageFormat.V2);
+    }
+
+    @Test
+    public void shouldEncodeInV2FormatAsUtf8() {
+        final TextEncoder encoder = new TextEncoder(MessageFormat.V2);
+        final TextMessage someMessage = TextMessage.of(Key.of("foo", "bar"), Header.builder().withAttributes(of("attr", "välue")).build(), "{\"ä\":\"ö\"}");
+        assertThat(new String(encoder.applyAsUtf8(someMessage), UTF_8)).isEqualTo(encoder.apply(someMessage));
+    }
+
+}
@@ -1,7 +1,11 @@
 package de.otto.synapse.edison.metrics;
 
 
+import de.otto.synapse.state.AutoResizingChronicleMapStateRepository;
+import de.otto.synapse.state.CachingStateRepository;
+import de.otto.synapse.state.DelegatingStateRepository;
 import de.otto.synapse.state.StateRepository;
+import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -20,12 +24,80 @@ public class StateRepositoryMetricsReporter {
     public StateRepositoryMetricsReporter(MeterRegistry registry,
                                           Environment environment,
                                           List<StateRepository<?>> stateRepositories) {
+        final String profile = String.join(",", environment.getActiveProfiles());
         stateRepositories.forEach(stateRepository -> {
             Gauge.builder("state_repository_size", stateRepository, StateRepository::size)
-                    .tag("profile", String.join(",", environment.getActiveProfiles()))
+                    .tag("profile", profile)
                     .tag("state_repository", stateRepository.getName())
                     .register(registry);
+            // decorators like the CachingStateRepository are hiding the meters of the repositories they are delegating to:
+            StateRepository<?> repository = stateRepository;
+            while (repository != null) {
+                if (repository instanceof CachingStateRepository) {
+                    registerCacheMeters(registry, profile, (CachingStateRepository<?>) repository);
+                }
+                if (repository instanceof AutoResizingChronicleMapStateRepository) {
+                    registerCapacityGauges(registry, profile, (AutoResizingChronicleMapStateRepository<?>) repository);
+                }
+                repository = repository instanceof DelegatingStateRepository
+                        ? ((DelegatingStateRepository<?>) repository).getDelegate()
+                        : null;
+            }
         });
     }
 
+    private void registerCacheMeters(final MeterRegistry registry,
+                                     final String profile,
+                                     final CachingStateRepository<?> stateRepository) {
+        final String name = stateRepository.getName();
+        FunctionCounter.builder("state_repository_cache_hits", stateRepository, CachingStateRepository::getHitCount)
+                .tag("profile", profile)
+                .tag("state_repository", name)
+                .register(registry);
+        FunctionCounter.builder("state_repository_cache_misses", stateRepository, CachingStateRepository::getMissCount)
+                .tag("profile", profile)
+                .tag("state_repository", name)
+                .register(registry);
+        FunctionCounter.builder("state_repository_cache_evictions", stateRepository, CachingStateRepository::getEvictionCount)
+                .tag("profile", profile)
+                .tag("state_repository", name)
+                .register(registry);
+        Gauge.builder("state_repository_cache_size", stateRepository, CachingStateRepository::getCacheSize)
+                .tag("profile", profile)
+                .tag("state_repository", name)
+                .register(registry);
+    }
+
+    private void registerCapacityGauges(final MeterRegistry registry,
+                                        final String profile,
+                                        final AutoResizingChronicleMapStateRepository<?> stateRepository) {
+        final String name = stateRepository.getName();
+        Gauge.builder("state_repository_capacity", stateRepository, AutoResizingChronicleMapStateRepository::getEntries)
+                .tag("profile", profile)
+                .tag("state_repository", name)
+                .register(registry);
+        Gauge.builder("state_repository_fill_ratio", stateRepository, AutoResizingChronicleMapStateRepository::getFillRatio)
+                .tag("profile", profile)
+                .tag("state_repository", name)
+                .register(registry);
+        Gauge.builder("state_repository_free_space_percent", stateRepository, AutoResizingChronicleMapStateRepository::getPercentageFreeSpace)
+                .tag("profile", profile)
+                .tag("state_repository", name)
+                .register(registry);
+        Gauge.builder("state_repository_average_key_size", stateRepository, AutoResizingChronicleMapStateRepository::getAverageKeySize)
+                .tag("profile", profile)
+                .tag("state_repository", name)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("state_repository_average_value_size", stateRepository, AutoResizingChronicleMapStateRepository::getAverageValueSize)
+                .tag("profile", profile)
+                .tag("state_repository", name)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("state_repository_migrations", stateRepository, AutoResizingChronicleMapStateRepository::getMigrationCount)
+                .tag("profile", profile)
+                .tag("state_repository", name)
+                .register(registry);
+    }
+
 }
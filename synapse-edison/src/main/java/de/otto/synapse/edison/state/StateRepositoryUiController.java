@@ -101,9 +101,11 @@ public class StateRepositoryUiController {
                     ? zeroBasedNumberedPaging(page, pageSize, (int)stateRepository.size()).links(repositoryUri, allOf(PagingRel.class))
                     : emptyLinks());
 
-            final List<ImmutableMap<String, String>> entitiesModel = entityPageIds
+            final List<ImmutableMap<String, String>> entitiesModel = stateRepository
+                    .getAll(entityPageIds)
+                    .entrySet()
                     .stream()
-                    .map(entityId -> toEntityModel(entityId, stateRepository.get(entityId)))
+                    .map(entry -> toEntityModel(entry.getKey(), entry.getValue()))
                     .collect(toList());
             return new ModelAndView(
                     "staterepository",
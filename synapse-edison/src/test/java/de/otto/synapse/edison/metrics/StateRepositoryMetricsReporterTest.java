@@ -0,0 +1,59 @@
+package de.otto.synapse.edison.metrics;
+
+import de.otto.synapse.state.AutoResizingChronicleMapStateRepository;
+import de.otto.synapse.state.CachingStateRepository;
+import de.otto.synapse.state.StateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+class StateRepositoryMetricsReporterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AutoResizingChronicleMapStateRepository<String> autoResizingRepository;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        autoResizingRepository = AutoResizingChronicleMapStateRepository.builder(String.class)
+                .withName("products")
+                .withEntries(1_000)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        autoResizingRepository.close();
+    }
+
+    @Test
+    void shouldRegisterCapacityGaugesOfAutoResizingRepository() {
+        //when
+        new StateRepositoryMetricsReporter(meterRegistry, new MockEnvironment(), List.of(autoResizingRepository));
+
+        //then
+        assertThat(meterRegistry.get("state_repository_capacity").tag("state_repository", "products").gauge().value(), is(1_000.0));
+    }
+
+    @Test
+    void shouldRegisterCacheMetersAndCapacityGaugesOfCachedAutoResizingRepository() {
+        //given
+        final StateRepository<String> cachingRepository = new CachingStateRepository<>(autoResizingRepository, 100);
+
+        //when
+        new StateRepositoryMetricsReporter(meterRegistry, new MockEnvironment(), List.of(cachingRepository));
+
+        //then
+        assertThat(meterRegistry.get("state_repository_cache_hits").tag("state_repository", "products").functionCounter(), notNullValue());
+        assertThat(meterRegistry.get("state_repository_capacity").tag("state_repository", "products").gauge().value(), is(1_000.0));
+        assertThat(meterRegistry.get("state_repository_size").tag("state_repository", "products").gauge(), notNullValue());
+    }
+}